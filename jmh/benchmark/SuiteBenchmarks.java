@@ -0,0 +1,147 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The BenchmarkSuite cases under JMH: forked JVMs, per-iteration
+ * statistics and profilers (-prof gc), on the suite's own workloads and
+ * seeded datasets. Each invocation runs one of the suite's batches, so
+ * scores are ns per operation, like baseline.txt.
+ *
+ * Usage: mvn -B -P jmh package && java -jar target/benchmarks.jar [JMH options]
+ *   e.g. java -jar target/benchmarks.jar codec -p ledgerMegabytes=4096 -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SuiteBenchmarks {
+
+    // ---------- Workload States ----------
+    @State(Scope.Thread)
+    public static class TradingJournal {
+        BenchmarkSuite.Workload workload;
+
+        @Setup
+        public void setUp() throws Exception {
+            workload = BenchmarkSuite.workload("trading.buySell.journal", 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TradingLegacy {
+        BenchmarkSuite.Workload workload;
+
+        @Setup
+        public void setUp() throws Exception {
+            workload = BenchmarkSuite.workload("trading.buySell.legacy", 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup {
+        @Param({ "1000", "10000", "100000" })
+        public int universe;
+
+        BenchmarkSuite.Workload workload;
+
+        @Setup
+        public void setUp() throws Exception {
+            workload = BenchmarkSuite.workload("market.getStockBySymbol." + universe, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Codec {
+        @Param({ "transaction.fromFileString", "transaction.toFileString",
+                "codec.parse.chars", "codec.parse.bytes", "codec.encodeLine" })
+        public String name;
+
+        BenchmarkSuite.Workload workload;
+
+        @Setup
+        public void setUp() throws Exception {
+            workload = BenchmarkSuite.workload(name, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ledger {
+        @Param({ "file.loadTransactions", "file.loadTransactionsParallel",
+                "ledger.query.csv", "ledger.query.segment" })
+        public String name;
+
+        @Param("64")
+        public long ledgerMegabytes;
+
+        BenchmarkSuite.Workload workload;
+
+        @Setup
+        public void setUp() throws Exception {
+            workload = BenchmarkSuite.workload(name + "." + ledgerMegabytes + "mb", ledgerMegabytes);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Portfolio {
+        BenchmarkSuite.Workload workload;
+
+        @Setup
+        public void setUp() throws Exception {
+            workload = BenchmarkSuite.workload("portfolio.buySell", 0);
+        }
+    }
+
+    // ---------- Benchmarks ----------
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkSuite.TRADING_JOURNAL_OPS)
+    public void tradingJournal(TradingJournal state) throws Exception {
+        state.workload.run(BenchmarkSuite.TRADING_JOURNAL_OPS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkSuite.TRADING_LEGACY_OPS)
+    public void tradingLegacy(TradingLegacy state) throws Exception {
+        state.workload.run(BenchmarkSuite.TRADING_LEGACY_OPS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkSuite.LOOKUP_OPS)
+    public void getStockBySymbol(Lookup state) throws Exception {
+        state.workload.run(BenchmarkSuite.LOOKUP_OPS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkSuite.CODEC_OPS)
+    public void codec(Codec state) throws Exception {
+        state.workload.run(BenchmarkSuite.CODEC_OPS);
+    }
+
+    // One whole-ledger pass per operation, like the suite's ledger cases
+    @Benchmark
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void ledger(Ledger state) throws Exception {
+        state.workload.run(1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkSuite.PORTFOLIO_OPS)
+    public void portfolioBuySell(Portfolio state) throws Exception {
+        state.workload.run(BenchmarkSuite.PORTFOLIO_OPS);
+    }
+}
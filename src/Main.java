@@ -1,17 +1,107 @@
+import service.AccountEngine;
+import service.BarAggregator;
+import service.ChecksummedFile;
 import service.FileService;
+import service.MarketService;
+import service.MetricsReporter;
+import service.OrderServer;
+import service.PersistencePipeline;
+import service.PriceFeed;
+import service.RiskCheck;
+import service.RiskEngine;
 import service.TradingService;
+import service.TransactionJournal;
+import service.ValuationEngine;
 
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 public class Main {
 
+    private static final int JOURNAL_CHECKPOINT_INTERVAL = 100;
+    private static final int MARKET_PAGE_SIZE = 25;
+    private static final int TOP_MOVERS = 10;
+    private static final int RECENT_BARS = 20;
+    private static final int SEARCH_RESULTS = 10;
+    private static final int SERVER_WORKER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
     public static void main(String[] args) {
 
         Scanner scanner = new Scanner(System.in);
         FileService fileService = new FileService();
-        TradingService tradingService = new TradingService(fileService);
 
-        boolean exit = false;
+        // --verify: checks every data file against its checksum and exits, before recovery touches them
+        if (hasFlag(args, "--verify")) {
+            System.exit(verifyDataFiles(fileService) ? 0 : 1);
+        }
+
+        MarketService marketService = new MarketService(fileService);
+        AccountEngine accountEngine = new AccountEngine(fileService, marketService);
+        TradingService tradingService = new TradingService(fileService, marketService, accountEngine);
+
+        TransactionJournal.Durability durability = parseJournalMode(args);
+        if (isAsyncJournal(args)) {
+            tradingService.usePersistencePipeline(fileService.openPersistencePipeline(
+                    TransactionJournal.Durability.BATCH, PersistencePipeline.DEFAULT_CAPACITY),
+                    JOURNAL_CHECKPOINT_INTERVAL);
+        } else if (durability != null) {
+            tradingService.useJournal(fileService.openJournal(durability), JOURNAL_CHECKPOINT_INTERVAL);
+        }
+
+        // --bars 1s,1m,1h,1d: OHLCV bar intervals kept per symbol (default 1m,1h,1d), saved to data/bars.txt
+        String barIntervals = optionValue(args, "--bars");
+        BarAggregator bars = fileService.loadBars(barIntervals == null
+                ? BarAggregator.DEFAULT_INTERVALS : BarAggregator.Interval.parseList(barIntervals));
+        tradingService.addTradeListener(bars);
+        accountEngine.addTradeListener(bars);
+
+        PriceFeed priceFeed = startPriceFeed(args, marketService);
+
+        RiskEngine riskEngine = parseRiskChecks(args, marketService);
+        if (riskEngine != null) {
+            tradingService.setRiskEngine(riskEngine);
+            accountEngine.setRiskEngine(riskEngine);
+        }
+
+        // --metrics-interval <seconds>: appends latency histograms and counters to data/metrics.log
+        String metricsInterval = optionValue(args, "--metrics-interval");
+        MetricsReporter metricsReporter = metricsInterval == null ? null
+                : fileService.openMetricsReporter(Long.parseLong(metricsInterval.trim()));
+
+        // --server <port>: headless order entry until the process is stopped
+        String serverPort = optionValue(args, "--server");
+        if (serverPort != null) {
+            runServer(Integer.parseInt(serverPort.trim()), fileService, tradingService, bars, priceFeed, riskEngine,
+                    metricsReporter);
+            return;
+        }
+
+        // --import-orders <file>: bulk-imports an orders CSV and exits without the menu
+        String orderFile = optionValue(args, "--import-orders");
+        if (orderFile != null) {
+            TradingService.BatchResult result = tradingService.importOrders(Paths.get(orderFile));
+            result.getRejections().forEach(System.out::println);
+            System.out.println("Order import finished. " + result);
+        }
+
+        // Valuation and P&L shown with the portfolio: saved state plus the newer trades, then kept current by every trade
+        ValuationEngine valuation = orderFile == null
+                ? fileService.loadValuation(ValuationEngine.CostBasis.AVERAGE) : null;
+        if (valuation != null) {
+            tradingService.addTradeListener(valuation);
+            accountEngine.addTradeListener(valuation);
+        }
+
+        // --user <id>: Buy, Sell and Portfolio act on that user's account, opened on first use
+        String userId = optionValue(args, "--user");
+        if (userId != null && orderFile == null) {
+            userId = userId.trim();
+            if (accountEngine.getAccount(userId) == null) {
+                openAccount(scanner, accountEngine, userId);
+            }
+        }
+
+        boolean exit = orderFile != null;
 
         while (!exit) {
 
@@ -24,7 +114,7 @@ public class Main {
                 switch (choice) {
 
                     case "1":
-                        tradingService.displayMarketData();
+                        showMarketPages(scanner, marketService);
                         break;
 
                     case "2":
@@ -34,7 +124,12 @@ public class Main {
                         System.out.print("Enter quantity: ");
                         int buyQty = Integer.parseInt(scanner.nextLine());
 
-                        tradingService.buyStock(buySymbol, buyQty);
+                        if (userId != null) {
+                            accountEngine.buy(userId, buySymbol, buyQty);
+                            System.out.println("Stock purchased successfully.");
+                        } else {
+                            tradingService.buyStock(buySymbol, buyQty);
+                        }
                         break;
 
                     case "3":
@@ -44,14 +139,40 @@ public class Main {
                         System.out.print("Enter quantity: ");
                         int sellQty = Integer.parseInt(scanner.nextLine());
 
-                        tradingService.sellStock(sellSymbol, sellQty);
+                        if (userId != null) {
+                            accountEngine.sell(userId, sellSymbol, sellQty);
+                            System.out.println("Stock sold successfully.");
+                        } else {
+                            tradingService.sellStock(sellSymbol, sellQty);
+                        }
                         break;
 
                     case "4":
-                        tradingService.displayPortfolio();
+                        if (userId != null) {
+                            accountEngine.displayAccount(userId);
+                        } else {
+                            tradingService.displayPortfolio();
+                        }
+                        showValuation(valuation, marketService,
+                                userId != null ? userId : TradingService.PORTFOLIO_ACCOUNT);
                         break;
 
                     case "5":
+                        marketService.displayTopMovers(TOP_MOVERS);
+                        break;
+
+                    case "6":
+                        showBars(scanner, bars);
+                        break;
+
+                    case "7":
+                        System.out.print("Search symbol or company name: ");
+                        marketService.displaySearchResults(scanner.nextLine(), SEARCH_RESULTS);
+                        break;
+
+                    // Exit keeps the same key however many entries are added above it
+                    case "0":
+                    case "q":
                         System.out.println("Exiting application...");
                         exit = true;
                         break;
@@ -62,7 +183,7 @@ public class Main {
 
             } catch (NumberFormatException e) {
                 System.out.println("Invalid number input. Please enter numeric values only.");
-            } catch (IllegalArgumentException e) {
+            } catch (IllegalArgumentException | IllegalStateException e) {
                 System.out.println("Error: " + e.getMessage());
             } catch (Exception e) {
                 System.out.println("Unexpected error occurred: " + e.getMessage());
@@ -71,16 +192,275 @@ public class Main {
             System.out.println();
         }
 
+        tradingService.shutdown();
+        fileService.saveBars(bars);
+        if (valuation != null) {
+            fileService.saveValuation(valuation);
+        }
+
+        if (priceFeed != null) {
+            priceFeed.close();
+            System.out.println("Price feed closed. " + priceFeed.getStats());
+        }
+
+        if (riskEngine != null) {
+            riskEngine.displayStats();
+        }
+
+        closeMetrics(metricsReporter);
+
         scanner.close();
     }
 
+    // ---------- User Account ----------
+    private static void openAccount(Scanner scanner, AccountEngine accountEngine, String userId) {
+
+        System.out.print("No account " + userId + " yet. Enter your name: ");
+        String userName = scanner.nextLine();
+
+        System.out.print("Enter opening balance: ");
+        double balance = Double.parseDouble(scanner.nextLine().trim());
+
+        accountEngine.openAccount(userId, userName, balance);
+        System.out.println("Account " + userId + " opened.");
+    }
+
+    // ---------- Valuation ----------
+
+    // Marked to the live prices first, so P&L follows the price feed
+    private static void showValuation(ValuationEngine valuation, MarketService marketService, String accountId) {
+        System.out.println();
+        valuation.markToMarket(marketService.getPriceTable());
+        valuation.displayValuation(accountId);
+    }
+
+    // ---------- Market View ----------
+
+    // One page at a time: a page number or N moves on, Enter returns to the menu
+    private static void showMarketPages(Scanner scanner, MarketService marketService) {
+
+        int pages = marketService.getReportRenderer().getPageCount(MARKET_PAGE_SIZE);
+        int page = 1;
+
+        while (true) {
+            marketService.displayMarketPage(page, MARKET_PAGE_SIZE);
+
+            if (pages == 1) {
+                return;
+            }
+
+            System.out.print("Page " + page + " of " + pages + ". Enter a page number, N for next, or Enter to return: ");
+            String input = scanner.nextLine().trim();
+
+            if (input.isEmpty()) {
+                return;
+            }
+
+            page = input.equalsIgnoreCase("N") ? page % pages + 1 : Integer.parseInt(input);
+
+            if (page < 1 || page > pages) {
+                throw new IllegalArgumentException("Page must be between 1 and " + pages);
+            }
+        }
+    }
+
+    // ---------- Price Bars ----------
+
+    // The latest bars of one symbol; Enter picks the shortest interval kept
+    private static void showBars(Scanner scanner, BarAggregator bars) {
+
+        System.out.print("Enter stock symbol: ");
+        String symbol = scanner.nextLine();
+
+        System.out.print("Enter interval (" + String.join("/", bars.getIntervals().stream()
+                .map(BarAggregator.Interval::getLabel).toArray(String[]::new)) + "): ");
+        String label = scanner.nextLine().trim();
+
+        BarAggregator.Interval interval = label.isEmpty()
+                ? bars.getIntervals().get(0) : BarAggregator.Interval.parse(label);
+
+        System.out.println(bars.getRecentBars(symbol, interval, RECENT_BARS));
+    }
+
+    // ---------- Headless Server ----------
+
+    // Serves orders until SIGINT/SIGTERM, then drains and shuts down like the menu's Exit
+    private static void runServer(int port, FileService fileService, TradingService tradingService,
+            BarAggregator bars, PriceFeed priceFeed, RiskEngine riskEngine, MetricsReporter metricsReporter) {
+
+        tradingService.setVerbose(false);
+
+        OrderServer server = new OrderServer(tradingService, SERVER_WORKER_THREADS);
+        int boundPort = server.start(port);
+        System.out.println("Order server listening on localhost:" + boundPort);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            System.out.println("Order server closed. " + server.getStats());
+
+            tradingService.shutdown();
+            fileService.saveBars(bars);
+
+            if (priceFeed != null) {
+                priceFeed.close();
+                System.out.println("Price feed closed. " + priceFeed.getStats());
+            }
+
+            if (riskEngine != null) {
+                riskEngine.displayStats();
+            }
+
+            closeMetrics(metricsReporter);
+        }, "server-shutdown"));
+
+        try {
+            server.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writes the final report
+    private static void closeMetrics(MetricsReporter metricsReporter) {
+        if (metricsReporter != null) {
+            metricsReporter.close();
+            System.out.println("Metrics written to " + metricsReporter.getLogFile());
+        }
+    }
+
+    // ---------- Data File Verification ----------
+
+    // Prints one line per file; returns false if any file is corrupt
+    private static boolean verifyDataFiles(FileService fileService) {
+
+        int corrupt = 0;
+
+        for (ChecksummedFile.Verification result : fileService.verifyDataFiles()) {
+            System.out.println(result);
+            if (result.isCorrupt()) {
+                corrupt++;
+            }
+        }
+
+        System.out.println(corrupt == 0 ? "All data files verified." : corrupt + " data file(s) failed verification.");
+        return corrupt == 0;
+    }
+
+    // ---------- Command Line ----------
+
+    // --journal async: batch-durable journal written by a background thread
+    private static boolean isAsyncJournal(String[] args) {
+        String mode = optionValue(args, "--journal");
+        return mode != null && mode.trim().equalsIgnoreCase("async");
+    }
+
+    // --journal none|batch|every
+    private static TransactionJournal.Durability parseJournalMode(String[] args) {
+
+        for (int i = 0; i < args.length - 1; i++) {
+            if (!"--journal".equals(args[i])) {
+                continue;
+            }
+
+            switch (args[i + 1].trim().toLowerCase()) {
+                case "async":
+                    return null;
+                case "none":
+                    return TransactionJournal.Durability.NONE;
+                case "batch":
+                    return TransactionJournal.Durability.BATCH;
+                case "every":
+                    return TransactionJournal.Durability.EVERY_TRADE;
+                default:
+                    throw new IllegalArgumentException("Unknown journal mode: " + args[i + 1]);
+            }
+        }
+
+        return null;
+    }
+
+    // --price-feed <port> listens on localhost, --price-replay <file> replays ticks
+    private static PriceFeed startPriceFeed(String[] args, MarketService marketService) {
+
+        String port = optionValue(args, "--price-feed");
+        String replayFile = optionValue(args, "--price-replay");
+
+        if (port == null && replayFile == null) {
+            return null;
+        }
+
+        PriceFeed priceFeed = new PriceFeed(marketService);
+
+        if (port != null) {
+            int boundPort = priceFeed.listen(Integer.parseInt(port.trim()));
+            System.out.println("Price feed listening on localhost:" + boundPort);
+        }
+
+        if (replayFile != null) {
+            Thread replay = new Thread(() -> priceFeed.replay(Paths.get(replayFile), 0), "price-replay");
+            replay.setDaemon(true);
+            replay.start();
+        }
+
+        return priceFeed;
+    }
+
+    // --max-position <shares> --max-order-value <₹> --max-exposure <₹> --price-band <percent>
+    private static RiskEngine parseRiskChecks(String[] args, MarketService marketService) {
+
+        RiskEngine riskEngine = new RiskEngine(marketService);
+
+        String maxPosition = optionValue(args, "--max-position");
+        if (maxPosition != null) {
+            riskEngine.addCheck(new RiskCheck.MaxPosition(Long.parseLong(maxPosition.trim())));
+        }
+
+        String maxOrderValue = optionValue(args, "--max-order-value");
+        if (maxOrderValue != null) {
+            riskEngine.addCheck(new RiskCheck.MaxOrderNotional(Double.parseDouble(maxOrderValue.trim())));
+        }
+
+        String maxExposure = optionValue(args, "--max-exposure");
+        if (maxExposure != null) {
+            riskEngine.addCheck(new RiskCheck.MaxExposure(Double.parseDouble(maxExposure.trim())));
+        }
+
+        String priceBand = optionValue(args, "--price-band");
+        if (priceBand != null) {
+            riskEngine.addCheck(new RiskCheck.PriceBand(Double.parseDouble(priceBand.trim()) / 100));
+        }
+
+        return riskEngine.getCheckCount() == 0 ? null : riskEngine;
+    }
+
+    private static boolean hasFlag(String[] args, String name) {
+        for (String arg : args) {
+            if (name.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String optionValue(String[] args, String name) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (name.equals(args[i])) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
     private static void printMenu() {
         System.out.println("====== STOCK TRADING PLATFORM ======");
         System.out.println("1. View Market Data");
         System.out.println("2. Buy Stock");
         System.out.println("3. Sell Stock");
-        System.out.println("4. View Portfolio");
-        System.out.println("5. Exit");
+        System.out.println("4. View Portfolio & P&L");
+        System.out.println("5. View Top Movers");
+        System.out.println("6. View Price Bars");
+        System.out.println("7. Search Stocks");
+        System.out.println("0. Exit");
         System.out.println("===================================");
     }
 }
@@ -0,0 +1,292 @@
+package benchmark;
+
+import model.User;
+import service.AccountEngine;
+import service.FileService;
+import service.MarketService;
+import service.PriceTable;
+import service.TradingService;
+import service.TransactionJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * Concurrent trading across many accounts in a scratch data directory.
+ *
+ * Prices do not move during the run, so cash plus holdings at market value
+ * must stay equal to the opening cash, and no balance may go negative.
+ * After a checkpoint the accounts are reloaded and compared field by field.
+ * Then a smaller set of accounts trades through a TradingService with a
+ * journal, "crashes" without a final checkpoint, and must come back with
+ * the same balances and holdings, including when a checkpoint stopped
+ * after its snapshot but before its account files. Also reports heap used
+ * per account.
+ *
+ * Usage: java -cp out benchmark.AccountEngineHarness [accounts] [threads] [tradesPerThread]
+ * Exits with status 1 if any invariant is violated.
+ */
+public class AccountEngineHarness {
+
+    private static final int SYMBOLS = 100;
+    private static final double OPENING_BALANCE = 100_000;
+
+    public static void main(String[] args) throws Exception {
+
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors() * 2;
+        int tradesPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        Path dataDir = Datasets.freshDirectory("accounts");
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dataDir.toString());
+        MarketService marketService = new MarketService(fileService);
+
+        // ---------- Open Accounts ----------
+        long heapBefore = usedHeap();
+        AccountEngine engine = new AccountEngine(fileService, marketService);
+        for (int i = 0; i < accountCount; i++) {
+            engine.openAccount("U" + i, "User " + i, OPENING_BALANCE);
+        }
+        long heapAfterOpen = usedHeap();
+
+        // ---------- Concurrent Trading ----------
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            long seed = 31L * t + 7;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < tradesPerThread; i++) {
+                        String userId = "U" + random.nextInt(accountCount);
+                        String symbol = Datasets.symbol(random.nextInt(SYMBOLS));
+                        int quantity = 1 + random.nextInt(20);
+                        try {
+                            if (random.nextInt(5) < 3) {
+                                engine.buy(userId, symbol, quantity);
+                            } else {
+                                engine.sell(userId, symbol, quantity);
+                            }
+                            accepted.incrementAndGet();
+                        } catch (IllegalArgumentException | IllegalStateException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers[t].start();
+        }
+
+        long tradeStart = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long tradeNanos = System.nanoTime() - tradeStart;
+        long heapAfterTrading = usedHeap();
+
+        // ---------- Invariants ----------
+        PriceTable prices = marketService.getPriceTable();
+        double total = 0;
+        boolean negative = false;
+
+        for (User user : engine.getAccounts()) {
+            negative |= user.getBalance() < 0;
+            total += user.getBalance();
+            for (Map.Entry<String, Integer> holding : user.getPortfolio().getHoldings().entrySet()) {
+                total += prices.getPrice(holding.getKey()) * holding.getValue();
+            }
+        }
+
+        double opening = OPENING_BALANCE * accountCount;
+        boolean ok = check("no negative balance", !negative);
+        ok &= check("cash + holdings value conserved", Math.abs(total - opening) <= opening * 1e-9);
+
+        // ---------- Persistence ----------
+        int dirty = engine.getDirtyCount();
+        long checkpointStart = System.nanoTime();
+        int written = engine.checkpoint();
+        long checkpointNanos = System.nanoTime() - checkpointStart;
+
+        long loadStart = System.nanoTime();
+        AccountEngine reloaded = new AccountEngine(fileService, marketService);
+        long loadNanos = System.nanoTime() - loadStart;
+
+        ok &= check("checkpoint wrote every dirty account", written == dirty && engine.getDirtyCount() == 0);
+        ok &= check("reloaded accounts match", sameAccounts(engine, reloaded));
+        ok &= journaledTradesRecovered(Math.min(accountCount, 1_000), tradesPerThread);
+
+        System.out.printf("Accounts: %,d | Threads: %d | Accepted: %,d | Rejected: %,d | %,.0f trades/s%n",
+                accountCount, threads, accepted.get(), rejected.get(),
+                (accepted.get() + rejected.get()) * 1e9 / tradeNanos);
+        System.out.printf("Heap per account: %.0f B opened, %.0f B after trading%n",
+                (heapAfterOpen - heapBefore) / (double) accountCount,
+                (heapAfterTrading - heapBefore) / (double) accountCount);
+        System.out.printf("Checkpoint: %,d accounts in %.0f ms | Reload: %,d accounts in %.0f ms%n",
+                written, checkpointNanos / 1e6, reloaded.getAccountCount(), loadNanos / 1e6);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Journal Recovery ----------
+    private static boolean journaledTradesRecovered(int accountCount, int trades) throws IOException {
+
+        // Checkpoints part-way through, so recovery needs both the snapshot and the tail
+        Path dataDir = accountDirectory("accounts-journal");
+        FileService fileService = new FileService(dataDir.toString());
+        AccountEngine before = new AccountEngine(fileService, new MarketService(fileService));
+        TradingService tradingService = attach(fileService, before);
+        TransactionJournal journal = fileService.openJournal(TransactionJournal.Durability.NONE);
+        int interval = Math.max(1, trades / 10);
+        tradingService.useJournal(journal, interval);
+
+        openAccounts(before, accountCount);
+        tradingService.checkpoint();
+
+        long start = System.nanoTime();
+        int executed = trade(before, accountCount, trades, new Random(Datasets.SEED));
+        System.out.printf("Journaled account trades: %,d trades/s with a checkpoint every %,d%n",
+                (long) (executed * 1e9 / (System.nanoTime() - start)), interval);
+
+        // Crash: journal durable, no final checkpoint
+        journal.close();
+
+        boolean ok = check("journaled account trades survive a crash",
+                sameAccounts(before, recoverAccounts(fileService)));
+
+        // ---------- Checkpoint cut short after its snapshot ----------
+        dataDir = accountDirectory("accounts-cut-short");
+        fileService = new FileService(dataDir.toString());
+        before = new AccountEngine(fileService, new MarketService(fileService));
+        tradingService = attach(fileService, before);
+        journal = fileService.openJournal(TransactionJournal.Durability.NONE);
+        tradingService.useJournal(journal, Integer.MAX_VALUE);
+
+        openAccounts(before, accountCount);
+        Random random = new Random(Datasets.SEED);
+        trade(before, accountCount, trades / 2, random);
+
+        // The checkpoint's account files are lost, as if it stopped right after writing the snapshot
+        Path accounts = dataDir.resolve("accounts");
+        Path saved = Datasets.freshDirectory("accounts-saved");
+        copyFiles(accounts, saved);
+        tradingService.checkpoint();
+        copyFiles(saved, accounts);
+
+        trade(before, accountCount, trades / 2, random);
+        journal.close();
+
+        ok &= check("snapshot restores accounts whose files missed the checkpoint",
+                sameAccounts(before, recoverAccounts(fileService)));
+
+        return ok;
+    }
+
+    private static Path accountDirectory(String name) throws IOException {
+        Path dataDir = Datasets.freshDirectory(name);
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+        return dataDir;
+    }
+
+    private static TradingService attach(FileService fileService, AccountEngine accounts) {
+        TradingService tradingService = new TradingService(fileService, new MarketService(fileService), accounts);
+        tradingService.setVerbose(false);
+        return tradingService;
+    }
+
+    private static void openAccounts(AccountEngine engine, int accountCount) {
+        for (int i = 0; i < accountCount; i++) {
+            engine.openAccount("U" + i, "User " + i, OPENING_BALANCE);
+        }
+    }
+
+    // Returns the number of trades executed
+    private static int trade(AccountEngine engine, int accountCount, int trades, Random random) {
+
+        int executed = 0;
+
+        for (int i = 0; i < trades; i++) {
+            String userId = "U" + random.nextInt(accountCount);
+            String symbol = Datasets.symbol(random.nextInt(SYMBOLS));
+            try {
+                if (random.nextInt(5) < 3) {
+                    engine.buy(userId, symbol, 1 + random.nextInt(20));
+                } else {
+                    engine.sell(userId, symbol, 1 + random.nextInt(20));
+                }
+                executed++;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Rejected trades are never journaled
+            }
+        }
+
+        return executed;
+    }
+
+    private static void copyFiles(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, to.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static AccountEngine recoverAccounts(FileService fileService) {
+        AccountEngine accounts = new AccountEngine(fileService, new MarketService(fileService));
+        new TradingService(fileService, new MarketService(fileService), accounts);
+        return accounts;
+    }
+
+    // ---------- Helper Methods ----------
+    private static boolean sameAccounts(AccountEngine expected, AccountEngine actual) {
+
+        if (expected.getAccountCount() != actual.getAccountCount()) {
+            return false;
+        }
+
+        for (User user : expected.getAccounts()) {
+            User other = actual.getAccount(user.getUserId());
+            if (other == null
+                    || other.getBalance() != user.getBalance()
+                    || !other.getUserName().equals(user.getUserName())
+                    || !new HashMap<>(other.getPortfolio().getHoldings())
+                            .equals(new HashMap<>(user.getPortfolio().getHoldings()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,185 @@
+package benchmark;
+
+import model.Transaction;
+import service.FileService;
+import service.LatencyHistogram;
+import service.PersistencePipeline;
+import service.TradingService;
+import service.TransactionJournal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * Trade latency as seen by the caller with synchronous persistence, the
+ * group-committed journal and the async persistence pipeline, each in a
+ * scratch data directory with the same concurrent order flow.
+ *
+ * For the pipeline runs, sync() must make every queued trade visible in
+ * transactions.txt, every durability future must complete, and after
+ * shutdown the file, a replay and a restart must all agree with the
+ * portfolio. A run with a tiny ring must hit backpressure and still lose
+ * nothing.
+ *
+ * Usage: java -cp out benchmark.AsyncPersistenceBenchmark [threads] [tradesPerThread] [syncTradesPerThread]
+ * Exits with status 1 if a check fails.
+ */
+public class AsyncPersistenceBenchmark {
+
+    private static final int SYMBOLS = 100;
+    private static final int CHECKPOINT_INTERVAL = 10_000;
+
+    private enum Mode { SYNC_FILES, JOURNAL, PIPELINE_WAIT, PIPELINE_ASYNC }
+
+    public static void main(String[] args) throws Exception {
+
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int tradesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int syncTradesPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 250;
+
+        System.out.printf("%-26s | %8s | %12s | %10s | %10s | %10s%n",
+                "Mode", "Trades", "Trades/s", "p50 (us)", "p99 (us)", "Max (us)");
+        System.out.println("-".repeat(91));
+
+        run("sync files", Mode.SYNC_FILES, threads, syncTradesPerThread, 0);
+        run("journal (group commit)", Mode.JOURNAL, threads, tradesPerThread, 0);
+        boolean ok = run("pipeline, wait durable", Mode.PIPELINE_WAIT, threads, tradesPerThread,
+                PersistencePipeline.DEFAULT_CAPACITY);
+        ok &= run("pipeline, return queued", Mode.PIPELINE_ASYNC, threads, tradesPerThread,
+                PersistencePipeline.DEFAULT_CAPACITY);
+        ok &= run("pipeline, ring of 16", Mode.PIPELINE_ASYNC, threads, tradesPerThread, 16);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // Returns false if a pipeline check failed
+    private static boolean run(String name, Mode mode, int threads, int tradesPerThread, int capacity)
+            throws Exception {
+
+        Path dataDir = Datasets.freshDirectory("async-" + mode.name().toLowerCase());
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dataDir.toString());
+        TradingService tradingService = new TradingService(fileService);
+        tradingService.setVerbose(false);
+
+        if (mode == Mode.JOURNAL) {
+            tradingService.useJournal(fileService.openJournal(TransactionJournal.Durability.BATCH),
+                    CHECKPOINT_INTERVAL);
+        } else if (mode != Mode.SYNC_FILES) {
+            tradingService.usePersistencePipeline(fileService.openPersistencePipeline(
+                    TransactionJournal.Durability.BATCH, capacity), CHECKPOINT_INTERVAL);
+        }
+
+        // ---------- Order Flow ----------
+        LatencyHistogram latency = new LatencyHistogram(name);
+        List<List<CompletableFuture<Transaction>>> futures = new ArrayList<>();
+        AtomicLong executed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            List<CompletableFuture<Transaction>> own = new ArrayList<>(tradesPerThread);
+            futures.add(own);
+            long seed = Datasets.SEED + t;
+
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int i = 0; i < tradesPerThread; i++) {
+                    Transaction.Type type = random.nextInt(5) < 3 ? Transaction.Type.BUY : Transaction.Type.SELL;
+                    String symbol = Datasets.symbol(random.nextInt(SYMBOLS));
+                    int quantity = 1 + random.nextInt(20);
+
+                    long begin = System.nanoTime();
+                    try {
+                        if (mode == Mode.PIPELINE_ASYNC) {
+                            own.add(tradingService.placeOrderAsync(type, symbol, quantity));
+                        } else {
+                            tradingService.placeOrder(type, symbol, quantity);
+                        }
+                        executed.incrementAndGet();
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        // Rejected sell
+                    }
+                    latency.recordSince(begin);
+                }
+            });
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        LatencyHistogram.Snapshot snapshot = latency.getSnapshot();
+        System.out.printf("%-26s | %,8d | %,12.0f | %10.1f | %10.1f | %10.1f%n", name, snapshot.getCount(),
+                snapshot.getCount() * 1e9 / elapsed, snapshot.getPercentileNanos(50) / 1e3,
+                snapshot.getPercentileNanos(99) / 1e3, snapshot.getMaxNanos() / 1e3);
+
+        PersistencePipeline pipeline = tradingService.getPersistencePipeline();
+        if (pipeline == null) {
+            tradingService.shutdown();
+            return true;
+        }
+
+        // ---------- Checks ----------
+        pipeline.sync();
+        boolean ok = check("  sync() writes every queued trade", lineCount(dataDir) == executed.get());
+
+        boolean completed = true;
+        for (List<CompletableFuture<Transaction>> own : futures) {
+            for (CompletableFuture<Transaction> future : own) {
+                completed &= future.isDone() && !future.isCompletedExceptionally();
+            }
+        }
+        ok &= check("  every durability future completed", completed);
+
+        PersistencePipeline.Stats stats = pipeline.getStats();
+        tradingService.shutdown();
+
+        ok &= check("  transactions.txt holds every executed trade", lineCount(dataDir) == executed.get());
+        HashMap<String, Integer> holdings = new HashMap<>(tradingService.getPortfolio().getHoldings());
+        ok &= check("  replay matches portfolio",
+                holdings.equals(new HashMap<>(TradingService.replay(fileService.loadTransactions()).getHoldings())));
+        ok &= check("  restart recovers portfolio", holdings.equals(new HashMap<>(
+                new TradingService(new FileService(dataDir.toString())).getPortfolio().getHoldings())));
+
+        if (capacity < 64) {
+            ok &= check("  full ring applies backpressure", stats.getBackpressureWaits() > 0);
+        }
+
+        return ok;
+    }
+
+    // ---------- Helper Methods ----------
+    private static long lineCount(Path dataDir) throws Exception {
+        try (Stream<String> lines = Files.lines(dataDir.resolve("transactions.txt"))) {
+            return lines.count();
+        }
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,285 @@
+package benchmark;
+
+import model.Portfolio;
+import model.User;
+import service.ChecksummedFile;
+import service.FileService;
+import service.TradingService;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/*
+ * Checks the crash-safe checksummed writes of portfolio.txt, account files
+ * and snapshots, in a scratch data directory.
+ *
+ * A flipped byte or a file cut short must fail verification and refuse to
+ * load, a leftover temp file from a crash before the rename must leave the
+ * old file in place, and files written before checksums must still load.
+ * A damaged portfolio.txt must be rebuilt from the transaction file on
+ * restart, and a damaged snapshot skipped. Then compares the cost of one
+ * save with the old in-place rewrite and a naive temp + fsync + rename
+ * that formats with strings, in time and bytes allocated.
+ *
+ * Usage: java -cp out benchmark.AtomicWriteHarness [holdings] [saves]
+ * Exits with status 1 if a check fails.
+ */
+public class AtomicWriteHarness {
+
+    private static final int SYMBOLS = 50;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+
+        int holdingCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int saves = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        Path dataDir = Datasets.freshDirectory("atomic-write");
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+        Path portfolioFile = dataDir.resolve("portfolio.txt");
+
+        // ---------- Portfolio File ----------
+        FileService fileService = new FileService(dataDir.toString());
+        Portfolio portfolio = portfolio(holdingCount);
+        fileService.savePortfolio(portfolio);
+
+        boolean ok = check("saved portfolio verifies", status(portfolioFile) == ChecksummedFile.Status.VALID);
+        ok &= check("saved portfolio loads back",
+                portfolio.getHoldings().equals(fileService.loadPortfolio().getHoldings()));
+
+        byte[] saved = Files.readAllBytes(portfolioFile);
+
+        byte[] flipped = saved.clone();
+        flipped[flipped.length / 2] ^= 1;
+        Files.write(portfolioFile, flipped);
+        ok &= check("flipped byte fails verification", status(portfolioFile) == ChecksummedFile.Status.CORRUPT);
+        ok &= check("flipped byte refuses to load", refusesToLoad(fileService));
+
+        Files.write(portfolioFile, Arrays.copyOf(saved, lastLineStart(saved)));
+        ok &= check("missing last line fails verification",
+                status(portfolioFile) == ChecksummedFile.Status.CORRUPT);
+
+        // Crash after the temp file was written but before the rename
+        Files.write(portfolioFile, saved);
+        Files.write(dataDir.resolve("portfolio.txt.tmp"), "TORN,1".getBytes(StandardCharsets.US_ASCII));
+        ok &= check("leftover temp file leaves the old portfolio",
+                portfolio.getHoldings().equals(fileService.loadPortfolio().getHoldings()));
+        fileService.savePortfolio(portfolio);
+        ok &= check("next save replaces the leftover temp file", Files.readString(portfolioFile,
+                StandardCharsets.UTF_8).equals(new String(saved, StandardCharsets.UTF_8))
+                && !Files.exists(dataDir.resolve("portfolio.txt.tmp")));
+
+        saveLegacy(portfolioFile, portfolio);
+        ok &= check("legacy portfolio without checksum loads",
+                status(portfolioFile) == ChecksummedFile.Status.NO_CHECKSUM
+                        && portfolio.getHoldings().equals(fileService.loadPortfolio().getHoldings()));
+
+        // ---------- Account Files ----------
+        User user = new User("u1", "Ärzte Trading", 12_345.67);
+        user.getPortfolio().buyStock(Datasets.symbol(3), 40);
+        fileService.saveAccount(user);
+        List<User> users = fileService.loadAccounts();
+        ok &= check("account round-trips with checksum", users.size() == 1
+                && users.get(0).getUserName().equals(user.getUserName())
+                && users.get(0).getBalance() == user.getBalance()
+                && users.get(0).getPortfolio().getHoldings().equals(user.getPortfolio().getHoldings()));
+
+        Path accountFile = dataDir.resolve("accounts").resolve("u1.txt");
+        corrupt(accountFile);
+        ok &= check("damaged account file is skipped", fileService.loadAccounts().isEmpty());
+
+        // ---------- Recovery ----------
+        Path recoveryDir = Datasets.freshDirectory("atomic-recovery");
+        Files.copy(dataDir.resolve("stocks.txt"), recoveryDir.resolve("stocks.txt"));
+        Map<String, Integer> traded = trade(recoveryDir);
+
+        ok &= check("clean data directory verifies", allValid(new FileService(recoveryDir.toString())));
+
+        // Without snapshots, recovery has to read portfolio.txt
+        deleteSnapshots(recoveryDir);
+        corrupt(recoveryDir.resolve("portfolio.txt"));
+        FileService recoveryFiles = new FileService(recoveryDir.toString());
+        ok &= check("verify reports the damaged portfolio", !allValid(recoveryFiles));
+        ok &= check("damaged portfolio rebuilt from transactions",
+                traded.equals(holdings(new TradingService(recoveryFiles))));
+        ok &= check("rebuilt portfolio verifies", allValid(new FileService(recoveryDir.toString())));
+
+        Path snapshot;
+        try (Stream<Path> files = Files.list(recoveryDir.resolve("snapshots"))) {
+            snapshot = files.filter(file -> file.toString().endsWith(".txt")).findFirst().orElseThrow();
+        }
+        corrupt(snapshot);
+        ok &= check("damaged snapshot skipped on restart",
+                traded.equals(holdings(new TradingService(new FileService(recoveryDir.toString())))));
+
+        Files.writeString(recoveryDir.resolve("transactions.txt"), "BUY,TORN", StandardOpenOption.APPEND);
+        ok &= check("verify reports a torn transaction record",
+                !allValid(new FileService(recoveryDir.toString())));
+
+        // ---------- Save Cost ----------
+        Portfolio large = portfolio(holdingCount);
+        long[] inPlace = measure(saves, () -> saveLegacy(portfolioFile, large));
+        long[] naive = measure(saves, () -> saveNaiveAtomic(portfolioFile, large));
+        long[] checksummed = measure(saves, () -> fileService.savePortfolio(large));
+
+        System.out.printf("Holdings: %d | Saves: %d%n", large.getHoldings().size(), saves);
+        print("in place, no fsync (old)", inPlace, saves);
+        print("temp + fsync + rename, naive", naive, saves);
+        print("checksummed, reused buffer", checksummed, saves);
+
+        ok &= check("reused buffer allocates less than the naive atomic write", checksummed[1] < naive[1]);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Reference Writers ----------
+
+    // The old savePortfolio: truncates and rewrites in place
+    private static void saveLegacy(Path file, Portfolio portfolio) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+            for (Map.Entry<String, Integer> entry : portfolio.getHoldings().entrySet()) {
+                bw.write(entry.getKey() + "," + entry.getValue());
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save portfolio", e);
+        }
+    }
+
+    // Crash-safe, but formats through strings and a fresh writer every save
+    private static void saveNaiveAtomic(Path file, Portfolio portfolio) {
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+
+            for (Map.Entry<String, Integer> entry : portfolio.getHoldings().entrySet()) {
+                bw.write(entry.getKey() + "," + entry.getValue());
+                bw.newLine();
+            }
+            bw.flush();
+            out.getFD().sync();
+
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save portfolio", e);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+
+    // Returns { nanos, bytes allocated } for all saves, after a warm-up
+    private static long[] measure(int saves, Runnable save) {
+
+        for (int i = 0; i < saves / 5; i++) {
+            save.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < saves; i++) {
+            save.run();
+        }
+
+        return new long[] { System.nanoTime() - start, THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore };
+    }
+
+    private static void print(String name, long[] result, int saves) {
+        System.out.printf("%-30s %8.1f us/save | %,8d B/save%n", name, result[0] / 1e3 / saves, result[1] / saves);
+    }
+
+    private static Portfolio portfolio(int holdingCount) {
+        Random random = new Random(Datasets.SEED);
+        Portfolio portfolio = new Portfolio();
+        for (int i = 0; i < holdingCount; i++) {
+            portfolio.buyStock("S" + i, 1 + random.nextInt(10_000));
+        }
+        return portfolio;
+    }
+
+    // Trades in sync-file mode, shuts down and returns the holdings
+    private static Map<String, Integer> trade(Path dataDir) {
+
+        TradingService tradingService = new TradingService(new FileService(dataDir.toString()));
+        tradingService.setVerbose(false);
+        Random random = new Random(Datasets.SEED);
+
+        for (int i = 0; i < 200; i++) {
+            tradingService.buyStock(Datasets.symbol(random.nextInt(SYMBOLS)), 1 + random.nextInt(20));
+        }
+
+        tradingService.shutdown();
+        return holdings(tradingService);
+    }
+
+    private static Map<String, Integer> holdings(TradingService tradingService) {
+        return new HashMap<>(tradingService.getPortfolio().getHoldings());
+    }
+
+    private static boolean refusesToLoad(FileService fileService) {
+        try {
+            fileService.loadPortfolio();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    private static boolean allValid(FileService fileService) {
+        return fileService.verifyDataFiles().stream().noneMatch(ChecksummedFile.Verification::isCorrupt);
+    }
+
+    private static ChecksummedFile.Status status(Path file) {
+        return ChecksummedFile.verify(file).getStatus();
+    }
+
+    private static void corrupt(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 2] ^= 1;
+        Files.write(file, bytes);
+    }
+
+    private static void deleteSnapshots(Path dataDir) throws IOException {
+        try (Stream<Path> files = Files.list(dataDir.resolve("snapshots"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static int lastLineStart(byte[] bytes) {
+        int index = bytes.length - 1;
+        while (index > 0 && bytes[index - 1] != '\n') {
+            index--;
+        }
+        return index;
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
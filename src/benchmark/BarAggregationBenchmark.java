@@ -0,0 +1,238 @@
+package benchmark;
+
+import model.Transaction;
+import service.BarAggregator;
+import service.FileService;
+import service.TradingService;
+import service.TransactionQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/*
+ * OHLCV bars built in bulk from a large transactions.txt, checked against
+ * a naive group-by of every trade, then kept up to date incrementally.
+ *
+ * Bulk bars must equal the naive ones at every interval. Saved bars must
+ * load back unchanged, and after more trades are appended a load must
+ * catch up to exactly the bars of the whole file. Bars fed live from
+ * TradingService must equal bulk bars over the transactions it wrote.
+ * Reports bulk throughput, the cost per trade and a chart query against
+ * rescanning the ledger for the same answer.
+ *
+ * Usage: java -cp out benchmark.BarAggregationBenchmark [ledgerMb] [symbols] [liveTrades]
+ * Exits with status 1 if a check fails.
+ */
+public class BarAggregationBenchmark {
+
+    private static final BarAggregator.Interval[] INTERVALS = BarAggregator.Interval.values();
+
+    public static void main(String[] args) throws Exception {
+
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int liveTrades = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        Path dataDir = Datasets.freshDirectory("bars");
+        Files.copy(Datasets.ledgerDirectory(megabytes, symbolCount).resolve("transactions.txt"),
+                dataDir.resolve("transactions.txt"));
+        FileService fileService = new FileService(dataDir.toString());
+
+        // ---------- Bulk ----------
+        long start = System.nanoTime();
+        BarAggregator bulk = fileService.loadBars(INTERVALS);
+        long bulkNanos = System.nanoTime() - start;
+        long trades = fileService.forEachTransaction(TransactionQuery.all(), transaction -> { });
+
+        boolean ok = check("bulk bars match a naive group-by at every interval",
+                matches(bulk, naive(fileService, INTERVALS)));
+
+        // ---------- Persistence ----------
+        fileService.saveBars(bulk);
+        start = System.nanoTime();
+        BarAggregator loaded = fileService.loadBars(INTERVALS);
+        long loadNanos = System.nanoTime() - start;
+        ok &= check("saved bars load back unchanged", same(bulk, loaded));
+
+        BarAggregator fewer = fileService.loadBars(BarAggregator.Interval.MINUTE);
+        ok &= check("other intervals rebuild from the ledger",
+                same(fewer, naiveAggregator(fileService, BarAggregator.Interval.MINUTE)));
+
+        String extra = String.join("\n", Datasets.transactionLines(5_000, symbolCount)) + "\n";
+        Files.writeString(dataDir.resolve("transactions.txt"), extra, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        BarAggregator caughtUp = fileService.loadBars(INTERVALS);
+        ok &= check("load catches up on trades after the saved offset",
+                matches(caughtUp, naive(fileService, INTERVALS)));
+
+        // ---------- Incremental ----------
+        Path liveDir = Datasets.freshDirectory("bars-live");
+        Files.copy(Datasets.marketDirectory(symbolCount).resolve("stocks.txt"), liveDir.resolve("stocks.txt"));
+        FileService liveFiles = new FileService(liveDir.toString());
+        TradingService tradingService = new TradingService(liveFiles);
+        tradingService.setVerbose(false);
+
+        BarAggregator live = liveFiles.loadBars(INTERVALS);
+        tradingService.addTradeListener(live);
+
+        Random random = new Random(Datasets.SEED);
+        for (int i = 0; i < liveTrades; i++) {
+            try {
+                if (random.nextInt(3) == 0) {
+                    tradingService.sellStock(Datasets.symbol(random.nextInt(symbolCount)), 1 + random.nextInt(5));
+                } else {
+                    tradingService.buyStock(Datasets.symbol(random.nextInt(symbolCount)), 1 + random.nextInt(20));
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Rejected sell
+            }
+        }
+        tradingService.shutdown();
+
+        ok &= check("live bars match bulk bars over the written trades",
+                same(live, liveFiles.loadBars(INTERVALS)));
+
+        // ---------- Cost ----------
+        BarAggregator perTrade = new BarAggregator(BarAggregator.DEFAULT_INTERVALS);
+        Transaction[] sample = fileService.streamTransactions(TransactionQuery.all()).limit(200_000)
+                .toArray(Transaction[]::new);
+        for (Transaction transaction : sample) {
+            perTrade.add(transaction);
+        }
+        perTrade = new BarAggregator(BarAggregator.DEFAULT_INTERVALS);
+        start = System.nanoTime();
+        for (Transaction transaction : sample) {
+            perTrade.add(transaction);
+        }
+        long perTradeNanos = System.nanoTime() - start;
+
+        // A day of 1m bars for one symbol, from the bars and from the ledger
+        String symbol = Datasets.symbol(7);
+        long from = 1_577_870_100L;  // 2020-01-01 09:15 UTC, the ledger start
+        long to = from + 86_400;
+
+        start = System.nanoTime();
+        BarAggregator.Bars chart = caughtUp.getBars(symbol, BarAggregator.Interval.MINUTE, from, to);
+        long queryNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BarAggregator rescan = new BarAggregator(BarAggregator.Interval.MINUTE);
+        fileService.forEachTransaction(TransactionQuery.all().withSymbol(symbol).withTimeRange(
+                LocalDateTime.ofEpochSecond(from, 0, ZoneOffset.UTC),
+                LocalDateTime.ofEpochSecond(to, 0, ZoneOffset.UTC)), rescan::add);
+        long rescanNanos = System.nanoTime() - start;
+
+        ok &= check("chart query matches a ledger rescan", chart.toString().equals(
+                rescan.getBars(symbol, BarAggregator.Interval.MINUTE, from, to).toString()) && chart.size() > 0);
+
+        System.out.printf("Ledger: %d MB, %,d trades, %d symbols | Bars: %,d%n",
+                megabytes, trades, symbolCount, bulk.getBarCount());
+        System.out.printf("Bulk aggregation (4 intervals): %8.0f ms (%,.0f trades/s)%n",
+                bulkNanos / 1e6, trades * 1e9 / bulkNanos);
+        System.out.printf("Load saved bars:                %8.0f ms (%,d bars)%n", loadNanos / 1e6, loaded.getBarCount());
+        System.out.printf("Per trade (3 intervals):        %8.0f ns%n", perTradeNanos / (double) sample.length);
+        System.out.printf("One day of 1m bars (%d bars):  %8.3f ms from bars | %8.1f ms rescanning the ledger%n",
+                chart.size(), queryNanos / 1e6, rescanNanos / 1e6);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Naive Reference ----------
+
+    // interval -> symbol -> bar start -> { open, high, low, close, volume, trades }
+    private static Map<BarAggregator.Interval, Map<String, TreeMap<Long, double[]>>> naive(
+            FileService fileService, BarAggregator.Interval... intervals) {
+
+        Map<BarAggregator.Interval, Map<String, TreeMap<Long, double[]>>> bars = new HashMap<>();
+
+        fileService.forEachTransaction(TransactionQuery.all(), transaction -> {
+            long second = transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            double price = transaction.getPrice();
+
+            for (BarAggregator.Interval interval : intervals) {
+                double[] bar = bars.computeIfAbsent(interval, i -> new HashMap<>())
+                        .computeIfAbsent(transaction.getStockSymbol(), s -> new TreeMap<>())
+                        .computeIfAbsent(second - Math.floorMod(second, interval.getSeconds()),
+                                s -> new double[] { price, price, price, price, 0, 0 });
+                bar[1] = Math.max(bar[1], price);
+                bar[2] = Math.min(bar[2], price);
+                bar[3] = price;
+                bar[4] += transaction.getQuantity();
+                bar[5]++;
+            }
+        });
+
+        return bars;
+    }
+
+    private static BarAggregator naiveAggregator(FileService fileService, BarAggregator.Interval interval) {
+        BarAggregator bars = new BarAggregator(interval);
+        fileService.forEachTransaction(TransactionQuery.all(), bars::add);
+        return bars;
+    }
+
+    private static boolean matches(BarAggregator bars,
+            Map<BarAggregator.Interval, Map<String, TreeMap<Long, double[]>>> expected) {
+
+        long expectedCount = 0;
+
+        for (Map.Entry<BarAggregator.Interval, Map<String, TreeMap<Long, double[]>>> perInterval : expected.entrySet()) {
+            for (Map.Entry<String, TreeMap<Long, double[]>> perSymbol : perInterval.getValue().entrySet()) {
+
+                BarAggregator.Bars actual = bars.getBars(perSymbol.getKey(), perInterval.getKey(),
+                        Long.MIN_VALUE, Long.MAX_VALUE);
+
+                if (actual.size() != perSymbol.getValue().size()) {
+                    return false;
+                }
+
+                int i = 0;
+                for (Map.Entry<Long, double[]> bar : perSymbol.getValue().entrySet()) {
+                    double[] b = bar.getValue();
+                    if (actual.getStart(i) != bar.getKey() || actual.getOpen(i) != b[0] || actual.getHigh(i) != b[1]
+                            || actual.getLow(i) != b[2] || actual.getClose(i) != b[3]
+                            || actual.getVolume(i) != (long) b[4] || actual.getTrades(i) != (int) b[5]) {
+                        return false;
+                    }
+                    i++;
+                }
+                expectedCount += actual.size();
+            }
+        }
+
+        return bars.getBarCount() == expectedCount;
+    }
+
+    private static boolean same(BarAggregator a, BarAggregator b) {
+
+        if (a.getBarCount() != b.getBarCount() || !a.getIntervals().equals(b.getIntervals())) {
+            return false;
+        }
+
+        for (BarAggregator.Interval interval : a.getIntervals()) {
+            for (String symbol : a.getSymbols()) {
+                if (!a.getBars(symbol, interval, Long.MIN_VALUE, Long.MAX_VALUE).toString().equals(
+                        b.getBars(symbol, interval, Long.MIN_VALUE, Long.MAX_VALUE).toString())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,148 @@
+package benchmark;
+
+import model.OrderRequest;
+import model.Transaction;
+import service.FileService;
+import service.TradingService;
+import service.TransactionJournal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/*
+ * Bulk order import against one-order-at-a-time trading, each in a scratch
+ * data directory.
+ *
+ * The full orders file goes through TradingService.importOrders, with and
+ * without the journal. The one-at-a-time path saves the portfolio and
+ * appends a transaction per order, so it runs on a sample only and is
+ * extrapolated to the full file. On that sample both paths must end with
+ * the same holdings and the same transactions (timestamps aside), and a
+ * restart after the import must recover the imported portfolio.
+ *
+ * Usage: java -cp out benchmark.BatchImportBenchmark [orders] [symbols] [sequentialSample]
+ * Exits with status 1 if a check fails.
+ */
+public class BatchImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int sample = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        Path orderFile = Datasets.orderFile(orderCount, symbolCount);
+        boolean ok = true;
+
+        // ---------- Bulk Import ----------
+        Path bulkDir = dataDirectory("bulk", symbolCount);
+        TradingService bulk = service(bulkDir);
+        TradingService.BatchResult result = bulk.importOrders(orderFile);
+        System.out.println("Bulk import:            " + result);
+
+        long lines;
+        try (Stream<String> transactionLines = Files.lines(bulkDir.resolve("transactions.txt"))) {
+            lines = transactionLines.count();
+        }
+        ok &= check("every order executed or rejected", result.getExecuted() + result.getRejected() == orderCount);
+        ok &= check("one transaction line per executed order", lines == result.getExecuted());
+
+        Map<String, Integer> imported = new HashMap<>(bulk.getPortfolio().getHoldings());
+        TradingService restarted = service(bulkDir);
+        ok &= check("restart recovers the imported portfolio",
+                imported.equals(new HashMap<>(restarted.getPortfolio().getHoldings())));
+
+        // ---------- Bulk Import (Journal) ----------
+        Path journalDir = dataDirectory("journal", symbolCount);
+        TradingService journaled = service(journalDir);
+        journaled.useJournal(new FileService(journalDir.toString())
+                .openJournal(TransactionJournal.Durability.EVERY_TRADE), 100);
+        TradingService.BatchResult journalResult = journaled.importOrders(orderFile);
+        TransactionJournal.Stats journalStats = journaled.getJournal().getStats();
+        journaled.shutdown();
+        System.out.println("Bulk import (journal):  " + journalResult);
+        System.out.println("  " + journalStats);
+
+        // ---------- One Order at a Time (Sample) ----------
+        List<OrderRequest> orders = new FileService(bulkDir.toString()).loadOrders(orderFile).subList(0, sample);
+
+        Path sequentialDir = dataDirectory("sequential", symbolCount);
+        TradingService sequential = service(sequentialDir);
+        int rejected = 0;
+        long start = System.nanoTime();
+        for (OrderRequest order : orders) {
+            try {
+                if (order.getType() == Transaction.Type.BUY) {
+                    sequential.buyStock(order.getStockSymbol(), order.getQuantity());
+                } else {
+                    sequential.sellStock(order.getStockSymbol(), order.getQuantity());
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                rejected++;
+            }
+        }
+        long sequentialNanos = System.nanoTime() - start;
+        double perOrder = sequentialNanos / (double) sample;
+
+        System.out.printf("One at a time:          %,d orders in %.1f ms (%,.0f orders/s) -> %.1f s for %,d orders%n",
+                sample, sequentialNanos / 1e6, 1e9 / perOrder, perOrder * orderCount / 1e9, orderCount);
+        System.out.printf("Speed-up: %.0fx%n", perOrder * orderCount / result.getElapsedNanos());
+
+        Path sampleDir = dataDirectory("sample", symbolCount);
+        TradingService batched = service(sampleDir);
+        TradingService.BatchResult sampleResult = batched.executeBatch(orders);
+
+        ok &= check("sample: same rejections", sampleResult.getRejected() == rejected);
+        ok &= check("sample: same holdings", new HashMap<>(batched.getPortfolio().getHoldings())
+                .equals(new HashMap<>(sequential.getPortfolio().getHoldings())));
+        ok &= check("sample: same transactions", sameTransactions(sequentialDir, sampleDir));
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private static Path dataDirectory(String name, int symbolCount) throws Exception {
+        Path dir = Datasets.freshDirectory("batch-" + name);
+        Files.copy(Datasets.marketDirectory(symbolCount).resolve("stocks.txt"), dir.resolve("stocks.txt"));
+        return dir;
+    }
+
+    private static TradingService service(Path dataDir) {
+        TradingService service = new TradingService(new FileService(dataDir.toString()));
+        service.setVerbose(false);
+        return service;
+    }
+
+    // Same records in the same order, ignoring timestamps
+    private static boolean sameTransactions(Path expectedDir, Path actualDir) {
+
+        List<Transaction> expected = new FileService(expectedDir.toString()).loadTransactions();
+        List<Transaction> actual = new FileService(actualDir.toString()).loadTransactions();
+
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            Transaction e = expected.get(i);
+            Transaction a = actual.get(i);
+            if (e.getType() != a.getType() || !e.getStockSymbol().equals(a.getStockSymbol())
+                    || e.getQuantity() != a.getQuantity() || e.getPrice() != a.getPrice()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,514 @@
+package benchmark;
+
+import model.Portfolio;
+import model.Transaction;
+import model.TransactionCodec;
+import service.FileService;
+import service.LedgerSegmentReader;
+import service.MarketService;
+import service.TradingService;
+import service.TransactionJournal;
+import service.TransactionQuery;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/*
+ * Micro-benchmark suite for the trading, lookup, parsing and persistence
+ * hot paths. Each case runs warm-up iterations, then measured iterations,
+ * and reports the median ns/op plus bytes allocated per op.
+ *
+ * Usage: java -cp out benchmark.BenchmarkSuite [options]
+ *   --filter <text>      run only cases whose name contains text
+ *   --ledger-mb <n>      size of the generated transactions.txt (default 64)
+ *   --baseline <file>    compare against saved results, exit 1 on regression
+ *   --tolerance <pct>    allowed slowdown before a regression (default 25)
+ *   --save <file>        write results as a new baseline
+ *
+ * The committed baseline is src/benchmark/baseline.txt.
+ */
+public class BenchmarkSuite {
+
+    // ---------- Benchmark Case ----------
+    interface Workload {
+        void run(int operations) throws Exception;
+    }
+
+    private static final class Case {
+        final String name;
+        final int operations;
+        final int warmups;
+        final int measurements;
+        final Callable<Workload> setUp;
+
+        Case(String name, int operations, int warmups, int measurements, Callable<Workload> setUp) {
+            this.name = name;
+            this.operations = operations;
+            this.warmups = warmups;
+            this.measurements = measurements;
+            this.setUp = setUp;
+        }
+    }
+
+    // Operations per measured run; the JMH benchmarks (jmh/) use the same batches
+    static final int TRADING_JOURNAL_OPS = 20_000;
+    static final int TRADING_LEGACY_OPS = 500;
+    static final int LOOKUP_OPS = 1_000_000;
+    static final int CODEC_OPS = 200_000;
+    static final int PORTFOLIO_OPS = 1_000_000;
+
+    // Keeps results observable so the JIT cannot drop the work
+    static long sink;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final List<Case> cases = new ArrayList<>();
+    private final Map<String, Double> results = new LinkedHashMap<>();
+
+    // ---------- Entry Point ----------
+    public static void main(String[] args) throws Exception {
+
+        String filter = option(args, "--filter", "");
+        long ledgerMegabytes = Long.parseLong(option(args, "--ledger-mb", "64"));
+        String baseline = option(args, "--baseline", null);
+        double tolerance = Double.parseDouble(option(args, "--tolerance", "25"));
+        String save = option(args, "--save", null);
+
+        BenchmarkSuite suite = new BenchmarkSuite();
+        suite.registerAll(ledgerMegabytes);
+        suite.run(filter);
+
+        if (save != null) {
+            suite.saveResults(Paths.get(save));
+        }
+
+        if (baseline != null && !suite.compare(Paths.get(baseline), tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Registered Cases ----------
+    void registerAll(long ledgerMegabytes) {
+
+        register("trading.buySell.journal", TRADING_JOURNAL_OPS, 3, 5, () -> tradingWorkload(true));
+        register("trading.buySell.legacy", TRADING_LEGACY_OPS, 2, 3, () -> tradingWorkload(false));
+
+        for (int universe : new int[] { 1_000, 10_000, 100_000 }) {
+            register("market.getStockBySymbol." + universe, LOOKUP_OPS, 3, 5, () -> lookupWorkload(universe));
+        }
+
+        register("transaction.fromFileString", CODEC_OPS, 10, 5, BenchmarkSuite::parseWorkload);
+        register("transaction.toFileString", CODEC_OPS, 10, 5, BenchmarkSuite::formatWorkload);
+        register("codec.parse.chars", CODEC_OPS, 10, 5, () -> codecParseWorkload(false));
+        register("codec.parse.bytes", CODEC_OPS, 10, 5, () -> codecParseWorkload(true));
+        register("codec.encodeLine", CODEC_OPS, 10, 5, BenchmarkSuite::codecEncodeWorkload);
+        register("file.loadTransactions." + ledgerMegabytes + "mb", 1, 1, 3,
+                () -> loadWorkload(ledgerMegabytes));
+        register("file.loadTransactionsParallel." + ledgerMegabytes + "mb", 1, 1, 3,
+                () -> parallelLoadWorkload(ledgerMegabytes));
+        register("ledger.query.csv." + ledgerMegabytes + "mb", 1, 1, 3,
+                () -> ledgerQueryWorkload(ledgerMegabytes, false));
+        register("ledger.query.segment." + ledgerMegabytes + "mb", 1, 1, 3,
+                () -> ledgerQueryWorkload(ledgerMegabytes, true));
+        register("portfolio.buySell", PORTFOLIO_OPS, 3, 5, BenchmarkSuite::portfolioWorkload);
+    }
+
+    void register(String name, int operations, int warmups, int measurements, Callable<Workload> setUp) {
+        cases.add(new Case(name, operations, warmups, measurements, setUp));
+    }
+
+    // Sets up one registered case on its own, for the JMH benchmarks
+    static Workload workload(String name, long ledgerMegabytes) throws Exception {
+
+        BenchmarkSuite suite = new BenchmarkSuite();
+        suite.registerAll(ledgerMegabytes);
+
+        for (Case benchmark : suite.cases) {
+            if (benchmark.name.equals(name)) {
+                return benchmark.setUp.call();
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown benchmark: " + name);
+    }
+
+    // ---------- Workloads ----------
+    private static Workload tradingWorkload(boolean journal) {
+
+        Path dir = Datasets.freshDirectory(journal ? "journal" : "legacy");
+        copy(Datasets.marketDirectory(100).resolve("stocks.txt"), dir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dir.toString());
+        TradingService tradingService = new TradingService(fileService, new MarketService(fileService));
+        tradingService.setVerbose(false);
+
+        if (journal) {
+            tradingService.useJournal(fileService.openJournal(TransactionJournal.Durability.NONE), 10_000);
+        }
+
+        String[] symbols = symbolSample(100, 1024);
+
+        // Buy then sell the same symbol so holdings never run out
+        return operations -> {
+            for (int i = 0; i < operations; i += 2) {
+                String symbol = symbols[(i >> 1) & 1023];
+                tradingService.buyStock(symbol, 5);
+                tradingService.sellStock(symbol, 5);
+            }
+        };
+    }
+
+    private static Workload lookupWorkload(int universe) {
+
+        FileService fileService = new FileService(Datasets.marketDirectory(universe).toString());
+        MarketService marketService = new MarketService(fileService);
+        String[] symbols = symbolSample(universe, 4096);
+
+        return operations -> {
+            long total = 0;
+            for (int i = 0; i < operations; i++) {
+                total += marketService.getStockBySymbol(symbols[i & 4095]).getSymbol().length();
+            }
+            sink += total;
+        };
+    }
+
+    private static Workload parseWorkload() {
+
+        String[] lines = Datasets.transactionLines(4096, 1000);
+
+        return operations -> {
+            long total = 0;
+            for (int i = 0; i < operations; i++) {
+                total += Transaction.fromFileString(lines[i & 4095]).getQuantity();
+            }
+            sink += total;
+        };
+    }
+
+    private static Workload formatWorkload() {
+
+        Transaction[] transactions = Arrays.stream(Datasets.transactionLines(4096, 1000))
+                .map(Transaction::fromFileString)
+                .toArray(Transaction[]::new);
+
+        return operations -> {
+            long total = 0;
+            for (int i = 0; i < operations; i++) {
+                total += transactions[i & 4095].toFileString().length();
+            }
+            sink += total;
+        };
+    }
+
+    private static Workload codecParseWorkload(boolean bytes) {
+
+        String[] lines = Datasets.transactionLines(4096, 1000);
+        checkCodecMatchesTransaction(lines);
+
+        if (!bytes) {
+            return operations -> {
+                long total = 0;
+                for (int i = 0; i < operations; i++) {
+                    total += TransactionCodec.parse(lines[i & 4095]).getQuantity();
+                }
+                sink += total;
+            };
+        }
+
+        byte[][] encoded = new byte[lines.length][];
+        for (int i = 0; i < lines.length; i++) {
+            encoded[i] = lines[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        TransactionCodec codec = new TransactionCodec();
+
+        return operations -> {
+            long total = 0;
+            for (int i = 0; i < operations; i++) {
+                byte[] line = encoded[i & 4095];
+                total += codec.parse(line, 0, line.length).getQuantity();
+            }
+            sink += total;
+        };
+    }
+
+    private static Workload codecEncodeWorkload() {
+
+        Transaction[] transactions = Arrays.stream(Datasets.transactionLines(4096, 1000))
+                .map(Transaction::fromFileString)
+                .toArray(Transaction[]::new);
+        TransactionCodec codec = new TransactionCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+        return operations -> {
+            long total = 0;
+            for (int i = 0; i < operations; i++) {
+                if (buffer.remaining() < 128) {
+                    buffer.clear();
+                }
+                total += codec.encodeLine(transactions[i & 4095], buffer);
+            }
+            sink += total;
+        };
+    }
+
+    /*
+     * The codec must agree with Transaction.fromFileString/toFileString on
+     * every dataset line and on the awkward inputs its fast path rejects.
+     */
+    private static void checkCodecMatchesTransaction(String[] lines) {
+
+        List<String> inputs = new ArrayList<>(Arrays.asList(lines));
+        inputs.addAll(Arrays.asList(
+                "buy, aapl ,3,180.5,2025-12-14 17:59:14",
+                "SELL,AAPL,1,1.0E7,2025-12-14 17:59:28",
+                "BUY,AAPL,1,180.5,2025-02-30 10:00:00",
+                "BUY,AAPL,1,180.5,2025-12-14 24:00:00",
+                "BUY,AAPL,1,180.5,2025-12-14 17:59:14,",
+                "BUY,AAPL,0,180.5,2025-12-14 17:59:14",
+                "BUY,AAPL,1,180.5"));
+
+        TransactionCodec codec = new TransactionCodec();
+
+        for (String line : inputs) {
+
+            String expected;
+            try {
+                expected = Transaction.fromFileString(line).toFileString();
+            } catch (IllegalArgumentException e) {
+                expected = "error";
+            }
+
+            String actual;
+            try {
+                Transaction parsed = TransactionCodec.parse(line);
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                if (!parsed.equals(codec.parse(bytes, 0, bytes.length))
+                        || !parsed.equals(Transaction.fromFileString(line))) {
+                    throw new IllegalStateException("Codec result differs for: " + line);
+                }
+                actual = TransactionCodec.appendTo(parsed, new StringBuilder()).toString();
+            } catch (IllegalArgumentException e) {
+                actual = "error";
+            }
+
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Codec mismatch for '" + line + "': "
+                        + actual + " vs " + expected);
+            }
+        }
+    }
+
+    private static Workload loadWorkload(long megabytes) {
+
+        FileService fileService = new FileService(Datasets.ledgerDirectory(megabytes, 1000).toString());
+
+        return operations -> {
+            for (int i = 0; i < operations; i++) {
+                sink += fileService.loadTransactions().size();
+            }
+        };
+    }
+
+    private static Workload parallelLoadWorkload(long megabytes) {
+
+        FileService fileService = new FileService(Datasets.ledgerDirectory(megabytes, 1000).toString());
+
+        // The parallel loader must return exactly what the sequential one does
+        if (!fileService.loadTransactionsParallel().getTransactions().equals(fileService.loadTransactions())) {
+            throw new IllegalStateException("Parallel loader differs from loadTransactions()");
+        }
+
+        return operations -> {
+            for (int i = 0; i < operations; i++) {
+                sink += fileService.loadTransactionsParallel().getTransactions().size();
+            }
+        };
+    }
+
+    // One symbol over one week of the ~two month ledger
+    private static final TransactionQuery LEDGER_QUERY = TransactionQuery.all()
+            .withSymbol(Datasets.symbol(7))
+            .withTimeRange(LocalDateTime.of(2020, 2, 1, 0, 0), LocalDateTime.of(2020, 2, 8, 0, 0));
+
+    private static Workload ledgerQueryWorkload(long megabytes, boolean segment) {
+
+        FileService fileService = new FileService(Datasets.ledgerDirectory(megabytes, 1000).toString());
+        Path segmentFile = Datasets.ledgerSegment(megabytes, 1000);
+
+        // Both formats must return the same records for the query
+        List<Transaction> expected = new ArrayList<>();
+        fileService.forEachTransaction(LEDGER_QUERY, expected::add);
+        try (LedgerSegmentReader reader = fileService.openLedgerSegment(segmentFile)) {
+            if (expected.isEmpty() || !reader.read(LEDGER_QUERY).equals(expected)) {
+                throw new IllegalStateException("Ledger segment query differs from transactions.txt");
+            }
+        }
+
+        if (!segment) {
+            return operations -> {
+                for (int i = 0; i < operations; i++) {
+                    sink += fileService.forEachTransaction(LEDGER_QUERY, transaction -> { });
+                }
+            };
+        }
+
+        return operations -> {
+            for (int i = 0; i < operations; i++) {
+                try (LedgerSegmentReader reader = fileService.openLedgerSegment(segmentFile)) {
+                    sink += reader.forEach(LEDGER_QUERY, transaction -> { });
+                }
+            }
+        };
+    }
+
+    private static Workload portfolioWorkload() {
+
+        Portfolio portfolio = new Portfolio();
+        String[] symbols = symbolSample(1000, 4096);
+
+        return operations -> {
+            for (int i = 0; i < operations; i += 2) {
+                String symbol = symbols[(i >> 1) & 4095];
+                portfolio.buyStock(symbol, 3);
+                portfolio.sellStock(symbol, 3);
+            }
+            sink += portfolio.getHoldings().size();
+        };
+    }
+
+    // ---------- Runner ----------
+    void run(String filter) throws Exception {
+
+        System.out.printf("%-40s %14s %14s %12s%n", "Benchmark", "ns/op", "ops/s", "B/op");
+
+        for (Case benchmark : cases) {
+
+            if (!benchmark.name.contains(filter)) {
+                continue;
+            }
+
+            Workload workload = benchmark.setUp.call();
+
+            for (int i = 0; i < benchmark.warmups; i++) {
+                workload.run(benchmark.operations);
+            }
+
+            double[] nanosPerOp = new double[benchmark.measurements];
+            long allocated = 0;
+
+            for (int i = 0; i < benchmark.measurements; i++) {
+                long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+
+                workload.run(benchmark.operations);
+
+                nanosPerOp[i] = (double) (System.nanoTime() - start) / benchmark.operations;
+                allocated += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            }
+
+            Arrays.sort(nanosPerOp);
+            double median = nanosPerOp[nanosPerOp.length / 2];
+            double bytesPerOp = (double) allocated / ((long) benchmark.operations * benchmark.measurements);
+
+            results.put(benchmark.name, median);
+            System.out.printf("%-40s %14.1f %14.1f %12.1f%n",
+                    benchmark.name, median, 1e9 / median, bytesPerOp);
+        }
+
+        // Printing the sink keeps every workload's result live
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    // ---------- Baseline ----------
+    void saveResults(Path file) throws IOException {
+
+        List<String> lines = new ArrayList<>();
+        lines.add("# benchmark median-ns-per-op");
+
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            lines.add(result.getKey() + " " + String.format(Locale.ROOT, "%.1f", result.getValue()));
+        }
+
+        Files.write(file, lines);
+        System.out.println("Saved results to " + file);
+    }
+
+    boolean compare(Path file, double tolerancePercent) throws IOException {
+
+        boolean passed = true;
+
+        for (String line : Files.readAllLines(file)) {
+
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] parts = line.trim().split("\\s+");
+            Double current = results.get(parts[0]);
+
+            if (current == null) {
+                continue;
+            }
+
+            double baseline = Double.parseDouble(parts[1]);
+            double change = (current - baseline) / baseline * 100;
+
+            if (change > tolerancePercent) {
+                System.out.printf("REGRESSION %-40s %.1f -> %.1f ns/op (+%.0f%%)%n",
+                        parts[0], baseline, current, change);
+                passed = false;
+            }
+        }
+
+        System.out.println(passed ? "No regressions against " + file : "Regressions found against " + file);
+        return passed;
+    }
+
+    // ---------- Helper Methods ----------
+    private static String[] symbolSample(int universe, int size) {
+
+        Random random = new Random(Datasets.SEED);
+        String[] symbols = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            symbols[i] = Datasets.symbol(random.nextInt(universe));
+        }
+
+        return symbols;
+    }
+
+    private static void copy(Path from, Path to) {
+        try {
+            Files.copy(from, to, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to copy dataset", e);
+        }
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,275 @@
+package benchmark;
+
+import model.Stock;
+import model.Transaction;
+import service.FileService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Fixed, seeded datasets for the benchmarks. The same arguments always
+ * produce byte-identical data, so results are comparable across runs and
+ * machines without shipping large files in the repository.
+ */
+public final class Datasets {
+
+    public static final long SEED = 20251214L;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(2020, 1, 1, 9, 15, 0);
+
+    private Datasets() {
+    }
+
+    // ---------- Symbols ----------
+    public static String symbol(int i) {
+        // Base-26 letters, e.g. 0 -> "A", 26 -> "BA": realistic 1-5 char tickers
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('A' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return sb.reverse().toString();
+    }
+
+    public static List<Stock> stocks(int count) {
+
+        Random random = new Random(SEED);
+        List<Stock> stocks = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            double price = 10 + random.nextInt(500_000) / 100.0;
+            stocks.add(new Stock(symbol(i), "Company " + i, price));
+        }
+
+        return stocks;
+    }
+
+    /*
+     * Stocks with pronounceable multi-word company names ("Varo Kelintra
+     * Holdings") instead of "Company i", for search benchmarks where names
+     * must differ the way real ones do.
+     */
+    public static List<Stock> namedStocks(int count) {
+
+        String[] onsets = { "b", "c", "d", "f", "g", "h", "k", "l", "m", "n", "p", "r", "s", "t", "v", "z", "br",
+                "cl", "tr", "st", "qu", "sh", "gr" };
+        String[] vowels = { "a", "e", "i", "o", "u", "ai", "eo" };
+        String[] suffixes = { "Inc", "Corp", "Holdings", "Industries", "Systems", "Labs", "Group", "Bank",
+                "Energy", "Motors", "Pharma", "Capital" };
+
+        Random random = new Random(SEED);
+        List<Stock> stocks = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int words = 1 + random.nextInt(2);
+            for (int w = 0; w < words; w++) {
+                StringBuilder word = new StringBuilder();
+                for (int syllable = 1 + random.nextInt(3); syllable >= 0; syllable--) {
+                    word.append(onsets[random.nextInt(onsets.length)]).append(vowels[random.nextInt(vowels.length)]);
+                }
+                name.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length()).append(' ');
+            }
+            name.append(suffixes[random.nextInt(suffixes.length)]);
+
+            double price = 10 + random.nextInt(500_000) / 100.0;
+            stocks.add(new Stock(symbol(i), name.toString(), price));
+        }
+
+        return stocks;
+    }
+
+    // ---------- Data Directories ----------
+    public static Path marketDirectory(int stockCount) {
+
+        Path dir = scratchDirectory("market-" + stockCount);
+        Path stockFile = dir.resolve("stocks.txt");
+
+        if (!Files.exists(stockFile)) {
+            StringBuilder sb = new StringBuilder();
+            for (Stock stock : stocks(stockCount)) {
+                sb.append(stock.getSymbol()).append(',')
+                        .append(stock.getCompanyName()).append(',')
+                        .append(stock.getPrice()).append('\n');
+            }
+            write(stockFile, sb.toString());
+        }
+
+        return dir;
+    }
+
+    /*
+     * Data directory whose transactions.txt is at least the given size.
+     * Generated once per size and reused from the temp directory.
+     */
+    public static Path ledgerDirectory(long megabytes, int symbolCount) {
+
+        Path dir = scratchDirectory("ledger-" + megabytes + "mb-" + symbolCount);
+        Path ledger = dir.resolve("transactions.txt");
+        long targetBytes = megabytes * 1024 * 1024;
+
+        try {
+            if (Files.exists(ledger) && Files.size(ledger) >= targetBytes) {
+                return dir;
+            }
+
+            Random random = new Random(SEED);
+            long written = 0;
+            long seconds = 0;
+
+            try (BufferedWriter writer = Files.newBufferedWriter(ledger, StandardCharsets.UTF_8)) {
+                while (written < targetBytes) {
+                    String line = transactionLine(random, symbolCount, seconds);
+                    writer.write(line);
+                    writer.newLine();
+                    written += line.length() + 1;
+                    seconds += 1 + random.nextInt(5);
+                }
+            }
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate ledger dataset", e);
+        }
+
+        return dir;
+    }
+
+    // Binary segment of the same ledger, converted once and cached next to it
+    public static Path ledgerSegment(long megabytes, int symbolCount) {
+
+        Path dir = ledgerDirectory(megabytes, symbolCount);
+        Path segment = dir.resolve("transactions.seg");
+
+        try {
+            if (!Files.exists(segment)
+                    || Files.getLastModifiedTime(segment).compareTo(
+                            Files.getLastModifiedTime(dir.resolve("transactions.txt"))) < 0) {
+                new FileService(dir.toString()).exportTransactionsToSegment(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate ledger segment", e);
+        }
+
+        return segment;
+    }
+
+    // ---------- Price Ticks ----------
+
+    // "SYMBOL,PRICE" lines, a random walk in whole paise per symbol
+    public static Path priceTicks(int count, int symbolCount) {
+
+        Path ticks = scratchDirectory("ticks-" + count + "-" + symbolCount).resolve("ticks.txt");
+
+        if (Files.exists(ticks)) {
+            return ticks;
+        }
+
+        Random random = new Random(SEED);
+        long[] paise = new long[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            paise[i] = 1_000 + random.nextInt(500_000);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(ticks, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                int id = random.nextInt(symbolCount);
+                paise[id] = Math.max(1, paise[id] + random.nextInt(21) - 10);
+                writer.write(symbol(id) + "," + paise[id] / 100.0);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate price ticks", e);
+        }
+
+        return ticks;
+    }
+
+    // ---------- Order Files ----------
+
+    // Orders CSV with a header: 60% buys, 40% sells (some of which exceed holdings)
+    public static Path orderFile(int count, int symbolCount) {
+
+        Path orders = scratchDirectory("orders-" + count + "-" + symbolCount).resolve("orders.csv");
+
+        if (Files.exists(orders)) {
+            return orders;
+        }
+
+        Random random = new Random(SEED);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(orders, StandardCharsets.UTF_8)) {
+            writer.write("TYPE,SYMBOL,QTY");
+            writer.newLine();
+            for (int i = 0; i < count; i++) {
+                Transaction.Type type = random.nextInt(5) < 3 ? Transaction.Type.BUY : Transaction.Type.SELL;
+                writer.write(type + "," + symbol(random.nextInt(symbolCount)) + "," + (1 + random.nextInt(100)));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to generate order file", e);
+        }
+
+        return orders;
+    }
+
+    // ---------- Transaction Lines ----------
+    public static String[] transactionLines(int count, int symbolCount) {
+
+        Random random = new Random(SEED);
+        String[] lines = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            lines[i] = transactionLine(random, symbolCount, i * 3L);
+        }
+
+        return lines;
+    }
+
+    private static String transactionLine(Random random, int symbolCount, long secondsFromStart) {
+        Transaction.Type type = random.nextBoolean() ? Transaction.Type.BUY : Transaction.Type.SELL;
+        String symbol = symbol(random.nextInt(symbolCount));
+        int quantity = 1 + random.nextInt(500);
+        double price = 10 + random.nextInt(500_000) / 100.0;
+        String timestamp = LEDGER_START.plusSeconds(secondsFromStart).format(FORMATTER);
+        return type + "," + symbol + "," + quantity + "," + price + "," + timestamp;
+    }
+
+    // ---------- Helper Methods ----------
+    public static Path freshDirectory(String name) {
+        try {
+            return Files.createTempDirectory("stock-bench-" + name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path scratchDirectory(String name) {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "stock-bench", name);
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dir;
+    }
+
+    private static void write(Path file, String content) {
+        try {
+            Files.writeString(file, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
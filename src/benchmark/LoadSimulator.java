@@ -0,0 +1,668 @@
+package benchmark;
+
+import model.OrderRequest;
+import model.Stock;
+import model.Transaction;
+import service.FileService;
+import service.LatencyHistogram;
+import service.MarketService;
+import service.PersistencePipeline;
+import service.PriceTable;
+import service.SymbolIndex;
+import service.TradingService;
+import service.TransactionJournal;
+import service.TransactionQuery;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Reproducible load: one seeded order flow, generated or replayed from a
+ * transactions.txt, run against TradingService in every requested
+ * persistence mode and user count.
+ *
+ * The flow is cut into rounds. Before a round, prices are published for
+ * the symbols it trades: a seeded random walk (one step per round a
+ * symbol trades in) or the ledger's own prices. During a round users
+ * trade concurrently, each taking every n-th order. A sell only uses
+ * shares held before its round began, so no interleaving can reject it,
+ * and every trade's price is fixed by its round. Every mode and user
+ * count must therefore end with the same holdings and ledger, which are
+ * hashed (the ledger without timestamps, in any order) and checked
+ * against the flow itself and against a restart from disk.
+ *
+ * Modes: sync (portfolio + ledger rewritten per trade), journal
+ * (group-committed journal), pipeline (async writer, wait durable), async
+ * (pipeline, return queued, wait at the end), batch (journal, each user's
+ * share of a round as one executeBatch).
+ *
+ * Usage: java -cp out benchmark.LoadSimulator [options]
+ *   --seed <n>              random seed (default Datasets.SEED)
+ *   --orders <n>            orders to generate (default 20000)
+ *   --symbols <n>           generated market size (default 100)
+ *   --stocks <file>         trade the stocks of this stocks.txt instead
+ *   --replay <dir>          replay dir/transactions.txt instead of generating
+ *   --round <n>             orders per round (default 100; 1 replays ledger prices exactly)
+ *   --mix <buy>/<sell>      order mix in percent (default 60/40)
+ *   --skew <s>              Zipf exponent of symbol popularity (default 0.8, 0 = uniform)
+ *   --max-quantity <n>      largest order (default 20)
+ *   --volatility <pct>      random-walk step per round (default 0.5)
+ *   --modes <list>          modes to compare (default journal,pipeline,async,batch)
+ *   --users <list>          concurrent user counts (default 1,4)
+ *   --durability <level>    none, batch or every_trade for the journal modes (default batch)
+ * Exits with status 1 if a run rejects an order or ends in a different state.
+ */
+public class LoadSimulator {
+
+    private enum Mode { SYNC, JOURNAL, PIPELINE, ASYNC, BATCH }
+
+    private static final int CHECKPOINT_INTERVAL = 10_000;
+
+    public static void main(String[] args) throws Exception {
+
+        long seed = Long.parseLong(option(args, "--seed", String.valueOf(Datasets.SEED)));
+        int roundSize = Integer.parseInt(option(args, "--round", "100"));
+        String[] modes = option(args, "--modes", "journal,pipeline,async,batch").split(",");
+        String[] users = option(args, "--users", "1,4").split(",");
+        TransactionJournal.Durability durability = TransactionJournal.Durability.valueOf(
+                option(args, "--durability", "batch").toUpperCase(Locale.ROOT));
+
+        if (roundSize <= 0) {
+            throw new IllegalArgumentException("Round size must be greater than zero");
+        }
+
+        Workload workload;
+        String replay = option(args, "--replay", null);
+
+        if (replay != null) {
+            workload = Workload.replay(Paths.get(replay), stocks(args, Paths.get(replay)), roundSize);
+        } else {
+            String[] mix = option(args, "--mix", "60/40").split("/");
+            workload = Workload.generate(seed, stocks(args, null),
+                    Integer.parseInt(option(args, "--orders", "20000")), roundSize,
+                    Integer.parseInt(mix[0]), Integer.parseInt(mix[1]),
+                    Double.parseDouble(option(args, "--skew", "0.8")),
+                    Integer.parseInt(option(args, "--max-quantity", "20")),
+                    Double.parseDouble(option(args, "--volatility", "0.5")) / 100);
+        }
+
+        System.out.println(workload);
+        System.out.printf("Expected state: holdings %016x | ledger %016x%n",
+                workload.holdingsHash(), workload.ledgerHash());
+
+        // Warm-up, not reported: the first measured run should not pay for the JIT
+        run(workload, Mode.valueOf(modes[0].trim().toUpperCase(Locale.ROOT)), 1, durability);
+
+        List<Result> results = new ArrayList<>();
+        for (String mode : modes) {
+            for (String userCount : users) {
+                results.add(run(workload, Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)),
+                        Integer.parseInt(userCount.trim()), durability));
+            }
+        }
+
+        System.out.printf("%n%-9s | %5s | %8s | %10s | %10s | %10s | %10s | %10s | %-16s | %-16s%n",
+                "Mode", "Users", "Orders", "Orders/s", "p50 (us)", "p99 (us)", "p99.9 (us)", "Max (us)",
+                "Holdings", "Ledger");
+        System.out.println("-".repeat(137));
+        for (Result result : results) {
+            System.out.println(result);
+        }
+        System.out.println();
+
+        boolean ok = true;
+        for (Result result : results) {
+            ok &= result.check(workload);
+        }
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- One Run ----------
+    private static Result run(Workload workload, Mode mode, int users, TransactionJournal.Durability durability)
+            throws Exception {
+
+        if (users <= 0) {
+            throw new IllegalArgumentException("User count must be greater than zero");
+        }
+
+        Path dataDir = Datasets.freshDirectory("load-" + mode.name().toLowerCase(Locale.ROOT) + "-" + users);
+        workload.writeStocks(dataDir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dataDir.toString());
+        MarketService marketService = new MarketService(fileService);
+        TradingService tradingService = new TradingService(fileService, marketService);
+        tradingService.setVerbose(false);
+
+        if (mode == Mode.JOURNAL || mode == Mode.BATCH) {
+            tradingService.useJournal(fileService.openJournal(durability), CHECKPOINT_INTERVAL);
+        } else if (mode == Mode.PIPELINE || mode == Mode.ASYNC) {
+            tradingService.usePersistencePipeline(fileService.openPersistencePipeline(durability,
+                    PersistencePipeline.DEFAULT_CAPACITY), CHECKPOINT_INTERVAL);
+        }
+
+        // Workload symbol -> price table id
+        PriceTable prices = marketService.getPriceTable();
+        int[] tableId = new int[workload.symbols.length];
+        for (int s = 0; s < tableId.length; s++) {
+            tableId[s] = prices.getSymbolIndex().idOf(workload.symbols[s]);
+        }
+
+        // ---------- Rounds ----------
+        AtomicInteger nextRound = new AtomicInteger();
+        CyclicBarrier barrier = new CyclicBarrier(users, () -> {
+            int r = nextRound.getAndIncrement();
+            if (r < workload.rounds.size()) {
+                workload.rounds.get(r).publish(prices, tableId);
+            }
+        });
+
+        LatencyHistogram latency = new LatencyHistogram(mode.name());
+        AtomicLong rejected = new AtomicLong();
+        List<CompletableFuture<Transaction>> pending = new ArrayList<>();
+        Thread[] threads = new Thread[users];
+
+        for (int u = 0; u < users; u++) {
+            int user = u;
+            threads[u] = new Thread(() -> {
+                List<CompletableFuture<Transaction>> own = new ArrayList<>();
+                try {
+                    for (Round round : workload.rounds) {
+                        barrier.await();
+                        if (mode == Mode.BATCH) {
+                            tradeBatch(tradingService, workload, round, user, users, latency, rejected);
+                        } else {
+                            trade(tradingService, mode, workload, round, user, users, latency, rejected, own);
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException("User " + user + " failed", e);
+                }
+                synchronized (pending) {
+                    pending.addAll(own);
+                }
+            }, "load-user-" + u);
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        long elapsed = System.nanoTime() - start;
+
+        // ---------- Final State ----------
+        tradingService.shutdown();
+
+        FileService reopened = new FileService(dataDir.toString());
+        long[] ledger = new long[2];
+        reopened.forEachTransaction(TransactionQuery.all(), transaction -> {
+            ledger[0] += fnv(tradeKey(transaction.getType(), transaction.getStockSymbol(),
+                    transaction.getQuantity(), transaction.getPrice()));
+            ledger[1]++;
+        });
+
+        long recovered = holdingsHash(new TradingService(reopened).getPortfolio().getHoldings());
+
+        return new Result(mode, users, latency.getSnapshot(), elapsed, rejected.get(),
+                holdingsHash(tradingService.getPortfolio().getHoldings()), ledger[0], ledger[1], recovered);
+    }
+
+    // This user's share of the round: orders user, user + users, ...
+    private static void trade(TradingService tradingService, Mode mode, Workload workload, Round round, int user,
+            int users, LatencyHistogram latency, AtomicLong rejected, List<CompletableFuture<Transaction>> futures) {
+
+        for (int i = user; i < round.size; i += users) {
+            Transaction.Type type = round.types[i];
+            String symbol = workload.symbols[round.symbols[i]];
+
+            long begin = System.nanoTime();
+            try {
+                if (mode == Mode.ASYNC) {
+                    futures.add(tradingService.placeOrderAsync(type, symbol, round.quantities[i]));
+                } else {
+                    tradingService.placeOrder(type, symbol, round.quantities[i]);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                rejected.incrementAndGet();
+            }
+            latency.recordSince(begin);
+        }
+    }
+
+    // Every order of the batch waits for the whole batch
+    private static void tradeBatch(TradingService tradingService, Workload workload, Round round, int user,
+            int users, LatencyHistogram latency, AtomicLong rejected) {
+
+        List<OrderRequest> orders = new ArrayList<>();
+        for (int i = user; i < round.size; i += users) {
+            orders.add(new OrderRequest(round.types[i], workload.symbols[round.symbols[i]], round.quantities[i]));
+        }
+
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        long begin = System.nanoTime();
+        TradingService.BatchResult result = tradingService.executeBatch(orders);
+        long nanos = System.nanoTime() - begin;
+
+        for (int i = 0; i < orders.size(); i++) {
+            latency.record(nanos);
+        }
+        rejected.addAndGet(result.getRejected());
+    }
+
+    // ---------- Workload ----------
+    private static final class Round {
+
+        // Prices published before the round: workload symbol index -> price
+        final int[] priceSymbols;
+        final double[] prices;
+
+        final Transaction.Type[] types;
+        final int[] symbols;
+        final int[] quantities;
+        final int size;
+
+        Round(List<Integer> priceSymbols, List<Double> prices, List<Transaction.Type> types,
+                List<Integer> symbols, List<Integer> quantities) {
+            this.priceSymbols = priceSymbols.stream().mapToInt(Integer::intValue).toArray();
+            this.prices = prices.stream().mapToDouble(Double::doubleValue).toArray();
+            this.types = types.toArray(new Transaction.Type[0]);
+            this.symbols = symbols.stream().mapToInt(Integer::intValue).toArray();
+            this.quantities = quantities.stream().mapToInt(Integer::intValue).toArray();
+            this.size = this.types.length;
+        }
+
+        void publish(PriceTable table, int[] tableId) {
+            for (int i = 0; i < priceSymbols.length; i++) {
+                table.publish(tableId[priceSymbols[i]], prices[i]);
+            }
+        }
+    }
+
+    /*
+     * Rounds under construction. Tracks holdings as of the last closed
+     * round and the sells already placed in the open one, so a sell is
+     * only added when no ordering of the round can reject it.
+     */
+    private static final class Workload {
+
+        final String description;
+        final String[] symbols;
+        final String[] names;
+        final double[] referencePrices;
+        final List<Round> rounds = new ArrayList<>();
+
+        private final int roundSize;
+        private final long[] held;
+        private final long[] pendingBuys;
+        private final long[] pendingSells;
+        private final double[] price;           // current price per symbol
+        private final int[] pricedRound;        // round whose price list has the symbol, or -1
+
+        // Open round
+        private final List<Integer> roundPriceSymbols = new ArrayList<>();
+        private final List<Double> roundPrices = new ArrayList<>();
+        private final List<Transaction.Type> roundTypes = new ArrayList<>();
+        private final List<Integer> roundSymbols = new ArrayList<>();
+        private final List<Integer> roundQuantities = new ArrayList<>();
+
+        // Reference result, from the flow alone
+        private final Map<String, Integer> holdings = new HashMap<>();
+        private long ledgerHash;
+        private long workloadHash;
+        private int orders;
+        private int adjusted;
+        private int dropped;
+
+        private Workload(String description, List<Stock> stocks, int roundSize) {
+
+            this.description = description;
+            this.roundSize = roundSize;
+            this.symbols = new String[stocks.size()];
+            this.names = new String[stocks.size()];
+            this.referencePrices = new double[stocks.size()];
+
+            for (int s = 0; s < stocks.size(); s++) {
+                symbols[s] = stocks.get(s).getSymbol();
+                names[s] = stocks.get(s).getCompanyName();
+                referencePrices[s] = stocks.get(s).getPrice();
+            }
+
+            this.held = new long[symbols.length];
+            this.pendingBuys = new long[symbols.length];
+            this.pendingSells = new long[symbols.length];
+            this.price = referencePrices.clone();
+            this.pricedRound = new int[symbols.length];
+            Arrays.fill(pricedRound, -1);
+        }
+
+        static Workload generate(long seed, List<Stock> stocks, int orderCount, int roundSize, int buyPercent,
+                int sellPercent, double skew, int maxQuantity, double volatility) {
+
+            if (orderCount <= 0 || maxQuantity <= 0 || buyPercent < 0 || sellPercent < 0
+                    || buyPercent + sellPercent <= 0) {
+                throw new IllegalArgumentException("Orders, quantity and order mix must be positive");
+            }
+
+            Workload workload = new Workload(String.format(
+                    "Workload: generated, seed %d, %,d orders, mix %d/%d buy/sell, skew %.2f, quantity 1-%d, "
+                            + "volatility %.2f%%", seed, orderCount, buyPercent, sellPercent, skew, maxQuantity,
+                    volatility * 100), stocks, roundSize);
+
+            // Popularity: symbol at rank k is chosen with weight 1 / (k + 1)^skew
+            double[] cumulative = new double[stocks.size()];
+            double total = 0;
+            for (int k = 0; k < cumulative.length; k++) {
+                total += 1 / Math.pow(k + 1, skew);
+                cumulative[k] = total;
+            }
+
+            Random random = new Random(seed);
+            for (int i = 0; i < orderCount; i++) {
+                int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                int symbol = Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+                int quantity = 1 + random.nextInt(maxQuantity);
+                boolean sell = random.nextInt(buyPercent + sellPercent) >= buyPercent;
+
+                if (!workload.priced(symbol)) {
+                    double step = Math.exp(volatility * random.nextGaussian());
+                    workload.setPrice(symbol, Math.max(0.01, Math.round(workload.price[symbol] * step * 100) / 100.0));
+                }
+
+                if (sell) {
+                    long available = workload.held[symbol] - workload.pendingSells[symbol];
+                    if (available <= 0) {
+                        sell = false;
+                        workload.adjusted++;
+                    } else if (available < quantity) {
+                        quantity = (int) available;
+                        workload.adjusted++;
+                    }
+                }
+
+                workload.add(sell ? Transaction.Type.SELL : Transaction.Type.BUY, symbol, quantity);
+            }
+
+            return workload.finish();
+        }
+
+        /*
+         * The ledger's orders in ledger order at the ledger's prices. A round
+         * ends early before a sell of shares bought within it; a sell of
+         * shares never bought (a ledger that did not start empty) is dropped.
+         */
+        static Workload replay(Path ledgerDir, List<Stock> stocks, int roundSize) {
+
+            Map<String, Integer> index = new HashMap<>();
+            for (int s = 0; s < stocks.size(); s++) {
+                index.put(stocks.get(s).getSymbol(), s);
+            }
+
+            Workload workload = new Workload("Workload: replay of " + ledgerDir.resolve("transactions.txt")
+                    + ", rounds of " + roundSize, stocks, roundSize);
+
+            new FileService(ledgerDir.toString()).forEachTransaction(TransactionQuery.all(), transaction -> {
+                Integer symbol = index.get(transaction.getStockSymbol());
+                int quantity = transaction.getQuantity();
+
+                if (symbol == null) {
+                    workload.dropped++;
+                    return;
+                }
+
+                if (transaction.getType() == Transaction.Type.SELL) {
+                    if (workload.held[symbol] + workload.pendingBuys[symbol] - workload.pendingSells[symbol]
+                            < quantity) {
+                        workload.dropped++;
+                        return;
+                    }
+                    if (workload.held[symbol] - workload.pendingSells[symbol] < quantity) {
+                        workload.closeRound();
+                    }
+                }
+
+                // A second price for a symbol within a round needs a new round
+                if (workload.priced(symbol) && workload.price[symbol] != transaction.getPrice()) {
+                    workload.closeRound();
+                }
+                if (!workload.priced(symbol)) {
+                    workload.setPrice(symbol, transaction.getPrice());
+                }
+
+                workload.add(transaction.getType(), symbol, quantity);
+            });
+
+            return workload.finish();
+        }
+
+        // ---------- Building ----------
+        private boolean priced(int symbol) {
+            return pricedRound[symbol] == rounds.size();
+        }
+
+        private void setPrice(int symbol, double newPrice) {
+            price[symbol] = newPrice;
+            pricedRound[symbol] = rounds.size();
+            roundPriceSymbols.add(symbol);
+            roundPrices.add(newPrice);
+        }
+
+        private void add(Transaction.Type type, int symbol, int quantity) {
+
+            roundTypes.add(type);
+            roundSymbols.add(symbol);
+            roundQuantities.add(quantity);
+
+            if (type == Transaction.Type.BUY) {
+                pendingBuys[symbol] += quantity;
+            } else {
+                pendingSells[symbol] += quantity;
+            }
+
+            holdings.merge(symbols[symbol], type == Transaction.Type.BUY ? quantity : -quantity, Integer::sum);
+            String key = tradeKey(type, symbols[symbol], quantity, price[symbol]);
+            ledgerHash += fnv(key);
+            workloadHash = workloadHash * 31 + fnv(key);
+            orders++;
+
+            if (roundTypes.size() == roundSize) {
+                closeRound();
+            }
+        }
+
+        private void closeRound() {
+
+            if (roundTypes.isEmpty()) {
+                return;
+            }
+
+            rounds.add(new Round(roundPriceSymbols, roundPrices, roundTypes, roundSymbols, roundQuantities));
+            for (int s = 0; s < held.length; s++) {
+                held[s] += pendingBuys[s] - pendingSells[s];
+            }
+            Arrays.fill(pendingBuys, 0);
+            Arrays.fill(pendingSells, 0);
+            roundPriceSymbols.clear();
+            roundPrices.clear();
+            roundTypes.clear();
+            roundSymbols.clear();
+            roundQuantities.clear();
+        }
+
+        private Workload finish() {
+            closeRound();
+            holdings.values().removeIf(quantity -> quantity == 0);
+            return this;
+        }
+
+        // ---------- Reference State ----------
+        long holdingsHash() {
+            return LoadSimulator.holdingsHash(holdings);
+        }
+
+        long ledgerHash() {
+            return ledgerHash;
+        }
+
+        int getOrders() {
+            return orders;
+        }
+
+        void writeStocks(Path file) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < symbols.length; s++) {
+                sb.append(symbols[s]).append(',').append(names[s]).append(',').append(referencePrices[s]).append('\n');
+            }
+            Files.writeString(file, sb.toString());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s%n%,d orders in %,d rounds over %d symbols | adjusted %,d | dropped %,d"
+                    + " | workload hash %016x", description, orders, rounds.size(), symbols.length, adjusted,
+                    dropped, workloadHash);
+        }
+    }
+
+    // ---------- Result ----------
+    private static final class Result {
+
+        final Mode mode;
+        final int users;
+        final LatencyHistogram.Snapshot latency;
+        final long elapsedNanos;
+        final long rejected;
+        final long holdingsHash;
+        final long ledgerHash;
+        final long ledgerRecords;
+        final long recoveredHash;
+
+        Result(Mode mode, int users, LatencyHistogram.Snapshot latency, long elapsedNanos, long rejected,
+                long holdingsHash, long ledgerHash, long ledgerRecords, long recoveredHash) {
+            this.mode = mode;
+            this.users = users;
+            this.latency = latency;
+            this.elapsedNanos = elapsedNanos;
+            this.rejected = rejected;
+            this.holdingsHash = holdingsHash;
+            this.ledgerHash = ledgerHash;
+            this.ledgerRecords = ledgerRecords;
+            this.recoveredHash = recoveredHash;
+        }
+
+        boolean check(Workload workload) {
+            String run = "  " + mode.name().toLowerCase(Locale.ROOT) + " x " + users + ": ";
+            boolean ok = LoadSimulator.check(run + "no order rejected (" + rejected + ")", rejected == 0);
+            ok &= LoadSimulator.check(run + "holdings match the workload", holdingsHash == workload.holdingsHash());
+            ok &= LoadSimulator.check(run + "ledger holds exactly the workload's trades",
+                    ledgerHash == workload.ledgerHash() && ledgerRecords == workload.getOrders());
+            ok &= LoadSimulator.check(run + "restart recovers the same holdings", recoveredHash == holdingsHash);
+            return ok;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-9s | %5d | %,8d | %,10.0f | %10.1f | %10.1f | %10.1f | %10.1f | %016x | %016x",
+                    mode.name().toLowerCase(Locale.ROOT), users, latency.getCount(),
+                    latency.getCount() * 1e9 / elapsedNanos, latency.getPercentileNanos(50) / 1e3,
+                    latency.getPercentileNanos(99) / 1e3, latency.getPercentileNanos(99.9) / 1e3,
+                    latency.getMaxNanos() / 1e3, holdingsHash, ledgerHash);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+
+    // --stocks file, else the replayed directory's stocks.txt, else a generated market
+    private static List<Stock> stocks(String[] args, Path replayDir) {
+
+        String file = option(args, "--stocks", null);
+        Path stockFile = file != null ? Paths.get(file)
+                : replayDir != null && Files.exists(replayDir.resolve("stocks.txt")) ? replayDir.resolve("stocks.txt")
+                : null;
+
+        if (stockFile != null) {
+            Path dir = stockFile.toAbsolutePath().getParent();
+            if (!stockFile.getFileName().toString().equals("stocks.txt")) {
+                throw new IllegalArgumentException("Stock file must be named stocks.txt: " + stockFile);
+            }
+            return new FileService(dir.toString()).loadStocks();
+        }
+
+        if (replayDir != null) {
+            return ledgerStocks(replayDir);
+        }
+
+        return Datasets.stocks(Integer.parseInt(option(args, "--symbols", "100")));
+    }
+
+    // Every symbol in the ledger, at its first traded price
+    private static List<Stock> ledgerStocks(Path ledgerDir) {
+        Map<String, Stock> stocks = new LinkedHashMap<>();
+        new FileService(ledgerDir.toString()).forEachTransaction(TransactionQuery.all(), transaction ->
+                stocks.computeIfAbsent(transaction.getStockSymbol(),
+                        symbol -> new Stock(symbol, "Replayed " + symbol, transaction.getPrice())));
+        return new ArrayList<>(stocks.values());
+    }
+
+    // Trade identity without its timestamp
+    private static String tradeKey(Transaction.Type type, String symbol, int quantity, double price) {
+        return type + "," + symbol + "," + quantity + "," + price;
+    }
+
+    private static long holdingsHash(Map<String, Integer> holdings) {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(holdings).forEach((symbol, quantity) -> {
+            if (quantity != 0) {
+                sb.append(SymbolIndex.normalize(symbol)).append('=').append(quantity).append('\n');
+            }
+        });
+        return fnv(sb.toString());
+    }
+
+    // 64-bit FNV-1a
+    private static long fnv(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
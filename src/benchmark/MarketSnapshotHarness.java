@@ -0,0 +1,255 @@
+package benchmark;
+
+import model.Stock;
+import service.FileService;
+import service.LatencyHistogram;
+import service.MarketService;
+import service.MarketSnapshot;
+import service.PriceTable;
+import service.SymbolIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Readers look up symbols, prices and search results while a writer
+ * refreshes the market from a stocks.txt that changes every time.
+ *
+ * Generation g lists a different window of symbols, all priced 100 + g in
+ * stocks.txt, and is loaded as version g + 1. The middle half of the
+ * symbols is listed in every generation and keeps its first price; the
+ * rest are newly listed and take 100 + g. Any mix of two versions shows up
+ * as a wrong id, price or version. Readers must never see one, versions must
+ * only move forward, a snapshot pinned through every refresh must still
+ * read its own version, and once released every old version must be
+ * garbage collected. Concurrent refreshes must publish consecutive
+ * versions, and a price published by the feed must survive a refresh.
+ * Reports read throughput during refreshes, refresh time and
+ * how often separate getter calls straddled a refresh.
+ *
+ * Usage: java -cp out benchmark.MarketSnapshotHarness [stocks] [refreshes] [readers]
+ * Exits with status 1 if a check fails.
+ */
+public class MarketSnapshotHarness {
+
+    private static final double BASE_PRICE = 100;
+
+    public static void main(String[] args) throws Exception {
+
+        int stockCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int refreshes = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int readerCount = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        Path dataDir = Datasets.freshDirectory("snapshot");
+        writeGeneration(dataDir, 0, stockCount);
+        MarketService marketService = new MarketService(new FileService(dataDir.toString()));
+
+        MarketSnapshot pinned = marketService.getSnapshot();
+        List<WeakReference<MarketSnapshot>> versions = new ArrayList<>();
+        versions.add(new WeakReference<>(pinned));
+
+        // ---------- Readers ----------
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        AtomicLong backwards = new AtomicLong();
+        AtomicLong straddled = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+
+        for (int r = 0; r < readerCount; r++) {
+            Thread reader = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long lastVersion = 0;
+                long count = 0;
+
+                while (running.get()) {
+                    MarketSnapshot market = marketService.getSnapshot();
+
+                    if (market.getVersion() < lastVersion) {
+                        backwards.incrementAndGet();
+                    }
+                    lastVersion = market.getVersion();
+
+                    for (int i = 0; i < 64; i++) {
+                        if (!consistent(market, random.nextInt(market.size()), stockCount)) {
+                            torn.incrementAndGet();
+                        }
+                    }
+                    if (!market.getSearchIndex().search("company " + random.nextInt(stockCount), 3).stream()
+                            .allMatch(stock -> market.getStock(stock.getSymbol()) == stock)) {
+                        torn.incrementAndGet();
+                    }
+
+                    // The pattern snapshots replace: two getters, two possible versions
+                    SymbolIndex index = marketService.getSymbolIndex();
+                    PriceTable prices = marketService.getPriceTable();
+                    if (prices.getSymbolIndex() != index) {
+                        straddled.incrementAndGet();
+                    }
+
+                    count += 65;
+                }
+
+                reads.addAndGet(count);
+            }, "snapshot-reader-" + r);
+            reader.start();
+            readers.add(reader);
+        }
+
+        // ---------- Writer ----------
+        LatencyHistogram refreshLatency = new LatencyHistogram("refresh");
+        long start = System.nanoTime();
+
+        for (int g = 1; g <= refreshes; g++) {
+            writeGeneration(dataDir, g, stockCount);
+            long begin = System.nanoTime();
+            marketService.refreshMarketData();
+            refreshLatency.recordSince(begin);
+            versions.add(new WeakReference<>(marketService.getSnapshot()));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        boolean ok = check("readers never saw a mixed version (" + torn.get() + " torn)", torn.get() == 0);
+        ok &= check("versions only move forward", backwards.get() == 0);
+        ok &= check("final version is generation + 1",
+                marketService.getSnapshot().getVersion() == refreshes + 1);
+
+        boolean pinnedIntact = pinned.getVersion() == 1 && pinned.size() == stockCount;
+        for (int id = 0; id < pinned.size() && pinnedIntact; id++) {
+            pinnedIntact = consistent(pinned, id, stockCount);
+        }
+        ok &= check("a pinned snapshot still reads its own version", pinnedIntact);
+
+        // ---------- Reclamation ----------
+        pinned = null;
+        MarketSnapshot current = marketService.getSnapshot();
+        int alive = 0;
+        for (int attempt = 0; attempt < 10; attempt++) {
+            System.gc();
+            Thread.sleep(50);
+            alive = 0;
+            for (WeakReference<MarketSnapshot> version : versions) {
+                MarketSnapshot snapshot = version.get();
+                if (snapshot != null && snapshot != current) {
+                    alive++;
+                }
+            }
+            if (alive == 0) {
+                break;
+            }
+        }
+        ok &= check("old versions are collected once released (" + alive + " still reachable)", alive == 0);
+
+        // ---------- Concurrent Refreshes ----------
+        long before = marketService.getSnapshot().getVersion();
+        AtomicLong outOfOrder = new AtomicLong();
+        List<Thread> refreshers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            Thread refresher = new Thread(() -> {
+                long last = 0;
+                for (int i = 0; i < 25; i++) {
+                    marketService.refreshMarketData();
+                    long version = marketService.getSnapshot().getVersion();
+                    if (version <= last) {
+                        outOfOrder.incrementAndGet();
+                    }
+                    last = version;
+                }
+            });
+            refresher.start();
+            refreshers.add(refresher);
+        }
+        for (Thread refresher : refreshers) {
+            refresher.join();
+        }
+        ok &= check("concurrent refreshes publish consecutive versions",
+                marketService.getSnapshot().getVersion() == before + 50 && outOfOrder.get() == 0);
+
+        // ---------- Live Prices Across a Refresh ----------
+        MarketSnapshot live = marketService.getSnapshot();
+        String kept = Datasets.symbol(stockCount * 3 / 4);
+        int keptId = live.getSymbolIndex().idOf(kept);
+        live.getPriceTable().publish(keptId, 12.34);
+        long stamp = live.getPriceTable().getPublishNanos(keptId);
+        marketService.refreshMarketData();
+        MarketSnapshot refreshed = marketService.getSnapshot();
+        int refreshedId = refreshed.getSymbolIndex().idOf(kept);
+        ok &= check("a published price survives refreshMarketData()",
+                refreshed.getVersion() == live.getVersion() + 1 && refreshed.getPrice(kept) == 12.34
+                        && refreshed.getPriceTable().getPublishNanos(refreshedId) == stamp);
+
+        LatencyHistogram.Snapshot refreshSnapshot = refreshLatency.getSnapshot();
+        System.out.printf("Stocks: %,d | Refreshes: %d | Readers: %d%n", stockCount, refreshes, readerCount);
+        System.out.printf("Reads during refreshes: %,.0f/s%n", reads.get() * 1e9 / elapsed);
+        System.out.printf("Refresh p50 / max:      %.2f / %.2f ms%n",
+                refreshSnapshot.getPercentileNanos(50) / 1e6, refreshSnapshot.getMaxNanos() / 1e6);
+        System.out.printf("Separate getter calls that straddled a refresh: %,d%n", straddled.get());
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Consistency ----------
+
+    // The stock, its live price and the version must all be the same generation
+    private static boolean consistent(MarketSnapshot market, int id, int stockCount) {
+
+        double listed = BASE_PRICE + market.getVersion() - 1;
+        Stock stock = market.getSymbolIndex().getById(id);
+        double expected = alwaysListed(stock, stockCount) ? BASE_PRICE : listed;
+
+        return market.getPriceTable().getSymbolIndex() == market.getSymbolIndex()
+                && market.getSearchIndex().getSymbolIndex() == market.getSymbolIndex()
+                && stock.getPrice() == listed
+                && market.getPriceTable().getPrice(id) == expected
+                && market.getPrice(stock.getSymbol()) == expected;
+    }
+
+    // Symbols [n/2, n) are in every generation, so they keep the price they were first listed at
+    private static boolean alwaysListed(Stock stock, int stockCount) {
+        int i = Integer.parseInt(stock.getCompanyName().substring("Company ".length()));
+        return i >= stockCount / 2 && i < stockCount;
+    }
+
+    // ---------- Helper Methods ----------
+
+    // Even generations list symbols [0, n), odd ones [n/2, n + n/2), all at 100 + g
+    private static void writeGeneration(Path dataDir, int generation, int stockCount) {
+
+        int first = generation % 2 == 0 ? 0 : stockCount / 2;
+        StringBuilder sb = new StringBuilder();
+        for (int i = first; i < first + stockCount; i++) {
+            sb.append(Datasets.symbol(i)).append(",Company ").append(i).append(',')
+                    .append(BASE_PRICE + generation).append('\n');
+        }
+
+        try {
+            Path temp = dataDir.resolve("stocks.txt.tmp");
+            Files.writeString(temp, sb.toString());
+            Files.move(temp, dataDir.resolve("stocks.txt"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,172 @@
+package benchmark;
+
+import service.FileService;
+import service.LatencyHistogram;
+import service.Metrics;
+import service.MetricsReporter;
+import service.TradingService;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Checks the latency histogram and the service instrumentation.
+ *
+ * Percentiles must be within the histogram's 1/16 precision of the exact
+ * ones, concurrent recording must not lose values, and record() must not
+ * allocate. After trading in a scratch data directory the trading and
+ * file metrics must account for every trade, and the reporter must write
+ * them to the stats log. Prints the cost of one record().
+ *
+ * Usage: java -cp out benchmark.MetricsHarness [values] [threads] [trades]
+ * Exits with status 1 if a check fails.
+ */
+public class MetricsHarness {
+
+    private static final int SYMBOLS = 50;
+
+    public static void main(String[] args) throws Exception {
+
+        int valueCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int trades = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        // ---------- Precision ----------
+        Random random = new Random(Datasets.SEED);
+        LatencyHistogram histogram = new LatencyHistogram("test.precision");
+        long[] values = new long[valueCount];
+
+        // Log-normal around 50 us, with a tail into the seconds
+        for (int i = 0; i < valueCount; i++) {
+            values[i] = (long) Math.exp(Math.log(50_000) + random.nextGaussian() * 2);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+        boolean precise = snapshot.getMaxNanos() == values[valueCount - 1];
+        for (double percentile : new double[] { 1, 10, 50, 90, 99, 99.9, 99.99 }) {
+            long exact = values[(int) Math.ceil(valueCount * percentile / 100) - 1];
+            long reported = snapshot.getPercentileNanos(percentile);
+            precise &= reported >= exact && reported - exact <= exact / 16;
+        }
+
+        boolean ok = check("percentiles within 1/16 of exact", precise);
+        ok &= check("count and mean match", snapshot.getCount() == valueCount
+                && Math.abs(snapshot.getAverageNanos() - Arrays.stream(values).average().orElse(0)) < 1e-3);
+
+        // ---------- Concurrent Recording ----------
+        LatencyHistogram shared = new LatencyHistogram("test.concurrent");
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long offset = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < valueCount; i++) {
+                    shared.record(i + offset);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        LatencyHistogram.Snapshot concurrent = shared.getSnapshot();
+        double expectedMean = (valueCount - 1) / 2.0 + (threads - 1) / 2.0;
+        ok &= check("no values lost across " + threads + " threads",
+                concurrent.getCount() == (long) valueCount * threads
+                        && Math.abs(concurrent.getAverageNanos() - expectedMean) < 1e-6
+                        && concurrent.getMaxNanos() == valueCount - 1 + threads - 1);
+
+        // ---------- Allocation and Cost ----------
+        LatencyHistogram hot = new LatencyHistogram("test.hot");
+        recordLoop(hot, valueCount);
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        recordLoop(hot, valueCount);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        ok &= check("record() does not allocate (" + allocated + " bytes for " + valueCount + " calls)",
+                allocated < 1024);
+
+        // ---------- Service Instrumentation ----------
+        Path dataDir = Datasets.freshDirectory("metrics");
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dataDir.toString());
+        MetricsReporter reporter = fileService.openMetricsReporter(3600);
+        TradingService tradingService = new TradingService(fileService);
+        tradingService.setVerbose(false);
+
+        Map<String, LatencyHistogram.Snapshot> before = Metrics.getHistograms();
+        long executedBefore = Metrics.getCounters().get("trading.executed");
+        long rejectedBefore = Metrics.getCounters().get("trading.rejected");
+
+        int rejected = 0;
+        for (int i = 0; i < trades; i++) {
+            try {
+                if (i % 3 == 2) {
+                    tradingService.sellStock(Datasets.symbol(i % SYMBOLS), 25);
+                } else {
+                    tradingService.buyStock(Datasets.symbol(i % SYMBOLS), 10);
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                rejected++;
+            }
+        }
+        int executed = trades - rejected;
+
+        Map<String, LatencyHistogram.Snapshot> after = Metrics.getHistograms();
+        Map<String, Long> counters = Metrics.getCounters();
+
+        ok &= check("trade counters match", counters.get("trading.executed") - executedBefore == executed
+                && counters.get("trading.rejected") - rejectedBefore == rejected);
+        ok &= check("one portfolio update and order timing per executed trade",
+                delta(before, after, "trading.portfolioUpdate") == executed
+                        && delta(before, after, "trading.order") == executed);
+        ok &= check("one savePortfolio and appendTransaction per executed trade",
+                delta(before, after, "file.savePortfolio") == executed
+                        && delta(before, after, "file.appendTransaction") == executed);
+
+        reporter.close();
+        String log = Files.readString(reporter.getLogFile());
+        ok &= check("stats log holds trading and file metrics",
+                log.contains("trading.order") && log.contains("file.savePortfolio") && log.contains("market.refresh"));
+
+        System.out.printf("Trades: %,d | Executed: %,d | Rejected: %,d | record(): %.1f ns%n",
+                trades, executed, rejected, elapsed / (double) valueCount);
+        Metrics.displayReport();
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private static void recordLoop(LatencyHistogram histogram, int count) {
+        for (int i = 0; i < count; i++) {
+            histogram.record((i * 2_654_435_761L) & 0xFFFFFF);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    private static long delta(Map<String, LatencyHistogram.Snapshot> before,
+            Map<String, LatencyHistogram.Snapshot> after, String name) {
+        return after.get(name).getCount() - before.get(name).getCount();
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
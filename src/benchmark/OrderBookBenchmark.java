@@ -0,0 +1,134 @@
+package benchmark;
+
+import model.Transaction;
+import service.OrderBook;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/*
+ * Single-core throughput of one OrderBook under a mixed workload of limit
+ * orders around the mid, cancels of recent orders and market orders. The
+ * operation stream is generated up front so only the book is timed.
+ *
+ * Usage: java -cp out benchmark.OrderBookBenchmark [operations] [rounds]
+ */
+public class OrderBookBenchmark {
+
+    private static final long MID_TICKS = 10_000;
+    private static final int PRICE_SPREAD = 20;
+    private static final int RECENT_IDS = 4096;
+
+    private static final byte LIMIT = 0;
+    private static final byte CANCEL = 1;
+    private static final byte MARKET = 2;
+
+    private static long fills;
+
+    public static void main(String[] args) {
+
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        checkMatchingRules();
+
+        Random random = new Random(42);
+        byte[] kinds = new byte[operations];
+        boolean[] buys = new boolean[operations];
+        long[] prices = new long[operations];
+        int[] quantities = new int[operations];
+        int[] cancelSlots = new int[operations];
+
+        for (int i = 0; i < operations; i++) {
+            int roll = random.nextInt(100);
+            kinds[i] = roll < 60 ? LIMIT : roll < 90 ? CANCEL : MARKET;
+            buys[i] = random.nextBoolean();
+            // Buys rest below the mid and sells above, with some overlap to trade
+            int offset = random.nextInt(PRICE_SPREAD) - 3;
+            prices[i] = buys[i] ? MID_TICKS - offset : MID_TICKS + offset;
+            quantities[i] = 1 + random.nextInt(100);
+            cancelSlots[i] = random.nextInt(RECENT_IDS);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int round = 1; round <= rounds; round++) {
+
+            OrderBook book = new OrderBook("BENCH", OrderBookBenchmark::countFill);
+            long[] recentIds = new long[RECENT_IDS];
+            fills = 0;
+
+            long executed = 0;
+
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+
+            for (int i = 0; i < operations; i++) {
+                Transaction.Type side = buys[i] ? Transaction.Type.BUY : Transaction.Type.SELL;
+                int slot = cancelSlots[i];
+                switch (kinds[i]) {
+                    case LIMIT:
+                        // Replacing a slot cancels its previous order, so the book stays bounded
+                        if (recentIds[slot] != 0) {
+                            book.cancel(recentIds[slot]);
+                            executed++;
+                        }
+                        recentIds[slot] = book.submitLimit(side, prices[i], quantities[i]);
+                        break;
+                    case CANCEL:
+                        book.cancel(recentIds[slot]);
+                        recentIds[slot] = 0;
+                        break;
+                    default:
+                        book.submitMarket(side, quantities[i]);
+                }
+                executed++;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            System.out.printf("Round %d: %,.0f ops/s | %.1f ns/op | %,d fills | %d resting | %.2f B/op%n",
+                    round, executed * 1e9 / elapsed, (double) elapsed / executed,
+                    fills, book.getRestingOrderCount(), (double) allocated / executed);
+        }
+    }
+
+    private static void countFill(String symbol, long takerOrderId, long makerOrderId,
+            Transaction.Type takerSide, long priceTicks, int quantity) {
+        fills++;
+    }
+
+    // ---------- Sanity Check ----------
+    private static void checkMatchingRules() {
+
+        long[] lastFill = new long[3];
+        OrderBook book = new OrderBook("CHECK", (symbol, taker, maker, side, price, qty) -> {
+            lastFill[0] = maker;
+            lastFill[1] = price;
+            lastFill[2] += qty;
+        });
+
+        long first = book.submitLimit(Transaction.Type.SELL, 101, 10);
+        book.submitLimit(Transaction.Type.SELL, 101, 10);
+        book.submitLimit(Transaction.Type.SELL, 100, 5);
+
+        // Best price first, then time priority within the level
+        book.submitLimit(Transaction.Type.BUY, 101, 8);
+        require(lastFill[0] == first && lastFill[1] == 101 && lastFill[2] == 8, "price-time priority");
+        require(book.getQuantityAt(Transaction.Type.SELL, 101) == 17, "partial fill leaves remainder");
+
+        require(book.cancel(first), "cancel resting order");
+        require(!book.cancel(first), "cancel is idempotent");
+        require(book.submitMarket(Transaction.Type.BUY, 100) == 10, "market order is IOC");
+        require(book.getBestAsk() == OrderBook.NO_PRICE, "book empty after sweep");
+    }
+
+    private static void require(boolean condition, String rule) {
+        if (!condition) {
+            throw new IllegalStateException("Order book check failed: " + rule);
+        }
+    }
+}
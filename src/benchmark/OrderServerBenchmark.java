@@ -0,0 +1,323 @@
+package benchmark;
+
+import model.Transaction;
+import service.FileService;
+import service.OrderServer;
+import service.TradingService;
+import service.TransactionJournal;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Drives the headless order server the way a load generator would: many
+ * client connections on one NIO selector, each keeping a window of orders
+ * in flight, against a TradingService with a group-committed journal in a
+ * scratch data directory.
+ *
+ * Every order must get exactly one ack or reject, the holdings must equal
+ * the net of the acknowledged orders, and a replay of transactions.txt
+ * must give the same portfolio. A client that half-closes right after
+ * sending must still get an answer to every order before the server
+ * closes the connection, and an order id too long to echo must be
+ * rejected without stalling other clients. Reports orders/s and ack latency
+ * percentiles as seen by the clients.
+ *
+ * Usage: java -cp out benchmark.OrderServerBenchmark [connections] [ordersPerConnection] [window]
+ * Exits with status 1 if a check fails.
+ */
+public class OrderServerBenchmark {
+
+    private static final int SYMBOLS = 100;
+
+    public static void main(String[] args) throws Exception {
+
+        int connectionCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int ordersPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int window = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        Path dataDir = Datasets.freshDirectory("order-server");
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dataDir.toString());
+        TradingService tradingService = new TradingService(fileService);
+        tradingService.setVerbose(false);
+        tradingService.useJournal(fileService.openJournal(TransactionJournal.Durability.BATCH), 10_000);
+
+        OrderServer server = new OrderServer(tradingService, 64);
+        int port = server.start(0);
+
+        boolean ok = check("malformed order is rejected", malformedRejected(port));
+        ok &= check("half-closed client gets every answer before close", halfCloseAnswered(port, 1_000));
+        ok &= check("oversized order id is rejected without stalling other clients", longIdRejected(port));
+
+        // ---------- Load ----------
+        Client[] clients = new Client[connectionCount];
+        Random random = new Random(Datasets.SEED);
+        for (int c = 0; c < connectionCount; c++) {
+            clients[c] = new Client(c, ordersPerConnection, random);
+        }
+
+        long start = System.nanoTime();
+        run(clients, port, window);
+        long elapsed = System.nanoTime() - start;
+
+        server.close();
+        OrderServer.Stats stats = server.getStats();
+        tradingService.shutdown();
+
+        // ---------- Checks ----------
+        long total = (long) connectionCount * ordersPerConnection;
+        long acked = 0, rejected = 0, duplicates = 0;
+        Map<String, Integer> net = new HashMap<>();
+        long[] latencies = new long[(int) total];
+        int latencyCount = 0;
+
+        for (Client client : clients) {
+            for (int i = 0; i < ordersPerConnection; i++) {
+                duplicates += Math.max(0, client.responses[i] - 1);
+                if (client.responses[i] == 0) {
+                    continue;
+                }
+                latencies[latencyCount++] = client.ackNanos[i] - client.sentNanos[i];
+                if (client.acked[i]) {
+                    acked++;
+                    int signed = client.types[i] == Transaction.Type.BUY ? client.quantities[i] : -client.quantities[i];
+                    net.merge(Datasets.symbol(client.symbols[i]), signed, Integer::sum);
+                } else {
+                    rejected++;
+                }
+            }
+        }
+        net.values().removeIf(quantity -> quantity == 0);
+
+        ok &= check("every order answered exactly once", acked + rejected == total && duplicates == 0);
+        ok &= check("server counts match client acks", stats.getExecuted() == acked);
+        ok &= check("holdings equal net acknowledged orders",
+                net.equals(new HashMap<>(tradingService.getPortfolio().getHoldings())));
+        ok &= check("transaction replay matches portfolio",
+                new HashMap<>(TradingService.replay(fileService.loadTransactions()).getHoldings())
+                        .equals(new HashMap<>(tradingService.getPortfolio().getHoldings())));
+
+        Arrays.sort(latencies, 0, latencyCount);
+        System.out.printf("Connections: %,d | Window: %d | Orders: %,d | Acked: %,d | Rejected: %,d%n",
+                connectionCount, window, total, acked, rejected);
+        System.out.printf("Throughput: %,.0f orders/s | Ack latency p50: %.0f us | p99: %.0f us | max: %.0f us%n",
+                total * 1e9 / elapsed, percentile(latencies, latencyCount, 0.50) / 1e3,
+                percentile(latencies, latencyCount, 0.99) / 1e3, latencies[latencyCount - 1] / 1e3);
+        System.out.println("Server: " + stats);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Client Side ----------
+    private static void run(Client[] clients, int port, int window) throws Exception {
+
+        try (Selector selector = Selector.open()) {
+
+            for (Client client : clients) {
+                client.channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                client.channel.configureBlocking(false);
+                SelectionKey key = client.channel.register(selector, SelectionKey.OP_READ, client);
+                client.send(window);
+                client.flush(key);
+            }
+
+            int done = 0;
+            while (done < clients.length) {
+
+                selector.select();
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Client client = (Client) key.attachment();
+                    if (key.isWritable()) {
+                        client.flush(key);
+                    }
+                    if (key.isReadable() && client.read()) {
+                        client.send(window);
+                        client.flush(key);
+                        if (client.answered == client.sentNanos.length) {
+                            done++;
+                            key.cancel();
+                            client.channel.close();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+    }
+
+    private static final class Client {
+
+        final int id;
+        final Transaction.Type[] types;
+        final int[] symbols;
+        final int[] quantities;
+        final long[] sentNanos;
+        final long[] ackNanos;
+        final int[] responses;
+        final boolean[] acked;
+
+        SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+        final ByteBuffer out = ByteBuffer.allocate(16 * 1024);
+        int nextToSend;
+        int answered;
+
+        Client(int id, int orders, Random random) {
+            this.id = id;
+            types = new Transaction.Type[orders];
+            symbols = new int[orders];
+            quantities = new int[orders];
+            sentNanos = new long[orders];
+            ackNanos = new long[orders];
+            responses = new int[orders];
+            acked = new boolean[orders];
+
+            for (int i = 0; i < orders; i++) {
+                types[i] = random.nextInt(5) < 3 ? Transaction.Type.BUY : Transaction.Type.SELL;
+                symbols[i] = random.nextInt(SYMBOLS);
+                quantities[i] = 1 + random.nextInt(20);
+            }
+        }
+
+        // Queues orders until the window is full
+        void send(int window) {
+            while (nextToSend < sentNanos.length && nextToSend - answered < window && out.remaining() > 64) {
+                int i = nextToSend++;
+                String line = id + "-" + i + "," + types[i] + "," + Datasets.symbol(symbols[i]) + "," + quantities[i] + "\n";
+                out.put(line.getBytes(StandardCharsets.US_ASCII));
+                sentNanos[i] = System.nanoTime();
+            }
+        }
+
+        void flush(SelectionKey key) throws Exception {
+            out.flip();
+            channel.write(out);
+            boolean partial = out.hasRemaining();
+            out.compact();
+            key.interestOps(partial ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        // Returns true when at least one response was read
+        boolean read() throws Exception {
+
+            if (channel.read(in) < 0) {
+                throw new IllegalStateException("Server closed connection " + id);
+            }
+
+            long now = System.nanoTime();
+            int before = answered;
+            in.flip();
+            byte[] bytes = in.array();
+            int lineStart = 0;
+
+            for (int i = 0; i < in.limit(); i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+
+                // ACK,<client>-<seq>,price or REJ,<client>-<seq>,reason
+                String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.US_ASCII);
+                String[] fields = line.split(",", 3);
+                int seq = Integer.parseInt(fields[1].substring(fields[1].indexOf('-') + 1));
+
+                responses[seq]++;
+                acked[seq] = fields[0].equals("ACK");
+                ackNanos[seq] = now;
+                answered++;
+                lineStart = i + 1;
+            }
+
+            in.position(lineStart);
+            in.compact();
+            return answered > before;
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private static boolean malformedRejected(int port) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write("x1,HOLD,AAPL,ten\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            String response = reader.readLine();
+            return response != null && response.startsWith("REJ,x1,");
+        }
+    }
+
+    // An id that nearly fills the read buffer: its reject used to be too big to ever flush
+    private static boolean longIdRejected(int port) throws Exception {
+        try (Socket first = new Socket(InetAddress.getLoopbackAddress(), port);
+                Socket second = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            first.setSoTimeout(5_000);
+            second.setSoTimeout(5_000);
+
+            String longId = "L".repeat(8_178);
+            first.getOutputStream().write((longId + ",BUY,AAPL,1\n").getBytes(StandardCharsets.US_ASCII));
+            second.getOutputStream().write("s1,SELL,AAPL,1\n".getBytes(StandardCharsets.US_ASCII));
+
+            String firstResponse = new BufferedReader(
+                    new InputStreamReader(first.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+            String secondResponse = new BufferedReader(
+                    new InputStreamReader(second.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+
+            return firstResponse != null && firstResponse.startsWith("REJ,,")
+                    && secondResponse != null && secondResponse.startsWith("REJ,s1,");
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+    }
+
+    // Sells with nothing held: every order is answered (rejected) and holdings stay empty
+    private static boolean halfCloseAnswered(int port, int orders) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < orders; i++) {
+                sb.append('h').append(i).append(",SELL,").append(Datasets.symbol(i % SYMBOLS)).append(",1\n");
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            socket.shutdownOutput();
+
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            int answered = 0;
+            while (reader.readLine() != null) {
+                answered++;
+            }
+            return answered == orders;
+        }
+    }
+
+    private static double percentile(long[] sorted, int count, double fraction) {
+        return sorted[Math.min(count - 1, (int) (count * fraction))];
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,77 @@
+package benchmark;
+
+import model.Portfolio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Heap cost of holdings: builds many portfolios with the same holdings
+ * twice, once as Portfolio and once as the ConcurrentHashMap<String,
+ * Integer> Portfolio used to wrap, and reports bytes per portfolio and per
+ * holding for each.
+ *
+ * Usage: java -cp out benchmark.PortfolioFootprint [portfolios] [holdingsPerPortfolio]
+ */
+public class PortfolioFootprint {
+
+    public static void main(String[] args) {
+
+        int portfolioCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int holdings = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        String[] symbols = new String[1000];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = Datasets.symbol(i);
+        }
+
+        // Warm the symbol table so its one-off cost is not counted
+        for (String symbol : symbols) {
+            new Portfolio().buyStock(symbol, 1);
+        }
+
+        long before = usedHeap();
+        Portfolio[] portfolios = new Portfolio[portfolioCount];
+        for (int p = 0; p < portfolioCount; p++) {
+            portfolios[p] = new Portfolio();
+            for (int h = 0; h < holdings; h++) {
+                portfolios[p].buyStock(symbols[(p * 7 + h * 13) % symbols.length], 1000 + h);
+            }
+        }
+        long primitive = usedHeap() - before;
+
+        before = usedHeap();
+        List<Map<String, Integer>> maps = new ArrayList<>(portfolioCount);
+        for (int p = 0; p < portfolioCount; p++) {
+            Map<String, Integer> map = new ConcurrentHashMap<>();
+            maps.add(map);
+            for (int h = 0; h < holdings; h++) {
+                map.merge(symbols[(p * 7 + h * 13) % symbols.length], 1000 + h, Integer::sum);
+            }
+        }
+        long boxed = usedHeap() - before;
+
+        if (!portfolios[portfolioCount - 1].getHoldings().equals(maps.get(portfolioCount - 1))) {
+            throw new IllegalStateException("Portfolio and map disagree");
+        }
+
+        System.out.printf("%,d portfolios x %d holdings%n", portfolioCount, holdings);
+        report("Portfolio (packed table)", primitive, portfolioCount, holdings);
+        report("ConcurrentHashMap<String,Integer>", boxed, portfolioCount, holdings);
+    }
+
+    private static void report(String name, long bytes, int portfolioCount, int holdings) {
+        System.out.printf("%-36s %8.1f B/portfolio %8.1f B/holding%n", name,
+                bytes / (double) portfolioCount, bytes / (double) portfolioCount / holdings);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,186 @@
+package benchmark;
+
+import service.FileService;
+import service.MarketService;
+import service.PriceFeed;
+import service.PriceTable;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Replays a tick file into the price table, first from the file and then
+ * over the localhost socket, while reader threads poll prices the way
+ * trading threads do.
+ *
+ * Readers check that every price they see is one that was published
+ * (whole paise, never a torn value) and measure publish-to-visible latency
+ * from the table's publish stamps. At the end the table must hold the last
+ * tick of every symbol.
+ *
+ * Usage: java -cp out benchmark.PriceFeedBenchmark [ticks] [symbols] [readers]
+ * Exits with status 1 if a check fails.
+ */
+public class PriceFeedBenchmark {
+
+    public static void main(String[] args) throws Exception {
+
+        int tickCount = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int readerCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        Path ticks = Datasets.priceTicks(tickCount, symbolCount);
+        MarketService marketService = new MarketService(
+                new FileService(Datasets.marketDirectory(symbolCount).toString()));
+        Map<String, Double> expected = lastTicks(ticks);
+
+        boolean ok = true;
+
+        // ---------- File Replay ----------
+        try (PriceFeed feed = new PriceFeed(marketService)) {
+            Readers readers = new Readers(marketService.getPriceTable(), readerCount);
+            long start = System.nanoTime();
+            feed.replay(ticks, 0);
+            long elapsed = System.nanoTime() - start;
+            readers.stop();
+
+            ok &= report("file replay", feed.getStats(), elapsed, readers);
+            ok &= check("table holds the last tick per symbol", matches(marketService.getPriceTable(), expected));
+        }
+
+        marketService.refreshMarketData();
+
+        // ---------- Socket Stand-in ----------
+        try (PriceFeed feed = new PriceFeed(marketService)) {
+            int port = feed.listen(0);
+            Readers readers = new Readers(marketService.getPriceTable(), readerCount);
+
+            long start = System.nanoTime();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                    OutputStream out = socket.getOutputStream()) {
+                Files.copy(ticks, out);
+            }
+            while (feed.getStats().getTicks() < tickCount) {
+                Thread.sleep(1);
+            }
+            long elapsed = System.nanoTime() - start;
+            readers.stop();
+
+            ok &= report("socket", feed.getStats(), elapsed, readers);
+            ok &= check("table holds the last tick per symbol", matches(marketService.getPriceTable(), expected));
+        }
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Reader Threads ----------
+    private static final class Readers {
+
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private final AtomicLong observed = new AtomicLong();
+        private final AtomicLong latencyNanosTotal = new AtomicLong();
+        private final AtomicLong latencyNanosMax = new AtomicLong();
+        private final AtomicLong invalid = new AtomicLong();
+        private final Thread[] threads;
+
+        Readers(PriceTable table, int count) {
+
+            threads = new Thread[count];
+
+            for (int t = 0; t < count; t++) {
+                threads[t] = new Thread(() -> {
+                    long[] lastSeen = new long[table.size()];
+                    for (int id = 0; id < lastSeen.length; id++) {
+                        lastSeen[id] = Double.doubleToRawLongBits(table.getPrice(id));
+                    }
+                    long seen = 0, total = 0, max = 0, bad = 0;
+
+                    while (running.get()) {
+                        int id = ThreadLocalRandom.current().nextInt(table.size());
+                        double price = table.getPrice(id);
+                        long bits = Double.doubleToRawLongBits(price);
+
+                        if (bits != lastSeen[id]) {
+                            long latency = System.nanoTime() - table.getPublishNanos(id);
+                            lastSeen[id] = bits;
+                            seen++;
+                            total += latency;
+                            max = Math.max(max, latency);
+
+                            // Every published price is a whole number of paise
+                            if (!(price > 0) || Math.abs(price * 100 - Math.rint(price * 100)) > 1e-6) {
+                                bad++;
+                            }
+                        }
+                        Thread.onSpinWait();
+                    }
+
+                    observed.addAndGet(seen);
+                    latencyNanosTotal.addAndGet(total);
+                    latencyNanosMax.accumulateAndGet(max, Math::max);
+                    invalid.addAndGet(bad);
+                }, "price-reader-" + t);
+                threads[t].start();
+            }
+        }
+
+        void stop() throws InterruptedException {
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private static Map<String, Double> lastTicks(Path ticks) throws Exception {
+        Map<String, Double> last = new HashMap<>();
+        List<String> lines = Files.readAllLines(ticks, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            last.put(parts[0], Double.parseDouble(parts[1]));
+        }
+        return last;
+    }
+
+    private static boolean matches(PriceTable table, Map<String, Double> expected) {
+        for (Map.Entry<String, Double> entry : expected.entrySet()) {
+            if (table.getPrice(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean report(String source, PriceFeed.Stats stats, long elapsedNanos, Readers readers) {
+
+        long observed = readers.observed.get();
+
+        System.out.printf("%-12s %,12.0f ticks/s | ingest latency avg %.2f us max %.1f us | "
+                + "reader saw %,d updates, visible after avg %.2f us max %.1f us%n",
+                source, stats.getTicks() * 1e9 / elapsedNanos,
+                stats.getAverageLatencyMicros(), stats.getMaxLatencyMicros(), observed,
+                observed == 0 ? 0 : readers.latencyNanosTotal.get() / 1e3 / observed,
+                readers.latencyNanosMax.get() / 1e3);
+
+        return check(source + ": no rejected ticks", stats.getRejected() == 0)
+                & check(source + ": readers never saw a torn price", readers.invalid.get() == 0);
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,102 @@
+package benchmark;
+
+import model.Portfolio;
+import service.FileService;
+import service.MarketService;
+import service.TradingService;
+import service.TransactionJournal;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/*
+ * Checks snapshot + journal-tail recovery against a full replay of
+ * transactions.txt, and compares their startup cost.
+ *
+ *   1. trade with a journal, checkpointing every checkpointInterval trades
+ *   2. "crash": close the journal without a final checkpoint
+ *   3. restart, and compare the recovered portfolio with a full replay
+ *   4. corrupt the newest snapshot and check recovery falls back to the older one
+ *
+ * Usage: java -cp out benchmark.RecoveryHarness [trades] [checkpointInterval]
+ * Exits with status 1 if recovery and full replay disagree.
+ */
+public class RecoveryHarness {
+
+    private static final int SYMBOLS = 100;
+
+    public static void main(String[] args) throws Exception {
+
+        int trades = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int checkpointInterval = args.length > 1 ? Integer.parseInt(args[1]) : 30_000;
+
+        Path dataDir = Datasets.freshDirectory("recovery");
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dataDir.toString());
+
+        // ---------- 1. Trade ----------
+        TradingService before = new TradingService(fileService, new MarketService(fileService));
+        before.setVerbose(false);
+        TransactionJournal journal = fileService.openJournal(TransactionJournal.Durability.NONE);
+        before.useJournal(journal, checkpointInterval);
+
+        Random random = new Random(Datasets.SEED);
+        for (int i = 0; i < trades; i++) {
+            String symbol = Datasets.symbol(random.nextInt(SYMBOLS));
+            int held = before.getPortfolio().getQuantity(symbol);
+            if (held > 0 && random.nextInt(3) == 0) {
+                before.sellStock(symbol, 1 + random.nextInt(held));
+            } else {
+                before.buyStock(symbol, 1 + random.nextInt(100));
+            }
+        }
+
+        // ---------- 2. Crash (journal durable, no final checkpoint) ----------
+        journal.close();
+
+        // ---------- 3. Recover ----------
+        long start = System.nanoTime();
+        TradingService after = new TradingService(fileService, new MarketService(fileService));
+        long recoverNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Portfolio replayed = TradingService.replay(fileService.loadTransactionsParallel().getTransactions());
+        long replayNanos = System.nanoTime() - start;
+
+        boolean ok = true;
+
+        ok &= check("recovered == state before crash",
+                after.getPortfolio().getHoldings().equals(before.getPortfolio().getHoldings()));
+        ok &= check("recovered == full replay",
+                after.getPortfolio().getHoldings().equals(replayed.getHoldings()));
+
+        System.out.printf("History       : %,d records, %,d bytes%n", trades, fileService.getTransactionFileSize());
+        System.out.printf("Snapshot      : %s%n", after.getLastSnapshot());
+        System.out.printf("Tail replayed : %,d records%n", after.getRecoveredRecords());
+        System.out.printf("Startup       : %.1f ms (snapshot + tail) vs %.1f ms (full replay)%n",
+                recoverNanos / 1e6, replayNanos / 1e6);
+
+        // ---------- 4. Torn newest snapshot ----------
+        after.checkpoint();
+        long newest = after.getLastSnapshot().getVersion();
+        Files.write(dataDir.resolve("snapshots").resolve("snapshot-" + newest + ".txt"),
+                "SNAPSHOT,1,".getBytes(StandardCharsets.UTF_8));
+
+        TradingService fallback = new TradingService(fileService, new MarketService(fileService));
+        ok &= check("falls back to previous snapshot",
+                fallback.getLastSnapshot().getVersion() < newest
+                        && fallback.getPortfolio().getHoldings().equals(replayed.getHoldings()));
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,195 @@
+package benchmark;
+
+import model.Portfolio;
+import model.Stock;
+import service.FileService;
+import service.MarketService;
+import service.Metrics;
+import service.PriceTable;
+import service.ReportRenderer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Cached report rendering against formatting every row on every view, for
+ * a large market universe.
+ *
+ * The cached full view must equal the naive one after every round of
+ * ticks, a redisplay with no ticks must format no rows, and a round of k
+ * ticks must format at most k rows. Pages must add up to the full view,
+ * top movers must match a full sort, and the portfolio view must only be
+ * rebuilt after a trade.
+ *
+ * Usage: java -cp out benchmark.ReportRenderBenchmark [symbols] [ticksPerRound] [rounds]
+ * Exits with status 1 if a check fails.
+ */
+public class ReportRenderBenchmark {
+
+    private static final int PAGE_SIZE = 25;
+    private static final int TOP_MOVERS = 10;
+
+    public static void main(String[] args) throws Exception {
+
+        int symbolCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int ticksPerRound = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        MarketService marketService = new MarketService(
+                new FileService(Datasets.marketDirectory(symbolCount).toString()));
+        ReportRenderer renderer = marketService.getReportRenderer();
+        PriceTable prices = marketService.getPriceTable();
+        Random random = new Random(Datasets.SEED);
+
+        // ---------- Correctness ----------
+        boolean ok = check("cold render matches naive", renderer.renderMarket().toString().equals(naive(prices)));
+
+        long formatted = rowsFormatted();
+        renderer.renderMarket();
+        ok &= check("redisplay without ticks formats no rows", rowsFormatted() == formatted);
+
+        boolean matches = true;
+        boolean bounded = true;
+        for (int round = 0; round < 20; round++) {
+            tick(prices, random, ticksPerRound);
+            formatted = rowsFormatted();
+            matches &= renderer.renderMarket().toString().equals(naive(prices));
+            bounded &= rowsFormatted() - formatted <= ticksPerRound;
+        }
+        ok &= check("cached render matches naive after ticks", matches);
+        ok &= check("each round formats at most " + ticksPerRound + " rows", bounded);
+
+        StringBuilder paged = new StringBuilder();
+        int pages = renderer.getPageCount(PAGE_SIZE);
+        for (int page = 1; page <= pages; page++) {
+            String text = renderer.renderMarketPage(page, PAGE_SIZE).toString();
+            // Every page repeats the two header lines
+            paged.append(page == 1 ? text : text.substring(nthLineEnd(text, 2)));
+        }
+        ok &= check("pages add up to the full view", paged.toString().equals(naive(prices)));
+
+        ok &= check("top movers match a full sort",
+                renderer.renderTopMovers(TOP_MOVERS).toString().equals(naiveTopMovers(prices, TOP_MOVERS)));
+
+        Portfolio portfolio = new Portfolio();
+        portfolio.buyStock(Datasets.symbol(1), 10);
+        String first = renderer.renderPortfolio(portfolio).toString();
+        String cachedAgain = renderer.renderPortfolio(portfolio).toString();
+        portfolio.buyStock(Datasets.symbol(2), 5);
+        String afterTrade = renderer.renderPortfolio(portfolio).toString();
+        ok &= check("portfolio view rebuilt only after a trade",
+                first.equals(cachedAgain) && !afterTrade.equals(first)
+                        && afterTrade.equals(portfolio + System.lineSeparator()));
+
+        marketService.refreshMarketData();
+        ok &= check("market refresh drops the row cache",
+                renderer.renderMarket().toString().equals(naive(marketService.getPriceTable())));
+
+        // ---------- Throughput ----------
+        prices = marketService.getPriceTable();
+        long naiveNanos = 0;
+        long cachedNanos = 0;
+        long pageNanos = 0;
+        long checksum = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            tick(prices, random, ticksPerRound);
+
+            long start = System.nanoTime();
+            checksum += naive(prices).length();
+            long naiveDone = System.nanoTime();
+            checksum += renderer.renderMarket().length();
+            long cachedDone = System.nanoTime();
+            checksum += renderer.renderMarketPage(1 + round % pages, PAGE_SIZE).length();
+            long pageDone = System.nanoTime();
+
+            naiveNanos += naiveDone - start;
+            cachedNanos += cachedDone - naiveDone;
+            pageNanos += pageDone - cachedDone;
+        }
+
+        System.out.printf("Symbols: %,d | Ticks per view: %d | Views: %d | (checksum %d)%n",
+                symbolCount, ticksPerRound, rounds, checksum);
+        System.out.printf("Full view, format every row: %8.2f ms%n", naiveNanos / 1e6 / rounds);
+        System.out.printf("Full view, cached rows:      %8.2f ms (%.0fx)%n",
+                cachedNanos / 1e6 / rounds, naiveNanos / (double) cachedNanos);
+        System.out.printf("One page of %d, cached rows: %8.3f ms%n", PAGE_SIZE, pageNanos / 1e6 / rounds);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Naive Rendering (every row, every view) ----------
+    private static String naive(PriceTable prices) {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(ReportRenderer.MARKET_HEADER).append(System.lineSeparator());
+        sb.append("-".repeat(ReportRenderer.MARKET_HEADER.length())).append(System.lineSeparator());
+
+        for (int id = 0; id < prices.size(); id++) {
+            sb.append(row(prices, id)).append(System.lineSeparator());
+        }
+
+        return sb.toString();
+    }
+
+    private static String naiveTopMovers(PriceTable prices, int n) {
+
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < prices.size(); id++) {
+            ids.add(id);
+        }
+        // Stable sort, so ties keep symbol order like the renderer's selection
+        ids.sort(Comparator.comparingDouble((Integer id) -> -Math.abs(change(prices, id))));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(ReportRenderer.MARKET_HEADER).append(System.lineSeparator());
+        sb.append("-".repeat(ReportRenderer.MARKET_HEADER.length())).append(System.lineSeparator());
+
+        for (int i = 0; i < Math.min(n, ids.size()); i++) {
+            sb.append(row(prices, ids.get(i))).append(System.lineSeparator());
+        }
+
+        return sb.toString();
+    }
+
+    private static String row(PriceTable prices, int id) {
+        Stock stock = prices.getSymbolIndex().getById(id);
+        return String.format("%-6s | %-20s | ₹%11.2f | %+7.2f%%", stock.getSymbol(), stock.getCompanyName(),
+                prices.getPrice(id), change(prices, id) * 100);
+    }
+
+    private static double change(PriceTable prices, int id) {
+        return prices.getPrice(id) / prices.getSymbolIndex().getById(id).getPrice() - 1;
+    }
+
+    // ---------- Helper Methods ----------
+    private static void tick(PriceTable prices, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            int id = random.nextInt(prices.size());
+            double reference = prices.getSymbolIndex().getById(id).getPrice();
+            prices.publish(id, reference * (0.8 + random.nextDouble() * 0.4));
+        }
+    }
+
+    private static long rowsFormatted() {
+        return Metrics.getCounters().get("report.rowsFormatted");
+    }
+
+    // Index just past the nth line separator
+    private static int nthLineEnd(String text, int n) {
+        int index = 0;
+        for (int i = 0; i < n; i++) {
+            index = text.indexOf(System.lineSeparator(), index) + System.lineSeparator().length();
+        }
+        return index;
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
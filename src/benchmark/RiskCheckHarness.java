@@ -0,0 +1,291 @@
+package benchmark;
+
+import model.SymbolTable;
+import model.Transaction;
+import model.User;
+import service.AccountEngine;
+import service.FileService;
+import service.MarketService;
+import service.PriceTable;
+import service.RiskCheck;
+import service.RiskEngine;
+import service.TradingService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Concurrent trading across many accounts with every pre-trade check
+ * enabled, in a scratch data directory.
+ *
+ * Afterwards no account may hold more than the max position in a symbol
+ * or exceed the max exposure, and each account's exposure counters must
+ * match its holdings. A price pushed outside the band must be rejected,
+ * and so must a market order to the order book above the max order value.
+ * A user account named PORTFOLIO must not share the order book's exposure,
+ * and checking resting orders for unknown symbols must not intern them.
+ * Prints per-check latency, and the cost of reserve() with and without
+ * checks.
+ *
+ * Usage: java -cp out benchmark.RiskCheckHarness [accounts] [threads] [tradesPerThread]
+ * Exits with status 1 if a check fails.
+ */
+public class RiskCheckHarness {
+
+    private static final int SYMBOLS = 100;
+    private static final double OPENING_BALANCE = 1_000_000;
+
+    private static final long MAX_POSITION = 200;
+    private static final double MAX_ORDER_VALUE = 150_000;
+    private static final double MAX_EXPOSURE = 400_000;
+    private static final double PRICE_BAND = 0.10;
+
+    public static void main(String[] args) throws Exception {
+
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors() * 2;
+        int tradesPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        Path dataDir = Datasets.freshDirectory("risk");
+        Files.copy(Datasets.marketDirectory(SYMBOLS).resolve("stocks.txt"), dataDir.resolve("stocks.txt"));
+
+        FileService fileService = new FileService(dataDir.toString());
+        MarketService marketService = new MarketService(fileService);
+
+        RiskEngine riskEngine = new RiskEngine(marketService);
+        riskEngine.addCheck(new RiskCheck.PriceBand(PRICE_BAND));
+        riskEngine.addCheck(new RiskCheck.MaxOrderNotional(MAX_ORDER_VALUE));
+        riskEngine.addCheck(new RiskCheck.MaxPosition(MAX_POSITION));
+        riskEngine.addCheck(new RiskCheck.MaxExposure(MAX_EXPOSURE));
+
+        // ---------- With Risk Checks ----------
+        AccountEngine checked = openAccounts(fileService, marketService, accountCount);
+        checked.setRiskEngine(riskEngine);
+
+        long[] outcome = trade(checked, accountCount, threads, tradesPerThread);
+        long checkedNanos = outcome[2];
+
+        boolean ok = check("no position above " + MAX_POSITION + " shares", maxPosition(checked) <= MAX_POSITION);
+        ok &= check("no account above max exposure", withinExposure(checked, riskEngine));
+        ok &= check("exposure counters match holdings", countersMatch(checked, riskEngine));
+
+        // ---------- Fat Finger ----------
+        PriceTable prices = marketService.getPriceTable();
+        String symbol = Datasets.symbol(0);
+        int id = prices.getSymbolIndex().idOf(symbol);
+        double reference = prices.getPrice(id);
+
+        prices.publish(id, reference * (1 + PRICE_BAND * 2));
+        ok &= check("order outside the price band is rejected", rejected(checked, symbol));
+        prices.publish(id, reference);
+
+        // ---------- Order Book ----------
+        TradingService book = new TradingService(fileService, marketService);
+        book.setRiskEngine(riskEngine);
+        ok &= check("market order above the max order value is rejected",
+                rejectedMarketOrder(book, symbol, (int) (MAX_ORDER_VALUE / reference) + 1));
+        ok &= check("user account named PORTFOLIO has its own exposure",
+                separateFromSharedPortfolio(checked, riskEngine, symbol));
+        ok &= check("limit orders for unknown symbols are not interned", unknownSymbolsNotInterned(book));
+
+        System.out.printf("Accounts: %,d | Threads: %d | Accepted: %,d | Rejected: %,d | %,.0f trades/s%n",
+                accountCount, threads, outcome[0], outcome[1], (outcome[0] + outcome[1]) * 1e9 / checkedNanos);
+        riskEngine.displayStats();
+
+        // ---------- Overhead ----------
+
+        // Limits that never reject, so only the cost of the stage itself is measured
+        RiskEngine loose = new RiskEngine(marketService);
+        double bare = reserveNanos(loose);
+        loose.addCheck(new RiskCheck.PriceBand(1_000));
+        loose.addCheck(new RiskCheck.MaxOrderNotional(Double.MAX_VALUE));
+        loose.addCheck(new RiskCheck.MaxPosition(Long.MAX_VALUE / 2));
+        loose.addCheck(new RiskCheck.MaxExposure(Double.MAX_VALUE));
+        double full = reserveNanos(loose);
+
+        System.out.printf("reserve(): %.0f ns with no checks, %.0f ns with 4 checks%n", bare, full);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Trading ----------
+    private static AccountEngine openAccounts(FileService fileService, MarketService marketService, int count) {
+        AccountEngine engine = new AccountEngine(fileService, marketService);
+        for (int i = 0; i < count; i++) {
+            engine.openAccount("U" + i, "User " + i, OPENING_BALANCE);
+        }
+        return engine;
+    }
+
+    // Returns { accepted, rejected, elapsed nanos }
+    private static long[] trade(AccountEngine engine, int accountCount, int threads, int tradesPerThread)
+            throws InterruptedException {
+
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            long seed = 31L * t + 7;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < tradesPerThread; i++) {
+                        String userId = "U" + random.nextInt(accountCount);
+                        String symbol = Datasets.symbol(random.nextInt(SYMBOLS));
+                        int quantity = 1 + random.nextInt(60);
+                        try {
+                            if (random.nextInt(5) < 3) {
+                                engine.buy(userId, symbol, quantity);
+                            } else {
+                                engine.sell(userId, symbol, quantity);
+                            }
+                            accepted.incrementAndGet();
+                        } catch (IllegalArgumentException | IllegalStateException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        return new long[] { accepted.get(), rejected.get(), System.nanoTime() - begin };
+    }
+
+    // Single-threaded ns per reserve(), after a warm-up pass
+    private static double reserveNanos(RiskEngine engine) {
+
+        int orders = 2_000_000;
+        long elapsed = 0;
+
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < orders; i++) {
+                engine.reserve("R" + (i & 1023), (i & 1) == 0 ? Transaction.Type.BUY : Transaction.Type.SELL,
+                        Datasets.symbol(i % SYMBOLS), 5, 100);
+            }
+            elapsed = System.nanoTime() - start;
+        }
+
+        return elapsed / (double) orders;
+    }
+
+    // ---------- Checks ----------
+    private static long maxPosition(AccountEngine engine) {
+        long max = 0;
+        for (User user : engine.getAccounts()) {
+            for (int quantity : user.getPortfolio().getHoldings().values()) {
+                max = Math.max(max, quantity);
+            }
+        }
+        return max;
+    }
+
+    private static boolean withinExposure(AccountEngine engine, RiskEngine riskEngine) {
+        for (User user : engine.getAccounts()) {
+            if (riskEngine.getExposure(user.getUserId()).getGrossNotional() > MAX_EXPOSURE + 1e-6) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Share counters must equal holdings, and gross notional the sum of the per-symbol notionals
+    private static boolean countersMatch(AccountEngine engine, RiskEngine riskEngine) {
+
+        for (User user : engine.getAccounts()) {
+
+            RiskEngine.Exposure exposure = riskEngine.getExposure(user.getUserId());
+            Map<String, Integer> holdings = user.getPortfolio().getHoldings();
+            double notional = 0;
+
+            for (int s = 0; s < SYMBOLS; s++) {
+                String symbol = Datasets.symbol(s);
+                Integer held = holdings.get(symbol);
+                int symbolId = SymbolTable.find(symbol);
+
+                if (symbolId != SymbolTable.NOT_FOUND) {
+                    if (exposure.getPosition(symbolId) != (held == null ? 0 : held)) {
+                        return false;
+                    }
+                    notional += exposure.getNotional(symbolId);
+                }
+            }
+
+            if (Math.abs(notional - exposure.getGrossNotional()) > 1e-6 * Math.max(1, notional)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean rejected(AccountEngine engine, String symbol) {
+        try {
+            engine.buy("U0", symbol, 1);
+            return false;
+        } catch (IllegalStateException e) {
+            return e.getMessage().contains("price-band");
+        }
+    }
+
+    private static boolean rejectedMarketOrder(TradingService service, String symbol, int quantity) {
+        try {
+            service.placeMarketOrder(Transaction.Type.BUY, symbol, quantity);
+            return false;
+        } catch (IllegalStateException e) {
+            return e.getMessage().contains("max-order");
+        }
+    }
+
+    private static boolean separateFromSharedPortfolio(AccountEngine engine, RiskEngine riskEngine, String symbol) {
+
+        engine.openAccount("PORTFOLIO", "Portfolio", OPENING_BALANCE);
+        double shared = riskEngine.getExposure(TradingService.PORTFOLIO_ACCOUNT).getGrossNotional();
+
+        engine.buy("PORTFOLIO", symbol, 1);
+
+        return riskEngine.getExposure(TradingService.PORTFOLIO_ACCOUNT).getGrossNotional() == shared
+                && riskEngine.getExposure("PORTFOLIO").getGrossNotional() > 0;
+    }
+
+    private static boolean unknownSymbolsNotInterned(TradingService book) {
+
+        int symbols = SymbolTable.size();
+
+        // The risk check runs first; the order book then rejects the symbol
+        for (int i = 0; i < 1_000; i++) {
+            try {
+                book.placeLimitOrder(Transaction.Type.BUY, "UNLISTED" + i, 1, 1.0);
+                return false;
+            } catch (IllegalArgumentException e) {
+                // Not in the market
+            }
+        }
+
+        return SymbolTable.size() == symbols;
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,296 @@
+package benchmark;
+
+import model.Stock;
+import service.LatencyHistogram;
+import service.Metrics;
+import service.SearchIndex;
+import service.SymbolIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * Prefix + fuzzy stock search over a large universe with realistic company
+ * names, checked against a brute-force scorer.
+ *
+ * For queries cut from real symbols and names, with and without a typo,
+ * the index's results must have exactly the scores of the brute-force top
+ * matches; when the 2-edit walk hits its visit budget, the 0- and 1-edit
+ * matches must still be exact and the rest real matches. "appl" must find
+ * AAPL. An incremental rebuild after renaming,
+ * adding and removing stocks must answer every query like a full build.
+ * Reports build and rebuild time and search latency percentiles against
+ * one brute-force scan.
+ *
+ * Usage: java -cp out benchmark.SearchIndexBenchmark [stocks] [checkedStocks] [queries]
+ * Exits with status 1 if a check fails.
+ */
+public class SearchIndexBenchmark {
+
+    private static final int LIMIT = 10;
+
+    public static void main(String[] args) {
+
+        int stockCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int checkedCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        // ---------- Correctness (brute force is O(universe) per query) ----------
+        List<Stock> small = withApple(Datasets.namedStocks(checkedCount));
+        SearchIndex smallIndex = SearchIndex.build(SymbolIndex.build(small));
+        Random random = new Random(Datasets.SEED);
+
+        boolean ranked = true;
+        String firstMismatch = null;
+        for (int i = 0; i < 300; i++) {
+            String query = query(small, random);
+            long truncated = Metrics.getCounters().getOrDefault("search.truncated", 0L);
+            int[] expected = bruteForceScores(small, query);
+            int[] actual = scores(smallIndex.search(query, LIMIT), query);
+            if (!ranksLike(expected, actual, Metrics.getCounters().getOrDefault("search.truncated", 0L) > truncated)) {
+                ranked = false;
+                firstMismatch = firstMismatch != null ? firstMismatch
+                        : query + " expected " + Arrays.toString(expected) + " got " + Arrays.toString(actual);
+            }
+        }
+
+        boolean ok = check("ranked like brute force" + (firstMismatch == null ? "" : " (" + firstMismatch + ")"),
+                ranked);
+        ok &= check("\"appl\" finds AAPL first", !smallIndex.search("appl", LIMIT).isEmpty()
+                && smallIndex.search("appl", LIMIT).get(0).getSymbol().equals("AAPL"));
+        ok &= check("\"aapl\" finds AAPL first", smallIndex.search("aapl", LIMIT).get(0).getSymbol().equals("AAPL"));
+        ok &= check("\"aple inc\" tolerates a typo",
+                smallIndex.search("aple inc", LIMIT).get(0).getSymbol().equals("AAPL"));
+
+        // ---------- Full Build and Incremental Rebuild ----------
+        List<Stock> universe = withApple(Datasets.namedStocks(stockCount));
+        SymbolIndex symbols = SymbolIndex.build(universe);
+        SearchIndex index = SearchIndex.build(symbols);
+        SearchIndex.rebuild(index, symbols);
+
+        long start = System.nanoTime();
+        index = SearchIndex.build(symbols);
+        long buildNanos = System.nanoTime() - start;
+
+        List<Stock> changed = new ArrayList<>(universe);
+        for (int i = 0; i < changed.size(); i += 100) {
+            Stock stock = changed.get(i);
+            changed.set(i, new Stock(stock.getSymbol(), stock.getCompanyName() + " New", stock.getPrice()));
+        }
+        changed.subList(changed.size() - 500, changed.size()).clear();
+        changed.addAll(1_000, Datasets.namedStocks(stockCount + 1_000).subList(stockCount, stockCount + 1_000));
+
+        SymbolIndex changedSymbols = SymbolIndex.build(changed);
+        start = System.nanoTime();
+        SearchIndex rebuilt = SearchIndex.rebuild(index, changedSymbols);
+        long rebuildNanos = System.nanoTime() - start;
+        SearchIndex fresh = SearchIndex.build(changedSymbols);
+
+        boolean same = rebuilt.getKeyCount() == fresh.getKeyCount();
+        for (int i = 0; i < 2_000 && same; i++) {
+            String query = query(changed, random);
+            same = symbolsOf(rebuilt.search(query, LIMIT)).equals(symbolsOf(fresh.search(query, LIMIT)));
+        }
+        ok &= check("incremental rebuild answers like a full build", same);
+
+        // ---------- Search Latency ----------
+        String[] queries = new String[queryCount];
+        for (int i = 0; i < queryCount; i++) {
+            queries[i] = query(universe, random);
+        }
+        for (String query : queries) {
+            index.search(query, LIMIT);
+        }
+
+        LatencyHistogram latency = new LatencyHistogram("search");
+        long found = 0;
+        for (String query : queries) {
+            long begin = System.nanoTime();
+            found += index.search(query, LIMIT).size();
+            latency.recordSince(begin);
+        }
+
+        start = System.nanoTime();
+        bruteForceScores(universe, queries[0]);
+        long scanNanos = System.nanoTime() - start;
+
+        LatencyHistogram.Snapshot snapshot = latency.getSnapshot();
+        System.out.printf("Stocks: %,d | Keys: %,d | Queries: %,d (%.1f results each)%n",
+                universe.size(), index.getKeyCount(), queryCount, found / (double) queryCount);
+        System.out.printf("Full build:            %8.0f ms%n", buildNanos / 1e6);
+        System.out.printf("Incremental rebuild:   %8.0f ms (%,d renamed, 1,000 added, 500 removed)%n",
+                rebuildNanos / 1e6, (universe.size() + 99) / 100);
+        System.out.printf("Search p50 / p99 / max: %6.1f / %6.1f / %6.1f us%n",
+                snapshot.getPercentileNanos(50) / 1e3, snapshot.getPercentileNanos(99) / 1e3,
+                snapshot.getMaxNanos() / 1e3);
+        System.out.printf("One brute-force scan:  %8.1f ms%n", scanNanos / 1e6);
+        System.out.printf("2-edit walks cut at the visit budget: %,d%n",
+                Metrics.getCounters().getOrDefault("search.truncated", 0L));
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Queries ----------
+
+    // A prefix of a symbol or name word, lower-cased, with a typo half the time
+    private static String query(List<Stock> stocks, Random random) {
+
+        Stock stock = stocks.get(random.nextInt(stocks.size()));
+        List<String> keys = keys(stock);
+        String key = keys.get(random.nextInt(keys.size()));
+        String query = key.substring(0, Math.min(key.length(), 2 + random.nextInt(8))).toLowerCase(Locale.ROOT);
+
+        if (query.length() > 3 && random.nextBoolean()) {
+            int at = 1 + random.nextInt(query.length() - 2);
+            char[] chars = query.toCharArray();
+            switch (random.nextInt(3)) {
+                case 0:
+                    chars[at] = (char) ('a' + random.nextInt(26));
+                    return new String(chars);
+                case 1:
+                    char c = chars[at];
+                    chars[at] = chars[at + 1];
+                    chars[at + 1] = c;
+                    return new String(chars);
+                default:
+                    return query.substring(0, at) + query.substring(at + 1);
+            }
+        }
+
+        return query.trim().isEmpty() ? "a" : query;
+    }
+
+    // ---------- Brute Force (same keys and scoring as the index) ----------
+    private static int[] bruteForceScores(List<Stock> stocks, String query) {
+
+        List<Integer> scores = new ArrayList<>();
+        for (Stock stock : stocks) {
+            int score = score(stock, query);
+            if (score != Integer.MAX_VALUE) {
+                scores.add(score);
+            }
+        }
+
+        return scores.stream().mapToInt(Integer::intValue).sorted().limit(LIMIT).toArray();
+    }
+
+    // Exact, or for a truncated 2-edit walk: same closer matches, then real but possibly worse ones
+    private static boolean ranksLike(int[] expected, int[] actual, boolean truncated) {
+
+        if (Arrays.equals(expected, actual)) {
+            return true;
+        }
+        if (!truncated) {
+            return false;
+        }
+
+        for (int i = 0; i < actual.length; i++) {
+            if (actual[i] == Integer.MAX_VALUE || actual[i] < expected[i] || i > 0 && actual[i] < actual[i - 1]
+                    || (expected[i] < 2 * 256) != (actual[i] < 2 * 256)
+                    || expected[i] < 2 * 256 && actual[i] != expected[i]) {
+                return false;
+            }
+        }
+        return Arrays.stream(expected).filter(score -> score < 2 * 256).count()
+                == Arrays.stream(actual).filter(score -> score < 2 * 256).count();
+    }
+
+    private static int[] scores(List<Stock> results, String query) {
+        return results.stream().mapToInt(stock -> score(stock, query)).toArray();
+    }
+
+    // Best score over the stock's keys, or MAX_VALUE if none is within the allowed edits
+    private static int score(Stock stock, String query) {
+
+        String q = query.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+        int maxDistance = q.length() <= 2 ? 0 : q.length() < 7 ? 1 : 2;
+
+        int best = Integer.MAX_VALUE;
+        int kind = 0;
+
+        for (String key : keys(stock)) {
+            int distance = key.charAt(0) == q.charAt(0) ? prefixDistance(q, key) : Integer.MAX_VALUE;
+            int wordLength = kind == 0 ? key.length() : wordLength(key);
+            if (distance <= maxDistance) {
+                best = Math.min(best, distance * 256 + kind * 64 + Math.min(wordLength, 63));
+            }
+            kind = Math.min(2, kind + 1);
+        }
+
+        return best;
+    }
+
+    // Symbol, then each suffix of the name that starts at a word
+    private static List<String> keys(Stock stock) {
+
+        String name = stock.getCompanyName().trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+        List<String> keys = new ArrayList<>();
+        keys.add(stock.getSymbol());
+
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isLetterOrDigit(name.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+                keys.add(name.substring(i));
+            }
+        }
+
+        return keys;
+    }
+
+    private static int wordLength(String key) {
+        int length = 0;
+        while (length < key.length() && Character.isLetterOrDigit(key.charAt(length))) {
+            length++;
+        }
+        return length;
+    }
+
+    // Smallest edit distance (with adjacent transpositions) from query to any prefix of key
+    private static int prefixDistance(String query, String key) {
+
+        int m = query.length();
+        int[][] d = new int[key.length() + 1][m + 1];
+        for (int j = 0; j <= m; j++) {
+            d[0][j] = j;
+        }
+
+        int best = d[0][m];
+        for (int i = 1; i <= key.length(); i++) {
+            d[i][0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = query.charAt(j - 1) == key.charAt(i - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && query.charAt(j - 1) == key.charAt(i - 2) && query.charAt(j - 2) == key.charAt(i - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+            best = Math.min(best, d[i][m]);
+        }
+
+        return best;
+    }
+
+    // ---------- Helper Methods ----------
+    private static List<Stock> withApple(List<Stock> stocks) {
+        List<Stock> all = new ArrayList<>(stocks);
+        all.add(new Stock("AAPL", "Apple Inc", 180.50));
+        return all;
+    }
+
+    private static List<String> symbolsOf(List<Stock> stocks) {
+        List<String> symbols = new ArrayList<>();
+        for (Stock stock : stocks) {
+            symbols.add(stock.getSymbol());
+        }
+        return symbols;
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,201 @@
+package benchmark;
+
+import model.Transaction;
+import service.FileService;
+import service.MarketService;
+import service.TradingService;
+import service.TransactionJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Multithreaded stress run against TradingService in a scratch data
+ * directory. Verifies that concurrent buys/sells never oversell, never
+ * overflow, and that the transaction file replays to the final portfolio.
+ *
+ * Usage: java -cp out benchmark.TradingStressHarness [threads] [tradesPerThread] [symbols]
+ * Exits with status 1 if any invariant is violated.
+ */
+public class TradingStressHarness {
+
+    private static final int INITIAL_QUANTITY = 50;
+    private static final int OVERFLOW_HEADROOM = 10;
+    private static final String OVERFLOW_SYMBOL = "FULL";
+
+    public static void main(String[] args) throws Exception {
+
+        int threads = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors() * 2;
+        int tradesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int symbolCount = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        Path dataDir = Files.createTempDirectory("stress-data");
+        List<String> symbols = writeDataset(dataDir, symbolCount);
+
+        FileService fileService = new FileService(dataDir.toString());
+        TradingService tradingService = new TradingService(fileService, new MarketService(fileService));
+        tradingService.setVerbose(false);
+        tradingService.useJournal(fileService.openJournal(TransactionJournal.Durability.NONE), 10_000);
+
+        AtomicLongArray netQuantity = new AtomicLongArray(symbolCount);
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong overflowBuys = new AtomicLong();
+        List<Throwable> unexpected = new ArrayList<>();
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            long seed = 31L * t + 7;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < tradesPerThread; i++) {
+
+                        // A small share of trades hammer the near-overflow holding
+                        if (i % 100 == 0) {
+                            try {
+                                tradingService.buyStock(OVERFLOW_SYMBOL, 1);
+                                overflowBuys.incrementAndGet();
+                            } catch (IllegalStateException expected) {
+                                rejected.incrementAndGet();
+                            }
+                            continue;
+                        }
+
+                        int id = random.nextInt(symbolCount);
+                        int quantity = 1 + random.nextInt(10);
+                        try {
+                            if (random.nextBoolean()) {
+                                tradingService.buyStock(symbols.get(id), quantity);
+                                netQuantity.addAndGet(id, quantity);
+                            } else {
+                                tradingService.sellStock(symbols.get(id), quantity);
+                                netQuantity.addAndGet(id, -quantity);
+                            }
+                            accepted.incrementAndGet();
+                        } catch (IllegalArgumentException oversell) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (unexpected) {
+                        unexpected.add(e);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        tradingService.shutdown();
+
+        List<String> failures = new ArrayList<>();
+
+        for (Throwable e : unexpected) {
+            failures.add("Unexpected exception: " + e);
+        }
+
+        Map<String, Integer> holdings = tradingService.getPortfolio().getHoldings();
+
+        for (int id = 0; id < symbolCount; id++) {
+            long expected = INITIAL_QUANTITY + netQuantity.get(id);
+            int actual = holdings.getOrDefault(symbols.get(id), 0);
+            if (actual < 0 || actual != expected) {
+                failures.add(symbols.get(id) + ": expected " + expected + " but portfolio has " + actual);
+            }
+        }
+
+        if (overflowBuys.get() != OVERFLOW_HEADROOM
+                || holdings.getOrDefault(OVERFLOW_SYMBOL, 0) != Integer.MAX_VALUE) {
+            failures.add("Overflow guard let " + overflowBuys.get() + " buys through (expected "
+                    + OVERFLOW_HEADROOM + ")");
+        }
+
+        List<Transaction> journaled = fileService.loadTransactions();
+        if (journaled.size() != accepted.get() + overflowBuys.get()) {
+            failures.add("Journal has " + journaled.size() + " records for "
+                    + (accepted.get() + overflowBuys.get()) + " accepted trades");
+        }
+
+        Map<String, Long> replayed = replay(journaled);
+        for (int id = 0; id < symbolCount; id++) {
+            long replayedNet = replayed.getOrDefault(symbols.get(id), 0L);
+            if (replayedNet != netQuantity.get(id)) {
+                failures.add(symbols.get(id) + ": journal replays to net " + replayedNet
+                        + " but trades applied net " + netQuantity.get(id));
+            }
+        }
+
+        System.out.printf("Threads: %d | Accepted: %d | Rejected: %d | %.0f trades/s%n",
+                threads, accepted.get() + overflowBuys.get(), rejected.get(),
+                (accepted.get() + rejected.get() + overflowBuys.get()) * 1e9 / elapsedNanos);
+
+        if (!failures.isEmpty()) {
+            failures.forEach(System.out::println);
+            System.exit(1);
+        }
+
+        System.out.println("All invariants held.");
+    }
+
+    // ---------- Dataset ----------
+    private static List<String> writeDataset(Path dataDir, int symbolCount) {
+
+        List<String> symbols = new ArrayList<>();
+        StringBuilder stocks = new StringBuilder();
+        StringBuilder portfolio = new StringBuilder();
+
+        for (int i = 0; i < symbolCount; i++) {
+            String symbol = "S" + i;
+            symbols.add(symbol);
+            stocks.append(symbol).append(",Stress Co ").append(i).append(",").append(10 + i).append("\n");
+            portfolio.append(symbol).append(",").append(INITIAL_QUANTITY).append("\n");
+        }
+
+        stocks.append(OVERFLOW_SYMBOL).append(",Overflow Co,1.00\n");
+        portfolio.append(OVERFLOW_SYMBOL).append(",").append(Integer.MAX_VALUE - OVERFLOW_HEADROOM).append("\n");
+
+        try {
+            Files.writeString(dataDir.resolve("stocks.txt"), stocks);
+            Files.writeString(dataDir.resolve("portfolio.txt"), portfolio);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return symbols;
+    }
+
+    private static Map<String, Long> replay(List<Transaction> transactions) {
+
+        Map<String, Long> net = new HashMap<>();
+
+        for (Transaction transaction : transactions) {
+            long signed = transaction.getType() == Transaction.Type.BUY
+                    ? transaction.getQuantity()
+                    : -transaction.getQuantity();
+            net.merge(transaction.getStockSymbol(), signed, Long::sum);
+        }
+
+        return net;
+    }
+}
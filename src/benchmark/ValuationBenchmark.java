@@ -0,0 +1,379 @@
+package benchmark;
+
+import model.Stock;
+import model.Transaction;
+import service.FileService;
+import service.PriceTable;
+import service.SymbolIndex;
+import service.TradingService;
+import service.ValuationEngine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * Incremental valuation under a tick stream.
+ *
+ * Builds many accounts from random trades, then streams price ticks into a
+ * FIFO and an AVERAGE cost ValuationEngine and reports ticks/s. Afterwards
+ * every account's running totals are checked against the engine's own
+ * exact revalue() and against a naive recompute from the account's full
+ * trade history. Also times that naive recompute, which is what each tick
+ * would cost without the engine. Finally the same trades go through a
+ * scratch transactions.txt: a valuation saved part-way and caught up on
+ * the rest of the ledger must equal one rebuilt from the whole file.
+ *
+ * Usage: java -cp out benchmark.ValuationBenchmark [accounts] [positionsPerAccount] [symbols] [ticks]
+ * Exits with status 1 if a check fails.
+ */
+public class ValuationBenchmark {
+
+    public static void main(String[] args) throws IOException {
+
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int positions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int symbolCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int tickCount = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+
+        Random random = new Random(Datasets.SEED);
+        String[] symbols = new String[symbolCount];
+        double[] prices = new double[symbolCount];
+        List<Stock> stocks = Datasets.stocks(symbolCount);
+        for (int i = 0; i < symbolCount; i++) {
+            symbols[i] = stocks.get(i).getSymbol();
+            prices[i] = stocks.get(i).getPrice();
+        }
+
+        ValuationEngine fifo = new ValuationEngine(ValuationEngine.CostBasis.FIFO);
+        ValuationEngine average = new ValuationEngine(ValuationEngine.CostBasis.AVERAGE);
+
+        // ---------- Build Accounts ----------
+        List<List<Transaction>> ledgers = new ArrayList<>(accountCount);
+        int tradeCount = 0;
+
+        for (int a = 0; a < accountCount; a++) {
+
+            String accountId = "U" + a;
+            int[] held = new int[positions];
+            int[] picks = new int[positions];
+            for (int p = 0; p < positions; p++) {
+                picks[p] = random.nextInt(symbolCount);
+            }
+
+            List<Transaction> ledger = new ArrayList<>();
+            for (int i = 0; i < positions * 4; i++) {
+
+                int p = random.nextInt(positions);
+                int s = picks[p];
+                prices[s] = step(random, prices[s]);
+                fifo.onPrice(symbols[s], prices[s]);
+                average.onPrice(symbols[s], prices[s]);
+
+                Transaction trade;
+                if (held[p] == 0 || random.nextInt(3) > 0) {
+                    int quantity = 1 + random.nextInt(100);
+                    held[p] += quantity;
+                    trade = new Transaction(Transaction.Type.BUY, symbols[s], quantity, prices[s]);
+                } else {
+                    int quantity = 1 + random.nextInt(held[p]);
+                    held[p] -= quantity;
+                    trade = new Transaction(Transaction.Type.SELL, symbols[s], quantity, prices[s]);
+                }
+
+                fifo.onTrade(accountId, trade);
+                average.onTrade(accountId, trade);
+                ledger.add(trade);
+            }
+
+            ledgers.add(ledger);
+            tradeCount += ledger.size();
+        }
+
+        // ---------- Tick Stream ----------
+        int[] tickSymbols = new int[tickCount];
+        double[] tickPrices = new double[tickCount];
+        for (int i = 0; i < tickCount; i++) {
+            int s = random.nextInt(symbolCount);
+            prices[s] = step(random, prices[s]);
+            tickSymbols[i] = s;
+            tickPrices[i] = prices[s];
+        }
+
+        System.out.printf("Accounts: %,d | Positions/account: %d | Symbols: %,d | Trades: %,d | Ticks: %,d%n",
+                accountCount, positions, symbolCount, tradeCount, tickCount);
+
+        boolean ok = true;
+
+        for (ValuationEngine engine : new ValuationEngine[] { fifo, average }) {
+
+            long start = System.nanoTime();
+            for (int i = 0; i < tickCount; i++) {
+                engine.onPrice(symbols[tickSymbols[i]], tickPrices[i]);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-7s onPrice: %,.0f ticks/s (%.0f ns/tick)%n", engine.getMethod(),
+                    tickCount * 1e9 / elapsed, elapsed / (double) tickCount);
+
+            String name = engine.getMethod().toString();
+            ok &= check(name + " running totals match revalue()", matchesRevalue(engine, accountCount));
+            ok &= check(name + " matches naive recompute from history",
+                    matchesNaive(engine, ledgers, symbols, prices));
+        }
+
+        // ---------- Pull From a Price Table ----------
+        PriceTable table = new PriceTable(SymbolIndex.build(stocks));
+        for (int i = 0; i < symbolCount; i++) {
+            table.publish(table.getSymbolIndex().idOf(symbols[i]), prices[i]);
+        }
+        int unchanged = fifo.markToMarket(table);
+
+        for (int i = 0; i < 10; i++) {
+            int s = random.nextInt(symbolCount);
+            prices[s] = step(random, prices[s]);
+            table.publish(table.getSymbolIndex().idOf(symbols[s]), prices[s]);
+        }
+        int changed = fifo.markToMarket(table);
+
+        ok &= check("markToMarket skips unchanged prices", unchanged == 0 && changed > 0 && changed <= 10);
+        ok &= check("markToMarket matches naive recompute", matchesNaive(fifo, ledgers, symbols, prices));
+
+        // ---------- Saved State Plus Ledger Tail ----------
+        for (ValuationEngine.CostBasis method : ValuationEngine.CostBasis.values()) {
+            ok &= check(method + " saved valuation plus the ledger tail matches a full rebuild",
+                    savedMatchesRebuild(ledgers, method));
+        }
+
+        // ---------- Naive Cost ----------
+        Map<String, Double> marks = priceMap(symbols, prices);
+        long start = System.nanoTime();
+        double sink = 0;
+        for (List<Transaction> ledger : ledgers) {
+            sink += naive(ledger, ValuationEngine.CostBasis.FIFO, marks)[0];
+        }
+        long naiveNanos = System.nanoTime() - start;
+
+        System.out.printf("Naive full recompute: %.1f ms per tick (%,.1f ticks/s) [%.0f]%n",
+                naiveNanos / 1e6, 1e9 / naiveNanos, sink % 10);
+
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    // ---------- Checks ----------
+    private static boolean matchesRevalue(ValuationEngine engine, int accountCount) {
+
+        ValuationEngine.Valuation[] running = new ValuationEngine.Valuation[accountCount];
+        for (int a = 0; a < accountCount; a++) {
+            running[a] = engine.getValuation("U" + a);
+        }
+
+        engine.revalue();
+
+        for (int a = 0; a < accountCount; a++) {
+            ValuationEngine.Valuation exact = engine.getValuation("U" + a);
+            if (!close(running[a].getMarketValue(), exact.getMarketValue())
+                    || !close(running[a].getCostBasis(), exact.getCostBasis())
+                    || !close(running[a].getRealizedPnl(), exact.getRealizedPnl())) {
+                System.out.println("  " + running[a] + "\n  " + exact);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean matchesNaive(ValuationEngine engine, List<List<Transaction>> ledgers,
+            String[] symbols, double[] prices) {
+
+        Map<String, Double> marks = priceMap(symbols, prices);
+
+        for (int a = 0; a < ledgers.size(); a++) {
+            double[] expected = naive(ledgers.get(a), engine.getMethod(), marks);
+            ValuationEngine.Valuation actual = engine.getValuation("U" + a);
+            if (!close(expected[0], actual.getMarketValue())
+                    || !close(expected[1], actual.getCostBasis())
+                    || !close(expected[2], actual.getRealizedPnl())) {
+                System.out.printf("  U%d expected mv=%.4f cost=%.4f realized=%.4f%n  %s%n",
+                        a, expected[0], expected[1], expected[2], actual);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Writes every account's trades to transactions.txt, interleaved, with
+     * U0's as shared portfolio trades. The valuation is saved after 90% of
+     * them, then loaded again once the last 10% are appended.
+     */
+    private static boolean savedMatchesRebuild(List<List<Transaction>> ledgers, ValuationEngine.CostBasis method)
+            throws IOException {
+
+        Path dataDir = Datasets.freshDirectory("valuation");
+        FileService fileService = new FileService(dataDir.toString());
+        Path ledgerFile = dataDir.resolve("transactions.txt");
+
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; lines.size() < ledgers.size() * ledgers.get(0).size(); i++) {
+            for (int a = 0; a < ledgers.size(); a++) {
+                if (i < ledgers.get(a).size()) {
+                    Transaction trade = ledgers.get(a).get(i);
+                    lines.add((a == 0 ? trade : trade.forAccount("U" + a)).toFileString());
+                }
+            }
+        }
+
+        int saved = lines.size() * 9 / 10;
+        Files.write(ledgerFile, lines.subList(0, saved), StandardCharsets.UTF_8);
+        fileService.saveValuation(fileService.loadValuation(method));
+        Files.write(ledgerFile, lines.subList(saved, lines.size()), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // Each load runs twice and the second is timed, so neither pays for JIT warm-up
+        fileService.loadValuation(method);
+        long start = System.nanoTime();
+        ValuationEngine caughtUp = fileService.loadValuation(method);
+        long caughtUpNanos = System.nanoTime() - start;
+
+        Files.delete(fileService.openValuationStore().getFile());
+        fileService.loadValuation(method);
+        start = System.nanoTime();
+        ValuationEngine rebuilt = fileService.loadValuation(method);
+        long rebuiltNanos = System.nanoTime() - start;
+
+        System.out.printf("%-7s startup: %.0f ms from saved state + %,d tail trades, %.0f ms rebuilding %,d trades%n",
+                method, caughtUpNanos / 1e6, lines.size() - saved, rebuiltNanos / 1e6, lines.size());
+
+        if (caughtUp.getAccountCount() != rebuilt.getAccountCount()) {
+            return false;
+        }
+
+        for (int a = 0; a < ledgers.size(); a++) {
+            String accountId = a == 0 ? TradingService.PORTFOLIO_ACCOUNT : "U" + a;
+            ValuationEngine.Valuation expected = rebuilt.getValuation(accountId);
+            ValuationEngine.Valuation actual = caughtUp.getValuation(accountId);
+            if (!close(expected.getMarketValue(), actual.getMarketValue())
+                    || !close(expected.getCostBasis(), actual.getCostBasis())
+                    || !close(expected.getRealizedPnl(), actual.getRealizedPnl())
+                    || !samePositions(rebuilt.getPositions(accountId), caughtUp.getPositions(accountId))) {
+                System.out.println("  " + expected + "\n  " + actual);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean samePositions(List<ValuationEngine.PositionValue> expected,
+            List<ValuationEngine.PositionValue> actual) {
+
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < expected.size(); i++) {
+            ValuationEngine.PositionValue e = expected.get(i);
+            ValuationEngine.PositionValue a = actual.get(i);
+            if (!e.getSymbol().equals(a.getSymbol()) || e.getQuantity() != a.getQuantity()
+                    || !close(e.getCostBasis(), a.getCostBasis()) || !close(e.getPrice(), a.getPrice())
+                    || !close(e.getRealizedPnl(), a.getRealizedPnl())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Replays one account's whole history, the way a report would without
+     * the engine. Returns { market value, cost basis, realized P&L }.
+     */
+    private static double[] naive(List<Transaction> ledger, ValuationEngine.CostBasis method,
+            Map<String, Double> prices) {
+
+        Map<String, NaivePosition> book = new HashMap<>();
+        double realized = 0;
+
+        for (Transaction trade : ledger) {
+
+            NaivePosition position = book.computeIfAbsent(trade.getStockSymbol(), k -> new NaivePosition());
+
+            if (trade.getType() == Transaction.Type.BUY) {
+                position.quantity += trade.getQuantity();
+                position.cost += trade.getQuantity() * trade.getPrice();
+                position.lots.addLast(new double[] { trade.getQuantity(), trade.getPrice() });
+            } else if (method == ValuationEngine.CostBasis.AVERAGE) {
+                double averageCost = position.cost / position.quantity;
+                realized += (trade.getPrice() - averageCost) * trade.getQuantity();
+                position.cost -= averageCost * trade.getQuantity();
+                position.quantity -= trade.getQuantity();
+            } else {
+                double remaining = trade.getQuantity();
+                while (remaining > 0) {
+                    double[] lot = position.lots.peekFirst();
+                    double take = Math.min(remaining, lot[0]);
+                    realized += (trade.getPrice() - lot[1]) * take;
+                    position.cost -= lot[1] * take;
+                    remaining -= take;
+                    if ((lot[0] -= take) == 0) {
+                        position.lots.removeFirst();
+                    }
+                }
+                position.quantity -= trade.getQuantity();
+            }
+
+            if (position.quantity == 0) {
+                position.cost = 0;
+            }
+        }
+
+        double marketValue = 0, cost = 0;
+        for (Map.Entry<String, NaivePosition> entry : book.entrySet()) {
+            marketValue += entry.getValue().quantity * prices.get(entry.getKey());
+            cost += entry.getValue().cost;
+        }
+
+        return new double[] { marketValue, cost, realized };
+    }
+
+    private static final class NaivePosition {
+        final ArrayDeque<double[]> lots = new ArrayDeque<>();
+        long quantity;
+        double cost;
+    }
+
+    // ---------- Helper Methods ----------
+    private static Map<String, Double> priceMap(String[] symbols, double[] prices) {
+        Map<String, Double> map = new HashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            map.put(symbols[i], prices[i]);
+        }
+        return map;
+    }
+
+    // Random walk of at most 1% per step, in whole paise
+    private static double step(Random random, double price) {
+        double next = price * (1 + (random.nextDouble() - 0.5) * 0.02);
+        return Math.max(0.01, Math.round(next * 100) / 100.0);
+    }
+
+    private static boolean close(double expected, double actual) {
+        return Math.abs(expected - actual) <= 1e-6 * Math.max(1, Math.abs(expected));
+    }
+
+    private static boolean check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        return passed;
+    }
+}
@@ -0,0 +1,77 @@
+package model;
+
+/*
+ * A market order waiting to be executed: side, symbol and quantity only.
+ * The price is taken from the market when it executes.
+ */
+public final class OrderRequest {
+
+    // ---------- Fields (Immutable) ----------
+    private final Transaction.Type type;
+    private final String stockSymbol;
+    private final int quantity;
+
+    // ---------- Constructor ----------
+    public OrderRequest(Transaction.Type type, String stockSymbol, int quantity) {
+
+        if (type == null) {
+            throw new IllegalArgumentException("Order type cannot be null");
+        }
+
+        if (stockSymbol == null || stockSymbol.trim().isEmpty()) {
+            throw new IllegalArgumentException("Stock symbol cannot be null or empty");
+        }
+
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Order quantity must be positive");
+        }
+
+        this.type = type;
+        this.stockSymbol = stockSymbol.trim().toUpperCase();
+        this.quantity = quantity;
+    }
+
+    // ---------- Getters ----------
+    public Transaction.Type getType() {
+        return type;
+    }
+
+    public String getStockSymbol() {
+        return stockSymbol;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    // ---------- CSV (TYPE,SYMBOL,QTY) ----------
+    public String toCsvString() {
+        return type + "," + stockSymbol + "," + quantity;
+    }
+
+    public static OrderRequest fromCsvString(String line) {
+
+        if (line == null || line.trim().isEmpty()) {
+            throw new IllegalArgumentException("Order record is empty or null");
+        }
+
+        String[] parts = line.split(",");
+
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid order format (expected 3 fields): " + line);
+        }
+
+        try {
+            Transaction.Type type = Transaction.Type.valueOf(parts[0].trim().toUpperCase());
+            return new OrderRequest(type, parts[1], Integer.parseInt(parts[2].trim()));
+
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Failed to parse order record: " + line, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + quantity + " " + stockSymbol;
+    }
+}
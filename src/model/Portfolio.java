@@ -1,20 +1,36 @@
 package model;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 public class Portfolio {
 
     /*
-     * Stock Symbol (String) -> Quantity (Integer)
-     * Using String makes File I/O simple and reliable
+     * Holdings are kept in an open-addressing table of packed longs:
+     * (symbol id << 32) | quantity, with ids from SymbolTable. Quantities
+     * are always positive, so a zero slot is empty. Trades neither box nor
+     * allocate, a holding costs 8-16 bytes, and an empty portfolio has no
+     * table at all.
+     *
+     * Every access is synchronized on the portfolio, so each check-and-update
+     * is atomic and concurrent trades cannot oversell or overflow a holding.
+     * Critical sections are a few array probes.
      */
-    private final Map<String, Integer> holdings;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] slots;
+    private int size;
+
+    // Bumped on every change, so views can cache what they rendered
+    private long version;
 
     // ---------- Constructor ----------
     public Portfolio() {
-        this.holdings = new HashMap<>();
     }
 
     // ---------- BUY Operation ----------
@@ -23,16 +39,25 @@ public class Portfolio {
         validateSymbol(symbol);
         validateQuantity(quantity);
 
-        symbol = normalizeSymbol(symbol);
+        int id = SymbolTable.idOf(normalizeSymbol(symbol));
 
-        int existingQty = holdings.getOrDefault(symbol, 0);
+        synchronized (this) {
 
-        // Prevent integer overflow (edge case)
-        if (existingQty > Integer.MAX_VALUE - quantity) {
-            throw new IllegalStateException("Stock quantity overflow");
-        }
+            int slot = indexOf(id);
+            int existingQty = slot < 0 ? 0 : quantityAt(slot);
 
-        holdings.put(symbol, existingQty + quantity);
+            // Prevent integer overflow (edge case)
+            if (existingQty > Integer.MAX_VALUE - quantity) {
+                throw new IllegalStateException("Stock quantity overflow");
+            }
+
+            if (slot >= 0) {
+                slots[slot] = pack(id, existingQty + quantity);
+            } else {
+                insert(id, quantity);
+            }
+            version++;
+        }
     }
 
     // ---------- SELL Operation ----------
@@ -41,53 +66,286 @@ public class Portfolio {
         validateSymbol(symbol);
         validateQuantity(quantity);
 
-        symbol = normalizeSymbol(symbol);
+        int id = SymbolTable.find(normalizeSymbol(symbol));
 
-        Integer currentQty = holdings.get(symbol);
+        synchronized (this) {
 
-        if (currentQty == null) {
-            throw new IllegalArgumentException("Stock not present in portfolio");
-        }
+            int slot = id == SymbolTable.NOT_FOUND ? -1 : indexOf(id);
 
-        if (quantity > currentQty) {
-            throw new IllegalArgumentException(
-                    "Attempted to sell more stocks than owned");
+            if (slot < 0) {
+                throw new IllegalArgumentException("Stock not present in portfolio");
+            }
+
+            int currentQty = quantityAt(slot);
+
+            if (quantity > currentQty) {
+                throw new IllegalArgumentException(
+                        "Attempted to sell more stocks than owned");
+            }
+
+            int remainingQty = currentQty - quantity;
+
+            if (remainingQty == 0) {
+                removeAt(slot);
+            } else {
+                slots[slot] = pack(id, remainingQty);
+            }
+            version++;
         }
+    }
 
-        int remainingQty = currentQty - quantity;
+    // ---------- Replay (apply a recorded transaction) ----------
+    public void apply(Transaction transaction) {
 
-        if (remainingQty == 0) {
-            holdings.remove(symbol);
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+
+        if (transaction.getType() == Transaction.Type.BUY) {
+            buyStock(transaction.getStockSymbol(), transaction.getQuantity());
         } else {
-            holdings.put(symbol, remainingQty);
+            sellStock(transaction.getStockSymbol(), transaction.getQuantity());
         }
     }
 
     // ---------- Get Quantity ----------
     public int getQuantity(String symbol) {
         validateSymbol(symbol);
-        return holdings.getOrDefault(normalizeSymbol(symbol), 0);
+        return quantityOf(SymbolTable.find(normalizeSymbol(symbol)));
     }
 
     // ---------- Portfolio Check ----------
     public boolean containsStock(String symbol) {
-        validateSymbol(symbol);
-        return holdings.containsKey(normalizeSymbol(symbol));
+        return getQuantity(symbol) > 0;
     }
 
     // ---------- Safe Read-Only Access ----------
+
+    /*
+     * Read-only live view. Lookups read the current table; iteration walks a
+     * copy taken under the lock, so it always sees one consistent state.
+     */
     public Map<String, Integer> getHoldings() {
-        return Collections.unmodifiableMap(holdings);
+        return new HoldingsView();
+    }
+
+    /*
+     * Visits every holding without boxing or entry objects, over a copy
+     * taken under the lock, like getHoldings() iteration.
+     */
+    public void forEachHolding(ObjIntConsumer<String> action) {
+
+        if (action == null) {
+            throw new IllegalArgumentException("Action cannot be null");
+        }
+
+        for (long packed : copySlots()) {
+            if (packed != 0) {
+                action.accept(SymbolTable.symbolOf(idAt(packed)), (int) packed);
+            }
+        }
     }
 
     // ---------- Portfolio Empty ----------
-    public boolean isEmpty() {
-        return holdings.isEmpty();
+    public synchronized boolean isEmpty() {
+        return size == 0;
     }
 
     // ---------- Clear Portfolio ----------
-    public void clear() {
-        holdings.clear();
+    public synchronized void clear() {
+        slots = null;
+        size = 0;
+        version++;
+    }
+
+    // ---------- Change Version ----------
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // ---------- Holdings Table ----------
+    private static long pack(int id, int quantity) {
+        return ((long) id << 32) | quantity;
+    }
+
+    private static int idAt(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private int quantityAt(int slot) {
+        return (int) slots[slot];
+    }
+
+    private synchronized int quantityOf(int id) {
+        if (id == SymbolTable.NOT_FOUND) {
+            return 0;
+        }
+        int slot = indexOf(id);
+        return slot < 0 ? 0 : quantityAt(slot);
+    }
+
+    private synchronized long[] copySlots() {
+        return slots == null ? new long[0] : slots.clone();
+    }
+
+    private synchronized int holdingCount() {
+        return size;
+    }
+
+    private int home(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (slots.length - 1);
+    }
+
+    // Slot holding id, or -1
+    private int indexOf(int id) {
+
+        if (slots == null) {
+            return -1;
+        }
+
+        int mask = slots.length - 1;
+        for (int slot = home(id); slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (idAt(slots[slot]) == id) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    private void insert(int id, int quantity) {
+
+        if (slots == null) {
+            slots = new long[INITIAL_CAPACITY];
+        } else if ((size + 1) * 4 > slots.length * 3) {
+            rehash(slots.length * 2);
+        }
+
+        int mask = slots.length - 1;
+        int slot = home(id);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        slots[slot] = pack(id, quantity);
+        size++;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void removeAt(int hole) {
+
+        int mask = slots.length - 1;
+        int slot = (hole + 1) & mask;
+
+        while (slots[slot] != 0) {
+
+            int home = home(idAt(slots[slot]));
+            boolean movable = hole <= slot
+                    ? home <= hole || home > slot
+                    : home <= hole && home > slot;
+
+            if (movable) {
+                slots[hole] = slots[slot];
+                hole = slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        slots[hole] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+
+        for (long packed : old) {
+            if (packed != 0) {
+                int slot = home(idAt(packed));
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = packed;
+            }
+        }
+    }
+
+    // ---------- Holdings View ----------
+    private final class HoldingsView extends AbstractMap<String, Integer> {
+
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            int quantity = quantityOf(SymbolTable.find((String) key));
+            return quantity == 0 ? null : quantity;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return holdingCount();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+
+            long[] copy = copySlots();
+
+            return new AbstractSet<Map.Entry<String, Integer>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    return new Iterator<Map.Entry<String, Integer>>() {
+
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < copy.length && copy[from] == 0) {
+                                from++;
+                            }
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < copy.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            long packed = copy[next];
+                            next = advance(next + 1);
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                    SymbolTable.symbolOf(idAt(packed)), (int) packed);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int count = 0;
+                    for (long packed : copy) {
+                        if (packed != 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            };
+        }
     }
 
     // ---------- Validation Methods ----------
@@ -115,6 +373,8 @@ public class Portfolio {
     @Override
     public String toString() {
 
+        Map<String, Integer> holdings = getHoldings();
+
         if (holdings.isEmpty()) {
             return "Portfolio is empty.";
         }
@@ -7,7 +7,7 @@ public class Stock {
     // ---------- Fields ----------
     private final String symbol;
     private final String companyName;
-    private double price;
+    private final double price;   // reference price from stocks.txt; live prices are in PriceTable
 
     // ---------- Constructor with Validation ----------
     public Stock(String symbol, String companyName, double price) {
@@ -42,14 +42,6 @@ public class Stock {
         return price;
     }
 
-    // ---------- Setter with Validation ----------
-    public void setPrice(double price) {
-        if (price <= 0) {
-            throw new IllegalArgumentException("Price must be greater than zero");
-        }
-        this.price = price;
-    }
-
     // ---------- Equality (important for collections) ----------
     @Override
     public boolean equals(Object obj) {
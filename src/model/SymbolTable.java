@@ -0,0 +1,70 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Process-wide symbol interner. Every normalized symbol gets a dense,
+ * permanent int id, so per-symbol state can be kept in primitive arrays
+ * instead of String-keyed maps. Ids are never reused or removed; the table
+ * only grows with the number of distinct symbols ever traded.
+ *
+ * Unlike service.SymbolIndex (rebuilt on every market refresh), ids here
+ * stay valid for the life of the process.
+ */
+public final class SymbolTable {
+
+    public static final int NOT_FOUND = -1;
+
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    // Written only under the class lock; ids are published through IDS
+    private static volatile String[] symbols = new String[256];
+    private static int count;
+
+    private SymbolTable() {
+    }
+
+    // ---------- Lookup ----------
+
+    // Id of an already normalized symbol, assigning one on first use
+    public static int idOf(String symbol) {
+        Integer id = IDS.get(symbol);
+        return id != null ? id : intern(symbol);
+    }
+
+    // Id of an already normalized symbol, or NOT_FOUND without assigning one
+    public static int find(String symbol) {
+        Integer id = IDS.get(symbol);
+        return id != null ? id : NOT_FOUND;
+    }
+
+    public static String symbolOf(int id) {
+        return symbols[id];
+    }
+
+    public static int size() {
+        return IDS.size();
+    }
+
+    // ---------- Helper Methods ----------
+    private static synchronized int intern(String symbol) {
+
+        Integer existing = IDS.get(symbol);
+        if (existing != null) {
+            return existing;
+        }
+
+        int id = count++;
+
+        String[] current = symbols;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = symbol;
+        symbols = current;
+
+        IDS.put(symbol, id);
+        return id;
+    }
+}
@@ -18,6 +18,7 @@ public final class Transaction {
     private final int quantity;
     private final double price;
     private final LocalDateTime timestamp;
+    private final String accountId;     // null for the shared portfolio
 
     // ---------- Date Format ----------
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -27,9 +28,14 @@ public final class Transaction {
         this(type, stockSymbol, quantity, price, LocalDateTime.now());
     }
 
-    // ---------- Constructor (File Restore) ----------
-    private Transaction(Type type, String stockSymbol, int quantity,
+    // ---------- Constructor (File Restore, also used by TransactionCodec) ----------
+    Transaction(Type type, String stockSymbol, int quantity,
             double price, LocalDateTime timestamp) {
+        this(type, stockSymbol, quantity, price, timestamp, null);
+    }
+
+    Transaction(Type type, String stockSymbol, int quantity,
+            double price, LocalDateTime timestamp, String accountId) {
 
         validateType(type);
         validateSymbol(stockSymbol);
@@ -45,6 +51,23 @@ public final class Transaction {
         this.quantity = quantity;
         this.price = price;
         this.timestamp = timestamp;
+        this.accountId = accountId == null ? null : validateAccountId(accountId);
+    }
+
+    // ---------- Factory (Restore from storage with original timestamp) ----------
+    public static Transaction restore(Type type, String stockSymbol, int quantity,
+            double price, LocalDateTime timestamp) {
+        return new Transaction(type, stockSymbol, quantity, price, timestamp);
+    }
+
+    // ---------- Factory (Same trade, booked to a user account) ----------
+    public Transaction forAccount(String accountId) {
+
+        if (accountId == null) {
+            throw new IllegalArgumentException("Account ID cannot be null");
+        }
+
+        return new Transaction(type, stockSymbol, quantity, price, timestamp, accountId);
     }
 
     // ---------- Getters ----------
@@ -68,13 +91,19 @@ public final class Transaction {
         return timestamp;
     }
 
+    // null when the trade belongs to the shared portfolio
+    public String getAccountId() {
+        return accountId;
+    }
+
     // ---------- File I/O Serialization ----------
     public String toFileString() {
         return type + "," +
                 stockSymbol + "," +
                 quantity + "," +
                 price + "," +
-                timestamp.format(FORMATTER);
+                timestamp.format(FORMATTER) +
+                (accountId == null ? "" : "," + accountId);
     }
 
     // ---------- File I/O Deserialization ----------
@@ -86,9 +115,10 @@ public final class Transaction {
 
         String[] parts = line.split(",");
 
-        if (parts.length != 5) {
+        // A sixth field books the trade to a user account
+        if (parts.length != 5 && parts.length != 6) {
             throw new IllegalArgumentException(
-                    "Invalid transaction format (expected 5 fields): " + line);
+                    "Invalid transaction format (expected 5 or 6 fields): " + line);
         }
 
         try {
@@ -98,7 +128,9 @@ public final class Transaction {
             double price = Double.parseDouble(parts[3].trim());
             LocalDateTime timestamp = LocalDateTime.parse(parts[4].trim(), FORMATTER);
 
-            return new Transaction(type, symbol, quantity, price, timestamp);
+            String accountId = parts.length == 6 ? parts[5].trim() : null;
+
+            return new Transaction(type, symbol, quantity, price, timestamp, accountId);
 
         } catch (IllegalArgumentException | DateTimeParseException ex) {
             // NumberFormatException is already covered by IllegalArgumentException
@@ -132,6 +164,19 @@ public final class Transaction {
         }
     }
 
+    // Written as the last field of a line, so no separators
+    private static String validateAccountId(String accountId) {
+
+        String trimmed = accountId.trim();
+
+        if (trimmed.isEmpty() || trimmed.indexOf(',') >= 0 || trimmed.indexOf('\n') >= 0
+                || trimmed.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Account ID must be non-empty, without commas or line breaks");
+        }
+
+        return trimmed;
+    }
+
     private static String normalizeSymbol(String symbol) {
         return symbol.trim().toUpperCase();
     }
@@ -148,23 +193,25 @@ public final class Transaction {
                 quantity == other.quantity &&
                 Double.compare(other.price, price) == 0 &&
                 stockSymbol.equals(other.stockSymbol) &&
-                timestamp.equals(other.timestamp);
+                timestamp.equals(other.timestamp) &&
+                Objects.equals(accountId, other.accountId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, stockSymbol, quantity, price, timestamp);
+        return Objects.hash(type, stockSymbol, quantity, price, timestamp, accountId);
     }
 
     // ---------- Display ----------
     @Override
     public String toString() {
         return String.format(
-                "%s | %s | Qty: %d | Price: %.2f | %s",
+                "%s | %s | Qty: %d | Price: %.2f | %s%s",
                 type,
                 stockSymbol,
                 quantity,
                 price,
-                timestamp.format(FORMATTER));
+                timestamp.format(FORMATTER),
+                accountId == null ? "" : " | " + accountId);
     }
 }
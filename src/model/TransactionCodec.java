@@ -0,0 +1,377 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/*
+ * Hand-rolled reader/writer for the transactions.txt line format
+ * (TYPE,SYMBOL,QTY,PRICE,yyyy-MM-dd HH:mm:ss[,ACCOUNT]).
+ *
+ * The fast path only accepts the canonical layout that toFileString()
+ * writes. Anything else (spaces, lower-case type, exponent prices,
+ * out-of-range dates...) is handed to Transaction.fromFileString, so both
+ * paths always agree on the result or on the error.
+ *
+ * Instances keep scratch buffers and are not thread-safe; use one per
+ * thread. The static parse(CharSequence) methods are safe from any thread.
+ */
+public final class TransactionCodec {
+
+    private static final int TIMESTAMP_LENGTH = 19;
+    private static final int MAX_EXACT_POWER = 22;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+
+    // Direct-mapped cache so repeated symbols reuse one String instance
+    private static final int SYMBOL_CACHE_SIZE = 4096;
+    private static final String[] SYMBOL_CACHE = new String[SYMBOL_CACHE_SIZE];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_EXACT_POWER; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Parsing from CharSequence copies ASCII chars into lineBytes first, so
+    // there is one parser over byte[] and its charAt calls stay monomorphic
+    private static final ThreadLocal<TransactionCodec> LOCAL =
+            ThreadLocal.withInitial(TransactionCodec::new);
+
+    private final StringBuilder scratch = new StringBuilder(64);
+    private byte[] lineBytes = new byte[128];
+
+    // ---------- Parsing ----------
+    public static Transaction parse(CharSequence line) {
+
+        if (line == null) {
+            throw new IllegalArgumentException("Transaction record is empty or null");
+        }
+
+        return parse(line, 0, line.length());
+    }
+
+    public static Transaction parse(CharSequence text, int start, int end) {
+
+        Transaction transaction = LOCAL.get().parseCanonical(text, start, end);
+
+        if (transaction != null) {
+            return transaction;
+        }
+
+        return Transaction.fromFileString(text.subSequence(start, end).toString());
+    }
+
+    /*
+     * Parses one line of UTF-8 bytes (without the line terminator).
+     * ASCII lines are read in place without building a String.
+     */
+    public Transaction parse(byte[] bytes, int offset, int length) {
+
+        Transaction transaction = isAscii(bytes, offset, length)
+                ? parseCanonical(bytes, offset, offset + length)
+                : null;
+
+        if (transaction != null) {
+            return transaction;
+        }
+
+        return Transaction.fromFileString(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    // ---------- Serialization ----------
+
+    // Appends the same text as toFileString(), without the line terminator
+    public static StringBuilder appendTo(Transaction transaction, StringBuilder out) {
+
+        LocalDateTime timestamp = transaction.getTimestamp();
+        int year = timestamp.getYear();
+
+        if (year < 1 || year > 9999) {
+            // yyyy is year-of-era with a sign past four digits; let the formatter decide
+            return out.append(transaction.toFileString());
+        }
+
+        out.append(transaction.getType().name()).append(',')
+                .append(transaction.getStockSymbol()).append(',')
+                .append(transaction.getQuantity()).append(',')
+                .append(transaction.getPrice()).append(',');
+
+        appendDigits(out, year, 4).append('-');
+        appendDigits(out, timestamp.getMonthValue(), 2).append('-');
+        appendDigits(out, timestamp.getDayOfMonth(), 2).append(' ');
+        appendDigits(out, timestamp.getHour(), 2).append(':');
+        appendDigits(out, timestamp.getMinute(), 2).append(':');
+        appendDigits(out, timestamp.getSecond(), 2);
+
+        if (transaction.getAccountId() != null) {
+            out.append(',').append(transaction.getAccountId());
+        }
+
+        return out;
+    }
+
+    /*
+     * Writes the record plus '\n' into the buffer and returns the number of
+     * bytes written. The caller must make sure there is room (a record is
+     * never longer than maxEncodedLength()).
+     */
+    public int encodeLine(Transaction transaction, ByteBuffer out) {
+
+        scratch.setLength(0);
+        appendTo(transaction, scratch).append('\n');
+
+        int length = scratch.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = scratch.charAt(i);
+            if (c > 0x7F) {
+                byte[] encoded = scratch.toString().getBytes(StandardCharsets.UTF_8);
+                out.put(encoded);
+                return encoded.length;
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            out.put((byte) scratch.charAt(i));
+        }
+
+        return length;
+    }
+
+    public static int maxEncodedLength(Transaction transaction) {
+        // type + symbol (UTF-8 worst case) + int + double + timestamp + account + separators
+        String accountId = transaction.getAccountId();
+        return 4 + transaction.getStockSymbol().length() * 3 + 11 + 24 + 24 + 5
+                + (accountId == null ? 0 : 1 + accountId.length() * 3);
+    }
+
+    // ---------- Fast Path ----------
+    private Transaction parseCanonical(CharSequence text, int start, int end) {
+
+        int length = end - start;
+
+        if (length > lineBytes.length) {
+            lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(start + i);
+            if (c > 0x7F) {
+                return null;
+            }
+            lineBytes[i] = (byte) c;
+        }
+
+        return parseCanonical(lineBytes, 0, length);
+    }
+
+    private static Transaction parseCanonical(byte[] s, int start, int end) {
+
+        int pos = start;
+        Transaction.Type type;
+
+        if (startsWith(s, pos, end, "BUY,")) {
+            type = Transaction.Type.BUY;
+            pos += 4;
+        } else if (startsWith(s, pos, end, "SELL,")) {
+            type = Transaction.Type.SELL;
+            pos += 5;
+        } else {
+            return null;
+        }
+
+        // Symbol: already normalized (no spaces, no lower case)
+        int symbolStart = pos;
+        while (pos < end && s[pos] != ',') {
+            char c = (char) s[pos];
+            if (c <= ' ' || (c >= 'a' && c <= 'z')) {
+                return null;
+            }
+            pos++;
+        }
+        if (pos == symbolStart || pos == end) {
+            return null;
+        }
+        int symbolEnd = pos++;
+
+        // Quantity: plain positive decimal, at most 9 digits (cannot overflow)
+        int quantity = 0;
+        int digitsStart = pos;
+        while (pos < end && s[pos] != ',') {
+            char c = (char) s[pos];
+            if (c < '0' || c > '9' || pos - digitsStart >= 9) {
+                return null;
+            }
+            quantity = quantity * 10 + (c - '0');
+            pos++;
+        }
+        if (pos == digitsStart || pos == end || quantity <= 0) {
+            return null;
+        }
+        pos++;
+
+        // Price: digits[.digits], exact when the mantissa fits in 53 bits
+        long mantissa = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        int priceStart = pos;
+        while (pos < end && s[pos] != ',') {
+            char c = (char) s[pos];
+            if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return null;
+                }
+                if (seenDot) {
+                    fractionDigits++;
+                }
+            } else {
+                return null;
+            }
+            pos++;
+        }
+        if (pos == priceStart || pos == end || fractionDigits > MAX_EXACT_POWER
+                || s[pos - 1] == '.' || s[priceStart] == '.') {
+            return null;
+        }
+        // Both operands are exact doubles, so the division is correctly rounded
+        double price = mantissa / POWERS_OF_TEN[fractionDigits];
+        if (price <= 0) {
+            return null;
+        }
+        pos++;
+
+        // Timestamp: fixed layout yyyy-MM-dd HH:mm:ss, then an optional account id
+        String accountId = null;
+        if (end - pos > TIMESTAMP_LENGTH + 1 && s[pos + TIMESTAMP_LENGTH] == ',') {
+            accountId = accountId(s, pos + TIMESTAMP_LENGTH + 1, end);
+            if (accountId == null) {
+                return null;
+            }
+            end = pos + TIMESTAMP_LENGTH;
+        }
+
+        if (end - pos != TIMESTAMP_LENGTH
+                || s[pos + 4] != '-' || s[pos + 7] != '-'
+                || s[pos + 10] != ' ' || s[pos + 13] != ':'
+                || s[pos + 16] != ':') {
+            return null;
+        }
+
+        int year = digits(s, pos, 4);
+        int month = digits(s, pos + 5, 2);
+        int day = digits(s, pos + 8, 2);
+        int hour = digits(s, pos + 11, 2);
+        int minute = digits(s, pos + 14, 2);
+        int second = digits(s, pos + 17, 2);
+
+        // yyyy is year-of-era, so year 0 and below go through the formatter
+        if ((year | month | day | hour | minute | second) < 0 || year < 1) {
+            return null;
+        }
+
+        LocalDateTime timestamp;
+        try {
+            timestamp = LocalDateTime.of(year, month, day, hour, minute, second);
+        } catch (DateTimeException e) {
+            // e.g. Feb 30: the formatter's lenient rules decide what that means
+            return null;
+        }
+
+        return new Transaction(type, symbol(s, symbolStart, symbolEnd), quantity, price, timestamp, accountId);
+    }
+
+    // ---------- Helper Methods ----------
+    private static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(byte[] s, int pos, int end, String prefix) {
+
+        if (end - pos < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s[pos + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Returns -1 when any character is not a digit
+    private static int digits(byte[] s, int pos, int count) {
+
+        int value = 0;
+
+        for (int i = 0; i < count; i++) {
+            char c = (char) s[pos + i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    private static String symbol(byte[] s, int start, int end) {
+
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + s[i];
+        }
+
+        int slot = (hash ^ (hash >>> 16)) & (SYMBOL_CACHE_SIZE - 1);
+        String cached = SYMBOL_CACHE[slot];
+
+        if (cached != null && cached.length() == end - start) {
+            boolean same = true;
+            for (int i = 0; i < cached.length() && same; i++) {
+                same = cached.charAt(i) == s[start + i];
+            }
+            if (same) {
+                return cached;
+            }
+        }
+
+        String symbol = new String(s, start, end - start, StandardCharsets.US_ASCII);
+        SYMBOL_CACHE[slot] = symbol;
+        return symbol;
+    }
+
+    // null unless the id is plain letters, digits, '_' or '-'; anything else takes the slow path
+    private static String accountId(byte[] s, int start, int end) {
+
+        for (int i = start; i < end; i++) {
+            char c = (char) s[i];
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '-')) {
+                return null;
+            }
+        }
+
+        return new String(s, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private static StringBuilder appendDigits(StringBuilder out, int value, int width) {
+
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+
+        return out;
+    }
+}
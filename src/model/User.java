@@ -7,7 +7,7 @@ public class User {
     // ---------- Fields ----------
     private final String userId;
     private final String userName;
-    private double balance;
+    private volatile double balance;
     private final Portfolio portfolio;
 
     // ---------- Constructor ----------
@@ -41,7 +41,7 @@ public class User {
     }
 
     // ---------- Balance Operations ----------
-    public void debit(double amount) {
+    public synchronized void debit(double amount) {
         validateAmount(amount);
 
         if (amount > balance) {
@@ -51,7 +51,7 @@ public class User {
         balance -= amount;
     }
 
-    public void credit(double amount) {
+    public synchronized void credit(double amount) {
         validateAmount(amount);
         balance += amount;
     }
@@ -0,0 +1,384 @@
+package service;
+
+import model.Portfolio;
+import model.Transaction;
+import model.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/*
+ * Multi-user trading: a registry of accounts keyed by userId, where every
+ * buy or sell moves cash and shares of one account together.
+ *
+ * Each User's monitor guards its balance and portfolio, so trades on
+ * different accounts never contend and a trade is never half-applied on
+ * one account.
+ *
+ * Attached to a TradingService (passed to its constructor), every trade
+ * goes through it: the trade is written to the transaction file or journal
+ * with its userId before buy() or sell() returns, checkpoints put the
+ * accounts changed since the last cut in the portfolio snapshot and then
+ * write them to accounts/<userId>.txt, and startup loads the account
+ * files, restores the snapshot's accounts over them and replays the
+ * account trades after its cut. A new
+ * account's file is written when it is opened. On its own the engine keeps
+ * trades in memory until checkpoint().
+ */
+public class AccountEngine {
+
+    // userId doubles as the account file name
+    // Never matches TradingService.PORTFOLIO_ACCOUNT
+    private static final Pattern USER_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final FileService fileService;
+    private final MarketService marketService;
+
+    private final ConcurrentHashMap<String, User> accounts = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final List<TradeListener> tradeListeners = new CopyOnWriteArrayList<>();
+    private volatile RiskEngine riskEngine;
+    private volatile TradingService tradingService;
+    private volatile int lastWritten;
+
+    // ---------- Constructor (loads saved accounts) ----------
+    public AccountEngine(FileService fileService, MarketService marketService) {
+
+        if (fileService == null) {
+            throw new IllegalArgumentException("FileService cannot be null");
+        }
+
+        if (marketService == null) {
+            throw new IllegalArgumentException("MarketService cannot be null");
+        }
+
+        this.fileService = fileService;
+        this.marketService = marketService;
+
+        for (User user : fileService.loadAccounts()) {
+            accounts.put(user.getUserId(), user);
+        }
+    }
+
+    // ---------- Registry ----------
+    public User openAccount(String userId, String userName, double initialBalance) {
+
+        if (userId == null || !USER_ID.matcher(userId.trim()).matches()) {
+            throw new IllegalArgumentException(
+                    "User ID must be 1-64 letters, digits, '_' or '-'");
+        }
+
+        User user = new User(userId, userName, initialBalance);
+
+        // Held until the file is written, so no trade on the account can be journaled before it exists
+        synchronized (user) {
+            if (accounts.putIfAbsent(user.getUserId(), user) != null) {
+                throw new IllegalArgumentException("Account already exists: " + user.getUserId());
+            }
+
+            if (tradingService != null) {
+                fileService.saveAccount(user);
+            } else {
+                dirty.add(user.getUserId());
+            }
+        }
+
+        return user;
+    }
+
+    public User getAccount(String userId) {
+        return userId == null ? null : accounts.get(userId.trim());
+    }
+
+    public Collection<User> getAccounts() {
+        return Collections.unmodifiableCollection(accounts.values());
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    // ---------- Trade Listeners ----------
+    public void addTradeListener(TradeListener listener) {
+
+        if (listener == null) {
+            throw new IllegalArgumentException("Trade listener cannot be null");
+        }
+
+        tradeListeners.add(listener);
+    }
+
+    // ---------- Pre-Trade Risk ----------
+
+    // Seeds the engine from every account's holdings; call before trading starts
+    public void setRiskEngine(RiskEngine riskEngine) {
+
+        if (riskEngine == null) {
+            throw new IllegalArgumentException("Risk engine cannot be null");
+        }
+
+        for (User user : accounts.values()) {
+            synchronized (user) {
+                riskEngine.seed(user.getUserId(), user.getPortfolio());
+            }
+        }
+
+        this.riskEngine = riskEngine;
+    }
+
+    // ---------- Trading ----------
+
+    // Attached: returns once the trade is durable, like TradingService.placeOrder
+    public Transaction buy(String userId, String symbol, int quantity) {
+        return trade(userId, Transaction.Type.BUY, symbol, quantity);
+    }
+
+    public Transaction sell(String userId, String symbol, int quantity) {
+        return trade(userId, Transaction.Type.SELL, symbol, quantity);
+    }
+
+    private Transaction trade(String userId, Transaction.Type type, String symbol, int quantity) {
+
+        TradingService attached = tradingService;
+
+        if (attached != null) {
+            return attached.placeOrder(userId, type, symbol, quantity);
+        }
+
+        return apply(userId, type, symbol, quantity, marketService.getPriceTable());
+    }
+
+    /*
+     * Cash, holdings, risk and listeners for one trade, without persisting
+     * it. Returns the transaction booked to the account. TradingService
+     * calls this under the symbol's stripe.
+     */
+    Transaction apply(String userId, Transaction.Type type, String symbol, int quantity, PriceTable prices) {
+
+        User user = requireAccount(userId);
+        Transaction transaction = priceTrade(type, symbol, quantity, prices).forAccount(user.getUserId());
+        double amount = transaction.getPrice() * quantity;
+
+        synchronized (user) {
+            // Check cash first so the portfolio is only touched when the whole trade can go through
+            if (type == Transaction.Type.BUY && amount > user.getBalance()) {
+                throw new IllegalStateException("Insufficient balance");
+            }
+
+            RiskEngine.Reservation reservation = reserveRisk(user, transaction);
+            try {
+                if (type == Transaction.Type.BUY) {
+                    user.getPortfolio().buyStock(transaction.getStockSymbol(), quantity);
+                } else {
+                    user.getPortfolio().sellStock(transaction.getStockSymbol(), quantity);
+                }
+            } catch (RuntimeException e) {
+                cancel(reservation);
+                throw e;
+            }
+
+            if (type == Transaction.Type.BUY) {
+                user.debit(amount);
+            } else {
+                user.credit(amount);
+            }
+            notifyTrade(user, transaction);
+        }
+
+        dirty.add(user.getUserId());
+        return transaction;
+    }
+
+    /*
+     * Startup: the snapshot holds the accounts changed in its cut, and its
+     * copy replaces the one loaded from the file (the checkpoint may have
+     * stopped before writing it). Only accounts whose file disagrees are
+     * marked dirty, so a clean restart rewrites nothing.
+     */
+    void restore(Collection<User> snapshotUsers) {
+
+        for (User user : snapshotUsers) {
+            User loaded = accounts.put(user.getUserId(), user);
+            if (loaded == null || loaded.getBalance() != user.getBalance()
+                    || !new HashMap<>(loaded.getPortfolio().getHoldings())
+                            .equals(new HashMap<>(user.getPortfolio().getHoldings()))) {
+                dirty.add(user.getUserId());
+            }
+        }
+    }
+
+    // Startup: re-applies a recorded account trade at its recorded price, without checks or listeners
+    void replay(Transaction transaction) {
+
+        User user = requireAccount(transaction.getAccountId());
+        double amount = transaction.getPrice() * transaction.getQuantity();
+
+        synchronized (user) {
+            if (transaction.getType() == Transaction.Type.BUY) {
+                // Debit first: it is the step that can fail
+                user.debit(amount);
+                user.getPortfolio().buyStock(transaction.getStockSymbol(), transaction.getQuantity());
+            } else {
+                user.getPortfolio().sellStock(transaction.getStockSymbol(), transaction.getQuantity());
+                user.credit(amount);
+            }
+        }
+
+        dirty.add(user.getUserId());
+    }
+
+    // ---------- Persistence ----------
+
+    /*
+     * Writes every account changed since the last checkpoint; returns how
+     * many. Attached, this is the TradingService's checkpoint, so the files
+     * match the cut that startup replays from.
+     */
+    public int checkpoint() {
+
+        TradingService attached = tradingService;
+
+        if (attached == null) {
+            return writeDirty();
+        }
+
+        // Not under this monitor: the checkpoint takes the stripes first, then writeDirty() takes it
+        attached.checkpoint();
+        return lastWritten;
+    }
+
+    /*
+     * Copies of the accounts changed since the last call, taken by the
+     * TradingService's checkpoint under every stripe, so no account trade
+     * is in flight. O(changed accounts).
+     */
+    List<User> takeDirty() {
+
+        List<User> copies = new ArrayList<>(dirty.size());
+
+        for (String userId : dirty) {
+            dirty.remove(userId);
+            User user = accounts.get(userId);
+
+            synchronized (user) {
+                User copy = new User(user.getUserId(), user.getUserName(), user.getBalance());
+                user.getPortfolio().forEachHolding(copy.getPortfolio()::buyStock);
+                copies.add(copy);
+            }
+        }
+
+        return copies;
+    }
+
+    // Writes copies from takeDirty(), outside the stripes
+    void save(List<User> copies) {
+
+        for (User copy : copies) {
+            fileService.saveAccount(copy);
+        }
+
+        lastWritten = copies.size();
+    }
+
+    synchronized int writeDirty() {
+
+        int written = 0;
+
+        for (String userId : dirty) {
+
+            // Cleared before the write, so a trade racing with it re-marks the account
+            dirty.remove(userId);
+            User user = accounts.get(userId);
+
+            synchronized (user) {
+                fileService.saveAccount(user);
+            }
+            written++;
+        }
+
+        lastWritten = written;
+        return written;
+    }
+
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    // Called once by the TradingService constructor
+    void attach(TradingService tradingService) {
+
+        if (this.tradingService != null) {
+            throw new IllegalStateException("Account engine is already attached to a trading service");
+        }
+
+        this.tradingService = tradingService;
+    }
+
+    // ---------- Helper Methods ----------
+    private User requireAccount(String userId) {
+
+        User user = getAccount(userId);
+
+        if (user == null) {
+            throw new IllegalArgumentException("Account not found: " + userId);
+        }
+
+        return user;
+    }
+
+    private RiskEngine.Reservation reserveRisk(User user, Transaction transaction) {
+        RiskEngine risk = riskEngine;
+        return risk == null ? null : risk.reserve(user.getUserId(), transaction.getType(),
+                transaction.getStockSymbol(), transaction.getQuantity(), transaction.getPrice());
+    }
+
+    private static void cancel(RiskEngine.Reservation reservation) {
+        if (reservation != null) {
+            reservation.cancel();
+        }
+    }
+
+    // Called under the account's monitor, so listeners see its trades in order
+    private void notifyTrade(User user, Transaction transaction) {
+        for (TradeListener listener : tradeListeners) {
+            listener.onTrade(user.getUserId(), transaction);
+        }
+    }
+
+    private static Transaction priceTrade(Transaction.Type type, String symbol, int quantity, PriceTable prices) {
+
+        if (symbol == null || symbol.trim().isEmpty()) {
+            throw new IllegalArgumentException("Stock symbol cannot be null or empty");
+        }
+
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+
+        int stockId = prices.getSymbolIndex().idOf(symbol);
+
+        if (stockId == SymbolIndex.NOT_FOUND) {
+            throw new IllegalArgumentException("Stock not found in market");
+        }
+
+        return new Transaction(type, prices.getSymbolIndex().getById(stockId).getSymbol(),
+                quantity, prices.getPrice(stockId));
+    }
+
+    // ---------- Display ----------
+    public void displayAccount(String userId) {
+
+        User user = requireAccount(userId);
+        Portfolio portfolio = user.getPortfolio();
+
+        System.out.println(user);
+        System.out.println(portfolio);
+    }
+}
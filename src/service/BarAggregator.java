@@ -0,0 +1,539 @@
+package service;
+
+import model.SymbolTable;
+import model.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Open/high/low/close/volume bars per symbol, built from executed trades
+ * at one or more fixed intervals.
+ *
+ * Incremental: registered as a TradeListener, every trade updates the
+ * current bar of each interval in O(1). Bulk: add() over transactions.txt
+ * builds the same bars in one pass. Either way queries read the bars and
+ * never rescan the ledger.
+ *
+ * Each (interval, symbol) series keeps its bars in parallel primitive
+ * arrays ordered by start time, so a long history costs 52 bytes per bar
+ * and no objects. Bar starts are UTC epoch seconds of the trade's
+ * LocalDateTime, floored to the interval (days start at midnight).
+ *
+ * A trade older than the newest bar of its series (threads racing within
+ * a second) is merged into its own bar, which is inserted if missing.
+ * Within a bar, open and close are the first and last trade applied.
+ *
+ * Locking: each series is guarded by its own monitor; the series table
+ * is indexed by SymbolTable id and grown under the aggregator monitor.
+ */
+public class BarAggregator implements TradeListener {
+
+    // ---------- Intervals ----------
+    public enum Interval {
+        SECOND("1s", 1),
+        MINUTE("1m", 60),
+        HOUR("1h", 3_600),
+        DAY("1d", 86_400);
+
+        private final String label;
+        private final long seconds;
+
+        Interval(String label, long seconds) {
+            this.label = label;
+            this.seconds = seconds;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getSeconds() {
+            return seconds;
+        }
+
+        public long startOf(long epochSecond) {
+            return Math.floorDiv(epochSecond, seconds) * seconds;
+        }
+
+        // "1s", "1m", "1h" or "1d"
+        public static Interval parse(String label) {
+
+            if (label != null) {
+                for (Interval interval : values()) {
+                    if (interval.label.equalsIgnoreCase(label.trim())) {
+                        return interval;
+                    }
+                }
+            }
+
+            throw new IllegalArgumentException("Unknown bar interval: " + label + " (use 1s, 1m, 1h or 1d)");
+        }
+
+        // Comma-separated labels, e.g. "1m,1h"
+        public static Interval[] parseList(String labels) {
+
+            if (labels == null || labels.trim().isEmpty()) {
+                throw new IllegalArgumentException("Bar intervals cannot be empty");
+            }
+
+            return Arrays.stream(labels.split(",")).map(Interval::parse).distinct().toArray(Interval[]::new);
+        }
+    }
+
+    public static final Interval[] DEFAULT_INTERVALS = { Interval.MINUTE, Interval.HOUR, Interval.DAY };
+
+    private static final int INITIAL_SERIES_CAPACITY = 16;
+
+    private final Interval[] intervals;
+
+    // [interval index][SymbolTable id]; grown under the aggregator monitor
+    private volatile Series[][] series;
+
+    // ---------- Metrics ----------
+    private static final LongAdder TRADES = Metrics.counter("bars.trades");
+    private static final LongAdder LATE_TRADES = Metrics.counter("bars.lateTrades");
+
+    // ---------- Constructors ----------
+    public BarAggregator() {
+        this(DEFAULT_INTERVALS);
+    }
+
+    public BarAggregator(Interval... intervals) {
+
+        if (intervals == null || intervals.length == 0) {
+            throw new IllegalArgumentException("At least one bar interval is required");
+        }
+
+        Interval[] sorted = Arrays.stream(intervals).distinct().sorted().toArray(Interval[]::new);
+
+        if (Arrays.asList(sorted).contains(null)) {
+            throw new IllegalArgumentException("Bar interval cannot be null");
+        }
+
+        this.intervals = sorted;
+        this.series = new Series[sorted.length][256];
+    }
+
+    public List<Interval> getIntervals() {
+        return Collections.unmodifiableList(Arrays.asList(intervals));
+    }
+
+    public boolean hasInterval(Interval interval) {
+        return indexOf(interval) >= 0;
+    }
+
+    // ---------- Trades ----------
+    @Override
+    public void onTrade(String accountId, Transaction transaction) {
+        add(transaction);
+    }
+
+    public void add(Transaction transaction) {
+
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+
+        int symbolId = SymbolTable.idOf(transaction.getStockSymbol());
+        long epochSecond = epochSecond(transaction.getTimestamp());
+
+        for (int i = 0; i < intervals.length; i++) {
+            Series target = seriesFor(i, symbolId, true);
+            synchronized (target) {
+                target.add(intervals[i].startOf(epochSecond), transaction.getPrice(), transaction.getQuantity());
+            }
+        }
+
+        TRADES.increment();
+    }
+
+    // Bulk mode, e.g. over FileService.forEachTransaction()
+    public void addAll(Iterable<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            add(transaction);
+        }
+    }
+
+    // ---------- Queries ----------
+
+    // Bars starting in [fromEpochSecond, toEpochSecond), oldest first
+    public Bars getBars(String symbol, Interval interval, long fromEpochSecond, long toEpochSecond) {
+
+        if (fromEpochSecond > toEpochSecond) {
+            throw new IllegalArgumentException("Bar range start must not be after its end");
+        }
+
+        Series source = seriesFor(symbol, interval);
+
+        if (source == null) {
+            return Bars.empty(interval);
+        }
+
+        synchronized (source) {
+            int from = source.search(fromEpochSecond);
+            int to = source.search(toEpochSecond);
+            return source.copy(interval, from < 0 ? -from - 1 : from, to < 0 ? -to - 1 : to);
+        }
+    }
+
+    // The latest count bars, oldest first
+    public Bars getRecentBars(String symbol, Interval interval, int count) {
+
+        if (count <= 0) {
+            throw new IllegalArgumentException("Bar count must be greater than zero");
+        }
+
+        Series source = seriesFor(symbol, interval);
+
+        if (source == null) {
+            return Bars.empty(interval);
+        }
+
+        synchronized (source) {
+            return source.copy(interval, Math.max(0, source.size - count), source.size);
+        }
+    }
+
+    // Every symbol with at least one bar, in SymbolTable id order
+    public List<String> getSymbols() {
+
+        List<String> symbols = new ArrayList<>();
+        Series[] first = series[0];
+
+        for (int id = 0; id < first.length; id++) {
+            if (first[id] != null) {
+                symbols.add(SymbolTable.symbolOf(id));
+            }
+        }
+
+        return symbols;
+    }
+
+    public long getBarCount() {
+
+        long count = 0;
+
+        for (Series[] perInterval : series) {
+            for (Series source : perInterval) {
+                if (source != null) {
+                    synchronized (source) {
+                        count += source.size;
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    // ---------- Restore (BarStore) ----------
+    void restore(Interval interval, String symbol, long start, double open, double high, double low,
+            double close, long volume, int trades) {
+
+        int index = indexOf(interval);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Aggregator has no " + interval.getLabel() + " bars");
+        }
+
+        Series target = seriesFor(index, SymbolTable.idOf(SymbolIndex.normalize(symbol)), true);
+        synchronized (target) {
+            target.restore(start, open, high, low, close, volume, trades);
+        }
+    }
+
+    // Visits every non-empty series under its lock, for BarStore
+    void forEachSeries(SeriesVisitor visitor) {
+        for (int i = 0; i < intervals.length; i++) {
+            Series[] perInterval = series[i];
+            for (int id = 0; id < perInterval.length; id++) {
+                Series source = perInterval[id];
+                if (source != null) {
+                    synchronized (source) {
+                        visitor.visit(intervals[i], SymbolTable.symbolOf(id), source.copy(intervals[i], 0, source.size));
+                    }
+                }
+            }
+        }
+    }
+
+    interface SeriesVisitor {
+        void visit(Interval interval, String symbol, Bars bars);
+    }
+
+    // ---------- Helper Methods ----------
+    static long epochSecond(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private int indexOf(Interval interval) {
+        for (int i = 0; i < intervals.length; i++) {
+            if (intervals[i] == interval) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Series seriesFor(String symbol, Interval interval) {
+
+        if (symbol == null || interval == null) {
+            throw new IllegalArgumentException("Symbol and interval cannot be null");
+        }
+
+        int index = indexOf(interval);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Bars are not kept at " + interval.getLabel()
+                    + "; available: " + getIntervalLabels());
+        }
+
+        int symbolId = SymbolTable.find(SymbolIndex.normalize(symbol));
+        return symbolId == SymbolTable.NOT_FOUND ? null : seriesFor(index, symbolId, false);
+    }
+
+    private Series seriesFor(int index, int symbolId, boolean create) {
+
+        Series[] perInterval = series[index];
+
+        if (symbolId < perInterval.length && perInterval[symbolId] != null) {
+            return perInterval[symbolId];
+        }
+
+        if (!create) {
+            return null;
+        }
+
+        synchronized (this) {
+            Series[][] current = series;
+
+            if (symbolId >= current[index].length) {
+                Series[][] grown = current.clone();
+                int length = Math.max(symbolId + 1, current[index].length * 2);
+                for (int i = 0; i < grown.length; i++) {
+                    grown[i] = Arrays.copyOf(current[i], length);
+                }
+                current = grown;
+            }
+
+            if (current[index][symbolId] == null) {
+                current[index][symbolId] = new Series();
+            }
+
+            series = current;
+            return current[index][symbolId];
+        }
+    }
+
+    private String getIntervalLabels() {
+        StringBuilder sb = new StringBuilder();
+        for (Interval interval : intervals) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(interval.getLabel());
+        }
+        return sb.toString();
+    }
+
+    // ---------- Series (one interval, one symbol) ----------
+    private static final class Series {
+
+        private long[] starts = new long[INITIAL_SERIES_CAPACITY];
+        private double[] opens = new double[INITIAL_SERIES_CAPACITY];
+        private double[] highs = new double[INITIAL_SERIES_CAPACITY];
+        private double[] lows = new double[INITIAL_SERIES_CAPACITY];
+        private double[] closes = new double[INITIAL_SERIES_CAPACITY];
+        private long[] volumes = new long[INITIAL_SERIES_CAPACITY];
+        private int[] trades = new int[INITIAL_SERIES_CAPACITY];
+        private int size;
+
+        void add(long start, double price, int quantity) {
+
+            int index;
+
+            if (size > 0 && starts[size - 1] == start) {
+                index = size - 1;
+            } else if (size == 0 || starts[size - 1] < start) {
+                index = insert(size, start, price);
+            } else {
+                LATE_TRADES.increment();
+                int found = search(start);
+                index = found >= 0 ? found : insert(-found - 1, start, price);
+            }
+
+            highs[index] = Math.max(highs[index], price);
+            lows[index] = Math.min(lows[index], price);
+            closes[index] = price;
+            volumes[index] += quantity;
+            trades[index]++;
+        }
+
+        void restore(long start, double open, double high, double low, double close, long volume, int tradeCount) {
+
+            if (size > 0 && starts[size - 1] >= start) {
+                throw new IllegalStateException("Bars out of order at " + start);
+            }
+
+            int index = insert(size, start, open);
+            highs[index] = high;
+            lows[index] = low;
+            closes[index] = close;
+            volumes[index] = volume;
+            trades[index] = tradeCount;
+        }
+
+        // Opens an empty bar at index, shifting later bars up
+        private int insert(int index, long start, double open) {
+
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                opens = Arrays.copyOf(opens, capacity);
+                highs = Arrays.copyOf(highs, capacity);
+                lows = Arrays.copyOf(lows, capacity);
+                closes = Arrays.copyOf(closes, capacity);
+                volumes = Arrays.copyOf(volumes, capacity);
+                trades = Arrays.copyOf(trades, capacity);
+            }
+
+            int moved = size - index;
+            if (moved > 0) {
+                System.arraycopy(starts, index, starts, index + 1, moved);
+                System.arraycopy(opens, index, opens, index + 1, moved);
+                System.arraycopy(highs, index, highs, index + 1, moved);
+                System.arraycopy(lows, index, lows, index + 1, moved);
+                System.arraycopy(closes, index, closes, index + 1, moved);
+                System.arraycopy(volumes, index, volumes, index + 1, moved);
+                System.arraycopy(trades, index, trades, index + 1, moved);
+            }
+
+            starts[index] = start;
+            opens[index] = open;
+            highs[index] = open;
+            lows[index] = open;
+            closes[index] = open;
+            volumes[index] = 0;
+            trades[index] = 0;
+            size++;
+
+            return index;
+        }
+
+        int search(long start) {
+            return Arrays.binarySearch(starts, 0, size, start);
+        }
+
+        Bars copy(Interval interval, int from, int to) {
+            return new Bars(interval, Arrays.copyOfRange(starts, from, to), Arrays.copyOfRange(opens, from, to),
+                    Arrays.copyOfRange(highs, from, to), Arrays.copyOfRange(lows, from, to),
+                    Arrays.copyOfRange(closes, from, to), Arrays.copyOfRange(volumes, from, to),
+                    Arrays.copyOfRange(trades, from, to));
+        }
+    }
+
+    // ---------- Bars (immutable query result) ----------
+    public static final class Bars {
+
+        private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        private final Interval interval;
+        private final long[] starts;
+        private final double[] opens;
+        private final double[] highs;
+        private final double[] lows;
+        private final double[] closes;
+        private final long[] volumes;
+        private final int[] trades;
+
+        private Bars(Interval interval, long[] starts, double[] opens, double[] highs, double[] lows,
+                double[] closes, long[] volumes, int[] trades) {
+            this.interval = interval;
+            this.starts = starts;
+            this.opens = opens;
+            this.highs = highs;
+            this.lows = lows;
+            this.closes = closes;
+            this.volumes = volumes;
+            this.trades = trades;
+        }
+
+        private static Bars empty(Interval interval) {
+            return new Bars(interval, new long[0], new double[0], new double[0], new double[0],
+                    new double[0], new long[0], new int[0]);
+        }
+
+        public Interval getInterval() {
+            return interval;
+        }
+
+        public int size() {
+            return starts.length;
+        }
+
+        // UTC epoch second the bar starts at
+        public long getStart(int i) {
+            return starts[i];
+        }
+
+        public double getOpen(int i) {
+            return opens[i];
+        }
+
+        public double getHigh(int i) {
+            return highs[i];
+        }
+
+        public double getLow(int i) {
+            return lows[i];
+        }
+
+        public double getClose(int i) {
+            return closes[i];
+        }
+
+        public long getVolume(int i) {
+            return volumes[i];
+        }
+
+        public int getTrades(int i) {
+            return trades[i];
+        }
+
+        public long getTotalVolume() {
+            long total = 0;
+            for (long volume : volumes) {
+                total += volume;
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+
+            if (starts.length == 0) {
+                return "No " + interval.getLabel() + " bars.";
+            }
+
+            StringBuilder sb = new StringBuilder(64 * (starts.length + 2));
+            String header = String.format("%-19s | %11s | %11s | %11s | %11s | %10s | %6s",
+                    "Start (" + interval.getLabel() + ")", "Open", "High", "Low", "Close", "Volume", "Trades");
+
+            sb.append(header).append(System.lineSeparator());
+            sb.append("-".repeat(header.length()));
+
+            for (int i = 0; i < starts.length; i++) {
+                sb.append(System.lineSeparator()).append(String.format(
+                        "%-19s | %11.2f | %11.2f | %11.2f | %11.2f | %,10d | %6d",
+                        LocalDateTime.ofEpochSecond(starts[i], 0, ZoneOffset.UTC).format(FORMATTER),
+                        opens[i], highs[i], lows[i], closes[i], volumes[i], trades[i]));
+            }
+
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/*
+ * Persists a BarAggregator's bars, tagged with the transactions.txt byte
+ * offset they already include, so a restart loads the bars and only
+ * aggregates the trades after that offset.
+ *
+ * File format (bars.txt), after the checksum header line ChecksummedFile
+ * adds:
+ *   BARS,<format>,<journal offset>,<interval labels separated by ;>
+ *   S,<interval>,<symbol>,<bar count>                         series
+ *   <start>,<open>,<high>,<low>,<close>,<volume>,<trades>     bar, times count
+ *   END,<series count>
+ *
+ * Written through ChecksummedFile, so a crash leaves the previous bars
+ * file or the new one.
+ */
+public class BarStore {
+
+    private static final int FORMAT = 1;
+
+    private final Path file;
+    private final ChecksummedFile writer = new ChecksummedFile();  // guarded by this
+
+    // ---------- Saved Bars ----------
+    public static final class Saved {
+
+        private final BarAggregator bars;
+        private final long journalOffset;
+
+        private Saved(BarAggregator bars, long journalOffset) {
+            this.bars = bars;
+            this.journalOffset = journalOffset;
+        }
+
+        public BarAggregator getBars() {
+            return bars;
+        }
+
+        // Byte offset in transactions.txt up to which trades are included
+        public long getJournalOffset() {
+            return journalOffset;
+        }
+    }
+
+    // ---------- Constructor ----------
+    public BarStore(Path file) {
+
+        if (file == null) {
+            throw new IllegalArgumentException("Bar file cannot be null");
+        }
+
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // ---------- Write ----------
+
+    // No trades may be added while this runs if journalOffset is to stay exact
+    public synchronized void write(BarAggregator bars, long journalOffset) {
+
+        if (bars == null) {
+            throw new IllegalArgumentException("Bar aggregator cannot be null");
+        }
+
+        if (journalOffset < 0) {
+            throw new IllegalArgumentException("Journal offset cannot be negative");
+        }
+
+        writer.begin();
+        writer.append("BARS,").append(FORMAT).append(',').append(journalOffset).append(',')
+                .append(labels(bars.getIntervals().toArray(new BarAggregator.Interval[0]))).newLine();
+
+        int[] seriesCount = new int[1];
+
+        bars.forEachSeries((interval, symbol, series) -> {
+            writer.append("S,").append(interval.getLabel()).append(',').append(symbol).append(',')
+                    .append(series.size()).newLine();
+
+            for (int i = 0; i < series.size(); i++) {
+                writer.append(series.getStart(i)).append(',')
+                        .append(Double.toString(series.getOpen(i))).append(',')
+                        .append(Double.toString(series.getHigh(i))).append(',')
+                        .append(Double.toString(series.getLow(i))).append(',')
+                        .append(Double.toString(series.getClose(i))).append(',')
+                        .append(series.getVolume(i)).append(',')
+                        .append(series.getTrades(i)).newLine();
+            }
+
+            seriesCount[0]++;
+        });
+
+        writer.append("END,").append(seriesCount[0]).newLine();
+        writer.commit(file);
+    }
+
+    // ---------- Read ----------
+
+    /*
+     * Saved bars if the file exists, is intact and holds exactly these
+     * intervals; otherwise null and the caller rebuilds from the ledger.
+     */
+    public synchronized Saved load(BarAggregator.Interval... intervals) {
+
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try {
+            return read(intervals);
+        } catch (Exception e) {
+            System.err.println("Skipping unreadable bar file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private Saved read(BarAggregator.Interval[] intervals) {
+
+        BarAggregator bars = new BarAggregator(intervals);
+        Iterator<String> lines = ChecksummedFile.readLines(file).iterator();
+
+        String[] header = split(lines.hasNext() ? lines.next() : null, 4);
+        if (!"BARS".equals(header[0]) || Integer.parseInt(header[1]) != FORMAT) {
+            throw new IllegalStateException("Not a bar file");
+        }
+
+        if (!header[3].equals(labels(bars.getIntervals().toArray(new BarAggregator.Interval[0])))) {
+            // Intervals changed since the file was written
+            return null;
+        }
+
+        long journalOffset = Long.parseLong(header[2]);
+        int seriesCount = 0;
+
+        while (lines.hasNext()) {
+
+            String line = lines.next();
+
+            if (line.startsWith("END,")) {
+                if (Integer.parseInt(split(line, 2)[1]) != seriesCount) {
+                    throw new IllegalStateException("Series count mismatch");
+                }
+                return new Saved(bars, journalOffset);
+            }
+
+            String[] series = split(line, 4);
+            if (!"S".equals(series[0])) {
+                throw new IllegalStateException("Unknown record: " + line);
+            }
+
+            BarAggregator.Interval interval = BarAggregator.Interval.parse(series[1]);
+            int count = Integer.parseInt(series[3]);
+
+            for (int i = 0; i < count; i++) {
+                String[] bar = split(lines.hasNext() ? lines.next() : null, 7);
+                bars.restore(interval, series[2], Long.parseLong(bar[0]), Double.parseDouble(bar[1]),
+                        Double.parseDouble(bar[2]), Double.parseDouble(bar[3]), Double.parseDouble(bar[4]),
+                        Long.parseLong(bar[5]), Integer.parseInt(bar[6]));
+            }
+
+            seriesCount++;
+        }
+
+        throw new IllegalStateException("Bar file is truncated");
+    }
+
+    private static String labels(BarAggregator.Interval[] intervals) {
+        return String.join(";", Arrays.stream(intervals).map(BarAggregator.Interval::getLabel).toArray(String[]::new));
+    }
+
+    private static String[] split(String line, int fields) {
+
+        if (line == null) {
+            throw new IllegalStateException("Bar file is truncated");
+        }
+
+        String[] parts = line.split(",", fields);
+        if (parts.length != fields) {
+            throw new IllegalStateException("Malformed record: " + line);
+        }
+
+        return parts;
+    }
+}
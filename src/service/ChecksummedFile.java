@@ -0,0 +1,350 @@
+package service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+ * Crash-safe whole-file rewrites with a checksum.
+ *
+ * The new content is built in a reusable buffer, written to <name>.tmp,
+ * forced to disk and renamed over the target with ATOMIC_MOVE; then the
+ * directory is forced so the rename itself survives a crash. A crash
+ * leaves either the complete old file or the complete new one.
+ *
+ * The first line of every file is a fixed-width header over the bytes
+ * after it:
+ *   #CRC32,<crc as 8 hex digits>,<content length as 10 digits>
+ * so a file cut short anywhere fails its length check. Files written
+ * before checksums existed have no header and are read as they are.
+ *
+ * A writer instance is not thread-safe; callers serialize saves (the
+ * FileService save methods are synchronized). The buffer only grows, so
+ * steady-state saves of a similar size allocate nothing for it.
+ */
+public final class ChecksummedFile {
+
+    public static final String HEADER_PREFIX = "#CRC32,";
+
+    // "#CRC32," + 8 hex digits + "," + 10 digits + "\n"
+    private static final int HEADER_LENGTH = HEADER_PREFIX.length() + 8 + 1 + 10 + 1;
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final CRC32 crc = new CRC32();
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    // ---------- Building Content ----------
+    public ChecksummedFile begin() {
+        buffer.clear();
+        buffer.position(HEADER_LENGTH);  // filled in by commit()
+        return this;
+    }
+
+    public ChecksummedFile append(String text) {
+
+        ensureCapacity(text.length());
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Rare non-ASCII text (user names): encode the rest in one go
+                byte[] bytes = text.substring(i).getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(bytes.length);
+                buffer.put(bytes);
+                return this;
+            }
+            buffer.put((byte) c);
+        }
+
+        return this;
+    }
+
+    public ChecksummedFile append(char c) {
+
+        if (c >= 0x80) {
+            return append(String.valueOf(c));
+        }
+
+        ensureCapacity(1);
+        buffer.put((byte) c);
+        return this;
+    }
+
+    public ChecksummedFile append(long value) {
+
+        ensureCapacity(20);
+
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        buffer.put(digits, start, digits.length - start);
+        return this;
+    }
+
+    public ChecksummedFile newLine() {
+        return append('\n');
+    }
+
+    // ---------- Commit ----------
+
+    // Fills in the header and atomically replaces target with the buffer, via <target>.tmp
+    public void commit(Path target) {
+
+        if (target == null) {
+            throw new IllegalArgumentException("Target file cannot be null");
+        }
+
+        if (buffer.position() < HEADER_LENGTH) {
+            throw new IllegalStateException("commit() without begin()");
+        }
+
+        int contentLength = buffer.position() - HEADER_LENGTH;
+
+        crc.reset();
+        crc.update(buffer.array(), HEADER_LENGTH, contentLength);
+        writeHeader(crc.getValue(), contentLength);
+        buffer.flip();
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + temp, e);
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to replace " + target, e);
+        }
+
+        forceDirectory(target.toAbsolutePath().getParent());
+    }
+
+    // ---------- Reading ----------
+
+    /*
+     * Content lines of a file, without the header. Throws
+     * IllegalStateException when the checksum does not match; a file
+     * without a header is returned as it is. A missing file has no lines.
+     */
+    public static List<String> readLines(Path file) {
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + file, e);
+        }
+
+        Verification verification = verify(file, bytes);
+
+        if (verification.getStatus() == Status.CORRUPT) {
+            throw new IllegalStateException(file + " failed verification: " + verification.getMessage());
+        }
+
+        return lines(bytes, verification.contentOffset);
+    }
+
+    public static Verification verify(Path file) {
+        try {
+            return verify(file, Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return new Verification(file, Status.CORRUPT, 0, "File is missing");
+        } catch (IOException e) {
+            return new Verification(file, Status.CORRUPT, 0, "Unreadable: " + e.getMessage());
+        }
+    }
+
+    // ---------- Verification ----------
+    public enum Status {
+        VALID,        // checksum matches (append-only files: every record parses)
+        NO_CHECKSUM,  // written before checksums, content not verifiable
+        CORRUPT       // checksum or length mismatch, bad records, or unreadable
+    }
+
+    public static final class Verification {
+
+        private final Path file;
+        private final Status status;
+        private final int contentOffset;
+        private final String message;
+
+        Verification(Path file, Status status, int contentOffset, String message) {
+            this.file = file;
+            this.status = status;
+            this.contentOffset = contentOffset;
+            this.message = message;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public boolean isCorrupt() {
+            return status == Status.CORRUPT;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-11s %s%s", status, file, message.isEmpty() ? "" : " (" + message + ")");
+        }
+    }
+
+    private static Verification verify(Path file, byte[] bytes) {
+
+        if (!startsWithHeaderPrefix(bytes)) {
+            return new Verification(file, Status.NO_CHECKSUM, 0, "");
+        }
+
+        if (bytes.length < HEADER_LENGTH || bytes[HEADER_LENGTH - 1] != '\n') {
+            return new Verification(file, Status.CORRUPT, 0, "Malformed checksum header");
+        }
+
+        String header = new String(bytes, 0, HEADER_LENGTH - 1, StandardCharsets.US_ASCII);
+        String[] parts = header.split(",");
+
+        long expected;
+        long length;
+        try {
+            expected = Long.parseLong(parts[1], 16);
+            length = Long.parseLong(parts[2]);
+        } catch (RuntimeException e) {
+            return new Verification(file, Status.CORRUPT, 0, "Malformed checksum header: " + header);
+        }
+
+        int actualLength = bytes.length - HEADER_LENGTH;
+
+        if (parts.length != 3 || length != actualLength) {
+            return new Verification(file, Status.CORRUPT, HEADER_LENGTH,
+                    "Content is " + actualLength + " bytes, header says " + length);
+        }
+
+        CRC32 actual = new CRC32();
+        actual.update(bytes, HEADER_LENGTH, actualLength);
+
+        if (actual.getValue() != expected) {
+            return new Verification(file, Status.CORRUPT, HEADER_LENGTH,
+                    String.format("CRC32 is %08x, header says %08x", actual.getValue(), expected));
+        }
+
+        return new Verification(file, Status.VALID, HEADER_LENGTH, "");
+    }
+
+    // ---------- Helper Methods ----------
+    private static List<String> lines(byte[] bytes, int offset) {
+
+        List<String> lines = new ArrayList<>();
+        int start = offset;
+
+        for (int i = offset; i <= bytes.length; i++) {
+            if (i == bytes.length || bytes[i] == '\n') {
+                int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                if (i < bytes.length || end > start) {
+                    lines.add(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+                }
+                start = i + 1;
+            }
+        }
+
+        return lines;
+    }
+
+    private static boolean startsWithHeaderPrefix(byte[] bytes) {
+
+        if (bytes.length < HEADER_PREFIX.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < HEADER_PREFIX.length(); i++) {
+            if (bytes[i] != HEADER_PREFIX.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void writeHeader(long value, int contentLength) {
+
+        byte[] array = buffer.array();
+        int index = 0;
+
+        for (int i = 0; i < HEADER_PREFIX.length(); i++) {
+            array[index++] = (byte) HEADER_PREFIX.charAt(i);
+        }
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            array[index++] = HEX[(int) (value >>> shift) & 0xF];
+        }
+        array[index++] = ',';
+        for (int i = 9, remaining = contentLength; i >= 0; i--, remaining /= 10) {
+            array[index + i] = (byte) ('0' + remaining % 10);
+        }
+        array[index + 10] = '\n';
+    }
+
+    // Makes a completed rename durable; not every platform can open a directory
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort, e.g. on Windows
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+
+        if (buffer.remaining() >= extra) {
+            return;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.position() + extra, buffer.capacity() * 2));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
@@ -1,37 +1,95 @@
 package service;
 
+import model.OrderRequest;
 import model.Portfolio;
 import model.Stock;
 import model.Transaction;
+import model.User;
+import model.TransactionCodec;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 //import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class FileService {
 
     // ---------- File Paths ----------
-    private static final String DATA_DIR = "data";
-    private static final String STOCK_FILE = DATA_DIR + "/stocks.txt";
-    private static final String PORTFOLIO_FILE = DATA_DIR + "/portfolio.txt";
-    private static final String TRANSACTION_FILE = DATA_DIR + "/transactions.txt";
-
-    // ---------- Constructor ----------
+    private static final String DEFAULT_DATA_DIR = "data";
+
+    private final String dataDir;
+    private final String stockFile;
+    private final String portfolioFile;
+    private final String transactionFile;
+    private final String snapshotDir;
+    private final String accountDir;
+    private final String barFile;
+    private final String valuationFile;
+
+    // ---------- Reusable Write Buffers ----------
+    private final ChecksummedFile portfolioWriter = new ChecksummedFile();  // guarded by this
+    private final ChecksummedFile accountWriter = new ChecksummedFile();    // guarded by itself
+
+    // ---------- Metrics (successful calls only) ----------
+    private static final LatencyHistogram LOAD_STOCKS = Metrics.histogram("file.loadStocks");
+    private static final LatencyHistogram LOAD_PORTFOLIO = Metrics.histogram("file.loadPortfolio");
+    private static final LatencyHistogram SAVE_PORTFOLIO = Metrics.histogram("file.savePortfolio");
+    private static final LatencyHistogram LOAD_ACCOUNTS = Metrics.histogram("file.loadAccounts");
+    private static final LatencyHistogram SAVE_ACCOUNT = Metrics.histogram("file.saveAccount");
+    private static final LatencyHistogram LOAD_TRANSACTIONS = Metrics.histogram("file.loadTransactions");
+    private static final LatencyHistogram APPEND_TRANSACTION = Metrics.histogram("file.appendTransaction");
+    private static final LatencyHistogram APPEND_TRANSACTIONS = Metrics.histogram("file.appendTransactions");
+    private static final LatencyHistogram LOAD_ORDERS = Metrics.histogram("file.loadOrders");
+    private static final LatencyHistogram LOAD_BARS = Metrics.histogram("file.loadBars");
+    private static final LatencyHistogram SAVE_BARS = Metrics.histogram("file.saveBars");
+    private static final LatencyHistogram LOAD_VALUATION = Metrics.histogram("file.loadValuation");
+    private static final LatencyHistogram SAVE_VALUATION = Metrics.histogram("file.saveValuation");
+    private static final LatencyHistogram VERIFY = Metrics.histogram("file.verify");
+    private static final LongAdder SKIPPED_RECORDS = Metrics.counter("file.skippedRecords");
+
+    // ---------- Constructors ----------
     public FileService() {
-        ensureDataDirectory();
-        ensureFileExists(STOCK_FILE);
-        ensureFileExists(PORTFOLIO_FILE);
-        ensureFileExists(TRANSACTION_FILE);
+        this(DEFAULT_DATA_DIR);
+    }
+
+    public FileService(String dataDir) {
+
+        if (dataDir == null || dataDir.trim().isEmpty()) {
+            throw new IllegalArgumentException("Data directory cannot be null or empty");
+        }
+
+        this.dataDir = dataDir.trim();
+        this.stockFile = this.dataDir + "/stocks.txt";
+        this.portfolioFile = this.dataDir + "/portfolio.txt";
+        this.transactionFile = this.dataDir + "/transactions.txt";
+        this.snapshotDir = this.dataDir + "/snapshots";
+        this.accountDir = this.dataDir + "/accounts";
+        this.barFile = this.dataDir + "/bars.txt";
+        this.valuationFile = this.dataDir + "/valuation.txt";
+
+        ensureDirectory(this.dataDir);
+        ensureDirectory(accountDir);
+        ensureFileExists(stockFile);
+        ensureFileExists(portfolioFile);
+        ensureFileExists(transactionFile);
     }
 
     // ---------- Stock File ----------
     public List<Stock> loadStocks() {
 
+        long start = System.nanoTime();
+
         List<Stock> stocks = new ArrayList<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(STOCK_FILE))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(stockFile))) {
 
             String line;
             while ((line = br.readLine()) != null) {
@@ -49,6 +107,7 @@ public class FileService {
 
                 } catch (Exception e) {
                     // Skip corrupted stock record
+                    SKIPPED_RECORDS.increment();
                     System.err.println("Skipping invalid stock record: " + line);
                 }
             }
@@ -57,61 +116,129 @@ public class FileService {
             throw new RuntimeException("Failed to read stock file", e);
         }
 
+        LOAD_STOCKS.recordSince(start);
         return stocks;
     }
 
     // ---------- Portfolio File ----------
+
+    // Throws IllegalStateException if portfolio.txt fails its checksum
     public Portfolio loadPortfolio() {
 
-        Portfolio portfolio = new Portfolio();
+        long start = System.nanoTime();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(PORTFOLIO_FILE))) {
+        Portfolio portfolio = new Portfolio();
 
-            String line;
-            while ((line = br.readLine()) != null) {
+        for (String line : ChecksummedFile.readLines(new File(portfolioFile).toPath())) {
 
-                if (line.trim().isEmpty())
-                    continue;
+            if (line.trim().isEmpty())
+                continue;
 
-                try {
-                    String[] parts = line.split(",");
-                    String symbol = parts[0].trim();
-                    int quantity = Integer.parseInt(parts[1].trim());
+            try {
+                String[] parts = line.split(",");
+                String symbol = parts[0].trim();
+                int quantity = Integer.parseInt(parts[1].trim());
 
-                    portfolio.buyStock(symbol, quantity);
+                portfolio.buyStock(symbol, quantity);
 
-                } catch (Exception e) {
-                    System.err.println("Skipping invalid portfolio record: " + line);
-                }
+            } catch (Exception e) {
+                SKIPPED_RECORDS.increment();
+                System.err.println("Skipping invalid portfolio record: " + line);
             }
-
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read portfolio file", e);
         }
 
+        LOAD_PORTFOLIO.recordSince(start);
         return portfolio;
     }
 
-    public void savePortfolio(Portfolio portfolio) {
+    /*
+     * Checksummed, fsynced and atomically renamed into place, so a crash
+     * leaves the old portfolio or the new one. The content is built in a
+     * reused buffer, so a save allocates almost nothing.
+     */
+    public synchronized void savePortfolio(Portfolio portfolio) {
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(PORTFOLIO_FILE))) {
+        long start = System.nanoTime();
 
-            for (Map.Entry<String, Integer> entry : portfolio.getHoldings().entrySet()) {
-                bw.write(entry.getKey() + "," + entry.getValue());
-                bw.newLine();
+        portfolioWriter.begin();
+        portfolio.forEachHolding((symbol, quantity) ->
+                portfolioWriter.append(symbol).append(',').append(quantity).newLine());
+        portfolioWriter.commit(new File(portfolioFile).toPath());
+
+        SAVE_PORTFOLIO.recordSince(start);
+    }
+
+    // ---------- Account Files (one per user) ----------
+
+    /*
+     * accounts/<userId>.txt holds "userId,balance,userName" on the first
+     * line and "SYMBOL,QUANTITY" for each holding after it. A file that
+     * fails its checksum is skipped like any other unreadable account.
+     */
+    public List<User> loadAccounts() {
+
+        long start = System.nanoTime();
+
+        List<User> users = new ArrayList<>();
+        File[] files = new File(accountDir).listFiles((dir, name) -> name.endsWith(".txt"));
+
+        if (files == null) {
+            return users;
+        }
+
+        for (File file : files) {
+            try {
+                List<String> lines = ChecksummedFile.readLines(file.toPath());
+
+                String[] header = lines.get(0).split(",", 3);
+                User user = new User(header[0].trim(), header[2], Double.parseDouble(header[1].trim()));
+
+                for (String line : lines.subList(1, lines.size())) {
+                    if (line.trim().isEmpty())
+                        continue;
+
+                    String[] parts = line.split(",");
+                    user.getPortfolio().buyStock(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+                }
+
+                users.add(user);
+
+            } catch (Exception e) {
+                SKIPPED_RECORDS.increment();
+                System.err.println("Skipping invalid account file: " + file + " (" + e.getMessage() + ")");
             }
+        }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save portfolio", e);
+        LOAD_ACCOUNTS.recordSince(start);
+        return users;
+    }
+
+    // Same atomic, checksummed write as the portfolio
+    public void saveAccount(User user) {
+
+        long start = System.nanoTime();
+
+        synchronized (accountWriter) {
+            accountWriter.begin()
+                    .append(user.getUserId()).append(',')
+                    .append(Double.toString(user.getBalance())).append(',')
+                    .append(user.getUserName()).newLine();
+            user.getPortfolio().forEachHolding((symbol, quantity) ->
+                    accountWriter.append(symbol).append(',').append(quantity).newLine());
+            accountWriter.commit(new File(accountDir, user.getUserId() + ".txt").toPath());
         }
+
+        SAVE_ACCOUNT.recordSince(start);
     }
 
     // ---------- Transaction File ----------
     public List<Transaction> loadTransactions() {
 
+        long start = System.nanoTime();
+
         List<Transaction> transactions = new ArrayList<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(TRANSACTION_FILE))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(transactionFile))) {
 
             String line;
             while ((line = br.readLine()) != null) {
@@ -122,6 +249,7 @@ public class FileService {
                 try {
                     transactions.add(Transaction.fromFileString(line));
                 } catch (Exception e) {
+                    SKIPPED_RECORDS.increment();
                     System.err.println("Skipping invalid transaction record: " + line);
                 }
             }
@@ -130,12 +258,83 @@ public class FileService {
             throw new RuntimeException("Failed to read transaction file", e);
         }
 
+        LOAD_TRANSACTIONS.recordSince(start);
         return transactions;
     }
 
-    public void appendTransaction(Transaction transaction) {
+    /*
+     * Lazy, read-once view of the ledger: lines are parsed and filtered as
+     * the stream is consumed, so memory does not grow with history size.
+     * The stream holds the file open and must be closed (try-with-resources).
+     */
+    public Stream<Transaction> streamTransactions(TransactionQuery query) {
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(TRANSACTION_FILE, true))) {
+        if (query == null) {
+            throw new IllegalArgumentException("Transaction query cannot be null");
+        }
+
+        BufferedReader br;
+        try {
+            br = new BufferedReader(new FileReader(transactionFile));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read transaction file", e);
+        }
+
+        return br.lines()
+                .filter(line -> !line.trim().isEmpty())
+                .map(FileService::parseTransactionOrSkip)
+                .filter(Objects::nonNull)
+                .filter(query)
+                .onClose(() -> {
+                    try {
+                        br.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to close transaction file", e);
+                    }
+                });
+    }
+
+    // Callback form of streamTransactions(); returns the number of matches visited
+    public long forEachTransaction(TransactionQuery query, Consumer<Transaction> visitor) {
+
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor cannot be null");
+        }
+
+        long[] visited = new long[1];
+
+        try (Stream<Transaction> transactions = streamTransactions(query)) {
+            transactions.forEach(transaction -> {
+                visitor.accept(transaction);
+                visited[0]++;
+            });
+        }
+
+        return visited[0];
+    }
+
+    /*
+     * Memory-mapped, parallel variant of loadTransactions() for large
+     * ledgers. Same records in the same order, plus the skipped-line count.
+     */
+    public TransactionLoader.Result loadTransactionsParallel() {
+        return new TransactionLoader().load(new File(transactionFile).toPath());
+    }
+
+    // Journal tail: every record at or after the given byte offset
+    public TransactionLoader.Result loadTransactionsFrom(long offset) {
+        return new TransactionLoader().load(new File(transactionFile).toPath(), offset);
+    }
+
+    public long getTransactionFileSize() {
+        return new File(transactionFile).length();
+    }
+
+    public synchronized void appendTransaction(Transaction transaction) {
+
+        long start = System.nanoTime();
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(transactionFile, true))) {
 
             bw.write(transaction.toFileString());
             bw.newLine();
@@ -143,11 +342,272 @@ public class FileService {
         } catch (IOException e) {
             throw new RuntimeException("Failed to write transaction", e);
         }
+
+        APPEND_TRANSACTION.recordSince(start);
+    }
+
+    // One open and one buffered write for a whole batch
+    public synchronized void appendTransactions(Collection<Transaction> transactions) {
+
+        long start = System.nanoTime();
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(transactionFile, true), 1 << 16)) {
+
+            for (Transaction transaction : transactions) {
+                bw.write(transaction.toFileString());
+                bw.newLine();
+            }
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write transactions", e);
+        }
+
+        APPEND_TRANSACTIONS.recordSince(start);
+    }
+
+    // ---------- Order Files (TYPE,SYMBOL,QTY) ----------
+    public List<OrderRequest> loadOrders(Path orderFile) {
+
+        long start = System.nanoTime();
+
+        List<OrderRequest> orders = new ArrayList<>();
+
+        try (BufferedReader br = Files.newBufferedReader(orderFile)) {
+
+            String line;
+            boolean first = true;
+
+            while ((line = br.readLine()) != null) {
+
+                // Optional header line
+                if (first && line.trim().toUpperCase().startsWith("TYPE,")) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+
+                if (line.trim().isEmpty())
+                    continue;
+
+                try {
+                    orders.add(OrderRequest.fromCsvString(line));
+                } catch (IllegalArgumentException e) {
+                    SKIPPED_RECORDS.increment();
+                    System.err.println("Skipping invalid order record: " + line);
+                }
+            }
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read order file " + orderFile, e);
+        }
+
+        LOAD_ORDERS.recordSince(start);
+        return orders;
+    }
+
+    // ---------- Verification ----------
+
+    /*
+     * Checks every data file without changing anything: portfolio.txt,
+     * bars.txt, valuation.txt, account files and snapshots against their checksums. transactions.txt
+     * is append-only, so instead of a whole-file checksum every record must
+     * parse and the file must end with a complete line.
+     */
+    public List<ChecksummedFile.Verification> verifyDataFiles() {
+
+        long start = System.nanoTime();
+
+        List<ChecksummedFile.Verification> results = new ArrayList<>();
+        results.add(ChecksummedFile.verify(new File(portfolioFile).toPath()));
+
+        for (String file : new String[] { barFile, valuationFile }) {
+            if (new File(file).exists()) {
+                results.add(ChecksummedFile.verify(new File(file).toPath()));
+            }
+        }
+
+        for (String dir : new String[] { accountDir, snapshotDir }) {
+            File[] files = new File(dir).listFiles((d, name) -> name.endsWith(".txt"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    results.add(ChecksummedFile.verify(file.toPath()));
+                }
+            }
+        }
+
+        results.add(verifyTransactionFile());
+
+        VERIFY.recordSince(start);
+        return results;
+    }
+
+    private ChecksummedFile.Verification verifyTransactionFile() {
+
+        Path file = new File(transactionFile).toPath();
+
+        try {
+            long skipped = new TransactionLoader().load(file).getSkippedLines();
+            long size = Files.size(file);
+            boolean tornTail = size > 0 && lastByte(file, size) != '\n';
+
+            if (skipped > 0 || tornTail) {
+                return new ChecksummedFile.Verification(file, ChecksummedFile.Status.CORRUPT, 0,
+                        skipped + " unreadable records" + (tornTail ? ", last record is incomplete" : ""));
+            }
+
+            return new ChecksummedFile.Verification(file, ChecksummedFile.Status.VALID, 0, "");
+
+        } catch (IOException | RuntimeException e) {
+            return new ChecksummedFile.Verification(file, ChecksummedFile.Status.CORRUPT, 0,
+                    "Unreadable: " + e.getMessage());
+        }
+    }
+
+    private static int lastByte(Path file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            raf.seek(size - 1);
+            return raf.read();
+        }
+    }
+
+    // ---------- Transaction Journal ----------
+    public TransactionJournal openJournal(TransactionJournal.Durability durability) {
+        return new TransactionJournal(new File(transactionFile).toPath(), durability);
+    }
+
+    // Journal written by a background thread; trades queue at most capacity records
+    public PersistencePipeline openPersistencePipeline(TransactionJournal.Durability durability, int capacity) {
+        return new PersistencePipeline(openJournal(durability), capacity);
+    }
+
+    // ---------- Snapshots ----------
+    public SnapshotStore openSnapshotStore() {
+        return new SnapshotStore(new File(snapshotDir).toPath());
+    }
+
+    // ---------- OHLCV Bars ----------
+    public BarStore openBarStore() {
+        return new BarStore(new File(barFile).toPath());
+    }
+
+    /*
+     * Bars at the given intervals covering all of transactions.txt: the
+     * saved bars plus the trades after their offset, or one pass over the
+     * whole ledger when there are none (or they were saved with other
+     * intervals, or are ahead of the file).
+     */
+    public BarAggregator loadBars(BarAggregator.Interval... intervals) {
+
+        long start = System.nanoTime();
+
+        BarStore.Saved saved = openBarStore().load(intervals);
+
+        if (saved != null && saved.getJournalOffset() <= getTransactionFileSize()) {
+            BarAggregator bars = saved.getBars();
+            bars.addAll(loadTransactionsFrom(saved.getJournalOffset()).getTransactions());
+            LOAD_BARS.recordSince(start);
+            return bars;
+        }
+
+        BarAggregator bars = new BarAggregator(intervals);
+        forEachTransaction(TransactionQuery.all(), bars::add);
+
+        LOAD_BARS.recordSince(start);
+        return bars;
+    }
+
+    // Call once trading has stopped, so the bars match transactions.txt up to its end
+    public void saveBars(BarAggregator bars) {
+
+        long start = System.nanoTime();
+
+        openBarStore().write(bars, getTransactionFileSize());
+
+        SAVE_BARS.recordSince(start);
+    }
+
+    // ---------- Valuation ----------
+    public ValuationStore openValuationStore() {
+        return new ValuationStore(new File(valuationFile).toPath());
+    }
+
+    /*
+     * Positions and realized P&L covering all of transactions.txt, the same
+     * way as loadBars: the saved valuation plus the trades after its
+     * offset, or one pass over the whole ledger.
+     */
+    public ValuationEngine loadValuation(ValuationEngine.CostBasis method) {
+
+        long start = System.nanoTime();
+
+        ValuationStore.Saved saved = openValuationStore().load(method);
+
+        if (saved != null && saved.getJournalOffset() <= getTransactionFileSize()) {
+            ValuationEngine valuation = saved.getValuation();
+            for (Transaction transaction : loadTransactionsFrom(saved.getJournalOffset()).getTransactions()) {
+                book(valuation, transaction);
+            }
+            LOAD_VALUATION.recordSince(start);
+            return valuation;
+        }
+
+        ValuationEngine valuation = new ValuationEngine(method);
+        forEachTransaction(TransactionQuery.all(), transaction -> book(valuation, transaction));
+
+        LOAD_VALUATION.recordSince(start);
+        return valuation;
+    }
+
+    // Call once trading has stopped, so the valuation matches transactions.txt up to its end
+    public void saveValuation(ValuationEngine valuation) {
+
+        long start = System.nanoTime();
+
+        openValuationStore().write(valuation, getTransactionFileSize());
+
+        SAVE_VALUATION.recordSince(start);
+    }
+
+    // Account trades carry their account; the rest belong to the shared portfolio
+    private static void book(ValuationEngine valuation, Transaction transaction) {
+        String accountId = transaction.getAccountId();
+        valuation.onTrade(accountId != null ? accountId : TradingService.PORTFOLIO_ACCOUNT, transaction);
+    }
+
+    // ---------- Metrics Log ----------
+    public MetricsReporter openMetricsReporter(long intervalSeconds) {
+        return new MetricsReporter(new File(dataDir, "metrics.log").toPath(), intervalSeconds);
+    }
+
+    // ---------- Ledger Segments (binary, columnar) ----------
+
+    // Converts transactions.txt into a segment; returns the number of records written
+    public long exportTransactionsToSegment(Path segmentFile) {
+
+        try (LedgerSegmentWriter writer = new LedgerSegmentWriter(segmentFile)) {
+            forEachTransaction(TransactionQuery.all(), writer::append);
+            return writer.getRecordCount();
+        }
+    }
+
+    public LedgerSegmentReader openLedgerSegment(Path segmentFile) {
+        return new LedgerSegmentReader(segmentFile);
     }
 
     // ---------- Utility Methods ----------
-    private void ensureDataDirectory() {
-        File dir = new File(DATA_DIR);
+    private static Transaction parseTransactionOrSkip(String line) {
+        try {
+            return TransactionCodec.parse(line);
+        } catch (Exception e) {
+            SKIPPED_RECORDS.increment();
+            System.err.println("Skipping invalid transaction record: " + line);
+            return null;
+        }
+    }
+
+    private static void ensureDirectory(String path) {
+        File dir = new File(path);
         if (!dir.exists()) {
             dir.mkdirs();
         }
@@ -0,0 +1,186 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Log-linear latency histogram in nanoseconds, in the style of
+ * HdrHistogram: every power of two is split into 16 linear sub-buckets,
+ * so any recorded value is reported within 1/16 (6.25%) of itself, from
+ * 1 ns up to about 18 minutes in 592 buckets.
+ *
+ * record() is lock-free and allocation-free: one bucket increment, one
+ * sum add and (rarely) a max update. Readers take a Snapshot, which is
+ * not atomic across buckets but never loses a recorded value.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+
+    // Values at or above this land in the last bucket
+    public static final long MAX_TRACKABLE_NANOS = 1L << MAX_EXPONENT;
+
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    // ---------- Constructor ----------
+    public LatencyHistogram(String name) {
+
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Histogram name cannot be null or empty");
+        }
+
+        this.name = name.trim();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // ---------- Recording ----------
+    public void record(long nanos) {
+
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts.incrementAndGet(bucketOf(nanos));
+        totalNanos.add(nanos);
+
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    // Records the time since startNanos and returns the clock reading, for chaining stages
+    public long recordSince(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    // ---------- Reading ----------
+    public Snapshot getSnapshot() {
+
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+
+        return new Snapshot(name, copy, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    // ---------- Bucket Layout ----------
+
+    /*
+     * Values below 16 get a bucket each. Above that, a value with its top
+     * bit at position e lands in octave e - 3, and its next four bits pick
+     * the sub-bucket.
+     */
+    static int bucketOf(long nanos) {
+
+        if (nanos >= MAX_TRACKABLE_NANOS) {
+            return BUCKETS - 1;
+        }
+
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // Largest value that maps to the bucket
+    static long highestValueOf(int bucket) {
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+
+    // ---------- Snapshot ----------
+    public static final class Snapshot {
+
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(String name, long[] counts, long count, long totalNanos, long maxNanos) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getAverageNanos() {
+            return count == 0 ? 0 : totalNanos / (double) count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /*
+         * Value at the given percentile (0-100): the top of the bucket that
+         * holds it, capped at the recorded max.
+         */
+        public long getPercentileNanos(double percentile) {
+
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), maxNanos);
+                }
+            }
+
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s | %10d | %10.1f | %10.1f | %10.1f | %10.1f", name, count,
+                    getAverageNanos() / 1e3, getPercentileNanos(50) / 1e3,
+                    getPercentileNanos(99) / 1e3, maxNanos / 1e3);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package service;
+
+import model.Transaction;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/*
+ * Reads a segment written by LedgerSegmentWriter. The footer indexes are
+ * loaded on open; a query then reads only the blocks whose time range
+ * overlaps the query and, when a symbol is given, that contain the symbol.
+ *
+ * Not thread-safe: one reader per thread (the file can be opened many times).
+ */
+public class LedgerSegmentReader implements Closeable {
+
+    private static final Transaction.Type[] TYPES = Transaction.Type.values();
+
+    private final FileChannel channel;
+    private final int blockCapacity;
+    private final long recordCount;
+
+    // ---------- Footer ----------
+    private final String[] symbols;
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private final long[] blockOffsets;
+    private final int[] blockCounts;
+    private final long[] blockMinSeconds;
+    private final long[] blockMaxSeconds;
+    private final int[][] blocksBySymbol;
+
+    private final ByteBuffer blockBuffer;
+    private long blocksRead;
+
+    // ---------- Constructor ----------
+    public LedgerSegmentReader(Path file) {
+
+        if (file == null) {
+            throw new IllegalArgumentException("Segment file cannot be null");
+        }
+
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+            ByteBuffer header = readAt(0, LedgerSegmentWriter.HEADER_SIZE);
+
+            if (header.getInt() != LedgerSegmentWriter.MAGIC) {
+                throw new IllegalStateException("Not a ledger segment: " + file);
+            }
+
+            int version = header.getInt();
+            if (version != LedgerSegmentWriter.VERSION) {
+                throw new IllegalStateException("Unsupported ledger segment version: " + version);
+            }
+
+            this.blockCapacity = header.getInt();
+            this.recordCount = header.getLong();
+            int blockCount = header.getInt();
+            long footerOffset = header.getLong();
+
+            ByteBuffer footer = readAt(footerOffset, (int) (channel.size() - footerOffset));
+
+            this.symbols = new String[footer.getInt()];
+            for (int i = 0; i < symbols.length; i++) {
+                byte[] bytes = new byte[footer.getShort()];
+                footer.get(bytes);
+                symbols[i] = new String(bytes, StandardCharsets.UTF_8);
+                symbolIds.put(symbols[i], i);
+            }
+
+            this.blockOffsets = new long[blockCount];
+            this.blockCounts = new int[blockCount];
+            this.blockMinSeconds = new long[blockCount];
+            this.blockMaxSeconds = new long[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                blockOffsets[b] = footer.getLong();
+                blockCounts[b] = footer.getInt();
+                blockMinSeconds[b] = footer.getLong();
+                blockMaxSeconds[b] = footer.getLong();
+            }
+
+            this.blocksBySymbol = new int[symbols.length][];
+            for (int i = 0; i < symbols.length; i++) {
+                int[] blocks = new int[footer.getInt()];
+                for (int j = 0; j < blocks.length; j++) {
+                    blocks[j] = footer.getInt();
+                }
+                blocksBySymbol[i] = blocks;
+            }
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open ledger segment: " + file, e);
+        }
+
+        this.blockBuffer = ByteBuffer.allocate(blockCapacity * LedgerSegmentWriter.RECORD_SIZE);
+    }
+
+    // ---------- Queries ----------
+    public long forEach(TransactionQuery query, Consumer<Transaction> visitor) {
+
+        if (query == null) {
+            throw new IllegalArgumentException("Transaction query cannot be null");
+        }
+
+        if (visitor == null) {
+            throw new IllegalArgumentException("Visitor cannot be null");
+        }
+
+        int symbolId = -1;
+
+        if (query.getSymbol() != null) {
+            Integer id = symbolIds.get(query.getSymbol());
+            if (id == null) {
+                return 0;
+            }
+            symbolId = id;
+        }
+
+        // Whole-second bounds, widened so the block/row pre-filter never drops a match
+        long fromSecond = query.getFrom() == null ? Long.MIN_VALUE
+                : query.getFrom().toEpochSecond(ZoneOffset.UTC);
+        long toSecond = query.getTo() == null ? Long.MAX_VALUE
+                : query.getTo().toEpochSecond(ZoneOffset.UTC);
+
+        long matched = 0;
+
+        if (symbolId >= 0) {
+            for (int block : blocksBySymbol[symbolId]) {
+                matched += scanBlock(block, symbolId, query, fromSecond, toSecond, visitor);
+            }
+        } else {
+            for (int block = 0; block < blockOffsets.length; block++) {
+                matched += scanBlock(block, -1, query, fromSecond, toSecond, visitor);
+            }
+        }
+
+        return matched;
+    }
+
+    public List<Transaction> read(TransactionQuery query) {
+        List<Transaction> transactions = new ArrayList<>();
+        forEach(query, transactions::add);
+        return transactions;
+    }
+
+    // ---------- Converter: Segment -> CSV ----------
+    public long writeCsv(Path csvFile) {
+
+        try (BufferedWriter bw = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            return forEach(TransactionQuery.all(), transaction -> {
+                try {
+                    bw.write(transaction.toFileString());
+                    bw.newLine();
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to write transaction CSV", e);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write transaction CSV: " + csvFile, e);
+        }
+    }
+
+    // ---------- Statistics ----------
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    public long getBlocksRead() {
+        return blocksRead;
+    }
+
+    // ---------- Close ----------
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close ledger segment", e);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private long scanBlock(int block, int symbolId, TransactionQuery query,
+            long fromSecond, long toSecond, Consumer<Transaction> visitor) {
+
+        if (blockMaxSeconds[block] < fromSecond || blockMinSeconds[block] > toSecond) {
+            return 0;
+        }
+
+        int count = blockCounts[block];
+
+        blockBuffer.clear().limit(count * LedgerSegmentWriter.RECORD_SIZE);
+        try {
+            long offset = blockOffsets[block];
+            while (blockBuffer.hasRemaining()) {
+                int read = channel.read(blockBuffer, offset);
+                if (read < 0) {
+                    throw new IllegalStateException("Ledger segment is truncated");
+                }
+                offset += read;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read ledger segment block", e);
+        }
+        blocksRead++;
+
+        // Column start offsets within the block
+        int symbolColumn = count;
+        int quantityColumn = symbolColumn + count * 4;
+        int priceColumn = quantityColumn + count * 4;
+        int secondColumn = priceColumn + count * 8;
+
+        Transaction.Type type = query.getType();
+        long matched = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            int id = blockBuffer.getInt(symbolColumn + i * 4);
+            if (symbolId >= 0 && id != symbolId) {
+                continue;
+            }
+
+            Transaction.Type rowType = TYPES[blockBuffer.get(i)];
+            if (type != null && rowType != type) {
+                continue;
+            }
+
+            long second = blockBuffer.getLong(secondColumn + i * 8);
+            if (second < fromSecond || second > toSecond) {
+                continue;
+            }
+
+            Transaction transaction = Transaction.restore(
+                    rowType,
+                    symbols[id],
+                    blockBuffer.getInt(quantityColumn + i * 4),
+                    blockBuffer.getDouble(priceColumn + i * 8),
+                    LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC));
+
+            // Exact check (sub-second query bounds, exclusive end)
+            if (query.test(transaction)) {
+                visitor.accept(transaction);
+                matched++;
+            }
+        }
+
+        return matched;
+    }
+
+    private ByteBuffer readAt(long offset, int length) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) {
+                throw new IllegalStateException("Ledger segment is truncated");
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,253 @@
+package service;
+
+import model.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Writes transactions as a binary, columnar ledger segment.
+ *
+ * Layout (big-endian):
+ *   header   MAGIC, VERSION, blockCapacity, recordCount, blockCount, footerOffset
+ *   blocks   per block, one column after the other, fixed width per record:
+ *            type byte | symbol id int | quantity int | price double | epoch second long
+ *   footer   symbol dictionary (id -> UTF-8 symbol)
+ *            time index: per block offset, record count, min and max epoch second
+ *            symbol index: per symbol, the blocks that contain it
+ *
+ * Timestamps are stored as UTC epoch seconds of the LocalDateTime, which
+ * round-trips exactly because the CSV format only keeps whole seconds.
+ */
+public class LedgerSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x53544C47; // "STLG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 4 + 8;
+    static final int RECORD_SIZE = 1 + 4 + 4 + 8 + 8;
+    static final int DEFAULT_BLOCK_CAPACITY = 4096;
+
+    private final FileChannel channel;
+    private final int blockCapacity;
+
+    // ---------- Current Block (columns) ----------
+    private final byte[] types;
+    private final int[] symbolIds;
+    private final int[] quantities;
+    private final double[] prices;
+    private final long[] epochSeconds;
+    private int blockSize;
+
+    // ---------- Dictionary and Indexes ----------
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final List<BitSet> blocksBySymbol = new ArrayList<>();
+    private final List<long[]> blockIndex = new ArrayList<>();
+
+    private final ByteBuffer blockBuffer;
+    private long position = HEADER_SIZE;
+    private long recordCount;
+    private boolean closed;
+
+    // ---------- Constructors ----------
+    public LedgerSegmentWriter(Path file) {
+        this(file, DEFAULT_BLOCK_CAPACITY);
+    }
+
+    public LedgerSegmentWriter(Path file, int blockCapacity) {
+
+        if (file == null) {
+            throw new IllegalArgumentException("Segment file cannot be null");
+        }
+
+        if (blockCapacity <= 0) {
+            throw new IllegalArgumentException("Block capacity must be greater than zero");
+        }
+
+        try {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create ledger segment: " + file, e);
+        }
+
+        this.blockCapacity = blockCapacity;
+        this.types = new byte[blockCapacity];
+        this.symbolIds = new int[blockCapacity];
+        this.quantities = new int[blockCapacity];
+        this.prices = new double[blockCapacity];
+        this.epochSeconds = new long[blockCapacity];
+        this.blockBuffer = ByteBuffer.allocate(blockCapacity * RECORD_SIZE);
+    }
+
+    // ---------- Append ----------
+    public void append(Transaction transaction) {
+
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+
+        if (closed) {
+            throw new IllegalStateException("Ledger segment is closed");
+        }
+
+        Integer id = dictionary.get(transaction.getStockSymbol());
+
+        if (id == null) {
+            id = symbols.size();
+            dictionary.put(transaction.getStockSymbol(), id);
+            symbols.add(transaction.getStockSymbol());
+            blocksBySymbol.add(new BitSet());
+        }
+
+        types[blockSize] = (byte) transaction.getType().ordinal();
+        symbolIds[blockSize] = id;
+        quantities[blockSize] = transaction.getQuantity();
+        prices[blockSize] = transaction.getPrice();
+        epochSeconds[blockSize] = transaction.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+        blocksBySymbol.get(id).set(blockIndex.size());
+
+        recordCount++;
+
+        if (++blockSize == blockCapacity) {
+            flushBlock();
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // ---------- Close (writes footer and header) ----------
+    @Override
+    public void close() {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            if (blockSize > 0) {
+                flushBlock();
+            }
+
+            long footerOffset = position;
+            writeFully(encodeFooter(), position);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(blockCapacity)
+                    .putLong(recordCount)
+                    .putInt(blockIndex.size())
+                    .putLong(footerOffset)
+                    .flip();
+            writeFully(header, 0);
+
+            channel.force(true);
+            channel.close();
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to finish ledger segment", e);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private void flushBlock() {
+
+        long minSecond = Long.MAX_VALUE;
+        long maxSecond = Long.MIN_VALUE;
+
+        blockBuffer.clear();
+
+        for (int i = 0; i < blockSize; i++) {
+            blockBuffer.put(types[i]);
+        }
+        for (int i = 0; i < blockSize; i++) {
+            blockBuffer.putInt(symbolIds[i]);
+        }
+        for (int i = 0; i < blockSize; i++) {
+            blockBuffer.putInt(quantities[i]);
+        }
+        for (int i = 0; i < blockSize; i++) {
+            blockBuffer.putDouble(prices[i]);
+        }
+        for (int i = 0; i < blockSize; i++) {
+            blockBuffer.putLong(epochSeconds[i]);
+            minSecond = Math.min(minSecond, epochSeconds[i]);
+            maxSecond = Math.max(maxSecond, epochSeconds[i]);
+        }
+
+        blockBuffer.flip();
+
+        try {
+            writeFully(blockBuffer, position);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write ledger segment block", e);
+        }
+
+        blockIndex.add(new long[] { position, blockSize, minSecond, maxSecond });
+        position += (long) blockSize * RECORD_SIZE;
+        blockSize = 0;
+    }
+
+    private ByteBuffer encodeFooter() {
+
+        List<byte[]> encodedSymbols = new ArrayList<>(symbols.size());
+        int size = 4;
+
+        for (String symbol : symbols) {
+            byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+            encodedSymbols.add(bytes);
+            size += 2 + bytes.length;
+        }
+
+        size += blockIndex.size() * (8 + 4 + 8 + 8);
+
+        for (BitSet blocks : blocksBySymbol) {
+            size += 4 + blocks.cardinality() * 4;
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate(size);
+
+        footer.putInt(encodedSymbols.size());
+        for (byte[] bytes : encodedSymbols) {
+            footer.putShort((short) bytes.length).put(bytes);
+        }
+
+        for (long[] block : blockIndex) {
+            footer.putLong(block[0]).putInt((int) block[1]).putLong(block[2]).putLong(block[3]);
+        }
+
+        for (BitSet blocks : blocksBySymbol) {
+            footer.putInt(blocks.cardinality());
+            for (int b = blocks.nextSetBit(0); b >= 0; b = blocks.nextSetBit(b + 1)) {
+                footer.putInt(b);
+            }
+        }
+
+        footer.flip();
+        return footer;
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+}
@@ -2,14 +2,25 @@ package service;
 
 import model.Stock;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 
 public class MarketService {
 
     private final FileService fileService;
-    private List<Stock> marketStocks;
+
+    /*
+     * Symbol index, search index and live prices of the current version,
+     * built off to the side on every refresh and published with a single
+     * volatile write, so readers never see a half-built or mixed market.
+     */
+    private volatile MarketSnapshot snapshot = MarketSnapshot.empty();
+
+    private final ReportRenderer reportRenderer = new ReportRenderer(this);
+
+    // ---------- Metrics ----------
+    private static final LatencyHistogram REFRESH = Metrics.histogram("market.refresh");
+    private static final LatencyHistogram LOOKUP = Metrics.histogram("market.lookup");
+    private static final LatencyHistogram SEARCH = Metrics.histogram("market.search");
 
     // ---------- Constructor ----------
     public MarketService(FileService fileService) {
@@ -23,25 +34,56 @@ public class MarketService {
     }
 
     // ---------- Load / Refresh Market Data ----------
-    public final void refreshMarketData() {
 
+    // Synchronized so concurrent refreshes publish versions in order; readers never wait
+    public final synchronized void refreshMarketData() {
+
+        long start = System.nanoTime();
         List<Stock> loadedStocks = fileService.loadStocks();
 
         if (loadedStocks == null) {
             throw new IllegalStateException("Market data could not be loaded");
         }
 
-        this.marketStocks = loadedStocks;
+        this.snapshot = snapshot.next(loadedStocks);
+
+        REFRESH.recordSince(start);
     }
 
-    // ---------- Get All Market Stocks (Read-Only) ----------
-    public List<Stock> getAllStocks() {
+    // ---------- Current Version ----------
 
-        if (marketStocks == null || marketStocks.isEmpty()) {
-            return Collections.emptyList();
+    // Take once and read everything from it for a view that no refresh can tear
+    public MarketSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Each of these reads the current version on its own call
+    public SymbolIndex getSymbolIndex() {
+        return snapshot.getSymbolIndex();
+    }
+
+    // ---------- Live Prices ----------
+    public PriceTable getPriceTable() {
+        return snapshot.getPriceTable();
+    }
+
+    public double getPrice(String symbol) {
+
+        long start = System.nanoTime();
+        double price = snapshot.getPrice(symbol);
+
+        if (Double.isNaN(price)) {
+            throw new IllegalArgumentException(
+                    "Stock not found in market: " + SymbolIndex.normalize(symbol));
         }
 
-        return Collections.unmodifiableList(marketStocks);
+        LOOKUP.recordSince(start);
+        return price;
+    }
+
+    // ---------- Get All Market Stocks (Read-Only) ----------
+    public List<Stock> getAllStocks() {
+        return snapshot.getStocks();
     }
 
     // ---------- Find Stock by Symbol ----------
@@ -51,55 +93,74 @@ public class MarketService {
             throw new IllegalArgumentException("Stock symbol cannot be null or empty");
         }
 
-        if (marketStocks == null || marketStocks.isEmpty()) {
+        long start = System.nanoTime();
+        MarketSnapshot market = snapshot;
+
+        if (market.isEmpty()) {
             throw new IllegalStateException("Market data not available");
         }
 
-        String normalizedSymbol = symbol.trim().toUpperCase();
+        Stock stock = market.getStock(symbol);
 
-        for (Stock stock : marketStocks) {
-            if (stock.getSymbol().equals(normalizedSymbol)) {
-                return stock;
-            }
+        if (stock == null) {
+            throw new IllegalArgumentException(
+                    "Stock not found in market: " + SymbolIndex.normalize(symbol));
         }
 
-        throw new IllegalArgumentException("Stock not found in market: " + normalizedSymbol);
+        LOOKUP.recordSince(start);
+        return stock;
     }
 
-    // ---------- Check Stock Availability ----------
-    public boolean isStockAvailable(String symbol) {
+    // ---------- Search by Symbol or Company Name ----------
 
-        if (symbol == null || symbol.trim().isEmpty()) {
-            return false;
-        }
+    // Up to limit stocks, best match first; tolerates typos in longer queries
+    public List<Stock> searchStocks(String query, int limit) {
 
-        if (marketStocks == null || marketStocks.isEmpty()) {
-            return false;
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search text cannot be null or empty");
         }
 
-        String normalizedSymbol = symbol.trim().toUpperCase();
+        long start = System.nanoTime();
+        List<Stock> matches = snapshot.getSearchIndex().search(query, limit);
 
-        for (Stock stock : marketStocks) {
-            if (Objects.equals(stock.getSymbol(), normalizedSymbol)) {
-                return true;
-            }
-        }
-        return false;
+        SEARCH.recordSince(start);
+        return matches;
+    }
+
+    public SearchIndex getSearchIndex() {
+        return snapshot.getSearchIndex();
+    }
+
+    // ---------- Check Stock Availability ----------
+    public boolean isStockAvailable(String symbol) {
+        return snapshot.contains(symbol);
     }
 
     // ---------- Display Market Data ----------
+
+    // Only rows whose price changed since the last view are formatted again
+    public ReportRenderer getReportRenderer() {
+        return reportRenderer;
+    }
+
     public void displayMarketData() {
+        System.out.print(reportRenderer.renderMarket());
+    }
 
-        if (marketStocks == null || marketStocks.isEmpty()) {
-            System.out.println("No market data available.");
-            return;
-        }
+    public void displayMarketPage(int page, int pageSize) {
+        System.out.print(reportRenderer.renderMarketPage(page, pageSize));
+    }
 
-        System.out.println("Symbol | Company Name         | Price");
-        System.out.println("--------------------------------------");
+    public void displayTopMovers(int count) {
+        System.out.print(reportRenderer.renderTopMovers(count));
+    }
 
-        for (Stock stock : marketStocks) {
-            System.out.println(stock);
+    public void displaySearchResults(String query, int limit) {
+        List<Stock> matches = searchStocks(query, limit);
+        if (matches.isEmpty()) {
+            System.out.println("No stocks match \"" + query.trim() + "\".");
+        } else {
+            System.out.print(reportRenderer.renderStocks(matches));
         }
     }
 }
@@ -0,0 +1,109 @@
+package service;
+
+import model.Stock;
+
+import java.util.List;
+
+/*
+ * One version of the market: the stocks of a refresh, their search index
+ * and the live price table, always from the same stocks.txt load.
+ *
+ * MarketService builds the next snapshot off to the side and publishes it
+ * with a single volatile write. A reader takes the snapshot once and does
+ * all its lookups against it, so a refresh in between can never give it a
+ * symbol id from one version and a price from another. Nothing is locked
+ * and nothing is reference-counted: a version is garbage collected once
+ * the last reader holding it lets go.
+ *
+ * Everything is immutable except the prices in the PriceTable, which the
+ * feed updates in place one atomic word at a time. A refresh changes the
+ * listing, not the prices: a symbol that stays listed keeps its live price
+ * and only new symbols start at their stocks.txt value.
+ */
+public final class MarketSnapshot {
+
+    private static final MarketSnapshot EMPTY = new MarketSnapshot(0, SymbolIndex.empty(), SearchIndex.empty(),
+            new PriceTable(SymbolIndex.empty()));
+
+    private final long version;
+    private final SymbolIndex symbolIndex;
+    private final SearchIndex searchIndex;
+    private final PriceTable priceTable;
+
+    // ---------- Constructor ----------
+    private MarketSnapshot(long version, SymbolIndex symbolIndex, SearchIndex searchIndex, PriceTable priceTable) {
+        this.version = version;
+        this.symbolIndex = symbolIndex;
+        this.searchIndex = searchIndex;
+        this.priceTable = priceTable;
+    }
+
+    // ---------- Factory ----------
+    public static MarketSnapshot empty() {
+        return EMPTY;
+    }
+
+    // The following version over stocks, reusing this one's search keys for unchanged stocks
+    // and carrying over the live price of every symbol still listed
+    public MarketSnapshot next(List<Stock> stocks) {
+
+        if (stocks == null) {
+            throw new IllegalArgumentException("Stock list cannot be null");
+        }
+
+        SymbolIndex index = SymbolIndex.build(stocks);
+        return new MarketSnapshot(version + 1, index, SearchIndex.rebuild(searchIndex, index),
+                new PriceTable(index, priceTable));
+    }
+
+    // ---------- Getters ----------
+
+    // 0 for the empty market, then one more per refresh
+    public long getVersion() {
+        return version;
+    }
+
+    public SymbolIndex getSymbolIndex() {
+        return symbolIndex;
+    }
+
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public PriceTable getPriceTable() {
+        return priceTable;
+    }
+
+    // ---------- Lookups ----------
+    public List<Stock> getStocks() {
+        return symbolIndex.getStocks();
+    }
+
+    // null when the symbol is not in this version
+    public Stock getStock(String symbol) {
+        return symbolIndex.get(symbol);
+    }
+
+    // NaN when the symbol is not in this version
+    public double getPrice(String symbol) {
+        return priceTable.getPrice(symbol);
+    }
+
+    public boolean contains(String symbol) {
+        return symbolIndex.contains(symbol);
+    }
+
+    public int size() {
+        return symbolIndex.size();
+    }
+
+    public boolean isEmpty() {
+        return symbolIndex.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Market v%d: %d stocks", version, size());
+    }
+}
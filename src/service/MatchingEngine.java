@@ -0,0 +1,146 @@
+package service;
+
+import model.Transaction;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+ * Routes orders to one OrderBook per market symbol. Each book is guarded by
+ * its own monitor, so different symbols match in parallel. Fills are
+ * published to listeners as Transaction records (side = aggressor side,
+ * price = resting order's price).
+ */
+public class MatchingEngine implements OrderBook.FillListener {
+
+    // One tick = 0.01; dividing by 100.0 gives the closest double to the decimal price
+    public static final double TICKS_PER_UNIT = 100.0;
+
+    private final MarketService marketService;
+    private final ConcurrentHashMap<String, OrderBook> books = new ConcurrentHashMap<>();
+    private final List<Consumer<Transaction>> fillListeners = new CopyOnWriteArrayList<>();
+
+    // ---------- Constructor ----------
+    public MatchingEngine(MarketService marketService) {
+
+        if (marketService == null) {
+            throw new IllegalArgumentException("MarketService cannot be null");
+        }
+
+        this.marketService = marketService;
+    }
+
+    // ---------- Fill Listeners ----------
+    public void addFillListener(Consumer<Transaction> listener) {
+
+        if (listener == null) {
+            throw new IllegalArgumentException("Fill listener cannot be null");
+        }
+
+        fillListeners.add(listener);
+    }
+
+    // ---------- Order Entry ----------
+    public long submitLimitOrder(Transaction.Type side, String symbol, int quantity, double price) {
+
+        long priceTicks = toTicks(price);
+        OrderBook book = bookFor(symbol);
+
+        synchronized (book) {
+            return book.submitLimit(side, priceTicks, quantity);
+        }
+    }
+
+    public int submitMarketOrder(Transaction.Type side, String symbol, int quantity) {
+
+        OrderBook book = bookFor(symbol);
+
+        synchronized (book) {
+            return book.submitMarket(side, quantity);
+        }
+    }
+
+    public boolean cancelOrder(String symbol, long orderId) {
+
+        OrderBook book = bookFor(symbol);
+
+        synchronized (book) {
+            return book.cancel(orderId);
+        }
+    }
+
+    // ---------- Top of Book ----------
+    public double getBestBid(String symbol) {
+
+        OrderBook book = bookFor(symbol);
+
+        synchronized (book) {
+            return fromTicks(book.getBestBid());
+        }
+    }
+
+    public double getBestAsk(String symbol) {
+
+        OrderBook book = bookFor(symbol);
+
+        synchronized (book) {
+            return fromTicks(book.getBestAsk());
+        }
+    }
+
+    // ---------- Fill Publishing ----------
+    @Override
+    public void onFill(String symbol, long takerOrderId, long makerOrderId,
+            Transaction.Type takerSide, long priceTicks, int quantity) {
+
+        // Only build a Transaction when someone is listening
+        if (fillListeners.isEmpty()) {
+            return;
+        }
+
+        Transaction fill = new Transaction(takerSide, symbol, quantity, priceTicks / TICKS_PER_UNIT);
+
+        for (Consumer<Transaction> listener : fillListeners) {
+            listener.accept(fill);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private OrderBook bookFor(String symbol) {
+
+        if (symbol == null || symbol.trim().isEmpty()) {
+            throw new IllegalArgumentException("Stock symbol cannot be null or empty");
+        }
+
+        OrderBook book = books.get(symbol);
+
+        if (book != null) {
+            return book;
+        }
+
+        String normalized = SymbolIndex.normalize(symbol);
+
+        if (!marketService.isStockAvailable(normalized)) {
+            throw new IllegalArgumentException("Stock not found in market: " + normalized);
+        }
+
+        return books.computeIfAbsent(normalized, key -> new OrderBook(key, this));
+    }
+
+    private static long toTicks(double price) {
+
+        long ticks = Math.round(price * TICKS_PER_UNIT);
+
+        if (ticks <= 0) {
+            throw new IllegalArgumentException("Limit price must be at least one tick");
+        }
+
+        return ticks;
+    }
+
+    private static double fromTicks(long ticks) {
+        return ticks == OrderBook.NO_PRICE ? Double.NaN : ticks / TICKS_PER_UNIT;
+    }
+}
@@ -0,0 +1,92 @@
+package service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Process-wide registry of named counters and latency histograms, like
+ * SymbolTable: services look theirs up once into static finals and then
+ * only touch the counter or histogram on the hot path, so recording never
+ * goes through the map and never allocates.
+ *
+ * Names are dotted, "<service>.<operation>". Registering an existing name
+ * returns the same instance, so every FileService (or TradingService) in
+ * the process feeds the same metrics.
+ */
+public final class Metrics {
+
+    private static final ConcurrentHashMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    // ---------- Registration ----------
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(checkName(name), key -> new LongAdder());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(checkName(name), LatencyHistogram::new);
+    }
+
+    // ---------- Reading (sorted by name) ----------
+    public static Map<String, Long> getCounters() {
+
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.sum()));
+
+        return values;
+    }
+
+    public static Map<String, LatencyHistogram.Snapshot> getHistograms() {
+
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        HISTOGRAMS.forEach((name, histogram) -> snapshots.put(name, histogram.getSnapshot()));
+
+        return snapshots;
+    }
+
+    // ---------- Report ----------
+
+    // Histograms that recorded nothing are left out
+    public static String report() {
+
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("%-28s | %10s | %10s | %10s | %10s | %10s%n",
+                "Latency", "Count", "Avg (us)", "p50 (us)", "p99 (us)", "Max (us)"));
+        sb.append("-".repeat(93)).append(System.lineSeparator());
+
+        for (LatencyHistogram.Snapshot snapshot : getHistograms().values()) {
+            if (snapshot.getCount() > 0) {
+                sb.append(snapshot).append(System.lineSeparator());
+            }
+        }
+
+        sb.append(String.format("%n%-28s | %10s%n", "Counter", "Value"));
+        sb.append("-".repeat(41)).append(System.lineSeparator());
+
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            sb.append(String.format("%-28s | %10d%n", counter.getKey(), counter.getValue()));
+        }
+
+        return sb.toString();
+    }
+
+    public static void displayReport() {
+        System.out.print(report());
+    }
+
+    // ---------- Helper Methods ----------
+    private static String checkName(String name) {
+
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Metric name cannot be null or empty");
+        }
+
+        return name.trim();
+    }
+}
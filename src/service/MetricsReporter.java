@@ -0,0 +1,96 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Appends Metrics.report() to a stats log at a fixed interval from a
+ * single daemon thread, and once more on close(). Figures are cumulative
+ * since the process started. Only this thread formats anything, so the
+ * cost of reporting stays off the trading threads.
+ */
+public class MetricsReporter implements Closeable {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Path logFile;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    // ---------- Constructor ----------
+    public MetricsReporter(Path logFile, long intervalSeconds) {
+
+        if (logFile == null) {
+            throw new IllegalArgumentException("Metrics log file cannot be null");
+        }
+
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Metrics interval must be greater than zero");
+        }
+
+        this.logFile = logFile;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.scheduleAtFixedRate(this::reportSafely, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    // ---------- Reporting ----------
+    public synchronized void report() {
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(logFile.toFile(), true))) {
+
+            bw.write("===== Metrics " + LocalDateTime.now().format(FORMATTER) + " =====");
+            bw.newLine();
+            bw.write(Metrics.report());
+            bw.newLine();
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write metrics log", e);
+        }
+    }
+
+    // A failed write must not cancel the schedule
+    private void reportSafely() {
+        try {
+            report();
+        } catch (RuntimeException e) {
+            System.err.println("Metrics report failed: " + e.getMessage());
+        }
+    }
+
+    // ---------- Shutdown ----------
+    @Override
+    public void close() {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        scheduler.shutdown();
+
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        reportSafely();
+    }
+}
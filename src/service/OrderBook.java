@@ -0,0 +1,534 @@
+package service;
+
+import model.Transaction;
+
+import java.util.Arrays;
+
+/*
+ * Price-time priority limit order book for one symbol.
+ *
+ * Prices are integer ticks (1 tick = 0.01). Each side keeps its price
+ * levels in a sorted long[] with the best price at the end, so touching
+ * the top of book never shifts the array. Orders and levels come from
+ * free lists and are returned there when filled or cancelled, so the
+ * match path does not allocate once the pools are warm.
+ *
+ * Not thread-safe: MatchingEngine serializes access per book.
+ */
+public class OrderBook {
+
+    public static final long NO_PRICE = Long.MIN_VALUE;
+
+    // Pools start small and keep whatever they grow to, so a busy book
+    // stops allocating once warm while idle books stay cheap
+    private static final int INITIAL_LEVELS = 16;
+    private static final int INITIAL_POOL = 64;
+
+    private final String symbol;
+    private final FillListener listener;
+
+    private final BookSide bids = new BookSide(true);
+    private final BookSide asks = new BookSide(false);
+
+    private final OrderIdMap liveOrders = new OrderIdMap(INITIAL_POOL * 2);
+
+    private Order freeOrders;
+    private PriceLevel freeLevels;
+    private long nextOrderId = 1;
+
+    // ---------- Fill Callback ----------
+    public interface FillListener {
+        void onFill(String symbol, long takerOrderId, long makerOrderId,
+                Transaction.Type takerSide, long priceTicks, int quantity);
+    }
+
+    // ---------- Constructor ----------
+    public OrderBook(String symbol, FillListener listener) {
+
+        if (symbol == null || symbol.trim().isEmpty()) {
+            throw new IllegalArgumentException("Stock symbol cannot be null or empty");
+        }
+
+        if (listener == null) {
+            throw new IllegalArgumentException("Fill listener cannot be null");
+        }
+
+        this.symbol = symbol.trim().toUpperCase();
+        this.listener = listener;
+
+        for (int i = 0; i < INITIAL_POOL; i++) {
+            releaseOrder(new Order());
+        }
+        for (int i = 0; i < INITIAL_LEVELS; i++) {
+            releaseLevel(new PriceLevel());
+        }
+    }
+
+    // ---------- Order Entry ----------
+
+    /*
+     * Matches against the opposite side and rests any remainder. Returns the
+     * order id, which stays valid for cancel() while the order rests.
+     */
+    public long submitLimit(Transaction.Type side, long priceTicks, int quantity) {
+
+        validateSide(side);
+        validateQuantity(quantity);
+
+        if (priceTicks <= 0) {
+            throw new IllegalArgumentException("Limit price must be greater than zero");
+        }
+
+        long orderId = nextOrderId++;
+        int remaining = match(orderId, side, priceTicks, quantity);
+
+        if (remaining > 0) {
+            Order order = acquireOrder();
+            order.orderId = orderId;
+            order.side = side;
+            order.remaining = remaining;
+
+            BookSide book = side == Transaction.Type.BUY ? bids : asks;
+            PriceLevel level = book.levelFor(priceTicks, this);
+            level.append(order);
+            liveOrders.put(orderId, order);
+        }
+
+        return orderId;
+    }
+
+    /*
+     * Fills what the opposite side can take and drops the rest
+     * (immediate-or-cancel). Returns the filled quantity.
+     */
+    public int submitMarket(Transaction.Type side, int quantity) {
+
+        validateSide(side);
+        validateQuantity(quantity);
+
+        long worstPrice = side == Transaction.Type.BUY ? Long.MAX_VALUE : 0;
+        int remaining = match(nextOrderId++, side, worstPrice, quantity);
+
+        return quantity - remaining;
+    }
+
+    public boolean cancel(long orderId) {
+
+        Order order = liveOrders.remove(orderId);
+
+        if (order == null) {
+            return false;
+        }
+
+        PriceLevel level = order.level;
+        level.unlink(order);
+
+        if (level.isEmpty()) {
+            (order.side == Transaction.Type.BUY ? bids : asks).removeLevel(level, this);
+        }
+
+        releaseOrder(order);
+        return true;
+    }
+
+    // ---------- Top of Book ----------
+    public long getBestBid() {
+        return bids.bestPrice();
+    }
+
+    public long getBestAsk() {
+        return asks.bestPrice();
+    }
+
+    public long getQuantityAt(Transaction.Type side, long priceTicks) {
+        validateSide(side);
+        return (side == Transaction.Type.BUY ? bids : asks).quantityAt(priceTicks);
+    }
+
+    public int getLevelCount(Transaction.Type side) {
+        validateSide(side);
+        return (side == Transaction.Type.BUY ? bids : asks).count;
+    }
+
+    public int getRestingOrderCount() {
+        return liveOrders.size();
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    // ---------- Matching ----------
+    private int match(long takerId, Transaction.Type side, long limitTicks, int quantity) {
+
+        BookSide opposite = side == Transaction.Type.BUY ? asks : bids;
+        int remaining = quantity;
+
+        while (remaining > 0 && opposite.count > 0) {
+
+            PriceLevel level = opposite.levels[opposite.count - 1];
+
+            boolean crosses = side == Transaction.Type.BUY
+                    ? level.price <= limitTicks
+                    : level.price >= limitTicks;
+
+            if (!crosses) {
+                break;
+            }
+
+            while (remaining > 0 && level.head != null) {
+
+                Order maker = level.head;
+                int fill = Math.min(remaining, maker.remaining);
+
+                maker.remaining -= fill;
+                level.totalQuantity -= fill;
+                remaining -= fill;
+
+                listener.onFill(symbol, takerId, maker.orderId, side, level.price, fill);
+
+                if (maker.remaining == 0) {
+                    level.unlink(maker);
+                    liveOrders.remove(maker.orderId);
+                    releaseOrder(maker);
+                }
+            }
+
+            if (level.isEmpty()) {
+                opposite.removeLevel(level, this);
+            }
+        }
+
+        return remaining;
+    }
+
+    // ---------- Pools ----------
+    private Order acquireOrder() {
+
+        Order order = freeOrders;
+
+        if (order == null) {
+            return new Order();
+        }
+
+        freeOrders = order.next;
+        order.next = null;
+        return order;
+    }
+
+    private void releaseOrder(Order order) {
+        order.reset();
+        order.next = freeOrders;
+        freeOrders = order;
+    }
+
+    private PriceLevel acquireLevel(long price) {
+
+        PriceLevel level = freeLevels;
+
+        if (level == null) {
+            level = new PriceLevel();
+        } else {
+            freeLevels = level.nextFree;
+            level.nextFree = null;
+        }
+
+        level.price = price;
+        return level;
+    }
+
+    private void releaseLevel(PriceLevel level) {
+        level.reset();
+        level.nextFree = freeLevels;
+        freeLevels = level;
+    }
+
+    // ---------- Validation ----------
+    private static void validateSide(Transaction.Type side) {
+        if (side == null) {
+            throw new IllegalArgumentException("Order side cannot be null");
+        }
+    }
+
+    private static void validateQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+    }
+
+    // ---------- Book Side ----------
+
+    /*
+     * Levels sorted so the best price is at index count - 1:
+     * bids ascending (highest last), asks descending (lowest last).
+     */
+    private static final class BookSide {
+
+        private final boolean bidSide;
+        private long[] prices = new long[INITIAL_LEVELS];
+        private PriceLevel[] levels = new PriceLevel[INITIAL_LEVELS];
+        private int count;
+
+        BookSide(boolean bidSide) {
+            this.bidSide = bidSide;
+        }
+
+        long bestPrice() {
+            return count == 0 ? NO_PRICE : prices[count - 1];
+        }
+
+        long quantityAt(long price) {
+            int index = find(price);
+            return index >= 0 ? levels[index].totalQuantity : 0;
+        }
+
+        PriceLevel levelFor(long price, OrderBook book) {
+
+            int index = find(price);
+
+            if (index >= 0) {
+                return levels[index];
+            }
+
+            int insertAt = -index - 1;
+
+            if (count == prices.length) {
+                prices = Arrays.copyOf(prices, count * 2);
+                levels = Arrays.copyOf(levels, count * 2);
+            }
+
+            System.arraycopy(prices, insertAt, prices, insertAt + 1, count - insertAt);
+            System.arraycopy(levels, insertAt, levels, insertAt + 1, count - insertAt);
+
+            PriceLevel level = book.acquireLevel(price);
+            prices[insertAt] = price;
+            levels[insertAt] = level;
+            count++;
+
+            return level;
+        }
+
+        void removeLevel(PriceLevel level, OrderBook book) {
+
+            int index = count - 1;
+
+            // Almost always the best level, so check the end first
+            if (levels[index] != level) {
+                index = find(level.price);
+            }
+
+            System.arraycopy(prices, index + 1, prices, index, count - index - 1);
+            System.arraycopy(levels, index + 1, levels, index, count - index - 1);
+            count--;
+            levels[count] = null;
+
+            book.releaseLevel(level);
+        }
+
+        // Binary search; returns the index, or -(insertion point) - 1
+        private int find(long price) {
+
+            int low = 0;
+            int high = count - 1;
+
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midPrice = prices[mid];
+
+                boolean before = bidSide ? midPrice < price : midPrice > price;
+
+                if (midPrice == price) {
+                    return mid;
+                } else if (before) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            return -(low + 1);
+        }
+    }
+
+    // ---------- Price Level (FIFO of resting orders) ----------
+    private static final class PriceLevel {
+
+        private long price;
+        private long totalQuantity;
+        private Order head;
+        private Order tail;
+        private PriceLevel nextFree;
+
+        void append(Order order) {
+
+            order.level = this;
+            order.prev = tail;
+            order.next = null;
+
+            if (tail == null) {
+                head = order;
+            } else {
+                tail.next = order;
+            }
+
+            tail = order;
+            totalQuantity += order.remaining;
+        }
+
+        void unlink(Order order) {
+
+            if (order.prev == null) {
+                head = order.next;
+            } else {
+                order.prev.next = order.next;
+            }
+
+            if (order.next == null) {
+                tail = order.prev;
+            } else {
+                order.next.prev = order.prev;
+            }
+
+            totalQuantity -= order.remaining;
+            order.prev = null;
+            order.next = null;
+            order.level = null;
+        }
+
+        boolean isEmpty() {
+            return head == null;
+        }
+
+        void reset() {
+            price = 0;
+            totalQuantity = 0;
+            head = null;
+            tail = null;
+        }
+    }
+
+    // ---------- Pooled Order ----------
+    private static final class Order {
+
+        private long orderId;
+        private Transaction.Type side;
+        private int remaining;
+        private PriceLevel level;
+        private Order prev;
+        private Order next;
+
+        void reset() {
+            orderId = 0;
+            side = null;
+            remaining = 0;
+            level = null;
+            prev = null;
+            next = null;
+        }
+    }
+
+    // ---------- Order Id -> Order (open addressing) ----------
+    private static final class OrderIdMap {
+
+        private long[] keys;
+        private Order[] values;
+        private int size;
+        private int mask;
+
+        OrderIdMap(int capacity) {
+            int tableSize = Integer.highestOneBit(Math.max(16, capacity) * 2 - 1);
+            keys = new long[tableSize];
+            values = new Order[tableSize];
+            mask = tableSize - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void put(long key, Order value) {
+
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+
+            int slot = slot(key);
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+
+            if (values[slot] == null) {
+                size++;
+            }
+
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        Order remove(long key) {
+
+            int slot = slot(key);
+
+            while (values[slot] != null) {
+
+                if (keys[slot] == key) {
+                    Order removed = values[slot];
+                    shiftBack(slot);
+                    size--;
+                    return removed;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            return null;
+        }
+
+        // Backward-shift deletion keeps probe chains intact without tombstones
+        private void shiftBack(int hole) {
+
+            int slot = (hole + 1) & mask;
+
+            while (values[slot] != null) {
+
+                int home = slot(keys[slot]);
+                boolean movable = hole <= slot
+                        ? home <= hole || home > slot
+                        : home <= hole && home > slot;
+
+                if (movable) {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    hole = slot;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            keys[hole] = 0;
+            values[hole] = null;
+        }
+
+        private void rehash(int newSize) {
+
+            long[] oldKeys = keys;
+            Order[] oldValues = values;
+
+            keys = new long[newSize];
+            values = new Order[newSize];
+            mask = newSize - 1;
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,654 @@
+package service;
+
+import model.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Headless order entry over a localhost TCP socket, for load generators
+ * and strategies.
+ *
+ * Protocol, one ASCII line per message:
+ *   request:   <orderId>,<BUY|SELL>,<SYMBOL>,<QTY>[,<USERID>]
+ *   responses: ACK,<orderId>,<price>     executed at price
+ *              REJ,<orderId>,<reason>    not executed
+ * The orderId is chosen by the client (no commas, at most 200 characters)
+ * and echoed back. Acks are sent as orders complete, so they can arrive
+ * out of request order.
+ * Without a userId the order trades the shared portfolio; with one it
+ * trades that user's account through the AccountEngine, and is acked only
+ * once it is durable.
+ *
+ * One selector thread does the socket I/O for every connection. Orders
+ * run on a worker pool, because a trade may wait for a journal fsync; the
+ * worker queues its ack on the connection and wakes the selector, which
+ * writes all queued acks in one go. A connection with MAX_IN_FLIGHT orders
+ * not yet acknowledged is not read until acks drain, so a fast client
+ * cannot queue unbounded work.
+ *
+ * A client may half-close after its last order: end of input stops reading,
+ * but the connection stays open until every order already read has been
+ * acknowledged and the acks are written.
+ */
+public class OrderServer implements Closeable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_IN_FLIGHT = 256;
+    private static final int MAX_REASON_LENGTH = 200;
+    private static final int MAX_ORDER_ID_LENGTH = 200;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private final TradingService tradingService;
+    private final ExecutorService workers;
+    private final Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread ioThread;
+    private volatile boolean closed;
+
+    // Connections with acks to write, handed from workers to the selector thread
+    private final ConcurrentLinkedQueue<Connection> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    // ---------- Statistics ----------
+    private final LongAdder connectionsAccepted = new LongAdder();
+    private final AtomicInteger connectionsOpen = new AtomicInteger();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder latencyNanosTotal = new LongAdder();
+    private final AtomicLong latencyNanosMax = new AtomicLong();
+    private final long openedAtNanos = System.nanoTime();
+
+    // ---------- Constructor ----------
+    public OrderServer(TradingService tradingService, int workerThreads) {
+
+        if (tradingService == null) {
+            throw new IllegalArgumentException("TradingService cannot be null");
+        }
+
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Worker threads must be greater than zero");
+        }
+
+        this.tradingService = tradingService;
+
+        AtomicInteger workerId = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, task -> {
+            Thread thread = new Thread(task, "order-worker-" + workerId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open order server selector", e);
+        }
+    }
+
+    // ---------- Lifecycle ----------
+
+    // Listens on localhost; port 0 picks a free port. Returns the bound port.
+    public synchronized int start(int port) {
+
+        if (closed) {
+            throw new IllegalStateException("Order server is closed");
+        }
+
+        if (serverChannel != null) {
+            throw new IllegalStateException("Order server is already listening on port " + getPort());
+        }
+
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open order server port " + port, e);
+        }
+
+        ioThread = new Thread(this::ioLoop, "order-server-" + getPort());
+        ioThread.start();
+
+        return getPort();
+    }
+
+    public int getPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    // Blocks until the server has been closed and has drained
+    public void awaitTermination() throws InterruptedException {
+        Thread thread = ioThread;
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /*
+     * Stops accepting and reading, lets orders already running finish and
+     * sends their acks, then closes every connection.
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+        selector.wakeup();
+
+        try {
+            awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (ioThread == null) {
+            workers.shutdownNow();
+            closeQuietly(selector);
+        }
+    }
+
+    // ---------- Metrics ----------
+    public Stats getStats() {
+        return new Stats(connectionsAccepted.sum(), connectionsOpen.get(), executed.sum(), rejected.sum(),
+                malformed.sum(), latencyNanosTotal.sum(), latencyNanosMax.get(), System.nanoTime() - openedAtNanos);
+    }
+
+    // ---------- Selector Thread ----------
+    private void ioLoop() {
+
+        try {
+            while (!closed) {
+
+                selector.select();
+                wakeupPending.set(false);
+
+                Connection connection;
+                while ((connection = ready.poll()) != null) {
+                    connection.queued.set(false);
+                    flush(connection);
+                    resumeIfDrained(connection);
+                    closeIfFinished(connection);
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection selected = (Connection) key.attachment();
+                        if (key.isWritable()) {
+                            flush(selected);
+                            closeIfFinished(selected);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(selected);
+                        }
+                    }
+                }
+            }
+
+            drain();
+
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Order server stopped: " + e.getMessage());
+        } finally {
+            workers.shutdownNow();
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+
+            connectionsAccepted.increment();
+            connectionsOpen.incrementAndGet();
+        }
+    }
+
+    private void read(Connection connection) {
+
+        int read;
+        try {
+            read = connection.channel.read(connection.in);
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+
+        if (read < 0) {
+            // Half-close: stop reading, but keep the connection for acks still to come
+            connection.inputClosed = true;
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+        }
+
+        decodeLines(connection);
+        flush(connection);
+        closeIfFinished(connection);
+    }
+
+    // Submits every complete line in the read buffer, stopping at MAX_IN_FLIGHT
+    private void decodeLines(Connection connection) {
+
+        ByteBuffer in = connection.in;
+        byte[] bytes = in.array();
+        long receivedNanos = System.nanoTime();
+
+        in.flip();
+        int lineStart = in.position();
+
+        for (int i = lineStart; i < in.limit(); i++) {
+
+            if (bytes[i] != '\n') {
+                continue;
+            }
+
+            submit(connection, bytes, lineStart, i, receivedNanos);
+            lineStart = i + 1;
+
+            if (connection.inFlight.get() >= MAX_IN_FLIGHT) {
+                connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+                connection.readPaused = true;
+                break;
+            }
+        }
+
+        in.position(lineStart);
+        in.compact();
+
+        if (!connection.readPaused && !connection.inputClosed && !in.hasRemaining()) {
+            // A full buffer without a line break can never become a valid order
+            connection.in.clear();
+            reply(connection, "REJ,,Line too long");
+            malformed.increment();
+        }
+    }
+
+    private void submit(Connection connection, byte[] line, int start, int end, long receivedNanos) {
+
+        if (end > start && line[end - 1] == '\r') {
+            end--;
+        }
+
+        String[] fields = new String(line, start, end - start, StandardCharsets.US_ASCII).split(",", -1);
+
+        String orderId = fields[0].trim();
+
+        // Every response echoes the id, so it is capped like a reject reason
+        if (orderId.length() > MAX_ORDER_ID_LENGTH) {
+            malformed.increment();
+            reply(connection, "REJ,,Order id longer than " + MAX_ORDER_ID_LENGTH + " characters");
+            return;
+        }
+
+        if (fields.length != 4 && fields.length != 5) {
+            malformed.increment();
+            reply(connection, "REJ," + (fields.length > 1 ? orderId : "")
+                    + ",Expected orderId,side,symbol,quantity[,userId]");
+            return;
+        }
+
+        Transaction.Type type;
+        int quantity;
+
+        try {
+            type = Transaction.Type.valueOf(fields[1].trim().toUpperCase());
+            quantity = Integer.parseInt(fields[3].trim());
+        } catch (IllegalArgumentException e) {
+            malformed.increment();
+            reply(connection, "REJ," + orderId + ",Invalid side or quantity");
+            return;
+        }
+
+        String symbol = fields[2];
+        String userId = fields.length == 5 ? fields[4].trim() : null;
+        connection.inFlight.incrementAndGet();
+        workers.execute(() -> execute(connection, orderId, userId, type, symbol, quantity, receivedNanos));
+    }
+
+    // ---------- Worker Threads ----------
+    private void execute(Connection connection, String orderId, String userId, Transaction.Type type,
+            String symbol, int quantity, long receivedNanos) {
+
+        String response;
+
+        try {
+            Transaction transaction = userId == null
+                    ? tradingService.placeOrder(type, symbol, quantity)
+                    : placeAccountOrder(userId, type, symbol, quantity);
+            response = "ACK," + orderId + "," + transaction.getPrice();
+            executed.increment();
+        } catch (RuntimeException e) {
+            response = "REJ," + orderId + "," + reason(e);
+            rejected.increment();
+        }
+
+        recordLatency(System.nanoTime() - receivedNanos);
+
+        // Ack queued before in-flight drops, so a half-closed connection is never closed ahead of it
+        connection.out.add((response + "\n").getBytes(StandardCharsets.US_ASCII));
+        connection.inFlight.decrementAndGet();
+        wake(connection);
+    }
+
+    private Transaction placeAccountOrder(String userId, Transaction.Type type, String symbol, int quantity) {
+
+        AccountEngine accounts = tradingService.getAccountEngine();
+
+        if (accounts == null) {
+            throw new IllegalStateException("User accounts are not enabled");
+        }
+
+        return type == Transaction.Type.BUY ? accounts.buy(userId, symbol, quantity)
+                : accounts.sell(userId, symbol, quantity);
+    }
+
+    // Queues a response line; from a worker it also wakes the selector thread
+    private void reply(Connection connection, String response) {
+
+        connection.out.add((response + "\n").getBytes(StandardCharsets.US_ASCII));
+
+        if (Thread.currentThread() == ioThread) {
+            return; // flushed by the caller
+        }
+
+        wake(connection);
+    }
+
+    private void wake(Connection connection) {
+        if (connection.queued.compareAndSet(false, true)) {
+            ready.add(connection);
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    // ---------- Selector Thread Helpers ----------
+
+    /*
+     * Writes queued acks, coalescing them into as few writes as the socket
+     * allows. A response larger than the whole buffer is written from its
+     * own array once the buffer has drained, so it cannot wedge the queue.
+     */
+    private void flush(Connection connection) {
+
+        if (!connection.channel.isOpen()) {
+            connection.out.clear();
+            connection.largeOut = null;
+            return;
+        }
+
+        ByteBuffer buffer = connection.pendingOut;
+
+        try {
+            while (true) {
+                boolean partial;
+
+                if (connection.largeOut == null) {
+                    byte[] next;
+                    while ((next = connection.out.peek()) != null && next.length <= buffer.remaining()) {
+                        buffer.put(connection.out.poll());
+                    }
+
+                    if (next != null && next.length > buffer.capacity() && buffer.position() == 0) {
+                        connection.largeOut = ByteBuffer.wrap(connection.out.poll());
+                    }
+                }
+
+                if (connection.largeOut != null) {
+                    connection.channel.write(connection.largeOut);
+                    partial = connection.largeOut.hasRemaining();
+                    if (!partial) {
+                        connection.largeOut = null;
+                    }
+                } else {
+                    buffer.flip();
+                    connection.channel.write(buffer);
+                    partial = buffer.hasRemaining();
+                    buffer.compact();
+                }
+
+                if (partial) {
+                    connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+
+                if (connection.out.isEmpty()) {
+                    break;
+                }
+            }
+
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_WRITE);
+
+        } catch (IOException e) {
+            disconnect(connection);
+        }
+    }
+
+    private void resumeIfDrained(Connection connection) {
+
+        if (!connection.readPaused || !connection.key.isValid()
+                || connection.inFlight.get() > MAX_IN_FLIGHT / 2) {
+            return;
+        }
+
+        connection.readPaused = false;
+        if (!connection.inputClosed) {
+            connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+        }
+
+        // Lines read before the pause are still buffered
+        decodeLines(connection);
+        flush(connection);
+    }
+
+    // After a half-close: closes once every order read is acknowledged and written
+    private void closeIfFinished(Connection connection) {
+
+        if (connection.inputClosed && !connection.readPaused && connection.inFlight.get() == 0
+                && connection.key.isValid() && !connection.hasPendingOutput()) {
+            disconnect(connection);
+        }
+    }
+
+    // Lets running orders finish and writes their acks before connections close
+    private void drain() throws IOException {
+
+        serverChannel.close();
+        workers.shutdown();
+
+        try {
+            if (!workers.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Order server: orders still running after " + DRAIN_TIMEOUT_SECONDS + " s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_TIMEOUT_SECONDS);
+        boolean pending = true;
+
+        while (pending && System.nanoTime() < deadline) {
+
+            pending = false;
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid() && key.attachment() instanceof Connection) {
+                    Connection connection = (Connection) key.attachment();
+                    flush(connection);
+                    pending |= connection.hasPendingOutput();
+                }
+            }
+
+            // Wait for clients to read before retrying partial writes
+            if (pending) {
+                selector.select(10);
+                selector.selectedKeys().clear();
+            }
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        if (connection.channel.isOpen()) {
+            connectionsOpen.decrementAndGet();
+        }
+        connection.key.cancel();
+        closeQuietly(connection.channel);
+        connection.out.clear();
+    }
+
+    private void recordLatency(long nanos) {
+
+        latencyNanosTotal.add(nanos);
+
+        long max = latencyNanosMax.get();
+        while (nanos > max && !latencyNanosMax.compareAndSet(max, nanos)) {
+            max = latencyNanosMax.get();
+        }
+    }
+
+    private static String reason(RuntimeException e) {
+        String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        message = message.replace('\n', ' ').replace('\r', ' ');
+        return message.length() > MAX_REASON_LENGTH ? message.substring(0, MAX_REASON_LENGTH) : message;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // already closing
+        }
+    }
+
+    // ---------- Connection State ----------
+    private static final class Connection {
+
+        final SocketChannel channel;
+        SelectionKey key;
+
+        // Selector thread only
+        final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        final ByteBuffer pendingOut = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer largeOut;  // a response that does not fit in pendingOut, partly written
+        boolean readPaused;
+        boolean inputClosed;
+
+        // Shared with workers
+        final ConcurrentLinkedQueue<byte[]> out = new ConcurrentLinkedQueue<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicBoolean queued = new AtomicBoolean();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        boolean hasPendingOutput() {
+            return channel.isOpen() && (pendingOut.position() > 0 || largeOut != null || !out.isEmpty());
+        }
+    }
+
+    // ---------- Server Statistics ----------
+    public static final class Stats {
+
+        private final long connectionsAccepted;
+        private final int connectionsOpen;
+        private final long executed;
+        private final long rejected;
+        private final long malformed;
+        private final long latencyNanosTotal;
+        private final long latencyNanosMax;
+        private final long elapsedNanos;
+
+        private Stats(long connectionsAccepted, int connectionsOpen, long executed, long rejected,
+                long malformed, long latencyNanosTotal, long latencyNanosMax, long elapsedNanos) {
+            this.connectionsAccepted = connectionsAccepted;
+            this.connectionsOpen = connectionsOpen;
+            this.executed = executed;
+            this.rejected = rejected;
+            this.malformed = malformed;
+            this.latencyNanosTotal = latencyNanosTotal;
+            this.latencyNanosMax = latencyNanosMax;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getConnectionsAccepted() {
+            return connectionsAccepted;
+        }
+
+        public int getConnectionsOpen() {
+            return connectionsOpen;
+        }
+
+        public long getExecuted() {
+            return executed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        public double getOrdersPerSecond() {
+            return elapsedNanos == 0 ? 0 : (executed + rejected) * 1e9 / elapsedNanos;
+        }
+
+        // From the read that delivered the order to its ack being queued
+        public double getAverageLatencyMicros() {
+            long orders = executed + rejected;
+            return orders == 0 ? 0 : latencyNanosTotal / 1e3 / orders;
+        }
+
+        public double getMaxLatencyMicros() {
+            return latencyNanosMax / 1e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Connections: %d (%d open) | Executed: %d | Rejected: %d | Malformed: %d | "
+                    + "Throughput: %.1f orders/s | Latency avg: %.1f us | Latency max: %.1f us",
+                    connectionsAccepted, connectionsOpen, executed, rejected, malformed,
+                    getOrdersPerSecond(), getAverageLatencyMicros(), getMaxLatencyMicros());
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package service;
+
+import model.Transaction;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Asynchronous persistence stage in front of a TransactionJournal.
+ *
+ * Trading threads put transactions on a bounded ring buffer and get back
+ * a future that completes once the record is written (and fsynced, unless
+ * the journal's durability is NONE). A single writer thread takes
+ * everything queued so far as one batch: one journal write, at most one
+ * fsync, then the batch's futures complete. Callers that need durability
+ * wait on the future; the rest return as soon as the trade is queued.
+ *
+ * When the disk falls behind and the ring fills up, submit() blocks until
+ * the writer frees space, so memory stays bounded and producers slow down
+ * to disk speed. close() drains everything still queued before it stops.
+ *
+ * Futures complete on the writer thread, so dependent stages should be
+ * cheap or use the async variants.
+ */
+public class PersistencePipeline implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final TransactionJournal journal;
+    private final Thread writer;
+
+    // ---------- Ring Buffer (guarded by lock) ----------
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition written = lock.newCondition();
+
+    private final Transaction[] transactions;
+    private final CompletableFuture<?>[] futures;
+    private final int mask;
+    private long head;        // next sequence the writer takes
+    private long tail;        // next sequence a producer fills
+    private long writtenSeq;  // every sequence below this is written
+    private boolean closing;
+    private volatile RuntimeException failure;
+
+    // ---------- Statistics ----------
+    private final LongAdder backpressureWaits = new LongAdder();
+    private long batches;     // guarded by lock
+    private long maxBatch;    // guarded by lock
+
+    // ---------- Metrics ----------
+    private static final LatencyHistogram BATCH_WRITE = Metrics.histogram("pipeline.batchWrite");
+    private static final LatencyHistogram BACKPRESSURE = Metrics.histogram("pipeline.backpressure");
+
+    // ---------- Constructor ----------
+    public PersistencePipeline(TransactionJournal journal, int capacity) {
+
+        if (journal == null) {
+            throw new IllegalArgumentException("Journal cannot be null");
+        }
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pipeline capacity must be greater than zero");
+        }
+
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+
+        this.journal = journal;
+        this.transactions = new Transaction[size];
+        this.futures = new CompletableFuture<?>[size];
+        this.mask = size - 1;
+
+        this.writer = new Thread(this::writeLoop, "persistence-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    public int getCapacity() {
+        return transactions.length;
+    }
+
+    // ---------- Submit ----------
+
+    /*
+     * Queues a transaction and returns a future that completes with it
+     * once it is durable, or exceptionally if the write fails. Blocks
+     * while the ring is full.
+     */
+    public CompletableFuture<Transaction> submit(Transaction transaction) {
+
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+
+        CompletableFuture<Transaction> future = new CompletableFuture<>();
+
+        lock.lock();
+        try {
+            ensureOpen();
+
+            if (tail - head == transactions.length) {
+                backpressureWaits.increment();
+                long start = System.nanoTime();
+                while (tail - head == transactions.length) {
+                    notFull.awaitUninterruptibly();
+                    ensureOpen();
+                }
+                BACKPRESSURE.recordSince(start);
+            }
+
+            int slot = (int) (tail & mask);
+            transactions[slot] = transaction;
+            futures[slot] = future;
+
+            if (tail++ == head) {
+                notEmpty.signal();
+            }
+
+        } finally {
+            lock.unlock();
+        }
+
+        return future;
+    }
+
+    // ---------- Flush ----------
+
+    // Waits until everything submitted before this call is durable
+    public void sync() {
+
+        lock.lock();
+        try {
+            long target = tail;
+
+            while (writtenSeq < target && failure == null) {
+                written.awaitUninterruptibly();
+            }
+
+            if (failure != null) {
+                throw new IllegalStateException("Persistence pipeline write failed", failure);
+            }
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Byte offset of the journal end; only every submitted record is behind it after sync()
+    public long getEndOffset() {
+        return journal.getEndOffset();
+    }
+
+    // ---------- Writer Thread ----------
+    private void writeLoop() {
+
+        List<Transaction> batch = new ArrayList<>(transactions.length);
+        CompletableFuture<?>[] batchFutures = new CompletableFuture<?>[transactions.length];
+
+        while (true) {
+
+            long batchEnd;
+
+            lock.lock();
+            try {
+                while (head == tail && !closing) {
+                    notEmpty.awaitUninterruptibly();
+                }
+
+                if (head == tail) {
+                    return;
+                }
+
+                // Take everything queued so far
+                for (long seq = head; seq < tail; seq++) {
+                    int slot = (int) (seq & mask);
+                    batchFutures[batch.size()] = futures[slot];
+                    batch.add(transactions[slot]);
+                    transactions[slot] = null;
+                    futures[slot] = null;
+                }
+
+                batchEnd = tail;
+                head = tail;
+                notFull.signalAll();
+
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException error = write(batch);
+
+            lock.lock();
+            try {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                batches++;
+                maxBatch = Math.max(maxBatch, batch.size());
+                writtenSeq = batchEnd;
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            complete(batch, batchFutures, error);
+            batch.clear();
+        }
+    }
+
+    // One journal write and at most one fsync for the batch; returns the failure, if any
+    private RuntimeException write(List<Transaction> batch) {
+
+        if (failure != null) {
+            return new IllegalStateException("Persistence pipeline failed earlier", failure);
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            long seq = journal.appendAll(batch);
+            if (journal.getDurability() == TransactionJournal.Durability.BATCH) {
+                journal.awaitDurable(seq);
+            }
+        } catch (RuntimeException e) {
+            return e;
+        }
+
+        BATCH_WRITE.recordSince(start);
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void complete(List<Transaction> batch, CompletableFuture<?>[] batchFutures,
+            RuntimeException error) {
+
+        for (int i = 0; i < batch.size(); i++) {
+            CompletableFuture<Transaction> future = (CompletableFuture<Transaction>) batchFutures[i];
+            batchFutures[i] = null;
+
+            if (error == null) {
+                future.complete(batch.get(i));
+            } else {
+                future.completeExceptionally(error);
+            }
+        }
+    }
+
+    // ---------- Statistics ----------
+    public Stats getStats() {
+
+        lock.lock();
+        try {
+            return new Stats(tail, writtenSeq, batches, maxBatch, backpressureWaits.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------- Close ----------
+
+    // Drains the ring, stops the writer and closes the journal
+    @Override
+    public void close() {
+
+        lock.lock();
+        try {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        journal.close();
+    }
+
+    // ---------- Helper Methods ----------
+    private void ensureOpen() {
+        if (closing) {
+            throw new IllegalStateException("Persistence pipeline is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Persistence pipeline failed earlier", failure);
+        }
+    }
+
+    // ---------- Statistics Snapshot ----------
+    public static final class Stats {
+
+        private final long submitted;
+        private final long written;
+        private final long batches;
+        private final long maxBatch;
+        private final long backpressureWaits;
+
+        private Stats(long submitted, long written, long batches, long maxBatch, long backpressureWaits) {
+            this.submitted = submitted;
+            this.written = written;
+            this.batches = batches;
+            this.maxBatch = maxBatch;
+            this.backpressureWaits = backpressureWaits;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getMaxBatch() {
+            return maxBatch;
+        }
+
+        // Submits that had to wait for the writer to free space
+        public long getBackpressureWaits() {
+            return backpressureWaits;
+        }
+
+        public double getAverageBatch() {
+            return batches == 0 ? 0 : written / (double) batches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Submitted: %d | Written: %d | Batches: %d | Avg batch: %.1f | "
+                    + "Max batch: %d | Backpressure waits: %d", submitted, written, batches,
+                    getAverageBatch(), maxBatch, backpressureWaits);
+        }
+    }
+}
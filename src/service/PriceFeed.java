@@ -0,0 +1,419 @@
+package service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Market-data ingestion: reads "SYMBOL,PRICE" tick lines (anything after a
+ * second comma is ignored) and publishes them into MarketService's
+ * PriceTable. Sources are a file replay or a localhost TCP socket that
+ * stands in for an exchange feed.
+ *
+ * Ticks are decoded straight from the byte buffer; symbols are resolved
+ * through a small per-connection cache, so steady-state ingestion does not
+ * allocate per tick.
+ *
+ * Latency is measured from the moment a tick's bytes were read from the
+ * source until its price is visible in the table.
+ */
+public class PriceFeed implements Closeable {
+
+    // Latency counts from the read, so a larger buffer would only batch ticks up
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // Up to 15 digits the mantissa and the power of ten are exact doubles
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_EXACT_DIGITS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final MarketService marketService;
+
+    // ---------- Statistics ----------
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder latencyNanosTotal = new LongAdder();
+    private final AtomicLong latencyNanosMax = new AtomicLong();
+    private final long openedAtNanos = System.nanoTime();
+
+    // ---------- Socket Source ----------
+    private volatile ServerSocket serverSocket;
+    private volatile Socket connection;
+    private volatile boolean closed;
+
+    // ---------- Constructor ----------
+    public PriceFeed(MarketService marketService) {
+
+        if (marketService == null) {
+            throw new IllegalArgumentException("MarketService cannot be null");
+        }
+
+        this.marketService = marketService;
+    }
+
+    // ---------- File Replay ----------
+
+    /*
+     * Replays a tick file on the calling thread and returns the number of
+     * ticks published. ticksPerSecond <= 0 replays as fast as possible.
+     */
+    public long replay(Path file, int ticksPerSecond) {
+
+        if (file == null) {
+            throw new IllegalArgumentException("Tick file cannot be null");
+        }
+
+        try (InputStream in = Files.newInputStream(file)) {
+            return ingest(in, ticksPerSecond);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to replay tick file: " + file, e);
+        }
+    }
+
+    // ---------- Socket Source ----------
+
+    /*
+     * Accepts tick connections on localhost, one at a time, on a background
+     * thread. Port 0 picks a free port; the bound port is returned.
+     */
+    public synchronized int listen(int port) {
+
+        if (closed) {
+            throw new IllegalStateException("Price feed is closed");
+        }
+
+        if (serverSocket != null) {
+            throw new IllegalStateException("Price feed is already listening on port "
+                    + serverSocket.getLocalPort());
+        }
+
+        try {
+            serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open price feed port " + port, e);
+        }
+
+        Thread acceptor = new Thread(this::acceptLoop, "price-feed-" + serverSocket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        return serverSocket.getLocalPort();
+    }
+
+    // ---------- Ingestion ----------
+    public long ingest(InputStream in, int ticksPerSecond) throws IOException {
+
+        if (in == null) {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+
+        Decoder decoder = new Decoder();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int filled = 0;
+        long published = 0;
+
+        long paceStart = System.nanoTime();
+        double nanosPerTick = ticksPerSecond > 0 ? 1e9 / ticksPerSecond : 0;
+
+        int read;
+        while (!closed && (read = in.read(buffer, filled, buffer.length - filled)) > 0) {
+
+            long receivedNanos = System.nanoTime();
+            int end = filled + read;
+            int lineStart = 0;
+
+            for (int i = filled; i < end; i++) {
+
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+
+                if (decoder.publish(buffer, lineStart, i, receivedNanos)) {
+                    published++;
+
+                    if (nanosPerTick > 0) {
+                        pace(paceStart + (long) (published * nanosPerTick));
+                    }
+                }
+
+                lineStart = i + 1;
+            }
+
+            // Keep the partial last line for the next read
+            filled = end - lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, filled);
+
+            if (filled == buffer.length) {
+                rejected.increment();
+                System.err.println("Skipping oversized price tick");
+                filled = 0;
+            }
+        }
+
+        // Final line without a terminator
+        if (filled > 0 && decoder.publish(buffer, 0, filled, System.nanoTime())) {
+            published++;
+        }
+
+        return published;
+    }
+
+    // ---------- Metrics ----------
+    public Stats getStats() {
+        return new Stats(ticks.sum(), rejected.sum(), latencyNanosTotal.sum(),
+                latencyNanosMax.get(), System.nanoTime() - openedAtNanos);
+    }
+
+    // ---------- Close ----------
+    @Override
+    public void close() {
+
+        closed = true;
+
+        try {
+            ServerSocket server = serverSocket;
+            if (server != null) {
+                server.close();
+            }
+
+            Socket current = connection;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close price feed", e);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private void acceptLoop() {
+
+        while (!closed) {
+            try (Socket socket = serverSocket.accept()) {
+                connection = socket;
+                ingest(socket.getInputStream(), 0);
+            } catch (SocketException e) {
+                // closed while waiting or reading
+            } catch (IOException e) {
+                System.err.println("Price feed connection failed: " + e.getMessage());
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private static void pace(long deadlineNanos) {
+        long wait;
+        while ((wait = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private void recordLatency(long nanos) {
+
+        latencyNanosTotal.add(nanos);
+
+        long max = latencyNanosMax.get();
+        while (nanos > max && !latencyNanosMax.compareAndSet(max, nanos)) {
+            max = latencyNanosMax.get();
+        }
+    }
+
+    // ---------- Tick Decoder (one per connection, not thread-safe) ----------
+    private final class Decoder {
+
+        private static final int CACHE_SIZE = 1024;
+
+        private final byte[][] cachedSymbols = new byte[CACHE_SIZE][];
+        private final int[] cachedIds = new int[CACHE_SIZE];
+        private PriceTable cachedTable;
+
+        // Returns false (and counts a rejection) when the line is not a valid tick
+        boolean publish(byte[] line, int start, int end, long receivedNanos) {
+
+            if (end > start && line[end - 1] == '\r') {
+                end--;
+            }
+
+            if (isBlank(line, start, end)) {
+                return false;
+            }
+
+            PriceTable table = marketService.getPriceTable();
+
+            if (table != cachedTable) {
+                Arrays.fill(cachedSymbols, null);
+                cachedTable = table;
+            }
+
+            int comma = indexOf(line, start, end, (byte) ',');
+            int priceEnd = comma < 0 ? -1 : indexOf(line, comma + 1, end, (byte) ',');
+            if (priceEnd < 0) {
+                priceEnd = end;
+            }
+
+            int id = comma <= start ? SymbolIndex.NOT_FOUND : symbolId(table, line, start, comma);
+            double price = comma < 0 ? Double.NaN : parsePrice(line, comma + 1, priceEnd);
+
+            if (id == SymbolIndex.NOT_FOUND || !(price > 0) || Double.isInfinite(price)) {
+                rejected.increment();
+                System.err.println("Skipping invalid price tick: "
+                        + new String(line, start, end - start, StandardCharsets.UTF_8));
+                return false;
+            }
+
+            table.publish(id, price);
+
+            ticks.increment();
+            recordLatency(System.nanoTime() - receivedNanos);
+            return true;
+        }
+
+        private int symbolId(PriceTable table, byte[] line, int start, int end) {
+
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + line[i];
+            }
+
+            int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+            byte[] cached = cachedSymbols[slot];
+
+            if (cached != null && cached.length == end - start) {
+                boolean same = true;
+                for (int i = 0; i < cached.length && same; i++) {
+                    same = cached[i] == line[start + i];
+                }
+                if (same) {
+                    return cachedIds[slot];
+                }
+            }
+
+            int id = table.getSymbolIndex().idOf(new String(line, start, end - start, StandardCharsets.UTF_8));
+
+            if (id != SymbolIndex.NOT_FOUND) {
+                cachedSymbols[slot] = Arrays.copyOfRange(line, start, end);
+                cachedIds[slot] = id;
+            }
+
+            return id;
+        }
+
+        // digits[.digits] exactly, anything else through Double.parseDouble
+        private double parsePrice(byte[] line, int start, int end) {
+
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = -1;
+
+            for (int i = start; i < end; i++) {
+                byte c = line[i];
+                if (c >= '0' && c <= '9') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else {
+                    return parseSlow(line, start, end);
+                }
+            }
+
+            if (digits == 0 || digits > MAX_EXACT_DIGITS || fractionDigits == 0) {
+                return parseSlow(line, start, end);
+            }
+
+            return fractionDigits < 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        }
+
+        private double parseSlow(byte[] line, int start, int end) {
+            try {
+                return Double.parseDouble(new String(line, start, end - start, StandardCharsets.UTF_8).trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    private static int indexOf(byte[] line, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (line[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((line[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---------- Feed Statistics ----------
+    public static final class Stats {
+
+        private final long ticks;
+        private final long rejected;
+        private final long latencyNanosTotal;
+        private final long latencyNanosMax;
+        private final long elapsedNanos;
+
+        private Stats(long ticks, long rejected, long latencyNanosTotal, long latencyNanosMax, long elapsedNanos) {
+            this.ticks = ticks;
+            this.rejected = rejected;
+            this.latencyNanosTotal = latencyNanosTotal;
+            this.latencyNanosMax = latencyNanosMax;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getTicks() {
+            return ticks;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double getTicksPerSecond() {
+            return elapsedNanos == 0 ? 0 : ticks * 1e9 / elapsedNanos;
+        }
+
+        public double getAverageLatencyMicros() {
+            return ticks == 0 ? 0 : latencyNanosTotal / 1e3 / ticks;
+        }
+
+        public double getMaxLatencyMicros() {
+            return latencyNanosMax / 1e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Ticks: %d | Rejected: %d | Throughput: %.1f ticks/s | "
+                    + "Latency avg: %.1f us | Latency max: %.1f us",
+                    ticks, rejected, getTicksPerSecond(), getAverageLatencyMicros(), getMaxLatencyMicros());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package service;
+
+import model.Stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Latest price per symbol, indexed by SymbolIndex id and stored as the raw
+ * bits of a double in an AtomicLongArray. A price is one 64-bit word, so a
+ * reader always sees a whole value (never half of two ticks) without
+ * taking a lock; the volatile write/read pair makes a published tick
+ * visible to every trading thread.
+ *
+ * A table belongs to one SymbolIndex, inside one MarketSnapshot; every
+ * refresh publishes a new one, carrying over the live price of each symbol
+ * that survives. A feed still writing to the old table only loses the
+ * ticks it publishes after the copy, until it picks up the new one.
+ */
+public final class PriceTable {
+
+    private final SymbolIndex symbolIndex;
+    private final AtomicLongArray priceBits;
+    private final AtomicLongArray publishNanos;
+
+    // ---------- Constructor (prices start at the stocks.txt values) ----------
+    public PriceTable(SymbolIndex symbolIndex) {
+
+        if (symbolIndex == null) {
+            throw new IllegalArgumentException("Symbol index cannot be null");
+        }
+
+        this.symbolIndex = symbolIndex;
+        this.priceBits = new AtomicLongArray(symbolIndex.size());
+        this.publishNanos = new AtomicLongArray(symbolIndex.size());
+
+        long now = System.nanoTime();
+        for (int id = 0; id < symbolIndex.size(); id++) {
+            Stock stock = symbolIndex.getById(id);
+            priceBits.set(id, Double.doubleToRawLongBits(stock.getPrice()));
+            publishNanos.set(id, now);
+        }
+    }
+
+    // Symbols also in previous keep its current price and stamp; new ones start at stocks.txt
+    public PriceTable(SymbolIndex symbolIndex, PriceTable previous) {
+
+        this(symbolIndex);
+
+        if (previous == null) {
+            throw new IllegalArgumentException("Previous price table cannot be null");
+        }
+
+        for (int id = 0; id < symbolIndex.size(); id++) {
+            int oldId = previous.symbolIndex.idOf(symbolIndex.getById(id).getSymbol());
+            if (oldId != SymbolIndex.NOT_FOUND) {
+                // Stamp is read first, so it is never newer than the price copied with it
+                publishNanos.set(id, previous.publishNanos.get(oldId));
+                priceBits.set(id, previous.priceBits.get(oldId));
+            }
+        }
+    }
+
+    // ---------- Read ----------
+    public SymbolIndex getSymbolIndex() {
+        return symbolIndex;
+    }
+
+    public double getPrice(int id) {
+        return Double.longBitsToDouble(priceBits.get(id));
+    }
+
+    // NaN when the symbol is not in this table
+    public double getPrice(String symbol) {
+        int id = symbolIndex.idOf(symbol);
+        return id == SymbolIndex.NOT_FOUND ? Double.NaN : getPrice(id);
+    }
+
+    // System.nanoTime() of the last publish, for visibility latency metrics
+    public long getPublishNanos(int id) {
+        return publishNanos.get(id);
+    }
+
+    public int size() {
+        return symbolIndex.size();
+    }
+
+    // ---------- Write ----------
+    public void publish(int id, double price) {
+
+        if (!(price > 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Price must be a positive finite number");
+        }
+
+        // Stamp first: a reader that sees the new price also sees a stamp at least this recent
+        publishNanos.set(id, System.nanoTime());
+        priceBits.set(id, Double.doubleToRawLongBits(price));
+    }
+}
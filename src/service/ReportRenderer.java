@@ -0,0 +1,248 @@
+package service;
+
+import model.Portfolio;
+import model.Stock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Renders the market and portfolio views into one reusable buffer.
+ *
+ * Market rows are formatted once and cached per symbol id together with
+ * the raw price bits they were formatted from; a render compares the live
+ * price with those bits and reformats only the rows whose price moved, so
+ * redisplaying 10k symbols after a few ticks formats a few rows. A market
+ * refresh builds a new PriceTable, which drops the whole cache. The
+ * portfolio view is cached against Portfolio.getVersion().
+ *
+ * Render methods return the internal buffer, which is only valid until
+ * the next render call.
+ */
+public class ReportRenderer {
+
+    public static final String MARKET_HEADER = String.format("%-6s | %-20s | %12s | %8s",
+            "Symbol", "Company Name", "Price", "Change");
+    private static final String MARKET_RULE = "-".repeat(MARKET_HEADER.length());
+
+    // Never the bits of a real price, so a fresh row always formats
+    private static final long UNFORMATTED = -1L;
+
+    private final MarketService marketService;
+    private final StringBuilder buffer = new StringBuilder(1 << 12);
+
+    // ---------- Row Cache (rebuilt per PriceTable) ----------
+    private PriceTable cachedTable;
+    private String[] rows = new String[0];
+    private long[] rowPriceBits = new long[0];
+
+    // ---------- Portfolio Cache ----------
+    private Portfolio cachedPortfolio;
+    private long cachedVersion = -1;
+    private String portfolioText;
+
+    // ---------- Metrics ----------
+    private static final LongAdder ROWS_FORMATTED = Metrics.counter("report.rowsFormatted");
+    private static final LongAdder ROWS_REUSED = Metrics.counter("report.rowsReused");
+    private static final LatencyHistogram RENDER = Metrics.histogram("report.render");
+
+    // ---------- Constructor ----------
+    public ReportRenderer(MarketService marketService) {
+
+        if (marketService == null) {
+            throw new IllegalArgumentException("MarketService cannot be null");
+        }
+
+        this.marketService = marketService;
+    }
+
+    // ---------- Market Views ----------
+    public synchronized CharSequence renderMarket() {
+        return renderMarketPage(1, Integer.MAX_VALUE);
+    }
+
+    // page is 1-based; a page past the end renders just the header
+    public synchronized CharSequence renderMarketPage(int page, int pageSize) {
+
+        if (page <= 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Page and page size must be greater than zero");
+        }
+
+        long start = System.nanoTime();
+        PriceTable prices = prepare();
+
+        if (prices.size() == 0) {
+            return emptyMarket(start);
+        }
+
+        long first = (long) (page - 1) * pageSize;
+        int from = (int) Math.min(first, prices.size());
+        int to = (int) Math.min(first + pageSize, prices.size());
+
+        appendMarketHeader();
+        for (int id = from; id < to; id++) {
+            appendRow(prices, id);
+        }
+
+        RENDER.recordSince(start);
+        return buffer;
+    }
+
+    public int getPageCount(int pageSize) {
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+
+        int size = marketService.getPriceTable().size();
+        return Math.max(1, (size + pageSize - 1) / pageSize);
+    }
+
+    /*
+     * The n symbols that moved furthest from their reference (stocks.txt)
+     * price, either way, largest move first. One pass with a small sorted
+     * selection, so no sort of the whole universe.
+     */
+    public synchronized CharSequence renderTopMovers(int n) {
+
+        if (n <= 0) {
+            throw new IllegalArgumentException("Number of movers must be greater than zero");
+        }
+
+        long start = System.nanoTime();
+        PriceTable prices = prepare();
+
+        if (prices.size() == 0) {
+            return emptyMarket(start);
+        }
+
+        int limit = Math.min(n, prices.size());
+        int[] topIds = new int[limit];
+        double[] topMoves = new double[limit];
+        int count = 0;
+
+        for (int id = 0; id < prices.size(); id++) {
+
+            double move = Math.abs(change(prices, id, prices.getPrice(id)));
+
+            if (count == limit && move <= topMoves[limit - 1]) {
+                continue;
+            }
+
+            // Insertion into the selection, dropping its smallest if full
+            int slot = count < limit ? count++ : limit - 1;
+            while (slot > 0 && topMoves[slot - 1] < move) {
+                topMoves[slot] = topMoves[slot - 1];
+                topIds[slot] = topIds[slot - 1];
+                slot--;
+            }
+            topMoves[slot] = move;
+            topIds[slot] = id;
+        }
+
+        appendMarketHeader();
+        for (int i = 0; i < count; i++) {
+            appendRow(prices, topIds[i]);
+        }
+
+        RENDER.recordSince(start);
+        return buffer;
+    }
+
+    // Rows for the given stocks in the given order, e.g. search results
+    public synchronized CharSequence renderStocks(List<Stock> stocks) {
+
+        if (stocks == null) {
+            throw new IllegalArgumentException("Stock list cannot be null");
+        }
+
+        long start = System.nanoTime();
+        PriceTable prices = prepare();
+
+        appendMarketHeader();
+        for (Stock stock : stocks) {
+            // The list may come from an index older than a market refresh
+            int id = prices.getSymbolIndex().idOf(stock.getSymbol());
+            if (id != SymbolIndex.NOT_FOUND) {
+                appendRow(prices, id);
+            }
+        }
+
+        RENDER.recordSince(start);
+        return buffer;
+    }
+
+    // ---------- Portfolio View ----------
+    public synchronized CharSequence renderPortfolio(Portfolio portfolio) {
+
+        if (portfolio == null) {
+            throw new IllegalArgumentException("Portfolio cannot be null");
+        }
+
+        // Version first: a trade racing the render only makes the next render redo it
+        long version = portfolio.getVersion();
+
+        if (portfolio != cachedPortfolio || version != cachedVersion) {
+            portfolioText = portfolio.toString();
+            cachedPortfolio = portfolio;
+            cachedVersion = version;
+        }
+
+        buffer.setLength(0);
+        buffer.append(portfolioText).append(System.lineSeparator());
+        return buffer;
+    }
+
+    // ---------- Helper Methods ----------
+
+    // Clears the buffer and resets the row cache if the market was refreshed
+    private PriceTable prepare() {
+
+        buffer.setLength(0);
+        PriceTable prices = marketService.getPriceTable();
+
+        if (prices != cachedTable) {
+            rows = new String[prices.size()];
+            rowPriceBits = new long[prices.size()];
+            Arrays.fill(rowPriceBits, UNFORMATTED);
+            cachedTable = prices;
+        }
+
+        return prices;
+    }
+
+    private void appendMarketHeader() {
+        buffer.append(MARKET_HEADER).append(System.lineSeparator());
+        buffer.append(MARKET_RULE).append(System.lineSeparator());
+    }
+
+    private void appendRow(PriceTable prices, int id) {
+
+        double price = prices.getPrice(id);
+        long bits = Double.doubleToRawLongBits(price);
+
+        if (bits != rowPriceBits[id]) {
+            Stock stock = prices.getSymbolIndex().getById(id);
+            rows[id] = String.format("%-6s | %-20s | ₹%11.2f | %+7.2f%%",
+                    stock.getSymbol(), stock.getCompanyName(), price, change(prices, id, price) * 100);
+            rowPriceBits[id] = bits;
+            ROWS_FORMATTED.increment();
+        } else {
+            ROWS_REUSED.increment();
+        }
+
+        buffer.append(rows[id]).append(System.lineSeparator());
+    }
+
+    // Fractional move of price from the symbol's reference price
+    private static double change(PriceTable prices, int id, double price) {
+        return price / prices.getSymbolIndex().getById(id).getPrice() - 1;
+    }
+
+    private CharSequence emptyMarket(long start) {
+        buffer.append("No market data available.").append(System.lineSeparator());
+        RENDER.recordSince(start);
+        return buffer;
+    }
+}
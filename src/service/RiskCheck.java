@@ -0,0 +1,142 @@
+package service;
+
+/*
+ * One pre-trade rule. Checks run inside RiskEngine while the account's
+ * exposure is locked, so they must be O(1): read the order and the
+ * exposure counters, never holdings or history.
+ */
+public interface RiskCheck {
+
+    String getName();
+
+    boolean allows(RiskEngine.Order order, RiskEngine.Exposure exposure);
+
+    // Only called after allows() returned false, so the order path never formats it
+    String describeRejection(RiskEngine.Order order, RiskEngine.Exposure exposure);
+
+    // ---------- Max Position per Symbol ----------
+    final class MaxPosition implements RiskCheck {
+
+        private final long maxShares;
+
+        public MaxPosition(long maxShares) {
+            if (maxShares <= 0) {
+                throw new IllegalArgumentException("Max position must be greater than zero");
+            }
+            this.maxShares = maxShares;
+        }
+
+        @Override
+        public String getName() {
+            return "max-position";
+        }
+
+        @Override
+        public boolean allows(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return !order.isBuy() || exposure.getPosition(order.getSymbolId()) + order.getQuantity() <= maxShares;
+        }
+
+        @Override
+        public String describeRejection(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return "position in " + order.getSymbol() + " would be "
+                    + (exposure.getPosition(order.getSymbolId()) + order.getQuantity())
+                    + " shares (max " + maxShares + ")";
+        }
+    }
+
+    // ---------- Max Notional per Order ----------
+    final class MaxOrderNotional implements RiskCheck {
+
+        private final double maxNotional;
+
+        public MaxOrderNotional(double maxNotional) {
+            if (!(maxNotional > 0)) {
+                throw new IllegalArgumentException("Max order value must be greater than zero");
+            }
+            this.maxNotional = maxNotional;
+        }
+
+        @Override
+        public String getName() {
+            return "max-order-value";
+        }
+
+        @Override
+        public boolean allows(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return order.getNotional() <= maxNotional;
+        }
+
+        @Override
+        public String describeRejection(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return String.format("order value ₹%.2f exceeds ₹%.2f", order.getNotional(), maxNotional);
+        }
+    }
+
+    // ---------- Max Exposure per Account ----------
+    final class MaxExposure implements RiskCheck {
+
+        private final double maxExposure;
+
+        public MaxExposure(double maxExposure) {
+            if (!(maxExposure > 0)) {
+                throw new IllegalArgumentException("Max exposure must be greater than zero");
+            }
+            this.maxExposure = maxExposure;
+        }
+
+        @Override
+        public String getName() {
+            return "max-exposure";
+        }
+
+        @Override
+        public boolean allows(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return !order.isBuy() || exposure.getGrossNotional() + order.getNotional() <= maxExposure;
+        }
+
+        @Override
+        public String describeRejection(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return String.format("exposure would be ₹%.2f (max ₹%.2f)",
+                    exposure.getGrossNotional() + order.getNotional(), maxExposure);
+        }
+    }
+
+    // ---------- Fat-Finger Price Band ----------
+
+    /*
+     * Rejects orders priced too far from the symbol's reference price (the
+     * stocks.txt price of the last market refresh), e.g. a mistyped limit
+     * price or a bad tick from the price feed.
+     */
+    final class PriceBand implements RiskCheck {
+
+        private final double maxDeviation;
+
+        public PriceBand(double maxDeviation) {
+            if (!(maxDeviation > 0)) {
+                throw new IllegalArgumentException("Price band must be greater than zero");
+            }
+            this.maxDeviation = maxDeviation;
+        }
+
+        @Override
+        public String getName() {
+            return "price-band";
+        }
+
+        @Override
+        public boolean allows(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return deviation(order) <= maxDeviation;
+        }
+
+        @Override
+        public String describeRejection(RiskEngine.Order order, RiskEngine.Exposure exposure) {
+            return String.format("price ₹%.2f is %.1f%% from reference ₹%.2f (band %.1f%%)",
+                    order.getPrice(), deviation(order) * 100, order.getReferencePrice(), maxDeviation * 100);
+        }
+
+        private static double deviation(RiskEngine.Order order) {
+            return Math.abs(order.getPrice() - order.getReferencePrice()) / order.getReferencePrice();
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package service;
+
+import model.Portfolio;
+import model.Stock;
+import model.SymbolTable;
+import model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Pre-trade risk stage: every order runs through the registered RiskChecks
+ * before it touches a portfolio.
+ *
+ * Each account has exposure counters (shares and cost notional per symbol,
+ * plus gross notional) kept up to date as orders pass, so a check is O(1)
+ * no matter how many holdings or trades the account has. reserve() checks
+ * and applies an order to the counters in one step under the account's
+ * exposure monitor, so concurrent orders cannot both slip under a limit;
+ * the caller cancels the reservation if the trade then fails.
+ *
+ * Every check is timed; getStats() reports calls, rejections and latency.
+ */
+public class RiskEngine {
+
+    private final MarketService marketService;
+    private final List<CheckSlot> checks = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, Exposure> exposures = new ConcurrentHashMap<>();
+
+    // ---------- Constructor ----------
+    public RiskEngine(MarketService marketService) {
+
+        if (marketService == null) {
+            throw new IllegalArgumentException("MarketService cannot be null");
+        }
+
+        this.marketService = marketService;
+    }
+
+    public void addCheck(RiskCheck check) {
+
+        if (check == null) {
+            throw new IllegalArgumentException("Risk check cannot be null");
+        }
+
+        checks.add(new CheckSlot(check));
+    }
+
+    public int getCheckCount() {
+        return checks.size();
+    }
+
+    // ---------- Exposure ----------
+
+    /*
+     * Resets an account's counters to its current holdings, valued at the
+     * live price. Call while the account cannot trade.
+     */
+    public void seed(String accountId, Portfolio portfolio) {
+
+        if (accountId == null || portfolio == null) {
+            throw new IllegalArgumentException("Account id and portfolio cannot be null");
+        }
+
+        PriceTable prices = marketService.getPriceTable();
+        Exposure exposure = new Exposure();
+
+        for (Map.Entry<String, Integer> holding : portfolio.getHoldings().entrySet()) {
+            double price = prices.getPrice(holding.getKey());
+            exposure.add(SymbolTable.idOf(holding.getKey()), holding.getValue(),
+                    Double.isNaN(price) ? 0 : price * holding.getValue());
+        }
+
+        exposures.put(accountId, exposure);
+    }
+
+    public Exposure getExposure(String accountId) {
+        return accountId == null ? null : exposures.get(accountId);
+    }
+
+    // ---------- Pre-Trade ----------
+
+    /*
+     * Runs every check against the order and, if all pass, applies it to
+     * the account's counters. Throws IllegalStateException naming the
+     * first check that rejects it.
+     */
+    public Reservation reserve(String accountId, Transaction.Type type, String symbol, int quantity, double price) {
+
+        Order order = order(accountId, type, symbol, quantity, price);
+        Exposure exposure = exposures.computeIfAbsent(accountId, id -> new Exposure());
+
+        synchronized (exposure) {
+            runChecks(order, exposure);
+
+            long shares;
+            double notional;
+
+            if (order.isBuy()) {
+                shares = quantity;
+                notional = order.getNotional();
+            } else {
+                // Sells release cost notional at the position's average cost
+                long held = exposure.getPosition(order.symbolId);
+                shares = -Math.min(quantity, held);
+                notional = held == 0 ? 0 : exposure.getNotional(order.symbolId) * shares / held;
+            }
+
+            // Only an order that is applied takes a symbol id, and with it a counter slot
+            int symbolId = order.symbolId != SymbolTable.NOT_FOUND ? order.symbolId : SymbolTable.idOf(order.symbol);
+
+            exposure.add(symbolId, shares, notional);
+            return new Reservation(exposure, symbolId, shares, notional);
+        }
+    }
+
+    // Runs the checks without reserving, e.g. for a resting limit order
+    public void check(String accountId, Transaction.Type type, String symbol, int quantity, double price) {
+
+        Order order = order(accountId, type, symbol, quantity, price);
+        Exposure exposure = exposures.computeIfAbsent(accountId, id -> new Exposure());
+
+        synchronized (exposure) {
+            runChecks(order, exposure);
+        }
+    }
+
+    // ---------- Instrumentation ----------
+    public List<CheckStats> getStats() {
+
+        List<CheckStats> stats = new ArrayList<>(checks.size());
+
+        for (CheckSlot slot : checks) {
+            stats.add(new CheckStats(slot.check.getName(), slot.calls.sum(), slot.rejections.sum(),
+                    slot.nanos.sum(), slot.maxNanos.get()));
+        }
+
+        return stats;
+    }
+
+    public void displayStats() {
+
+        if (checks.isEmpty()) {
+            System.out.println("No risk checks configured.");
+            return;
+        }
+
+        System.out.println("Risk Check      |      Calls |  Rejected |  Avg (ns) |  Max (ns)");
+        System.out.println("-----------------------------------------------------------------");
+
+        for (CheckStats stats : getStats()) {
+            System.out.println(stats);
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private Order order(String accountId, Transaction.Type type, String symbol, int quantity, double price) {
+
+        if (accountId == null || type == null || symbol == null) {
+            throw new IllegalArgumentException("Account id, order type and symbol cannot be null");
+        }
+
+        Order order = new Order(accountId, type, SymbolIndex.normalize(symbol), quantity, price);
+
+        // Reference price: the stocks.txt price of the last refresh
+        Stock stock = marketService.getSnapshot().getStock(order.symbol);
+        order.referencePrice = stock == null ? price : stock.getPrice();
+
+        // Not interned: check() sees resting orders for any symbol, and each id would grow every account's counters
+        order.symbolId = SymbolTable.find(order.symbol);
+
+        return order;
+    }
+
+    private void runChecks(Order order, Exposure exposure) {
+
+        // One clock read per check: each check's end is the next one's start
+        long start = System.nanoTime();
+
+        for (CheckSlot slot : checks) {
+
+            boolean allowed = slot.check.allows(order, exposure);
+            long end = System.nanoTime();
+            long elapsed = end - start;
+            start = end;
+
+            slot.calls.increment();
+            slot.nanos.add(elapsed);
+            if (elapsed > slot.maxNanos.get()) {
+                slot.maxNanos.accumulateAndGet(elapsed, Math::max);
+            }
+
+            if (!allowed) {
+                slot.rejections.increment();
+                throw new IllegalStateException("Order rejected by " + slot.check.getName() + ": "
+                        + slot.check.describeRejection(order, exposure));
+            }
+        }
+    }
+
+    private static final class CheckSlot {
+
+        final RiskCheck check;
+        final LongAdder calls = new LongAdder();
+        final LongAdder rejections = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        CheckSlot(RiskCheck check) {
+            this.check = check;
+        }
+    }
+
+    // ---------- Order ----------
+    public static final class Order {
+
+        private final String accountId;
+        private final Transaction.Type type;
+        private final String symbol;
+        private final int quantity;
+        private final double price;
+        private int symbolId;
+        private double referencePrice;
+
+        private Order(String accountId, Transaction.Type type, String symbol, int quantity, double price) {
+            this.accountId = accountId;
+            this.type = type;
+            this.symbol = symbol;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public Transaction.Type getType() {
+            return type;
+        }
+
+        public boolean isBuy() {
+            return type == Transaction.Type.BUY;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        // SymbolTable id, for indexing exposure counters; NOT_FOUND for a symbol without one yet
+        public int getSymbolId() {
+            return symbolId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public double getReferencePrice() {
+            return referencePrice;
+        }
+
+        public double getNotional() {
+            return price * quantity;
+        }
+    }
+
+    // ---------- Exposure Counters (guarded by the Exposure's monitor) ----------
+    public static final class Exposure {
+
+        // Indexed by SymbolTable id
+        private long[] positions = new long[0];
+        private double[] notionals = new double[0];
+        private double grossNotional;
+
+        private Exposure() {
+        }
+
+        // Zero for NOT_FOUND
+        public synchronized long getPosition(int symbolId) {
+            return symbolId >= 0 && symbolId < positions.length ? positions[symbolId] : 0;
+        }
+
+        // Cost notional of the position in one symbol
+        public synchronized double getNotional(int symbolId) {
+            return symbolId >= 0 && symbolId < notionals.length ? notionals[symbolId] : 0;
+        }
+
+        public synchronized double getGrossNotional() {
+            return grossNotional;
+        }
+
+        private synchronized void add(int symbolId, long shares, double notional) {
+
+            if (symbolId >= positions.length) {
+                int length = Math.max(symbolId + 1, Math.max(16, positions.length * 2));
+                positions = Arrays.copyOf(positions, length);
+                notionals = Arrays.copyOf(notionals, length);
+            }
+
+            double before = notionals[symbolId];
+
+            positions[symbolId] += shares;
+            // No rounding residue on a flat position
+            notionals[symbolId] = positions[symbolId] == 0 ? 0 : before + notional;
+            grossNotional += notionals[symbolId] - before;
+        }
+    }
+
+    // ---------- Reservation ----------
+    public static final class Reservation {
+
+        private final Exposure exposure;
+        private final int symbolId;
+        private final long shares;
+        private final double notional;
+
+        private Reservation(Exposure exposure, int symbolId, long shares, double notional) {
+            this.exposure = exposure;
+            this.symbolId = symbolId;
+            this.shares = shares;
+            this.notional = notional;
+        }
+
+        // Undoes the reservation when the trade it was taken for fails
+        public void cancel() {
+            exposure.add(symbolId, -shares, -notional);
+        }
+    }
+
+    // ---------- Check Statistics ----------
+    public static final class CheckStats {
+
+        private final String name;
+        private final long calls;
+        private final long rejections;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private CheckStats(String name, long calls, long rejections, long totalNanos, long maxNanos) {
+            this.name = name;
+            this.calls = calls;
+            this.rejections = rejections;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getRejections() {
+            return rejections;
+        }
+
+        public double getAverageNanos() {
+            return calls == 0 ? 0 : totalNanos / (double) calls;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-15s | %10d | %9d | %9.0f | %9d", name, calls, rejections,
+                    getAverageNanos(), maxNanos);
+        }
+    }
+}
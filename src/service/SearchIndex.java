@@ -0,0 +1,681 @@
+package service;
+
+import model.Stock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Immutable prefix + fuzzy search over symbols and company names, built
+ * per market refresh next to the SymbolIndex it searches.
+ *
+ * Layout: every stock's symbol and upper-cased company name are copied
+ * once into a single char array. Search keys are views into it: the
+ * symbol, and each suffix of the name that starts at a word, so "apple
+ * in" and "inc" both find "Apple Inc.". The keys are sorted into parallel
+ * int arrays (offset, length, stock id, static score) plus its first
+ * chars packed in a long, so a key costs 24 bytes and no objects.
+ *
+ * Search walks the sorted keys as an implicit trie, finding each child
+ * range by binary search, and carries one edit-distance row per depth
+ * (Levenshtein plus adjacent transpositions against the query, as a
+ * prefix of the key). Subtrees that cannot come within the allowed
+ * distance are pruned, and the search runs once per allowed distance,
+ * stopping as soon as the closer matches fill the result. Queries of up
+ * to 2 chars match exactly, up to 6 allow 1 edit and longer ones 2, always
+ * after a matching first character. 0- and 1-edit results are exact; the
+ * 2-edit walk visits at most TWO_EDIT_MAX_VISITS trie nodes, so its cost
+ * does not grow with the universe, and past that it keeps the 2-edit
+ * matches found so far (counted in search.truncated).
+ *
+ * Ranking, best first: fewer edits; then a symbol match over the first
+ * word of a name over a later word; then the shorter matched word. Ties
+ * go to the key that sorts first and are listed in symbol order. A stock
+ * matched by several keys takes its best.
+ *
+ * rebuild() reuses the previous index's sorted keys for stocks whose
+ * symbol and name did not change and only sorts the keys of new or
+ * changed stocks, then merges the two runs.
+ */
+public final class SearchIndex {
+
+    // ---------- Scoring ----------
+    private static final int KIND_SYMBOL = 0;
+    private static final int KIND_FIRST_WORD = 1;
+    private static final int KIND_LATER_WORD = 2;
+    private static final int KIND_WEIGHT = 64;
+    private static final int DISTANCE_WEIGHT = 256;
+
+    // Shortest query allowed a second edit, only walked when 0 and 1 edits leave the result short
+    private static final int TWO_EDIT_MIN_LENGTH = 7;
+
+    // Trie nodes the 2-edit walk may visit (~0.3 ms); past that it keeps what it has found
+    private static final int TWO_EDIT_MAX_VISITS = 4_096;
+
+    private static final LongAdder TRUNCATED = Metrics.counter("search.truncated");
+
+    // Keys per block for the block-minimum score used to skip ranges
+    private static final int BLOCK_SHIFT = 5;
+
+    private static final SearchIndex EMPTY = new SearchIndex(SymbolIndex.empty(), new char[0], new int[0],
+            new int[0], new int[0], new int[0], new int[0], new long[0]);
+
+    private final SymbolIndex symbolIndex;
+
+    // ---------- Text (every stock's symbol then its upper-cased name) ----------
+    private final char[] text;
+    private final int[] stockBase;      // by stock id: offset of the symbol in text
+
+    // ---------- Sorted Keys ----------
+    private final int[] keyOffset;
+    private final int[] keyLength;
+    private final int[] keyStock;
+    private final int[] keyScore;       // kind * KIND_WEIGHT + matched word length
+    private final int[] blockMin;
+
+    /*
+     * The first HEAD_CHARS chars of each key as bytes, in key order, so the
+     * walk near the root and the build's comparisons read sequential memory
+     * instead of chasing keyOffset into text. Ordered like the keys
+     * (unsigned); see head().
+     */
+    private static final int HEAD_CHARS = 8;
+    private final long[] keyHead;
+
+    // ---------- Constructor ----------
+    private SearchIndex(SymbolIndex symbolIndex, char[] text, int[] stockBase, int[] keyOffset,
+            int[] keyLength, int[] keyStock, int[] keyScore, long[] keyHead) {
+
+        this.symbolIndex = symbolIndex;
+        this.text = text;
+        this.stockBase = stockBase;
+        this.keyOffset = keyOffset;
+        this.keyLength = keyLength;
+        this.keyStock = keyStock;
+        this.keyScore = keyScore;
+        this.keyHead = keyHead;
+
+        this.blockMin = new int[(keyScore.length + (1 << BLOCK_SHIFT) - 1) >> BLOCK_SHIFT];
+        Arrays.fill(blockMin, Integer.MAX_VALUE);
+        for (int i = 0; i < keyScore.length; i++) {
+            int block = i >> BLOCK_SHIFT;
+            blockMin[block] = Math.min(blockMin[block], keyScore[i]);
+        }
+    }
+
+    // ---------- Factory ----------
+    public static SearchIndex build(SymbolIndex symbolIndex) {
+        return rebuild(null, symbolIndex);
+    }
+
+    public static SearchIndex empty() {
+        return EMPTY;
+    }
+
+    /*
+     * Index over symbolIndex, reusing previous (which may be null) for
+     * every stock whose symbol and company name are unchanged.
+     */
+    public static SearchIndex rebuild(SearchIndex previous, SymbolIndex symbolIndex) {
+
+        if (symbolIndex == null) {
+            throw new IllegalArgumentException("Symbol index cannot be null");
+        }
+
+        if (symbolIndex.isEmpty()) {
+            return EMPTY;
+        }
+
+        Builder builder = new Builder(symbolIndex);
+        boolean[] reused = new boolean[symbolIndex.size()];
+        Keys kept = previous == null ? new Keys(0) : builder.keep(previous, reused);
+        Keys fresh = builder.freshKeys(reused);
+
+        return builder.finish(kept, fresh);
+    }
+
+    public SymbolIndex getSymbolIndex() {
+        return symbolIndex;
+    }
+
+    public int getKeyCount() {
+        return keyOffset.length;
+    }
+
+    // ---------- Search ----------
+
+    // Up to limit stocks matching query, best first
+    public List<Stock> search(String query, int limit) {
+
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Result limit must be greater than zero");
+        }
+
+        if (query == null) {
+            return Collections.emptyList();
+        }
+
+        char[] q = normalize(query).toCharArray();
+
+        if (q.length == 0 || keyOffset.length == 0) {
+            return Collections.emptyList();
+        }
+
+        /*
+         * One walk per edit distance: any match with fewer edits outranks any
+         * with more, so most queries stop after the cheap exact-prefix walk.
+         */
+        Search search = new Search(q, maxDistance(q.length), Math.min(limit, symbolIndex.size()));
+        for (int distance = 0; distance <= search.maxDistance && !search.isFull(); distance++) {
+            search.distance = distance;
+            search.visitsLeft = distance < 2 ? Integer.MAX_VALUE : TWO_EDIT_MAX_VISITS;
+            search.rowMins[0] = 0;
+            search.visit(0, keyOffset.length, 0, Integer.MAX_VALUE);
+        }
+
+        if (search.visitsLeft < 0) {
+            TRUNCATED.increment();
+        }
+
+        return search.results();
+    }
+
+    // ---------- Implicit Trie Walk ----------
+    private final class Search {
+
+        private final char[] query;
+        private final int maxDistance;
+        private int distance;           // this walk's distance; earlier walks collected the closer keys
+        private int visitsLeft;         // trie nodes this walk may still visit
+        private final int[][] rows;     // rows[depth][j]: distance of query[0..j) to key[0..depth), capped
+        private final int[] rowMins;    // smallest value in rows[depth]
+        private final char[] path;      // key chars along the current branch
+
+        // Best matches so far: unsorted, worst tracked for quick rejection
+        private final int[] topStock;
+        private final int[] topScore;
+        private int count;
+        private int worst = Integer.MAX_VALUE;
+
+        Search(char[] query, int maxDistance, int limit) {
+
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.rows = new int[query.length + maxDistance + 1][query.length + 1];
+            this.rowMins = new int[query.length + maxDistance + 1];
+            this.path = new char[query.length + maxDistance + 1];
+            this.topStock = new int[limit];
+            this.topScore = new int[limit];
+
+            for (int j = 0; j <= query.length; j++) {
+                rows[0][j] = j;
+            }
+        }
+
+        /*
+         * Keys in [lo, hi) share their first depth chars, whose distance row
+         * is rows[depth]. bound is the best distance reached by a shorter
+         * prefix on this branch, which every key below also has.
+         */
+        void visit(int lo, int hi, int depth, int bound) {
+
+            if (--visitsLeft < 0) {
+                return;
+            }
+
+            int rowMin = rowMins[depth];
+            bound = Math.min(bound, rows[depth][query.length]);
+
+            // Every key below is closer than this walk's distance, so an earlier walk collected it
+            if (bound < distance) {
+                return;
+            }
+
+            // Nothing deeper can beat bound, or nothing deeper is within this walk's distance
+            if (rowMin >= bound || rowMin > distance || depth + 1 >= rows.length) {
+                if (bound == distance) {
+                    collect(lo, hi, bound);
+                }
+                return;
+            }
+
+            // Keys that end here sort first
+            int i = lo;
+            while (i < hi && keyLength[i] == depth) {
+                i++;
+            }
+            if (i > lo && bound == distance) {
+                collect(lo, i, bound);
+            }
+
+            while (i < hi && visitsLeft >= 0) {
+                char c = charAt(i, depth);
+                int end = childEnd(i, hi, depth, c);
+
+                // Typos are tolerated after the first character only, which cuts the walk ~30x
+                if (depth == 0 && c != query[0]) {
+                    i = end;
+                    continue;
+                }
+
+                path[depth] = c;
+                rowMins[depth + 1] = computeRow(depth + 1, c);
+                visit(i, end, depth + 1, bound);
+
+                i = end;
+            }
+        }
+
+        /*
+         * Levenshtein row plus adjacent transpositions (optimal string
+         * alignment), returning its minimum. Only the band |depth - j| <=
+         * distance is computed: a cell outside it is at least distance + 1,
+         * and every value is capped there, so the walk's decisions are the
+         * same as with full rows at a third of the cells for long queries.
+         */
+        private int computeRow(int depth, char c) {
+
+            int[] previous = rows[depth - 1];
+            int[] row = rows[depth];
+            int cap = distance + 1;
+            int from = Math.max(1, depth - distance);
+            int to = Math.min(query.length, depth + distance);
+
+            row[0] = Math.min(depth, cap);
+            row[from - 1] = from == 1 ? row[0] : cap;
+            int rowMin = row[from - 1];
+
+            for (int j = from; j <= to; j++) {
+                int cost = query[j - 1] == c ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + cost);
+
+                if (j > 1 && depth > 1 && query[j - 1] == path[depth - 2] && query[j - 2] == c) {
+                    value = Math.min(value, rows[depth - 2][j - 2] + 1);
+                }
+
+                row[j] = Math.min(value, cap);
+                rowMin = Math.min(rowMin, row[j]);
+            }
+
+            // The next row reads one cell past the band; the last cell feeds the match bound
+            if (to < query.length) {
+                row[to + 1] = cap;
+                row[query.length] = cap;
+            }
+
+            return rowMin;
+        }
+
+        // Offers every key in [lo, hi) at the given distance, skipping blocks that cannot rank
+        private void collect(int lo, int hi, int distance) {
+
+            int base = distance * DISTANCE_WEIGHT;
+            int i = lo;
+
+            while (i < hi) {
+                if ((i & ((1 << BLOCK_SHIFT) - 1)) == 0 && i + (1 << BLOCK_SHIFT) <= hi
+                        && count == topStock.length && base + blockMin[i >> BLOCK_SHIFT] >= worst) {
+                    i += 1 << BLOCK_SHIFT;
+                    continue;
+                }
+
+                offer(keyStock[i], base + keyScore[i]);
+                i++;
+            }
+        }
+
+        boolean isFull() {
+            return count == topStock.length;
+        }
+
+        private void offer(int stock, int score) {
+
+            if (count == topStock.length && score >= worst) {
+                return;
+            }
+
+            for (int k = 0; k < count; k++) {
+                if (topStock[k] == stock) {
+                    if (score < topScore[k]) {
+                        topScore[k] = score;
+                        updateWorst();
+                    }
+                    return;
+                }
+            }
+
+            if (count < topStock.length) {
+                topStock[count] = stock;
+                topScore[count++] = score;
+            } else {
+                int slot = worstSlot();
+                topStock[slot] = stock;
+                topScore[slot] = score;
+            }
+
+            updateWorst();
+        }
+
+        private int worstSlot() {
+            int slot = 0;
+            for (int k = 1; k < count; k++) {
+                if (isWorse(k, slot)) {
+                    slot = k;
+                }
+            }
+            return slot;
+        }
+
+        private void updateWorst() {
+            worst = count < topStock.length ? Integer.MAX_VALUE : topScore[worstSlot()];
+        }
+
+        // Worse: higher score, or the same score and a later symbol
+        private boolean isWorse(int a, int b) {
+            if (topScore[a] != topScore[b]) {
+                return topScore[a] > topScore[b];
+            }
+            return compareSymbols(topStock[a], topStock[b]) > 0;
+        }
+
+        List<Stock> results() {
+
+            Integer[] order = new Integer[count];
+            for (int k = 0; k < count; k++) {
+                order[k] = k;
+            }
+            Arrays.sort(order, (a, b) -> isWorse(a, b) ? 1 : isWorse(b, a) ? -1 : 0);
+
+            List<Stock> results = new ArrayList<>(count);
+            for (Integer k : order) {
+                results.add(symbolIndex.getById(topStock[k]));
+            }
+            return results;
+        }
+    }
+
+    // ---------- Helper Methods ----------
+
+    // 0 edits up to 2 chars, 1 up to 6, then 2: a 2-edit walk on a short query visits most of the trie
+    private static int maxDistance(int queryLength) {
+        return queryLength <= 2 ? 0 : queryLength < TWO_EDIT_MIN_LENGTH ? 1 : 2;
+    }
+
+    static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+    }
+
+    /*
+     * Packs chars below 0xFF as bytes and pads a short key with 0. From the
+     * first char at or above 0xFF every byte is 0xFF, so equal heads only
+     * mean "compare the text".
+     */
+    static long head(char[] text, int offset, int length) {
+
+        long head = 0;
+        boolean saturated = false;
+
+        for (int depth = 0; depth < HEAD_CHARS; depth++) {
+            int b;
+            if (saturated || (depth < length && text[offset + depth] >= 0xFF)) {
+                saturated = true;
+                b = 0xFF;
+            } else {
+                b = depth < length ? text[offset + depth] : 0;
+            }
+            head = head << 8 | b;
+        }
+
+        return head;
+    }
+
+    // Only called for depth < the key's length
+    private char charAt(int key, int depth) {
+
+        if (depth < HEAD_CHARS) {
+            int b = (int) (keyHead[key] >>> (8 * (HEAD_CHARS - 1 - depth))) & 0xFF;
+            if (b != 0xFF) {
+                return (char) b;
+            }
+        }
+
+        return text[keyOffset[key] + depth];
+    }
+
+    /*
+     * End of the run of keys in [from, hi) whose char at depth is c.
+     * Gallops before bisecting: most runs are short, and each probe costs
+     * two cache misses.
+     */
+    private int childEnd(int from, int hi, int depth, char c) {
+
+        int lo = from + 1;
+        int step = 1;
+        while (lo + step < hi && charAt(lo + step - 1, depth) <= c) {
+            lo += step;
+            step <<= 1;
+        }
+        int high = Math.min(hi, lo + step);
+
+        while (lo < high) {
+            int mid = (lo + high) >>> 1;
+            if (charAt(mid, depth) <= c) {
+                lo = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return lo;
+    }
+
+    private int compareSymbols(int stockA, int stockB) {
+        return symbolIndex.getById(stockA).getSymbol().compareTo(symbolIndex.getById(stockB).getSymbol());
+    }
+
+    // ---------- Building ----------
+
+    // Keys as parallel arrays, before they are sorted into an index
+    private static final class Keys {
+
+        int[] offset;
+        int[] length;
+        int[] stock;
+        int[] score;
+        long[] head;
+        int size;
+
+        Keys(int capacity) {
+            offset = new int[capacity];
+            length = new int[capacity];
+            stock = new int[capacity];
+            score = new int[capacity];
+            head = new long[capacity];
+        }
+
+        void add(int keyOffset, int keyLength, int keyStock, int keyScore, long keyHead) {
+
+            if (size == offset.length) {
+                int capacity = Math.max(16, size * 2);
+                offset = Arrays.copyOf(offset, capacity);
+                length = Arrays.copyOf(length, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+                score = Arrays.copyOf(score, capacity);
+                head = Arrays.copyOf(head, capacity);
+            }
+
+            offset[size] = keyOffset;
+            length[size] = keyLength;
+            stock[size] = keyStock;
+            score[size] = keyScore;
+            head[size++] = keyHead;
+        }
+    }
+
+    private static final class Builder {
+
+        private final SymbolIndex symbolIndex;
+        private final char[] text;
+        private final int[] stockBase;
+        private final int[] symbolLength;
+
+        Builder(SymbolIndex symbolIndex) {
+
+            this.symbolIndex = symbolIndex;
+            this.stockBase = new int[symbolIndex.size()];
+            this.symbolLength = new int[symbolIndex.size()];
+
+            StringBuilder sb = new StringBuilder(symbolIndex.size() * 32);
+            for (int id = 0; id < symbolIndex.size(); id++) {
+                Stock stock = symbolIndex.getById(id);
+                stockBase[id] = sb.length();
+                symbolLength[id] = stock.getSymbol().length();
+                sb.append(stock.getSymbol()).append(normalize(stock.getCompanyName()));
+            }
+
+            this.text = new char[sb.length()];
+            sb.getChars(0, sb.length(), text, 0);
+        }
+
+        // Previous keys of unchanged stocks, still in sorted order, moved to this text
+        Keys keep(SearchIndex previous, boolean[] reused) {
+
+            SymbolIndex old = previous.symbolIndex;
+            int[] newId = new int[old.size()];
+
+            for (int id = 0; id < old.size(); id++) {
+                Stock stock = old.getById(id);
+                int current = symbolIndex.idOf(stock.getSymbol());
+                boolean same = current != SymbolIndex.NOT_FOUND
+                        && symbolIndex.getById(current).getCompanyName().equals(stock.getCompanyName());
+                newId[id] = same ? current : -1;
+                if (same) {
+                    reused[current] = true;
+                }
+            }
+
+            Keys kept = new Keys(previous.keyOffset.length);
+            for (int k = 0; k < previous.keyOffset.length; k++) {
+                int id = newId[previous.keyStock[k]];
+                if (id >= 0) {
+                    int relative = previous.keyOffset[k] - previous.stockBase[previous.keyStock[k]];
+                    kept.add(stockBase[id] + relative, previous.keyLength[k], id, previous.keyScore[k],
+                            previous.keyHead[k]);
+                }
+            }
+
+            return kept;
+        }
+
+        // Sorted keys of every stock not reused
+        Keys freshKeys(boolean[] reused) {
+
+            Keys keys = new Keys(16);
+
+            for (int id = 0; id < stockBase.length; id++) {
+                if (reused[id]) {
+                    continue;
+                }
+
+                int symbolEnd = stockBase[id] + symbolLength[id];
+                int nameEnd = id + 1 < stockBase.length ? stockBase[id + 1] : text.length;
+
+                keys.add(stockBase[id], symbolLength[id], id, KIND_SYMBOL * KIND_WEIGHT + Math.min(symbolLength[id],
+                        KIND_WEIGHT - 1), head(text, stockBase[id], symbolLength[id]));
+
+                boolean first = true;
+                for (int i = symbolEnd; i < nameEnd; i++) {
+                    if (Character.isLetterOrDigit(text[i]) && (i == symbolEnd || !Character.isLetterOrDigit(text[i - 1]))) {
+                        int wordEnd = i;
+                        while (wordEnd < nameEnd && Character.isLetterOrDigit(text[wordEnd])) {
+                            wordEnd++;
+                        }
+                        int kind = first ? KIND_FIRST_WORD : KIND_LATER_WORD;
+                        keys.add(i, nameEnd - i, id, kind * KIND_WEIGHT + Math.min(wordEnd - i, KIND_WEIGHT - 1),
+                                head(text, i, nameEnd - i));
+                        first = false;
+                    }
+                }
+            }
+
+            Integer[] order = new Integer[keys.size];
+            for (int k = 0; k < keys.size; k++) {
+                order[k] = k;
+            }
+            Arrays.sort(order, (a, b) -> compare(keys, a, keys, b));
+
+            Keys sorted = new Keys(keys.size);
+            for (Integer k : order) {
+                sorted.add(keys.offset[k], keys.length[k], keys.stock[k], keys.score[k], keys.head[k]);
+            }
+            return sorted;
+        }
+
+        // Merges the two sorted runs into the index
+        SearchIndex finish(Keys a, Keys b) {
+
+            int total = a.size + b.size;
+            int[] offset = new int[total];
+            int[] length = new int[total];
+            int[] stock = new int[total];
+            int[] score = new int[total];
+            long[] head = new long[total];
+
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < total; k++) {
+                Keys from;
+                int index;
+                if (j >= b.size || (i < a.size && compare(a, i, b, j) <= 0)) {
+                    from = a;
+                    index = i++;
+                } else {
+                    from = b;
+                    index = j++;
+                }
+                offset[k] = from.offset[index];
+                length[k] = from.length[index];
+                stock[k] = from.stock[index];
+                score[k] = from.score[index];
+                head[k] = from.head[index];
+            }
+
+            return new SearchIndex(symbolIndex, text, stockBase, offset, length, stock, score, head);
+        }
+
+        // Key text, then score, then symbol: an order that does not depend on stock ids
+        private int compare(Keys x, int i, Keys y, int j) {
+
+            if (x.head[i] != y.head[j]) {
+                return Long.compareUnsigned(x.head[i], y.head[j]);
+            }
+
+            int lengthX = x.length[i];
+            int lengthY = y.length[j];
+            int offsetX = x.offset[i];
+            int offsetY = y.offset[j];
+
+            for (int k = 0, n = Math.min(lengthX, lengthY); k < n; k++) {
+                char cx = text[offsetX + k];
+                char cy = text[offsetY + k];
+                if (cx != cy) {
+                    return cx < cy ? -1 : 1;
+                }
+            }
+
+            if (lengthX != lengthY) {
+                return lengthX < lengthY ? -1 : 1;
+            }
+
+            if (x.score[i] != y.score[j]) {
+                return x.score[i] < y.score[j] ? -1 : 1;
+            }
+
+            return symbolIndex.getById(x.stock[i]).getSymbol().compareTo(symbolIndex.getById(y.stock[j]).getSymbol());
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package service;
+
+import model.Portfolio;
+import model.User;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Versioned snapshots of the portfolio and user balances, each tagged with
+ * the transactions.txt byte offset it already reflects. Recovery loads the
+ * latest snapshot and replays only the records after that offset.
+ * TradingService stores only the accounts changed in the snapshot's cut;
+ * the account files are the base for the rest.
+ *
+ * File format (snapshots/snapshot-<version>.txt), after the checksum
+ * header line ChecksummedFile adds:
+ *   SNAPSHOT,<format>,<version>,<journal offset>
+ *   H,<symbol>,<quantity>               portfolio holding
+ *   U,<user id>,<balance>,<user name>   user balance
+ *   P,<user id>,<symbol>,<quantity>     user holding
+ *   END,<record count>
+ *
+ * A snapshot is written through ChecksummedFile (temp file, fsync, atomic
+ * rename), so a crash leaves the previous snapshot or the new one, and a
+ * snapshot damaged later fails its checksum and is skipped on load.
+ */
+public class SnapshotStore {
+
+    private static final int FORMAT = 1;
+    private static final int RETAINED_SNAPSHOTS = 2;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".txt";
+
+    private final Path directory;
+    private final ChecksummedFile writer = new ChecksummedFile();  // guarded by this
+    private long latestVersion;
+
+    // ---------- Snapshot ----------
+    public static final class Snapshot {
+
+        private final long version;
+        private final long journalOffset;
+        private final Map<String, Integer> holdings;
+        private final List<User> users;
+
+        private Snapshot(long version, long journalOffset, Map<String, Integer> holdings, List<User> users) {
+            this.version = version;
+            this.journalOffset = journalOffset;
+            this.holdings = Collections.unmodifiableMap(holdings);
+            this.users = Collections.unmodifiableList(users);
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        // Byte offset in transactions.txt up to which trades are included
+        public long getJournalOffset() {
+            return journalOffset;
+        }
+
+        public Map<String, Integer> getHoldings() {
+            return holdings;
+        }
+
+        public List<User> getUsers() {
+            return users;
+        }
+
+        public Portfolio toPortfolio() {
+            Portfolio portfolio = new Portfolio();
+            holdings.forEach(portfolio::buyStock);
+            return portfolio;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot[version=" + version + ", offset=" + journalOffset
+                    + ", holdings=" + holdings.size() + ", users=" + users.size() + "]";
+        }
+    }
+
+    // ---------- Constructor ----------
+    public SnapshotStore(Path directory) {
+
+        if (directory == null) {
+            throw new IllegalArgumentException("Snapshot directory cannot be null");
+        }
+
+        this.directory = directory;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create snapshot directory: " + directory, e);
+        }
+
+        List<Long> versions = listVersions();
+        this.latestVersion = versions.isEmpty() ? 0 : versions.get(versions.size() - 1);
+    }
+
+    // ---------- Write ----------
+
+    /*
+     * Portfolio, users and offset must be one consistent cut; TradingService
+     * passes copies taken under every stripe and writes them outside.
+     */
+    public synchronized Snapshot write(Portfolio portfolio, Collection<User> users, long journalOffset) {
+
+        if (portfolio == null) {
+            throw new IllegalArgumentException("Portfolio cannot be null");
+        }
+
+        if (journalOffset < 0) {
+            throw new IllegalArgumentException("Journal offset cannot be negative");
+        }
+
+        long version = latestVersion + 1;
+        Map<String, Integer> holdings = new TreeMap<>(portfolio.getHoldings());
+        List<User> userList = users == null ? new ArrayList<>() : new ArrayList<>(users);
+
+        int records = 0;
+
+        writer.begin();
+        writer.append("SNAPSHOT,").append(FORMAT).append(',').append(version).append(',')
+                .append(journalOffset).newLine();
+
+        for (Map.Entry<String, Integer> entry : holdings.entrySet()) {
+            writer.append("H,").append(entry.getKey()).append(',').append(entry.getValue()).newLine();
+            records++;
+        }
+
+        for (User user : userList) {
+            writer.append("U,").append(user.getUserId()).append(',').append(Double.toString(user.getBalance()))
+                    .append(',').append(user.getUserName()).newLine();
+            records++;
+
+            for (Map.Entry<String, Integer> entry : new TreeMap<>(user.getPortfolio().getHoldings()).entrySet()) {
+                writer.append("P,").append(user.getUserId()).append(',').append(entry.getKey()).append(',')
+                        .append(entry.getValue()).newLine();
+                records++;
+            }
+        }
+
+        writer.append("END,").append(records).newLine();
+        writer.commit(fileFor(version));
+
+        latestVersion = version;
+        pruneOldSnapshots();
+
+        return new Snapshot(version, journalOffset, holdings, userList);
+    }
+
+    // ---------- Read ----------
+
+    // Newest readable snapshot, or null when there is none
+    public synchronized Snapshot loadLatest() {
+
+        List<Long> versions = listVersions();
+
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            Path file = fileFor(versions.get(i));
+            try {
+                return read(file);
+            } catch (Exception e) {
+                System.err.println("Skipping unreadable snapshot " + file + ": " + e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    public synchronized long getLatestVersion() {
+        return latestVersion;
+    }
+
+    // ---------- Helper Methods ----------
+    private static Snapshot read(Path file) {
+
+        Iterator<String> lines = ChecksummedFile.readLines(file).iterator();
+
+        String[] header = split(lines.hasNext() ? lines.next() : null, 4);
+        if (!"SNAPSHOT".equals(header[0]) || Integer.parseInt(header[1]) != FORMAT) {
+            throw new IllegalStateException("Not a snapshot file");
+        }
+
+        long version = Long.parseLong(header[2]);
+        long journalOffset = Long.parseLong(header[3]);
+
+        Map<String, Integer> holdings = new TreeMap<>();
+        Map<String, User> users = new TreeMap<>();
+        int records = 0;
+
+        while (lines.hasNext()) {
+
+            String line = lines.next();
+
+            if (line.startsWith("H,")) {
+                String[] parts = split(line, 3);
+                holdings.put(parts[1], Integer.parseInt(parts[2]));
+
+            } else if (line.startsWith("U,")) {
+                String[] parts = split(line, 4);
+                users.put(parts[1], new User(parts[1], parts[3], Double.parseDouble(parts[2])));
+
+            } else if (line.startsWith("P,")) {
+                String[] parts = split(line, 4);
+                User user = users.get(parts[1]);
+                if (user == null) {
+                    throw new IllegalStateException("Holding for unknown user " + parts[1]);
+                }
+                user.getPortfolio().buyStock(parts[2], Integer.parseInt(parts[3]));
+
+            } else if (line.startsWith("END,")) {
+                if (Integer.parseInt(split(line, 2)[1]) != records) {
+                    throw new IllegalStateException("Record count mismatch");
+                }
+                return new Snapshot(version, journalOffset, holdings, new ArrayList<>(users.values()));
+
+            } else {
+                throw new IllegalStateException("Unknown record: " + line);
+            }
+
+            records++;
+        }
+
+        throw new IllegalStateException("Snapshot is truncated");
+    }
+
+    private static String[] split(String line, int fields) {
+
+        if (line == null) {
+            throw new IllegalStateException("Snapshot is truncated");
+        }
+
+        String[] parts = line.split(",", fields);
+        if (parts.length != fields) {
+            throw new IllegalStateException("Malformed record: " + line);
+        }
+
+        return parts;
+    }
+
+    private List<Long> listVersions() {
+
+        List<Long> versions = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    versions.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list snapshots in " + directory, e);
+        }
+
+        Collections.sort(versions);
+        return versions;
+    }
+
+    private void pruneOldSnapshots() {
+
+        List<Long> versions = listVersions();
+
+        for (int i = 0; i < versions.size() - RETAINED_SNAPSHOTS; i++) {
+            try {
+                Files.deleteIfExists(fileFor(versions.get(i)));
+            } catch (IOException e) {
+                System.err.println("Failed to delete old snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    private Path fileFor(long version) {
+        return directory.resolve(PREFIX + version + SUFFIX);
+    }
+}
@@ -0,0 +1,119 @@
+package service;
+
+import model.Stock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Immutable symbol -> stock index built once per market refresh.
+ * Every symbol gets a dense integer id (its position in the index), so
+ * callers can keep per-symbol state in plain arrays instead of maps.
+ */
+public final class SymbolIndex {
+
+    public static final int NOT_FOUND = -1;
+
+    private static final SymbolIndex EMPTY = new SymbolIndex(Collections.emptyList());
+
+    private final Map<String, Integer> idsBySymbol;
+    private final Stock[] stocksById;
+    private final List<Stock> stocks;
+
+    // ---------- Constructor ----------
+    private SymbolIndex(List<Stock> loadedStocks) {
+
+        Map<String, Integer> ids = new HashMap<>(Math.max(16, loadedStocks.size() * 2));
+        List<Stock> unique = new ArrayList<>(loadedStocks.size());
+
+        for (Stock stock : loadedStocks) {
+            // First record wins, same as the old linear scan
+            if (!ids.containsKey(stock.getSymbol())) {
+                ids.put(stock.getSymbol(), unique.size());
+                unique.add(stock);
+            }
+        }
+
+        this.idsBySymbol = ids;
+        this.stocksById = unique.toArray(new Stock[0]);
+        this.stocks = Collections.unmodifiableList(unique);
+    }
+
+    // ---------- Factory ----------
+    public static SymbolIndex build(List<Stock> stocks) {
+
+        if (stocks == null) {
+            throw new IllegalArgumentException("Stock list cannot be null");
+        }
+
+        return stocks.isEmpty() ? EMPTY : new SymbolIndex(stocks);
+    }
+
+    public static SymbolIndex empty() {
+        return EMPTY;
+    }
+
+    // ---------- Lookup ----------
+    public int idOf(String symbol) {
+
+        if (symbol == null) {
+            return NOT_FOUND;
+        }
+
+        // Fast path: input is already normalized, no allocation
+        Integer id = idsBySymbol.get(symbol);
+
+        if (id == null && needsNormalization(symbol)) {
+            id = idsBySymbol.get(normalize(symbol));
+        }
+
+        return id == null ? NOT_FOUND : id;
+    }
+
+    public Stock get(String symbol) {
+        int id = idOf(symbol);
+        return id == NOT_FOUND ? null : stocksById[id];
+    }
+
+    public Stock getById(int id) {
+        if (id < 0 || id >= stocksById.length) {
+            throw new IllegalArgumentException("Invalid symbol id: " + id);
+        }
+        return stocksById[id];
+    }
+
+    public boolean contains(String symbol) {
+        return idOf(symbol) != NOT_FOUND;
+    }
+
+    // ---------- Read-Only Access ----------
+    public List<Stock> getStocks() {
+        return stocks;
+    }
+
+    public int size() {
+        return stocksById.length;
+    }
+
+    public boolean isEmpty() {
+        return stocksById.length == 0;
+    }
+
+    // ---------- Normalization ----------
+    public static String normalize(String symbol) {
+        return symbol.trim().toUpperCase();
+    }
+
+    private static boolean needsNormalization(String symbol) {
+        for (int i = 0; i < symbol.length(); i++) {
+            char c = symbol.charAt(i);
+            if (c <= ' ' || Character.isLowerCase(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package service;
+
+import model.Transaction;
+
+/*
+ * Receives every executed trade, in execution order per symbol and account.
+ * Called while the trade's lock is still held, so implementations must be
+ * quick and must not call back into the trading services.
+ */
+public interface TradeListener {
+
+    void onTrade(String accountId, Transaction transaction);
+}
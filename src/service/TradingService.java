@@ -1,114 +1,758 @@
 package service;
 
+import model.OrderRequest;
 import model.Portfolio;
 import model.Stock;
 import model.Transaction;
+import model.User;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Thread-safe: trades on different symbols run in parallel, trades on the
+ * same symbol are serialized by a striped lock so the portfolio update and
+ * its transaction record are applied in the same order.
+ *
+ * With an AccountEngine, user account trades take the same stripes and go
+ * to the same transaction file or journal, tagged with their userId, so a
+ * checkpoint cuts portfolio and accounts at one offset and recovery
+ * replays both from it.
+ */
 public class TradingService {
 
-    private final FileService fileService;
-    private Portfolio portfolio;
-    private List<Stock> marketStocks;
+    // Account id for the shared portfolio in listeners and the risk engine; has a space, so no user id can match it
+    public static final String PORTFOLIO_ACCOUNT = "Shared portfolio";
 
-    // ---------- Constructor ----------
+    private final FileService fileService;
+    private final MarketService marketService;
+    private final Portfolio portfolio;
+    private final MatchingEngine matchingEngine;
+    private final AccountEngine accountEngine;      // null without user accounts
+
+    // ---------- Snapshots ----------
+    private final SnapshotStore snapshotStore;
+    private volatile SnapshotStore.Snapshot lastSnapshot;
+    private final ReentrantLock checkpointLock = new ReentrantLock();  // taken before the stripes
+    private long recoveredRecords;
+
+    // ---------- Lock Striping ----------
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+
+    // ---------- Journal Mode (optional) ----------
+    private volatile TransactionJournal journal;
+    private volatile int checkpointInterval;
+    private final AtomicInteger tradesSinceCheckpoint = new AtomicInteger();
+
+    // ---------- Async Persistence (optional, on top of journal mode) ----------
+    private volatile PersistencePipeline pipeline;
+
+    private volatile boolean verbose = true;
+
+    private final List<TradeListener> tradeListeners = new CopyOnWriteArrayList<>();
+    private volatile RiskEngine riskEngine;
+
+    // ---------- Metrics ----------
+    private static final LatencyHistogram VALIDATE = Metrics.histogram("trading.validate");
+    private static final LatencyHistogram PORTFOLIO_UPDATE = Metrics.histogram("trading.portfolioUpdate");
+    private static final LatencyHistogram ORDER = Metrics.histogram("trading.order");
+    private static final LatencyHistogram ORDER_QUEUED = Metrics.histogram("trading.orderQueued");
+    private static final LatencyHistogram BATCH = Metrics.histogram("trading.batch");
+    private static final LatencyHistogram CHECKPOINT = Metrics.histogram("trading.checkpoint");
+    private static final LongAdder EXECUTED = Metrics.counter("trading.executed");
+    private static final LongAdder REJECTED = Metrics.counter("trading.rejected");
+
+    // ---------- Constructors ----------
     public TradingService(FileService fileService) {
+        this(fileService, new MarketService(fileService));
+    }
+
+    public TradingService(FileService fileService, MarketService marketService) {
+        this(fileService, marketService, null);
+    }
+
+    // Account trades are persisted and recovered with the portfolio's; accountEngine may be null
+    public TradingService(FileService fileService, MarketService marketService, AccountEngine accountEngine) {
         if (fileService == null) {
             throw new IllegalArgumentException("FileService cannot be null");
         }
 
+        if (marketService == null) {
+            throw new IllegalArgumentException("MarketService cannot be null");
+        }
+
         this.fileService = fileService;
-        this.portfolio = fileService.loadPortfolio();
-        this.marketStocks = fileService.loadStocks();
+        this.marketService = marketService;
+        this.accountEngine = accountEngine;
+        this.snapshotStore = fileService.openSnapshotStore();
+        this.portfolio = recoverPortfolio();
+        this.matchingEngine = new MatchingEngine(marketService);
+
+        int stripeCount = Integer.highestOneBit(
+                Math.max(1, Runtime.getRuntime().availableProcessors() * 4) * 2 - 1);
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = stripeCount - 1;
+
+        if (accountEngine != null) {
+            accountEngine.attach(this);
+        }
+    }
+
+    // ---------- Console Output ----------
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 
-    // ---------- Market Data ----------
-    public void displayMarketData() {
+    // ---------- Trade Listeners ----------
+    public void addTradeListener(TradeListener listener) {
 
-        if (marketStocks.isEmpty()) {
-            System.out.println("No stocks available in the market.");
-            return;
+        if (listener == null) {
+            throw new IllegalArgumentException("Trade listener cannot be null");
         }
 
-        System.out.println("Symbol | Company Name         | Price");
-        System.out.println("--------------------------------------");
+        tradeListeners.add(listener);
+    }
+
+    // ---------- Pre-Trade Risk ----------
+
+    /*
+     * Routes every trade through the engine's checks before it touches the
+     * portfolio. The engine's counters start from the current holdings.
+     */
+    public void setRiskEngine(RiskEngine riskEngine) {
+
+        if (riskEngine == null) {
+            throw new IllegalArgumentException("Risk engine cannot be null");
+        }
+
+        lockAllStripes();
+        try {
+            riskEngine.seed(PORTFOLIO_ACCOUNT, portfolio);
+            this.riskEngine = riskEngine;
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    public RiskEngine getRiskEngine() {
+        return riskEngine;
+    }
+
+    // ---------- Journal Mode ----------
+
+    /*
+     * Switches persistence from "rewrite portfolio + reopen transaction file
+     * per trade" to an append-only journal. The portfolio file becomes a
+     * checkpoint written every checkpointInterval trades and on shutdown.
+     */
+    public void useJournal(TransactionJournal journal, int checkpointInterval) {
+
+        if (journal == null) {
+            throw new IllegalArgumentException("Journal cannot be null");
+        }
+
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be greater than zero");
+        }
+
+        this.checkpointInterval = checkpointInterval;
+        this.tradesSinceCheckpoint.set(0);
+        this.journal = journal;
+    }
+
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    // ---------- Async Persistence ----------
+
+    /*
+     * Journal mode with the journal writes moved off the trade path:
+     * trades are queued on the pipeline and its writer thread batches them
+     * to disk. buyStock, sellStock and placeOrder still return only once
+     * their trade is durable; placeOrderAsync returns once it is queued.
+     */
+    public void usePersistencePipeline(PersistencePipeline pipeline, int checkpointInterval) {
+
+        if (pipeline == null) {
+            throw new IllegalArgumentException("Persistence pipeline cannot be null");
+        }
+
+        useJournal(pipeline.getJournal(), checkpointInterval);
+        this.pipeline = pipeline;
+    }
+
+    public PersistencePipeline getPersistencePipeline() {
+        return pipeline;
+    }
+
+    public Portfolio getPortfolio() {
+        return portfolio;
+    }
+
+    public AccountEngine getAccountEngine() {
+        return accountEngine;
+    }
+
+    /*
+     * Takes every stripe only long enough for a consistent cut: no trade is
+     * half-applied, every applied trade is already in the journal, and the
+     * portfolio and the accounts changed since the last cut are copied.
+     * The copies are then written and fsynced outside the stripes: the
+     * snapshot (tagged with the journal offset of the cut, holding those
+     * accounts) first, then their account files. Checkpoints run one at a
+     * time, so snapshots and account files land in cut order.
+     */
+    public void checkpoint() {
+
+        long start = System.nanoTime();
+        TransactionJournal current = journal;
+        Portfolio cut = new Portfolio();
+        List<User> changedAccounts;
+        long journalOffset;
+
+        checkpointLock.lock();
+        try {
+            lockAllStripes();
+            try {
+                PersistencePipeline queued = pipeline;
+                if (queued != null) {
+                    // Every applied trade is already queued; write them out before the cut
+                    queued.sync();
+                }
+
+                if (current != null) {
+                    current.sync();
+                    journalOffset = current.getEndOffset();
+                } else {
+                    journalOffset = fileService.getTransactionFileSize();
+                    // Trades rewrite portfolio.txt under their stripe in this mode, so this one must too
+                    fileService.savePortfolio(portfolio);
+                }
+
+                portfolio.forEachHolding(cut::buyStock);
+                changedAccounts = accountEngine == null ? List.of() : accountEngine.takeDirty();
+                tradesSinceCheckpoint.set(0);
+
+            } finally {
+                unlockAllStripes();
+            }
+
+            if (current != null) {
+                fileService.savePortfolio(cut);
+            }
+            lastSnapshot = snapshotStore.write(cut, changedAccounts, journalOffset);
+            if (accountEngine != null) {
+                // After the snapshot, so an account file is never ahead of the latest one
+                accountEngine.save(changedAccounts);
+            }
+
+        } finally {
+            checkpointLock.unlock();
+        }
+
+        CHECKPOINT.recordSince(start);
+    }
+
+    // ---------- Shutdown ----------
+    public void shutdown() {
+
+        TransactionJournal current = journal;
+        PersistencePipeline queued = pipeline;
 
-        for (Stock stock : marketStocks) {
-            System.out.println(stock);
+        checkpoint();
+
+        if (queued != null) {
+            queued.close();
+            System.out.println("Persistence pipeline closed. " + queued.getStats());
         }
+
+        if (current != null) {
+            current.close();
+            System.out.println("Journal closed. " + current.getStats());
+        }
+    }
+
+    // ---------- Recovery ----------
+    public SnapshotStore.Snapshot getLastSnapshot() {
+        return lastSnapshot;
+    }
+
+    // Journal records replayed on top of the snapshot at startup
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    /*
+     * Replays a ledger from scratch. Recovery must always produce the same
+     * holdings as this; it is O(history) and meant for verification.
+     */
+    public static Portfolio replay(List<Transaction> transactions) {
+        Portfolio replayed = new Portfolio();
+        applyAll(replayed, transactions);
+        return replayed;
     }
 
     // ---------- BUY Stock ----------
     public void buyStock(String symbol, int quantity) {
+        executeTrade(null, Transaction.Type.BUY, symbol, quantity);
+        if (verbose) {
+            System.out.println("Stock purchased successfully.");
+        }
+    }
+
+    // ---------- SELL Stock ----------
+    public void sellStock(String symbol, int quantity) {
+        executeTrade(null, Transaction.Type.SELL, symbol, quantity);
+        if (verbose) {
+            System.out.println("Stock sold successfully.");
+        }
+    }
+
+    // ---------- Market Order (no console output) ----------
+
+    // Executes at the market price and returns the recorded transaction
+    public Transaction placeOrder(Transaction.Type type, String symbol, int quantity) {
+
+        if (type == null) {
+            throw new IllegalArgumentException("Order type cannot be null");
+        }
+
+        return executeTrade(null, type, symbol, quantity);
+    }
+
+    /*
+     * A trade on one user's account, through the AccountEngine's balance,
+     * holdings and risk checks, and persisted like any other: it is in the
+     * transaction file or journal, tagged with userId, before this returns.
+     */
+    public Transaction placeOrder(String userId, Transaction.Type type, String symbol, int quantity) {
 
+        if (type == null) {
+            throw new IllegalArgumentException("Order type cannot be null");
+        }
+
+        if (accountEngine == null) {
+            throw new IllegalStateException("User accounts are not enabled");
+        }
+
+        return executeTrade(userId, type, symbol, quantity);
+    }
+
+    /*
+     * Like placeOrder, but returns as soon as the trade is applied and
+     * queued for persistence; the future completes once it is durable.
+     * Rejections are still thrown from here. Without a persistence
+     * pipeline the trade is durable before this returns.
+     */
+    public CompletableFuture<Transaction> placeOrderAsync(Transaction.Type type, String symbol, int quantity) {
+
+        if (type == null) {
+            throw new IllegalArgumentException("Order type cannot be null");
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<Transaction> durable = submitTrade(null, type, symbol, quantity);
+
+        ORDER_QUEUED.recordSince(start);
+        return durable;
+    }
+
+    // ---------- Order Book API ----------
+
+    /*
+     * Orders placed here trade against other resting orders in the
+     * matching engine rather than at the static market price. Fills are
+     * published to listeners registered on getMatchingEngine().
+     */
+    public long placeLimitOrder(Transaction.Type side, String symbol, int quantity, double price) {
         validateSymbol(symbol);
         validateQuantity(quantity);
 
-        Stock stock = findStock(symbol);
+        // Resting orders do not touch the portfolio, so they are checked but not reserved
+        RiskEngine risk = riskEngine;
+        if (risk != null) {
+            risk.check(PORTFOLIO_ACCOUNT, side, symbol, quantity, price);
+        }
 
-        if (stock == null) {
+        return matchingEngine.submitLimitOrder(side, symbol, quantity, price);
+    }
+
+    public int placeMarketOrder(Transaction.Type side, String symbol, int quantity) {
+        validateSymbol(symbol);
+        validateQuantity(quantity);
+
+        // Checked like a limit order, priced at the opposite side of the book it will sweep
+        RiskEngine risk = riskEngine;
+        if (risk != null) {
+            risk.check(PORTFOLIO_ACCOUNT, side, symbol, quantity, marketOrderPrice(side, symbol));
+        }
+
+        return matchingEngine.submitMarketOrder(side, symbol, quantity);
+    }
+
+    public boolean cancelOrder(String symbol, long orderId) {
+        validateSymbol(symbol);
+        return matchingEngine.cancelOrder(symbol, orderId);
+    }
+
+    public MatchingEngine getMatchingEngine() {
+        return matchingEngine;
+    }
+
+    // Best ask for a buy, best bid for a sell; the live market price when that side is empty
+    private double marketOrderPrice(Transaction.Type side, String symbol) {
+
+        double best = side == Transaction.Type.BUY ? matchingEngine.getBestAsk(symbol) : matchingEngine.getBestBid(symbol);
+        return Double.isNaN(best) ? marketService.getPriceTable().getPrice(symbol) : best;
+    }
+
+    // ---------- View Portfolio ----------
+    public void displayPortfolio() {
+        System.out.print(marketService.getReportRenderer().renderPortfolio(portfolio));
+    }
+
+    // ---------- Batch Orders ----------
+
+    /*
+     * Executes a batch of market orders in order, holding every stripe for
+     * the whole batch. Orders that fail validation, risk checks or the
+     * portfolio update are skipped and reported; the rest are persisted
+     * together: one transaction write (one journal write and fsync in
+     * journal mode) and one portfolio checkpoint.
+     */
+    public BatchResult executeBatch(Iterable<OrderRequest> orders) {
+
+        if (orders == null) {
+            throw new IllegalArgumentException("Orders cannot be null");
+        }
+
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<Transaction> executed = new ArrayList<>();
+
+        lockAllStripes();
+        try {
+            PriceTable prices = marketService.getPriceTable();
+            int index = 0;
+
+            for (OrderRequest order : orders) {
+                index++;
+                try {
+                    executed.add(applyTrade(order.getType(), order.getStockSymbol(), order.getQuantity(), prices));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    REJECTED.increment();
+                    result.reject(index, order, e.getMessage());
+                }
+            }
+
+            if (!executed.isEmpty()) {
+                PersistencePipeline queued = pipeline;
+                TransactionJournal current = journal;
+
+                if (queued != null) {
+                    // checkpoint() below waits for the writer
+                    for (Transaction transaction : executed) {
+                        queued.submit(transaction);
+                    }
+                } else if (current == null) {
+                    fileService.appendTransactions(executed);
+                } else {
+                    current.awaitDurable(current.appendAll(executed));
+                }
+            }
+
+        } finally {
+            unlockAllStripes();
+        }
+
+        if (!executed.isEmpty()) {
+            // After the stripes are released: a checkpoint takes its lock before them
+            checkpoint();
+        }
+
+        result.executed = executed.size();
+        result.elapsedNanos = System.nanoTime() - start;
+        BATCH.record(result.elapsedNanos);
+        return result;
+    }
+
+    // Bulk import of an orders CSV (TYPE,SYMBOL,QTY per line)
+    public BatchResult importOrders(Path orderFile) {
+
+        if (orderFile == null) {
+            throw new IllegalArgumentException("Order file cannot be null");
+        }
+
+        return executeBatch(fileService.loadOrders(orderFile));
+    }
+
+    // ---------- Trade Execution ----------
+
+    // End to end, including persistence and the durability wait; accountId is null for the portfolio
+    private Transaction executeTrade(String accountId, Transaction.Type type, String symbol, int quantity) {
+
+        long start = System.nanoTime();
+        CompletableFuture<Transaction> durable = submitTrade(accountId, type, symbol, quantity);
+        Transaction transaction;
+
+        try {
+            transaction = durable.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to persist transaction", e.getCause());
+        }
+
+        ORDER.recordSince(start);
+        return transaction;
+    }
+
+    private CompletableFuture<Transaction> submitTrade(String accountId, Transaction.Type type, String symbol,
+            int quantity) {
+        try {
+            return tradeAndPersist(accountId, type, symbol, quantity);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            REJECTED.increment();
+            throw e;
+        }
+    }
+
+    // Returns once the trade is queued (pipeline) or durable (every other mode)
+    private CompletableFuture<Transaction> tradeAndPersist(String accountId, Transaction.Type type, String symbol,
+            int quantity) {
+
+        validateSymbol(symbol);
+        validateQuantity(quantity);
+
+        PriceTable prices = marketService.getPriceTable();
+        int stockId = prices.getSymbolIndex().idOf(symbol);
+
+        if (stockId == SymbolIndex.NOT_FOUND) {
             throw new IllegalArgumentException("Stock not found in market");
         }
 
-        // Update portfolio
-        portfolio.buyStock(symbol, quantity);
+        PersistencePipeline queued = pipeline;
+        TransactionJournal current = journal;
+        long journalSeq = 0;
+        CompletableFuture<Transaction> durable = null;
+        Transaction transaction;
+
+        ReentrantLock stripe = stripeFor(prices.getSymbolIndex().getById(stockId).getSymbol());
+        stripe.lock();
+        try {
+            if (accountId == null) {
+                transaction = applyTrade(type, symbol, quantity, prices);
+            } else {
+                transaction = accountEngine.apply(accountId, type, symbol, quantity, prices);
+                EXECUTED.increment();
+            }
 
-        // Save portfolio
-        fileService.savePortfolio(portfolio);
+            if (queued != null) {
+                // Queued under the stripe, so the writer sees each symbol's trades in order
+                durable = queued.submit(transaction);
+            } else if (current == null) {
+                if (accountId == null) {
+                    fileService.savePortfolio(portfolio);
+                }
+                fileService.appendTransaction(transaction);
+            } else {
+                // Only queue here; the fsync wait happens outside the stripe
+                journalSeq = current.append(transaction);
+            }
 
-        // Record transaction
-        Transaction transaction = new Transaction(Transaction.Type.BUY, symbol, quantity, stock.getPrice());
+        } finally {
+            stripe.unlock();
+        }
 
-        fileService.appendTransaction(transaction);
+        if (queued == null && current != null) {
+            current.awaitDurable(journalSeq);
+        }
 
-        System.out.println("Stock purchased successfully.");
+        if (current != null) {
+            int trades = tradesSinceCheckpoint.incrementAndGet();
+            // Only the thread that resets the count checkpoints, however many cross the interval together
+            if (trades >= checkpointInterval && tradesSinceCheckpoint.compareAndSet(trades, 0)) {
+                checkpoint();
+            }
+        }
+
+        return durable != null ? durable : CompletableFuture.completedFuture(transaction);
     }
 
-    // ---------- SELL Stock ----------
-    public void sellStock(String symbol, int quantity) {
+    /*
+     * Risk checks, portfolio update and listeners for one trade, without
+     * persisting it. The caller holds the symbol's stripe.
+     */
+    private Transaction applyTrade(Transaction.Type type, String symbol, int quantity, PriceTable prices) {
 
+        long start = System.nanoTime();
         validateSymbol(symbol);
         validateQuantity(quantity);
 
-        Stock stock = findStock(symbol);
+        // The id, the stock and the price all come from the same table
+        int stockId = prices.getSymbolIndex().idOf(symbol);
 
-        if (stock == null) {
+        if (stockId == SymbolIndex.NOT_FOUND) {
             throw new IllegalArgumentException("Stock not found in market");
         }
 
+        Stock stock = prices.getSymbolIndex().getById(stockId);
+        double price = prices.getPrice(stockId);
+
+        RiskEngine risk = riskEngine;
+        RiskEngine.Reservation reservation = risk == null ? null
+                : risk.reserve(PORTFOLIO_ACCOUNT, type, stock.getSymbol(), quantity, price);
+
+        // Validation covers the argument checks, the symbol lookup and the risk checks
+        long validated = VALIDATE.recordSince(start);
+
         // Update portfolio
-        portfolio.sellStock(symbol, quantity);
+        try {
+            if (type == Transaction.Type.BUY) {
+                portfolio.buyStock(symbol, quantity);
+            } else {
+                portfolio.sellStock(symbol, quantity);
+            }
+        } catch (RuntimeException e) {
+            if (reservation != null) {
+                reservation.cancel();
+            }
+            throw e;
+        }
 
-        // Save portfolio
-        fileService.savePortfolio(portfolio);
+        PORTFOLIO_UPDATE.recordSince(validated);
+        EXECUTED.increment();
 
-        // Record transaction
-        Transaction transaction = new Transaction(Transaction.Type.SELL, symbol, quantity, stock.getPrice());
+        Transaction transaction = new Transaction(type, symbol, quantity, price);
 
-        fileService.appendTransaction(transaction);
+        // Still under the stripe, so listeners see trades in order per symbol
+        for (TradeListener listener : tradeListeners) {
+            listener.onTrade(PORTFOLIO_ACCOUNT, transaction);
+        }
 
-        System.out.println("Stock sold successfully.");
+        return transaction;
     }
 
-    // ---------- View Portfolio ----------
-    public void displayPortfolio() {
-        System.out.println(portfolio);
+    // ---------- Recovery Helpers ----------
+
+    /*
+     * Startup costs O(journal tail): the latest snapshot plus the records
+     * after its offset. Without a usable snapshot (first start, or a
+     * replaced transactions.txt) portfolio.txt is the base and a snapshot
+     * is taken right away. The account files are the base for accounts;
+     * the snapshot's copies of the accounts changed in its cut replace
+     * theirs, in case the checkpoint stopped before writing them.
+     */
+    private Portfolio recoverPortfolio() {
+
+        SnapshotStore.Snapshot snapshot = snapshotStore.loadLatest();
+        long fileSize = fileService.getTransactionFileSize();
+
+        if (snapshot == null || snapshot.getJournalOffset() > fileSize) {
+
+            if (snapshot != null) {
+                System.err.println("Snapshot " + snapshot.getVersion()
+                        + " is ahead of the transaction file, falling back to portfolio.txt");
+            }
+
+            Portfolio loaded;
+            try {
+                loaded = fileService.loadPortfolio();
+            } catch (IllegalStateException e) {
+                // Damaged portfolio.txt: the transaction file has every trade that built it
+                System.err.println(e.getMessage() + ", rebuilding the portfolio from the transaction file");
+                loaded = replay(fileService.loadTransactions());
+                fileService.savePortfolio(loaded);
+            }
+
+            lastSnapshot = snapshotStore.write(loaded, List.of(), fileSize);
+            return loaded;
+        }
+
+        Portfolio recovered = snapshot.toPortfolio();
+        List<Transaction> tail = fileService.loadTransactionsFrom(snapshot.getJournalOffset()).getTransactions();
+
+        applyAll(recovered, tail);
+        recoveredRecords = tail.size();
+        lastSnapshot = snapshot;
+
+        if (!tail.isEmpty()) {
+            // portfolio.txt lags behind when the last run ended without a checkpoint
+            fileService.savePortfolio(recovered);
+        }
+
+        if (accountEngine != null) {
+            accountEngine.restore(snapshot.getUsers());
+            replayAccounts(tail);
+        }
+
+        return recovered;
     }
 
-    // ---------- Helper Methods ----------
-    private Stock findStock(String symbol) {
+    // Account trades after the cut, on top of the snapshot's accounts
+    private void replayAccounts(List<Transaction> tail) {
 
-        symbol = symbol.trim().toUpperCase();
+        for (Transaction transaction : tail) {
+            if (transaction.getAccountId() == null) {
+                continue;
+            }
+            try {
+                accountEngine.replay(transaction);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                System.err.println("Skipping unreplayable transaction " + transaction.toFileString()
+                        + ": " + e.getMessage());
+            }
+        }
+
+        // Same reason as portfolio.txt above
+        accountEngine.writeDirty();
+    }
 
-        for (Stock stock : marketStocks) {
-            if (stock.getSymbol().equals(symbol)) {
-                return stock;
+    // Portfolio trades only; account trades are replayed by the AccountEngine
+    private static void applyAll(Portfolio target, List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            if (transaction.getAccountId() != null) {
+                continue;
+            }
+            try {
+                target.apply(transaction);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                System.err.println("Skipping unreplayable transaction " + transaction.toFileString()
+                        + ": " + e.getMessage());
             }
         }
-        return null;
     }
 
+    // ---------- Lock Helpers ----------
+    private ReentrantLock stripeFor(String normalizedSymbol) {
+        int h = normalizedSymbol.hashCode();
+        return stripes[(h ^ (h >>> 16)) & stripeMask];
+    }
+
+    private void lockAllStripes() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAllStripes() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    // ---------- Helper Methods ----------
     private void validateSymbol(String symbol) {
         if (symbol == null || symbol.trim().isEmpty()) {
             throw new IllegalArgumentException("Stock symbol cannot be null or empty");
@@ -120,4 +764,49 @@ public class TradingService {
             throw new IllegalArgumentException("Quantity must be greater than zero");
         }
     }
+
+    // ---------- Batch Result ----------
+    public static final class BatchResult {
+
+        // Only the first few rejections are kept with their reasons
+        private static final int MAX_REPORTED_REJECTIONS = 20;
+
+        private int executed;
+        private int rejected;
+        private long elapsedNanos;
+        private final List<String> rejections = new ArrayList<>();
+
+        private BatchResult() {
+        }
+
+        private void reject(int index, OrderRequest order, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add("Order " + index + " (" + order + "): " + reason);
+            }
+        }
+
+        public int getExecuted() {
+            return executed;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        public List<String> getRejections() {
+            return Collections.unmodifiableList(rejections);
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Executed: %d | Rejected: %d | Time: %.1f ms | %.0f orders/s",
+                    executed, rejected, elapsedNanos / 1e6,
+                    (executed + rejected) * 1e9 / Math.max(1, elapsedNanos));
+        }
+    }
 }
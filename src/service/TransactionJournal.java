@@ -0,0 +1,418 @@
+package service;
+
+import model.Transaction;
+import model.TransactionCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Append-only transaction journal over a single open FileChannel.
+ *
+ * Records use the same line format as transactions.txt, so the journal
+ * file is the transaction file. In BATCH mode concurrent callers are
+ * group-committed: the first waiter becomes the leader and writes + fsyncs
+ * everything queued so far, the rest just wait for it.
+ */
+public class TransactionJournal implements Closeable {
+
+    // ---------- Durability Levels ----------
+    public enum Durability {
+        NONE,        // write to the OS, never fsync
+        BATCH,       // group commit: one write + fsync per batch of trades
+        EVERY_TRADE  // write + fsync each trade on its own
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Durability durability;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+
+    // ---------- State (guarded by lock) ----------
+    private final TransactionCodec codec = new TransactionCodec();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appendedSeq;
+    private long committedSeq;
+    private long endOffset;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    // ---------- Statistics (guarded by lock) ----------
+    private final long openedAtNanos = System.nanoTime();
+    private long records;
+    private long batches;
+    private long fsyncs;
+    private long fsyncNanosTotal;
+    private long fsyncNanosMax;
+
+    // ---------- Constructor ----------
+    public TransactionJournal(Path file, Durability durability) {
+
+        if (file == null) {
+            throw new IllegalArgumentException("Journal file cannot be null");
+        }
+
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability level cannot be null");
+        }
+
+        try {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            this.endOffset = channel.size();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open transaction journal: " + file, e);
+        }
+
+        this.durability = durability;
+    }
+
+    // ---------- Append ----------
+
+    /*
+     * Queues one record and returns its sequence number. In NONE and
+     * EVERY_TRADE modes the record is written before this returns; in
+     * BATCH mode it is written by the next group commit.
+     */
+    public long append(Transaction transaction) {
+
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+
+        lock.lock();
+        try {
+            ensureWritable();
+
+            // Encoded straight into the pending buffer, no per-record String
+            pending = ensureCapacity(pending, TransactionCodec.maxEncodedLength(transaction));
+            endOffset += codec.encodeLine(transaction, pending);
+            records++;
+
+            long seq = ++appendedSeq;
+
+            if (durability != Durability.BATCH) {
+                writeInline(durability == Durability.EVERY_TRADE);
+            }
+
+            return seq;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Queues a whole batch as one write: in NONE and EVERY_TRADE modes the
+     * records go out in a single write (and a single fsync) before this
+     * returns. Returns the sequence number of the last record.
+     */
+    public long appendAll(Collection<Transaction> transactions) {
+
+        if (transactions == null) {
+            throw new IllegalArgumentException("Transactions cannot be null");
+        }
+
+        lock.lock();
+        try {
+            ensureWritable();
+
+            for (Transaction transaction : transactions) {
+                pending = ensureCapacity(pending, TransactionCodec.maxEncodedLength(transaction));
+                endOffset += codec.encodeLine(transaction, pending);
+            }
+
+            records += transactions.size();
+            appendedSeq += transactions.size();
+
+            if (durability != Durability.BATCH && !transactions.isEmpty()) {
+                writeInline(durability == Durability.EVERY_TRADE);
+
+                // Do not keep a batch-sized buffer around after a bulk import
+                if (pending.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                    pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+                }
+            }
+
+            return appendedSeq;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------- Group Commit ----------
+    public void awaitDurable(long seq) {
+
+        lock.lock();
+        try {
+            while (committedSeq < seq) {
+
+                if (failure != null) {
+                    throw new RuntimeException("Transaction journal write failed", failure);
+                }
+
+                if (flushing) {
+                    committed.awaitUninterruptibly();
+                    continue;
+                }
+
+                // Become the leader for everything queued so far
+                flushing = true;
+                ByteBuffer batch = pending;
+                pending = spare;
+                long batchSeq = appendedSeq;
+
+                IOException error = null;
+                long fsyncNanos = 0;
+                lock.unlock();
+                try {
+                    fsyncNanos = writeFully(batch, true);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+
+                batch.clear();
+                spare = batch;
+                flushing = false;
+
+                if (error != null) {
+                    failure = error;
+                } else {
+                    recordWrite(fsyncNanos, true);
+                    committedSeq = batchSeq;
+                }
+
+                committed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void commit(Transaction transaction) {
+        awaitDurable(append(transaction));
+    }
+
+    // ---------- Flush Everything ----------
+    public void sync() {
+
+        long seq;
+
+        lock.lock();
+        try {
+            seq = appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+
+        awaitDurable(seq);
+
+        // NONE never forces on its own, but an explicit sync should
+        if (durability == Durability.NONE) {
+            lock.lock();
+            try {
+                ensureWritable();
+                recordFsync(timedForce());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to sync transaction journal", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // ---------- Accessors ----------
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /*
+     * Byte offset just past the last appended record, including records
+     * still waiting for a group commit.
+     */
+    public long getEndOffset() {
+        lock.lock();
+        try {
+            return endOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(records, batches, fsyncs, fsyncNanosTotal, fsyncNanosMax,
+                    System.nanoTime() - openedAtNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------- Close ----------
+    @Override
+    public void close() {
+
+        if (isClosed()) {
+            return;
+        }
+
+        sync();
+
+        lock.lock();
+        try {
+            closed = true;
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close transaction journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private void writeInline(boolean force) {
+        try {
+            long fsyncNanos = writeFully(pending, force);
+            recordWrite(fsyncNanos, force);
+            committedSeq = appendedSeq;
+        } catch (IOException e) {
+            failure = e;
+            throw new RuntimeException("Transaction journal write failed", e);
+        } finally {
+            pending.clear();
+        }
+    }
+
+    // Returns the time spent in fsync, zero when not forced
+    private long writeFully(ByteBuffer buffer, boolean force) throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        return force ? timedForce() : 0;
+    }
+
+    private long timedForce() throws IOException {
+        long start = System.nanoTime();
+        channel.force(false);
+        return System.nanoTime() - start;
+    }
+
+    private void recordWrite(long fsyncNanos, boolean forced) {
+        batches++;
+        if (forced) {
+            recordFsync(fsyncNanos);
+        }
+    }
+
+    private void recordFsync(long fsyncNanos) {
+        fsyncs++;
+        fsyncNanosTotal += fsyncNanos;
+        fsyncNanosMax = Math.max(fsyncNanosMax, fsyncNanos);
+    }
+
+    private void ensureWritable() {
+        if (closed) {
+            throw new IllegalStateException("Transaction journal is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Transaction journal failed earlier", failure);
+        }
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra) {
+
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+
+        int required = buffer.position() + extra;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(required, buffer.capacity() * 2));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    // ---------- Statistics Snapshot ----------
+    public static final class Stats {
+
+        private final long records;
+        private final long batches;
+        private final long fsyncs;
+        private final long fsyncNanosTotal;
+        private final long fsyncNanosMax;
+        private final long elapsedNanos;
+
+        private Stats(long records, long batches, long fsyncs,
+                long fsyncNanosTotal, long fsyncNanosMax, long elapsedNanos) {
+            this.records = records;
+            this.batches = batches;
+            this.fsyncs = fsyncs;
+            this.fsyncNanosTotal = fsyncNanosTotal;
+            this.fsyncNanosMax = fsyncNanosMax;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getFsyncs() {
+            return fsyncs;
+        }
+
+        public double getRecordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : records * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        public double getAverageFsyncMicros() {
+            return fsyncs == 0 ? 0 : fsyncNanosTotal / 1_000.0 / fsyncs;
+        }
+
+        public double getMaxFsyncMicros() {
+            return fsyncNanosMax / 1_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Records: %d | Batches: %d | Throughput: %.1f rec/s | Fsync avg: %.1f us | Fsync max: %.1f us",
+                    records, batches, getRecordsPerSecond(),
+                    getAverageFsyncMicros(), getMaxFsyncMicros());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package service;
+
+import model.Transaction;
+import model.TransactionCodec;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Loads transactions.txt by memory-mapping it and parsing line-aligned
+ * chunks in parallel on a fork-join pool. Chunk results are joined in file
+ * order, so the output matches the sequential loader record for record.
+ *
+ * Files larger than one mapping (2 GB) are mapped as several regions,
+ * each cut at a line boundary. Loading can start at a byte offset, which
+ * is how recovery replays only the journal tail after a snapshot.
+ */
+public class TransactionLoader {
+
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    // ---------- Load Result ----------
+    public static final class Result {
+
+        private final List<Transaction> transactions;
+        private final long skippedLines;
+
+        private Result(List<Transaction> transactions, long skippedLines) {
+            this.transactions = transactions;
+            this.skippedLines = skippedLines;
+        }
+
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+
+        public long getSkippedLines() {
+            return skippedLines;
+        }
+    }
+
+    // ---------- Constructors ----------
+    public TransactionLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public TransactionLoader(ForkJoinPool pool, int chunkSize) {
+
+        if (pool == null) {
+            throw new IllegalArgumentException("ForkJoinPool cannot be null");
+        }
+
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than zero");
+        }
+
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    // ---------- Load ----------
+    public Result load(Path file) {
+        return load(file, 0);
+    }
+
+    // Loads only the records from fromOffset on, which must be a line start
+    public Result load(Path file, long fromOffset) {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+
+            if (fromOffset < 0 || fromOffset > size) {
+                throw new IllegalArgumentException("Offset " + fromOffset
+                        + " is outside the transaction file (" + size + " bytes)");
+            }
+
+            List<Transaction> transactions = new ArrayList<>();
+            long skipped = 0;
+            long regionStart = fromOffset;
+
+            while (regionStart < size) {
+
+                long regionLength = Math.min(MAX_REGION_SIZE, size - regionStart);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionLength);
+
+                // Cut the region after its last newline, unless it is the file tail
+                int usable = (int) regionLength;
+                if (regionStart + regionLength < size) {
+                    usable = lastLineEnd(region, usable);
+                    if (usable == 0) {
+                        throw new IllegalStateException("Transaction record longer than 2 GB at offset " + regionStart);
+                    }
+                }
+
+                ChunkResult chunk = pool.invoke(new ParseTask(region, 0, usable, chunkSize));
+                transactions.addAll(chunk.transactions);
+                skipped += chunk.skipped;
+
+                regionStart += usable;
+            }
+
+            return new Result(Collections.unmodifiableList(transactions), skipped);
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read transaction file", e);
+        }
+    }
+
+    // ---------- Fork-Join Parsing ----------
+    private static final class ChunkResult {
+
+        private final List<Transaction> transactions;
+        private long skipped;
+
+        ChunkResult(List<Transaction> transactions) {
+            this.transactions = transactions;
+        }
+
+        ChunkResult append(ChunkResult next) {
+            transactions.addAll(next.transactions);
+            skipped += next.skipped;
+            return this;
+        }
+    }
+
+    private static final class ParseTask extends RecursiveTask<ChunkResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MappedByteBuffer region;
+        private final int start;
+        private final int end;
+        private final int chunkSize;
+
+        ParseTask(MappedByteBuffer region, int start, int end, int chunkSize) {
+            this.region = region;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+
+            if (end - start <= chunkSize) {
+                return parseRange();
+            }
+
+            // Split near the middle, moved forward to the next line start
+            int split = nextLineStart(region, start + (end - start) / 2, end);
+
+            if (split <= start || split >= end) {
+                return parseRange();
+            }
+
+            ParseTask left = new ParseTask(region, start, split, chunkSize);
+            ParseTask right = new ParseTask(region, split, end, chunkSize);
+
+            right.fork();
+            ChunkResult leftResult = left.compute();
+            return leftResult.append(right.join());
+        }
+
+        private ChunkResult parseRange() {
+
+            ChunkResult result = new ChunkResult(new ArrayList<>((end - start) / 40 + 1));
+            TransactionCodec codec = new TransactionCodec();
+            byte[] line = new byte[256];
+
+            int pos = start;
+            while (pos < end) {
+
+                int lineEnd = pos;
+                while (lineEnd < end && region.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+
+                int length = lineEnd - pos;
+                if (length > 0 && region.get(lineEnd - 1) == '\r') {
+                    length--;
+                }
+
+                if (length > line.length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                region.get(pos, line, 0, length);
+
+                if (!isBlank(line, length)) {
+                    try {
+                        result.transactions.add(codec.parse(line, 0, length));
+                    } catch (Exception e) {
+                        result.skipped++;
+                        System.err.println("Skipping invalid transaction record: "
+                                + new String(line, 0, length, StandardCharsets.UTF_8));
+                    }
+                }
+
+                pos = lineEnd + 1;
+            }
+
+            return result;
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private static int lastLineEnd(MappedByteBuffer region, int limit) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (region.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int nextLineStart(MappedByteBuffer region, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (region.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    // Matches the sequential loader, which skips lines where trim() is empty
+    private static boolean isBlank(byte[] line, int length) {
+        for (int i = 0; i < length; i++) {
+            if ((line[i] & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,112 @@
+package service;
+
+import model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.function.Predicate;
+
+/*
+ * Immutable filter for streaming over the transaction ledger.
+ * Each with* method returns a new query; unset criteria match everything.
+ *
+ *   TransactionQuery.all().withSymbol("AAPL").withType(Transaction.Type.BUY)
+ *           .withTimeRange(from, to)
+ */
+public final class TransactionQuery implements Predicate<Transaction> {
+
+    private static final TransactionQuery ALL = new TransactionQuery(null, null, null, null);
+
+    private final String symbol;
+    private final Transaction.Type type;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    // ---------- Constructor ----------
+    private TransactionQuery(String symbol, Transaction.Type type, LocalDateTime from, LocalDateTime to) {
+        this.symbol = symbol;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+    }
+
+    // ---------- Factory ----------
+    public static TransactionQuery all() {
+        return ALL;
+    }
+
+    // ---------- Criteria ----------
+    public TransactionQuery withSymbol(String symbol) {
+
+        if (symbol == null || symbol.trim().isEmpty()) {
+            throw new IllegalArgumentException("Stock symbol cannot be null or empty");
+        }
+
+        return new TransactionQuery(SymbolIndex.normalize(symbol), type, from, to);
+    }
+
+    public TransactionQuery withType(Transaction.Type type) {
+
+        if (type == null) {
+            throw new IllegalArgumentException("Transaction type cannot be null");
+        }
+
+        return new TransactionQuery(symbol, type, from, to);
+    }
+
+    // Inclusive start, exclusive end; either bound may be null (open)
+    public TransactionQuery withTimeRange(LocalDateTime from, LocalDateTime to) {
+
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Time range start must be before its end");
+        }
+
+        return new TransactionQuery(symbol, type, from, to);
+    }
+
+    // ---------- Getters ----------
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public Transaction.Type getType() {
+        return type;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    // ---------- Matching ----------
+    @Override
+    public boolean test(Transaction transaction) {
+
+        if (symbol != null && !symbol.equals(transaction.getStockSymbol())) {
+            return false;
+        }
+
+        if (type != null && type != transaction.getType()) {
+            return false;
+        }
+
+        LocalDateTime timestamp = transaction.getTimestamp();
+
+        if (from != null && timestamp.isBefore(from)) {
+            return false;
+        }
+
+        return to == null || timestamp.isBefore(to);
+    }
+
+    // ---------- Display ----------
+    @Override
+    public String toString() {
+        return "TransactionQuery[symbol=" + (symbol == null ? "*" : symbol)
+                + ", type=" + (type == null ? "*" : type)
+                + ", from=" + (from == null ? "*" : from)
+                + ", to=" + (to == null ? "*" : to) + "]";
+    }
+}
@@ -0,0 +1,678 @@
+package service;
+
+import model.SymbolTable;
+import model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjDoubleConsumer;
+
+/*
+ * Mark-to-market valuation and P&L for many accounts, maintained
+ * incrementally from the trade stream and price updates.
+ *
+ *   - a trade updates one position (quantity, cost basis, realized P&L)
+ *   - a price update walks only the positions holding that symbol
+ *     (symbol -> holders reverse index) and adjusts each account's running
+ *     market value by quantity * price change
+ *
+ * Neither ever re-reads the ledger. Cost basis is AVERAGE (weighted average
+ * cost) or FIFO (lots consumed oldest first), chosen per engine.
+ *
+ * Locking: each symbol has a lock that guards its mark price, its holders
+ * and every position in it; account totals are guarded by the account's
+ * monitor and are only ever taken inside a symbol lock.
+ */
+public class ValuationEngine implements TradeListener {
+
+    public enum CostBasis {
+        AVERAGE, FIFO
+    }
+
+    private final CostBasis method;
+    private final ConcurrentHashMap<String, Book> books = new ConcurrentHashMap<>();
+
+    // Indexed by SymbolTable id; grown under the engine monitor
+    private volatile SymbolState[] symbols = new SymbolState[256];
+
+    // SymbolTable id -> PriceTable id, rebuilt when the table changes
+    private PriceTable mappedTable;
+    private int[] tableIds = new int[0];
+
+    // ---------- Constructor ----------
+    public ValuationEngine(CostBasis method) {
+
+        if (method == null) {
+            throw new IllegalArgumentException("Cost basis method cannot be null");
+        }
+
+        this.method = method;
+    }
+
+    public CostBasis getMethod() {
+        return method;
+    }
+
+    // ---------- Trades ----------
+    @Override
+    public void onTrade(String accountId, Transaction transaction) {
+
+        if (accountId == null || transaction == null) {
+            throw new IllegalArgumentException("Account id and transaction cannot be null");
+        }
+
+        int symbolId = SymbolTable.idOf(transaction.getStockSymbol());
+        SymbolState state = stateFor(symbolId);
+        Book book = books.computeIfAbsent(accountId, id -> new Book());
+
+        state.lock.lock();
+        try {
+            if (Double.isNaN(state.mark)) {
+                state.mark = transaction.getPrice();
+            }
+
+            Position position = book.positions.computeIfAbsent(symbolId, id -> new Position(book, method));
+
+            long oldQuantity = position.quantity;
+            double oldCost = position.cost;
+            double oldRealized = position.realized;
+
+            if (transaction.getType() == Transaction.Type.BUY) {
+                position.buy(transaction.getQuantity(), transaction.getPrice());
+            } else if (position.sell(transaction.getQuantity(), transaction.getPrice()) < transaction.getQuantity()) {
+                System.err.println("Valuation: " + accountId + " sold more " + transaction.getStockSymbol()
+                        + " than its tracked position");
+            }
+
+            if (oldQuantity == 0 && position.quantity > 0) {
+                state.addHolder(position);
+            } else if (oldQuantity > 0 && position.quantity == 0) {
+                state.removeHolder(position);
+            }
+
+            synchronized (book) {
+                book.marketValue += (position.quantity - oldQuantity) * state.mark;
+                book.cost += position.cost - oldCost;
+                book.realized += position.realized - oldRealized;
+            }
+
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    // ---------- Prices ----------
+
+    // O(number of accounts holding the symbol)
+    public void onPrice(String symbol, double price) {
+
+        if (symbol == null) {
+            throw new IllegalArgumentException("Stock symbol cannot be null");
+        }
+
+        int symbolId = SymbolTable.find(SymbolIndex.normalize(symbol));
+
+        if (symbolId != SymbolTable.NOT_FOUND) {
+            reprice(stateFor(symbolId), price);
+        }
+    }
+
+    /*
+     * Pulls the latest prices from a PriceTable (e.g. one fed by PriceFeed)
+     * and reprices only the symbols whose price moved. Ticks between two
+     * calls are coalesced. Returns the number of symbols repriced.
+     */
+    public synchronized int markToMarket(PriceTable table) {
+
+        if (table == null) {
+            throw new IllegalArgumentException("Price table cannot be null");
+        }
+
+        SymbolState[] states = symbols;
+
+        if (table != mappedTable || tableIds.length < states.length) {
+            tableIds = new int[states.length];
+            for (int id = 0; id < states.length; id++) {
+                tableIds[id] = states[id] == null ? SymbolIndex.NOT_FOUND
+                        : table.getSymbolIndex().idOf(SymbolTable.symbolOf(id));
+            }
+            mappedTable = table;
+        }
+
+        int repriced = 0;
+
+        for (int id = 0; id < states.length; id++) {
+
+            SymbolState state = states[id];
+            int tableId = tableIds[id];
+
+            if (state == null) {
+                continue;
+            }
+
+            // State created after the mapping was built
+            if (tableId == SymbolIndex.NOT_FOUND) {
+                tableId = table.getSymbolIndex().idOf(SymbolTable.symbolOf(id));
+                tableIds[id] = tableId;
+                if (tableId == SymbolIndex.NOT_FOUND) {
+                    continue;
+                }
+            }
+
+            double price = table.getPrice(tableId);
+
+            if (price != state.mark) {
+                reprice(state, price);
+                repriced++;
+            }
+        }
+
+        return repriced;
+    }
+
+    // ---------- Queries ----------
+    public Valuation getValuation(String accountId) {
+
+        Book book = accountId == null ? null : books.get(accountId);
+
+        if (book == null) {
+            return null;
+        }
+
+        synchronized (book) {
+            return new Valuation(accountId, book.marketValue, book.cost, book.realized);
+        }
+    }
+
+    public List<PositionValue> getPositions(String accountId) {
+
+        Book book = accountId == null ? null : books.get(accountId);
+
+        if (book == null) {
+            return Collections.emptyList();
+        }
+
+        List<PositionValue> values = new ArrayList<>();
+
+        book.positions.forEach((symbolId, position) -> {
+            SymbolState state = stateFor(symbolId);
+            state.lock.lock();
+            try {
+                values.add(new PositionValue(SymbolTable.symbolOf(symbolId), position.quantity,
+                        position.cost, state.mark, position.realized));
+            } finally {
+                state.lock.unlock();
+            }
+        });
+
+        values.sort((a, b) -> a.getSymbol().compareTo(b.getSymbol()));
+        return values;
+    }
+
+    public int getAccountCount() {
+        return books.size();
+    }
+
+    /*
+     * Recomputes every account's totals from its positions, dropping the
+     * rounding drift of the running sums. O(positions), and blocks trades
+     * and price updates while it runs.
+     */
+    public synchronized void revalue() {
+
+        SymbolState[] states = symbols;
+
+        for (SymbolState state : states) {
+            if (state != null) {
+                state.lock.lock();
+            }
+        }
+
+        try {
+            for (Book book : books.values()) {
+
+                double marketValue = 0, cost = 0, realized = 0;
+
+                for (Map.Entry<Integer, Position> entry : book.positions.entrySet()) {
+                    Position position = entry.getValue();
+                    marketValue += position.quantity * states[entry.getKey()].mark;
+                    cost += position.cost;
+                    realized += position.realized;
+                }
+
+                synchronized (book) {
+                    book.marketValue = marketValue;
+                    book.cost = cost;
+                    book.realized = realized;
+                }
+            }
+        } finally {
+            for (SymbolState state : states) {
+                if (state != null) {
+                    state.lock.unlock();
+                }
+            }
+        }
+    }
+
+    // ---------- Persistence (ValuationStore) ----------
+
+    // A position with its FIFO lots oldest first (null for AVERAGE)
+    interface PositionVisitor {
+        void visit(String accountId, String symbol, long quantity, double cost, double realized,
+                int[] lotQuantities, double[] lotPrices);
+    }
+
+    // Every symbol's mark price; call while no trades or prices arrive
+    void forEachMark(ObjDoubleConsumer<String> visitor) {
+
+        SymbolState[] states = symbols;
+
+        for (int symbolId = 0; symbolId < states.length; symbolId++) {
+            SymbolState state = states[symbolId];
+            if (state == null || Double.isNaN(state.mark)) {
+                continue;
+            }
+            state.lock.lock();
+            try {
+                visitor.accept(SymbolTable.symbolOf(symbolId), state.mark);
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    // Every position, flat ones included for their realized P&L; call while no trades arrive
+    void forEachPosition(PositionVisitor visitor) {
+
+        books.forEach((accountId, book) -> book.positions.forEach((symbolId, position) -> {
+            SymbolState state = stateFor(symbolId);
+            state.lock.lock();
+            try {
+                int[] lotQuantities = null;
+                double[] lotPrices = null;
+                if (position.fifo) {
+                    lotQuantities = new int[position.lotCount];
+                    lotPrices = new double[position.lotCount];
+                    for (int i = 0; i < position.lotCount; i++) {
+                        int slot = (position.lotHead + i) % position.lotQuantities.length;
+                        lotQuantities[i] = position.lotQuantities[slot];
+                        lotPrices[i] = position.lotPrices[slot];
+                    }
+                }
+                visitor.visit(accountId, SymbolTable.symbolOf(symbolId), position.quantity, position.cost,
+                        position.realized, lotQuantities, lotPrices);
+            } finally {
+                state.lock.unlock();
+            }
+        }));
+    }
+
+    void restoreMark(String symbol, double price) {
+
+        SymbolState state = stateFor(SymbolTable.idOf(symbol));
+
+        state.lock.lock();
+        try {
+            state.mark = price;
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    // Marks are restored first, so the account's market value starts out right
+    void restorePosition(String accountId, String symbol, long quantity, double cost, double realized,
+            int[] lotQuantities, double[] lotPrices) {
+
+        int symbolId = SymbolTable.idOf(symbol);
+        SymbolState state = stateFor(symbolId);
+        Book book = books.computeIfAbsent(accountId, id -> new Book());
+
+        state.lock.lock();
+        try {
+            if (Double.isNaN(state.mark) && quantity > 0) {
+                state.mark = cost / quantity;
+            }
+
+            Position position = new Position(book, method);
+            position.quantity = quantity;
+            position.cost = cost;
+            position.realized = realized;
+
+            if (position.fifo && lotQuantities != null) {
+                for (int i = 0; i < lotQuantities.length; i++) {
+                    position.pushLot(lotQuantities[i], lotPrices[i]);
+                }
+            }
+
+            if (book.positions.putIfAbsent(symbolId, position) != null) {
+                throw new IllegalStateException("Duplicate position " + accountId + "/" + symbol);
+            }
+
+            if (quantity > 0) {
+                state.addHolder(position);
+            }
+
+            synchronized (book) {
+                book.marketValue += quantity > 0 ? quantity * state.mark : 0;
+                book.cost += cost;
+                book.realized += realized;
+            }
+
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    // ---------- Display ----------
+    public void displayValuation(String accountId) {
+
+        List<PositionValue> positions = getPositions(accountId);
+
+        if (positions.isEmpty()) {
+            System.out.println("No valuation data for " + accountId + ".");
+            return;
+        }
+
+        System.out.println("Symbol | Quantity |  Avg Cost |      Price |  Market Value |  Unrealized |    Realized");
+        System.out.println("---------------------------------------------------------------------------------------");
+
+        for (PositionValue position : positions) {
+            System.out.println(position);
+        }
+
+        System.out.println(getValuation(accountId));
+    }
+
+    // ---------- Helper Methods ----------
+    private void reprice(SymbolState state, double price) {
+
+        if (!(price > 0) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("Price must be a positive finite number");
+        }
+
+        state.lock.lock();
+        try {
+            double oldMark = state.mark;
+            state.mark = price;
+
+            if (Double.isNaN(oldMark)) {
+                return;
+            }
+
+            double change = price - oldMark;
+
+            for (int i = 0; i < state.holderCount; i++) {
+                Position position = state.holders[i];
+                synchronized (position.book) {
+                    position.book.marketValue += position.quantity * change;
+                }
+            }
+
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    private SymbolState stateFor(int symbolId) {
+
+        SymbolState[] states = symbols;
+
+        if (symbolId < states.length && states[symbolId] != null) {
+            return states[symbolId];
+        }
+
+        synchronized (this) {
+            states = symbols;
+
+            if (symbolId >= states.length) {
+                states = Arrays.copyOf(states, Math.max(states.length * 2, symbolId + 1));
+            }
+
+            if (states[symbolId] == null) {
+                states[symbolId] = new SymbolState();
+            }
+
+            symbols = states;
+            return states[symbolId];
+        }
+    }
+
+    // ---------- Per-Symbol State ----------
+    private static final class SymbolState {
+
+        final ReentrantLock lock = new ReentrantLock();
+        double mark = Double.NaN;
+
+        // Positions with a non-zero quantity; each knows its own slot
+        Position[] holders = new Position[4];
+        int holderCount;
+
+        void addHolder(Position position) {
+            if (holderCount == holders.length) {
+                holders = Arrays.copyOf(holders, holderCount * 2);
+            }
+            position.holderSlot = holderCount;
+            holders[holderCount++] = position;
+        }
+
+        void removeHolder(Position position) {
+            Position last = holders[--holderCount];
+            holders[position.holderSlot] = last;
+            last.holderSlot = position.holderSlot;
+            holders[holderCount] = null;
+            position.holderSlot = -1;
+        }
+    }
+
+    // ---------- Account ----------
+    private static final class Book {
+
+        final ConcurrentHashMap<Integer, Position> positions = new ConcurrentHashMap<>();
+
+        // Running totals, guarded by the book's monitor
+        double marketValue;
+        double cost;
+        double realized;
+    }
+
+    // ---------- Position (guarded by its symbol's lock) ----------
+    private static final class Position {
+
+        final Book book;
+        final boolean fifo;
+
+        long quantity;
+        double cost;
+        double realized;
+        int holderSlot = -1;
+
+        // FIFO lots as a ring buffer
+        int[] lotQuantities;
+        double[] lotPrices;
+        int lotHead;
+        int lotCount;
+
+        Position(Book book, CostBasis method) {
+            this.book = book;
+            this.fifo = method == CostBasis.FIFO;
+        }
+
+        void buy(int shares, double price) {
+
+            quantity += shares;
+            cost += shares * price;
+
+            if (fifo) {
+                pushLot(shares, price);
+            }
+        }
+
+        // Returns the number of shares actually closed against the position
+        long sell(int shares, double price) {
+
+            long closed = Math.min(shares, quantity);
+
+            if (fifo) {
+                long remaining = closed;
+                while (remaining > 0) {
+                    int take = (int) Math.min(remaining, lotQuantities[lotHead]);
+                    double lotPrice = lotPrices[lotHead];
+
+                    realized += (price - lotPrice) * take;
+                    cost -= lotPrice * take;
+                    remaining -= take;
+
+                    if ((lotQuantities[lotHead] -= take) == 0) {
+                        lotHead = (lotHead + 1) % lotQuantities.length;
+                        lotCount--;
+                    }
+                }
+            } else if (closed > 0) {
+                double average = cost / quantity;
+                realized += (price - average) * closed;
+                cost -= average * closed;
+            }
+
+            quantity -= closed;
+
+            if (quantity == 0) {
+                cost = 0; // no rounding residue on a flat position
+            }
+
+            return closed;
+        }
+
+        private void pushLot(int shares, double price) {
+
+            if (lotQuantities == null) {
+                lotQuantities = new int[4];
+                lotPrices = new double[4];
+            } else if (lotCount == lotQuantities.length) {
+                int[] quantities = new int[lotCount * 2];
+                double[] prices = new double[lotCount * 2];
+                for (int i = 0; i < lotCount; i++) {
+                    quantities[i] = lotQuantities[(lotHead + i) % lotCount];
+                    prices[i] = lotPrices[(lotHead + i) % lotCount];
+                }
+                lotQuantities = quantities;
+                lotPrices = prices;
+                lotHead = 0;
+            }
+
+            int tail = (lotHead + lotCount) % lotQuantities.length;
+            lotQuantities[tail] = shares;
+            lotPrices[tail] = price;
+            lotCount++;
+        }
+    }
+
+    // ---------- Account Valuation ----------
+    public static final class Valuation {
+
+        private final String accountId;
+        private final double marketValue;
+        private final double costBasis;
+        private final double realizedPnl;
+
+        private Valuation(String accountId, double marketValue, double costBasis, double realizedPnl) {
+            this.accountId = accountId;
+            this.marketValue = marketValue;
+            this.costBasis = costBasis;
+            this.realizedPnl = realizedPnl;
+        }
+
+        public String getAccountId() {
+            return accountId;
+        }
+
+        public double getMarketValue() {
+            return marketValue;
+        }
+
+        public double getCostBasis() {
+            return costBasis;
+        }
+
+        public double getUnrealizedPnl() {
+            return marketValue - costBasis;
+        }
+
+        public double getRealizedPnl() {
+            return realizedPnl;
+        }
+
+        public double getTotalPnl() {
+            return getUnrealizedPnl() + realizedPnl;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s | Market value: ₹%.2f | Cost basis: ₹%.2f | "
+                    + "Unrealized P&L: ₹%.2f | Realized P&L: ₹%.2f | Total P&L: ₹%.2f",
+                    accountId, marketValue, costBasis, getUnrealizedPnl(), realizedPnl, getTotalPnl());
+        }
+    }
+
+    // ---------- Position Valuation ----------
+    public static final class PositionValue {
+
+        private final String symbol;
+        private final long quantity;
+        private final double costBasis;
+        private final double price;
+        private final double realizedPnl;
+
+        private PositionValue(String symbol, long quantity, double costBasis, double price, double realizedPnl) {
+            this.symbol = symbol;
+            this.quantity = quantity;
+            this.costBasis = costBasis;
+            this.price = price;
+            this.realizedPnl = realizedPnl;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public double getCostBasis() {
+            return costBasis;
+        }
+
+        public double getAverageCost() {
+            return quantity == 0 ? 0 : costBasis / quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public double getMarketValue() {
+            return quantity * price;
+        }
+
+        public double getUnrealizedPnl() {
+            return getMarketValue() - costBasis;
+        }
+
+        public double getRealizedPnl() {
+            return realizedPnl;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-6s | %8d | %9.2f | %10.2f | %13.2f | %11.2f | %11.2f",
+                    symbol, quantity, getAverageCost(), price, getMarketValue(),
+                    getUnrealizedPnl(), realizedPnl);
+        }
+    }
+}
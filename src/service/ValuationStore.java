@@ -0,0 +1,200 @@
+package service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/*
+ * Persists a ValuationEngine's marks and positions, tagged with the
+ * transactions.txt byte offset they already include, so a restart loads
+ * the valuation and only applies the trades after that offset.
+ *
+ * File format (valuation.txt), after the checksum header line
+ * ChecksummedFile adds:
+ *   VALUATION,<format>,<journal offset>,<cost basis>
+ *   M,<symbol>,<mark price>
+ *   P,<account>,<symbol>,<quantity>,<cost>,<realized>,<lot count>   position
+ *   <quantity>,<price>                                              FIFO lot, times lot count
+ *   END,<position count>
+ *
+ * Written through ChecksummedFile, so a crash leaves the previous
+ * valuation file or the new one.
+ */
+public class ValuationStore {
+
+    private static final int FORMAT = 2;  // 2: shared portfolio keyed "Shared portfolio", not "PORTFOLIO"
+
+    private final Path file;
+    private final ChecksummedFile writer = new ChecksummedFile();  // guarded by this
+
+    // ---------- Saved Valuation ----------
+    public static final class Saved {
+
+        private final ValuationEngine valuation;
+        private final long journalOffset;
+
+        private Saved(ValuationEngine valuation, long journalOffset) {
+            this.valuation = valuation;
+            this.journalOffset = journalOffset;
+        }
+
+        public ValuationEngine getValuation() {
+            return valuation;
+        }
+
+        // Byte offset in transactions.txt up to which trades are included
+        public long getJournalOffset() {
+            return journalOffset;
+        }
+    }
+
+    // ---------- Constructor ----------
+    public ValuationStore(Path file) {
+
+        if (file == null) {
+            throw new IllegalArgumentException("Valuation file cannot be null");
+        }
+
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // ---------- Write ----------
+
+    // No trades may be added while this runs if journalOffset is to stay exact
+    public synchronized void write(ValuationEngine valuation, long journalOffset) {
+
+        if (valuation == null) {
+            throw new IllegalArgumentException("Valuation engine cannot be null");
+        }
+
+        if (journalOffset < 0) {
+            throw new IllegalArgumentException("Journal offset cannot be negative");
+        }
+
+        writer.begin();
+        writer.append("VALUATION,").append(FORMAT).append(',').append(journalOffset).append(',')
+                .append(valuation.getMethod().name()).newLine();
+
+        valuation.forEachMark((symbol, mark) ->
+                writer.append("M,").append(symbol).append(',').append(Double.toString(mark)).newLine());
+
+        int[] positionCount = new int[1];
+
+        valuation.forEachPosition((accountId, symbol, quantity, cost, realized, lotQuantities, lotPrices) -> {
+            int lots = lotQuantities == null ? 0 : lotQuantities.length;
+
+            writer.append("P,").append(accountId).append(',').append(symbol).append(',')
+                    .append(quantity).append(',')
+                    .append(Double.toString(cost)).append(',')
+                    .append(Double.toString(realized)).append(',')
+                    .append(lots).newLine();
+
+            for (int i = 0; i < lots; i++) {
+                writer.append(lotQuantities[i]).append(',').append(Double.toString(lotPrices[i])).newLine();
+            }
+
+            positionCount[0]++;
+        });
+
+        writer.append("END,").append(positionCount[0]).newLine();
+        writer.commit(file);
+    }
+
+    // ---------- Read ----------
+
+    /*
+     * The saved valuation if the file exists, is intact and uses this cost
+     * basis; otherwise null and the caller rebuilds from the ledger.
+     */
+    public synchronized Saved load(ValuationEngine.CostBasis method) {
+
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try {
+            return read(method);
+        } catch (Exception e) {
+            System.err.println("Skipping unreadable valuation file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ---------- Helper Methods ----------
+    private Saved read(ValuationEngine.CostBasis method) {
+
+        ValuationEngine valuation = new ValuationEngine(method);
+        Iterator<String> lines = ChecksummedFile.readLines(file).iterator();
+
+        String[] header = split(lines.hasNext() ? lines.next() : null, 4);
+        if (!"VALUATION".equals(header[0]) || Integer.parseInt(header[1]) != FORMAT) {
+            throw new IllegalStateException("Not a valuation file");
+        }
+
+        if (!header[3].equals(method.name())) {
+            // Cost basis changed since the file was written
+            return null;
+        }
+
+        long journalOffset = Long.parseLong(header[2]);
+        int positionCount = 0;
+
+        while (lines.hasNext()) {
+
+            String line = lines.next();
+
+            if (line.startsWith("END,")) {
+                if (Integer.parseInt(split(line, 2)[1]) != positionCount) {
+                    throw new IllegalStateException("Position count mismatch");
+                }
+                return new Saved(valuation, journalOffset);
+            }
+
+            if (line.startsWith("M,")) {
+                String[] mark = split(line, 3);
+                valuation.restoreMark(mark[1], Double.parseDouble(mark[2]));
+                continue;
+            }
+
+            String[] position = split(line, 7);
+            if (!"P".equals(position[0])) {
+                throw new IllegalStateException("Unknown record: " + line);
+            }
+
+            int lots = Integer.parseInt(position[6]);
+            int[] lotQuantities = new int[lots];
+            double[] lotPrices = new double[lots];
+
+            for (int i = 0; i < lots; i++) {
+                String[] lot = split(lines.hasNext() ? lines.next() : null, 2);
+                lotQuantities[i] = Integer.parseInt(lot[0]);
+                lotPrices[i] = Double.parseDouble(lot[1]);
+            }
+
+            valuation.restorePosition(position[1], position[2], Long.parseLong(position[3]),
+                    Double.parseDouble(position[4]), Double.parseDouble(position[5]),
+                    lots == 0 ? null : lotQuantities, lots == 0 ? null : lotPrices);
+            positionCount++;
+        }
+
+        throw new IllegalStateException("Valuation file is truncated");
+    }
+
+    private static String[] split(String line, int fields) {
+
+        if (line == null) {
+            throw new IllegalStateException("Valuation file is truncated");
+        }
+
+        String[] parts = line.split(",", fields);
+        if (parts.length != fields) {
+            throw new IllegalStateException("Malformed record: " + line);
+        }
+
+        return parts;
+    }
+}